@@ -6,10 +6,13 @@ import org.metaborg.core.analysis.IAnalysisService;
 import org.metaborg.core.analysis.IAnalyzeUnit;
 import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
 import org.metaborg.core.build.BuildOutput;
+import org.metaborg.core.build.BuildStateStore;
 import org.metaborg.core.build.Builder;
 import org.metaborg.core.build.IBuildOutputInternal;
 import org.metaborg.core.build.IBuilder;
+import org.metaborg.core.build.dependency.CachingDependencyService;
 import org.metaborg.core.build.dependency.DefaultDependencyService;
+import org.metaborg.core.build.dependency.ICachingDependencyService;
 import org.metaborg.core.build.dependency.IDependencyService;
 import org.metaborg.core.build.paths.DependencyPathProvider;
 import org.metaborg.core.build.paths.ILanguagePathProvider;
@@ -41,7 +44,11 @@ import org.metaborg.core.language.ILanguageIdentifierService;
 import org.metaborg.core.language.ILanguageService;
 import org.metaborg.core.language.LanguageIdentifierService;
 import org.metaborg.core.language.LanguageService;
+import org.metaborg.core.metrics.BuildMetrics;
+import org.metaborg.core.metrics.IBuildMetrics;
 import org.metaborg.core.processing.BlockingProcessor;
+import org.metaborg.core.processing.BuildCoordinator;
+import org.metaborg.core.processing.IBuildCoordinator;
 import org.metaborg.core.processing.ILanguageChangeProcessor;
 import org.metaborg.core.processing.IProcessor;
 import org.metaborg.core.processing.IProcessorRunner;
@@ -59,8 +66,12 @@ import org.metaborg.core.project.IProjectService;
 import org.metaborg.core.project.ISimpleProjectService;
 import org.metaborg.core.project.SimpleProjectService;
 import org.metaborg.core.resource.DefaultFileSystemManagerProvider;
+import org.metaborg.core.resource.FileTreeScanner;
+import org.metaborg.core.resource.IFileTreeScanner;
 import org.metaborg.core.resource.IResourceService;
+import org.metaborg.core.resource.IResourceWatchService;
 import org.metaborg.core.resource.ResourceService;
+import org.metaborg.core.resource.ResourceWatchService;
 import org.metaborg.core.source.ISourceTextService;
 import org.metaborg.core.source.SourceTextService;
 import org.metaborg.core.syntax.IParseUnit;
@@ -120,6 +131,9 @@ public class MetaborgModule extends AbstractModule {
         bindBuilder();
         bindProcessor();
         bindProcessorRunner();
+        bindBuildCoordinator();
+        bindBuildCoordinatorQuietPeriod();
+        bindBuildMetrics();
         bindLanguageChangeProcessing();
         bindEditor();
 
@@ -130,6 +144,10 @@ public class MetaborgModule extends AbstractModule {
         bind(ResourceService.class).in(Singleton.class);
         bind(IResourceService.class).to(ResourceService.class);
         autoClosableBinder.addBinding().to(ResourceService.class);
+        bind(IFileTreeScanner.class).to(FileTreeScanner.class).in(Singleton.class);
+        bind(ResourceWatchService.class).in(Singleton.class);
+        bind(IResourceWatchService.class).to(ResourceWatchService.class);
+        autoClosableBinder.addBinding().to(ResourceWatchService.class);
 
         bind(FileSystemManager.class).toProvider(DefaultFileSystemManagerProvider.class).in(Singleton.class);
     }
@@ -192,7 +210,10 @@ public class MetaborgModule extends AbstractModule {
     }
 
     protected void bindDependency() {
-        bind(IDependencyService.class).to(DefaultDependencyService.class).in(Singleton.class);
+        bind(DefaultDependencyService.class).in(Singleton.class);
+        bind(CachingDependencyService.class).in(Singleton.class);
+        bind(ICachingDependencyService.class).to(CachingDependencyService.class);
+        bind(IDependencyService.class).to(CachingDependencyService.class);
     }
 
     protected void bindSourceText() {
@@ -215,6 +236,7 @@ public class MetaborgModule extends AbstractModule {
         bind(IAnalysisResultProcessor.class).to(AnalysisResultProcessor.class);
 
         bind(IBuilder.class).to(Builder.class).in(Singleton.class);
+        bind(BuildStateStore.class).in(Singleton.class);
 
         // No scope for build output, new instance for every request.
         bind(
@@ -230,6 +252,26 @@ public class MetaborgModule extends AbstractModule {
         bind(IProcessor.class).to(BlockingProcessor.class).in(Singleton.class);
     }
 
+    protected void bindBuildCoordinator() {
+        bind(BuildCoordinator.class).in(Singleton.class);
+        bind(IBuildCoordinator.class).to(BuildCoordinator.class);
+        autoClosableBinder.addBinding().to(BuildCoordinator.class);
+    }
+
+    /**
+     * Binds the time without build requests for a project after which the build coordinator starts the merged build
+     * for the project. Override to change the quiet period.
+     */
+    protected void bindBuildCoordinatorQuietPeriod() {
+        bindConstant().annotatedWith(Names.named(BuildCoordinator.quietPeriodName))
+            .to(BuildCoordinator.defaultQuietPeriodMillis);
+    }
+
+    protected void bindBuildMetrics() {
+        bind(BuildMetrics.class).in(Singleton.class);
+        bind(IBuildMetrics.class).to(BuildMetrics.class);
+    }
+
     protected void bindLanguageChangeProcessing() {
         bind(ILanguageChangeProcessor.class).to(LanguageChangeProcessor.class).in(Singleton.class);
     }
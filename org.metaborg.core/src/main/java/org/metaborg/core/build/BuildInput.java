@@ -1,9 +1,11 @@
 package org.metaborg.core.build;
 
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSelector;
 import org.metaborg.core.action.ITransformGoal;
@@ -12,6 +14,7 @@ import org.metaborg.core.messages.IMessagePrinter;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.resource.ResourceChange;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 
 /**
@@ -35,6 +38,13 @@ public class BuildInput {
      */
     public final Iterable<ResourceChange> sourceChanges;
 
+    /**
+     * If the source changes contain all changes to resources in the project since the build that produced the build
+     * state, such as changes from an IDE resource change delta. When false, include files in the project are stamped
+     * to detect changes.
+     */
+    public final boolean completeChanges;
+
     /**
      * Per-language include paths;
      */
@@ -100,9 +110,19 @@ public class BuildInput {
         boolean analyze, @Nullable FileSelector analyzeSelector, boolean transform,
         @Nullable FileSelector transformSelector, Iterable<ITransformGoal> transformGoals,
         @Nullable IMessagePrinter messagePrinter, boolean throwOnErrors, Set<ILanguageImpl> pardonedLanguages) {
+        this(state, project, resourceChanges, false, includePaths, buildOrder, parseSelector, analyze, analyzeSelector,
+            transform, transformSelector, transformGoals, messagePrinter, throwOnErrors, pardonedLanguages);
+    }
+
+    public BuildInput(BuildState state, IProject project, Iterable<ResourceChange> resourceChanges,
+        boolean completeChanges, Multimap<ILanguageImpl, FileObject> includePaths, BuildOrder buildOrder,
+        @Nullable FileSelector parseSelector, boolean analyze, @Nullable FileSelector analyzeSelector,
+        boolean transform, @Nullable FileSelector transformSelector, Iterable<ITransformGoal> transformGoals,
+        @Nullable IMessagePrinter messagePrinter, boolean throwOnErrors, Set<ILanguageImpl> pardonedLanguages) {
         this.state = state;
         this.project = project;
         this.sourceChanges = resourceChanges;
+        this.completeChanges = completeChanges;
         this.includePaths = includePaths;
         this.buildOrder = buildOrder;
         this.selector = parseSelector;
@@ -115,4 +135,40 @@ public class BuildInput {
         this.throwOnErrors = throwOnErrors;
         this.pardonedLanguages = pardonedLanguages;
     }
+
+
+    /**
+     * Creates a build input with the source changes of given older input and this input, and all other properties of
+     * this input. When both inputs change the same resource, the change of this input is used. The merged changes are
+     * only complete when the changes of both inputs are complete.
+     * 
+     * @param older
+     *            Older build input to merge source changes from.
+     * @return Merged build input.
+     */
+    public BuildInput mergeSourceChanges(BuildInput older) {
+        final Map<FileName, ResourceChange> changes = Maps.newLinkedHashMap();
+        for(ResourceChange change : older.sourceChanges) {
+            changes.put(change.resource.getName(), change);
+        }
+        for(ResourceChange change : sourceChanges) {
+            changes.put(change.resource.getName(), change);
+        }
+        return new BuildInput(state, project, changes.values(), completeChanges && older.completeChanges, includePaths,
+            buildOrder, selector, analyze, analyzeSelector, transform, transformSelector, transformGoals,
+            messagePrinter, throwOnErrors, pardonedLanguages);
+    }
+
+    /**
+     * Creates a build input with given build state, and all other properties of this input.
+     * 
+     * @param state
+     *            Build state to use.
+     * @return Build input with given state.
+     */
+    public BuildInput withState(BuildState state) {
+        return new BuildInput(state, project, sourceChanges, completeChanges, includePaths, buildOrder, selector,
+            analyze, analyzeSelector, transform, transformSelector, transformGoals, messagePrinter, throwOnErrors,
+            pardonedLanguages);
+    }
 }
@@ -17,6 +17,7 @@ import org.metaborg.core.language.IdentifiedResource;
 import org.metaborg.core.language.LanguageUtils;
 import org.metaborg.core.messages.IMessagePrinter;
 import org.metaborg.core.project.IProject;
+import org.metaborg.core.resource.IFileTreeScanner;
 import org.metaborg.core.resource.ResourceChange;
 import org.metaborg.util.resource.ResourceUtils;
 
@@ -45,6 +46,7 @@ public class BuildInputBuilder {
 
     private Collection<ResourceChange> sourceChanges;
     private boolean addSourcesFromDefaultSourceLocations;
+    private boolean sourceChangesFromState;
 
     private @Nullable FileSelector selector;
 
@@ -78,6 +80,7 @@ public class BuildInputBuilder {
         addDefaultIncludePaths = true;
         sourceChanges = Lists.newLinkedList();
         addSourcesFromDefaultSourceLocations = false;
+        sourceChangesFromState = false;
         selector = null;
         analyze = true;
         analyzeSelector = null;
@@ -225,6 +228,15 @@ public class BuildInputBuilder {
         return this;
     }
 
+    /**
+     * Add addition source changes from source files at given source locations, found with given file tree scanner.
+     */
+    public BuildInputBuilder addSourcesFromSourceLocations(Iterable<FileObject> sourceLocations,
+        IFileTreeScanner fileTreeScanner) {
+        addSources(fileTreeScanner.scan(sourceLocations));
+        return this;
+    }
+
     /**
      * Sets if addition source changes should be added from source at default source locations, when the input is built.
      * Defaults to false.
@@ -235,6 +247,17 @@ public class BuildInputBuilder {
     }
 
 
+    /**
+     * Sets if, when adding sources from default source locations, only sources that changed since the build that
+     * produced the build state should be added, instead of all sources. Requires a build state, for example one loaded
+     * with {@link BuildStateStore#load}. Defaults to false.
+     */
+    public BuildInputBuilder withSourceChangesFromState(boolean sourceChangesFromState) {
+        this.sourceChangesFromState = sourceChangesFromState;
+        return this;
+    }
+
+
     /**
      * Sets the include files to given files.
      */
@@ -395,7 +418,12 @@ public class BuildInputBuilder {
         if(addSourcesFromDefaultSourceLocations) {
             for(ILanguageImpl language : languages) {
                 final Iterable<IdentifiedResource> sources = languagePathService.sourceFiles(this.project, language);
-                addIdentifiedSources(sources);
+                final LanguageBuildState languageState = state.getIfPresent(language);
+                if(sourceChangesFromState && languageState != null && languageState.hasSources()) {
+                    addSourceChanges(languageState.sourceChanges(sources));
+                } else {
+                    addIdentifiedSources(sources);
+                }
             }
         }
 
@@ -405,8 +433,11 @@ public class BuildInputBuilder {
             }
         }
 
-        return new BuildInput(state, this.project, sourceChanges, includePaths, new BuildOrder(languages), selector,
-            analyze, analyzeSelector, transform, transformSelector, transformGoals, messagePrinter, throwOnErrors,
-            pardonedLanguages);
+        // Source changes from default source locations are derived from a listing or from the build state, and do not
+        // include in-place changes to include files in the project.
+        final boolean completeChanges = !addSourcesFromDefaultSourceLocations;
+        return new BuildInput(state, this.project, sourceChanges, completeChanges, includePaths,
+            new BuildOrder(languages), selector, analyze, analyzeSelector, transform, transformSelector, transformGoals,
+            messagePrinter, throwOnErrors, pardonedLanguages);
     }
 }
@@ -1,6 +1,11 @@
 package org.metaborg.core.build;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import org.metaborg.core.language.ILanguageIdentifierService;
 import org.metaborg.core.language.ILanguageImpl;
@@ -9,19 +14,93 @@ import org.metaborg.core.resource.IResourceService;
 import com.google.common.collect.Maps;
 
 public class BuildState {
+    /**
+     * Minimum number of unreferenced identifiers in the identifier table before {@link #compact()} replaces it.
+     */
+    private static final int compactMinUnreferenced = 1024;
+
+    private final ResourceIdTable ids;
     private final Map<ILanguageImpl, LanguageBuildState> languageBuildStates = Maps.newHashMap();
 
 
+    public BuildState() {
+        this.ids = new ResourceIdTable();
+    }
+
+    /**
+     * Creates an empty build state that shares interned resource identifiers with given previous build state.
+     * 
+     * @param previous
+     *            Build state of the previous build.
+     */
+    public BuildState(BuildState previous) {
+        this.ids = previous.ids;
+    }
+
+    BuildState(ResourceIdTable ids) {
+        this.ids = ids;
+    }
+
+
+    ResourceIdTable ids() {
+        return ids;
+    }
+
+    /**
+     * Returns a build state with the same language build states as this build state, with an identifier table that
+     * only contains the resource identifiers referenced by those states, if the identifier table of this build state
+     * holds more unreferenced than referenced identifiers. This build state is not modified, since it may still be used
+     * by other builds.
+     * 
+     * @return Compacted build state, or this build state if compacting is not worth it.
+     */
+    public BuildState compact() {
+        int referenced = 0;
+        for(LanguageBuildState state : languageBuildStates.values()) {
+            referenced += state.referencedIds();
+        }
+        final int unreferenced = ids.size() - referenced;
+        if(unreferenced < compactMinUnreferenced || unreferenced < referenced) {
+            return this;
+        }
+
+        final ResourceIdTable newIds = new ResourceIdTable();
+        final BuildState newState = new BuildState(newIds);
+        for(Entry<ILanguageImpl, LanguageBuildState> entry : languageBuildStates.entrySet()) {
+            newState.add(entry.getKey(), entry.getValue().copy(newIds));
+        }
+        return newState;
+    }
+
+
     public LanguageBuildState get(IResourceService resourceService,
         ILanguageIdentifierService languageIdentifierService, ILanguageImpl language) {
         LanguageBuildState state = languageBuildStates.get(language);
         if(state == null) {
-            state = new LanguageBuildState(resourceService, languageIdentifierService, language);
+            state = new LanguageBuildState(resourceService, languageIdentifierService, language, ids);
             languageBuildStates.put(language, state);
         }
         return state;
     }
 
+    /**
+     * Gets the build state of given language, if it exists.
+     * 
+     * @param language
+     *            Language to get the build state for.
+     * @return Build state of the language, or null if it does not exist.
+     */
+    public @Nullable LanguageBuildState getIfPresent(ILanguageImpl language) {
+        return languageBuildStates.get(language);
+    }
+
+    /**
+     * @return Languages that have a build state.
+     */
+    public Set<ILanguageImpl> languages() {
+        return Collections.unmodifiableSet(languageBuildStates.keySet());
+    }
+
     public void add(ILanguageImpl language, LanguageBuildState state) {
         this.languageBuildStates.put(language, state);
     }
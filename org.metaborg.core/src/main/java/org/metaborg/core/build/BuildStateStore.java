@@ -0,0 +1,180 @@
+package org.metaborg.core.build;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.metaborg.core.language.ILanguageIdentifierService;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.project.IProject;
+import org.metaborg.core.resource.IResourceService;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.inject.Inject;
+
+/**
+ * Persists build states of projects to {@link CommonPaths#buildStateFile()}, such that the changes since the last
+ * build can be computed after a restart, instead of rebuilding all sources. The file is versioned, files of a different
+ * version or that cannot be read are deleted and ignored. Languages of a persisted build state that are not loaded are
+ * skipped.
+ *
+ * Persisting build states is opt-in, builders do not use this store by themselves. A caller loads the build state of a
+ * project, passes it to {@link BuildInputBuilder#withState} together with
+ * {@link BuildInputBuilder#withSourceChangesFromState}, and persists the build state of the build output.
+ */
+public class BuildStateStore {
+    private static final ILogger logger = LoggerUtils.logger(BuildStateStore.class);
+
+    private static final int magic = 0x4D424253;
+    private static final int version = 1;
+
+    private final IResourceService resourceService;
+    private final ILanguageService languageService;
+    private final ILanguageIdentifierService languageIdentifierService;
+
+
+    @Inject public BuildStateStore(IResourceService resourceService, ILanguageService languageService,
+        ILanguageIdentifierService languageIdentifierService) {
+        this.resourceService = resourceService;
+        this.languageService = languageService;
+        this.languageIdentifierService = languageIdentifierService;
+    }
+
+
+    /**
+     * Loads the persisted build state of given project.
+     *
+     * @param project
+     *            Project to load the build state for.
+     * @return Loaded build state, or null if there is no persisted build state, or if it could not be read.
+     */
+    public @Nullable BuildState load(IProject project) {
+        final FileObject file = new CommonPaths(project.location()).buildStateFile();
+        try {
+            if(!file.exists()) {
+                return null;
+            }
+        } catch(FileSystemException e) {
+            logger.warn("Cannot check if build state file {} exists, ignoring persisted build state", e, file);
+            return null;
+        }
+
+        try(final DataInputStream input =
+            new DataInputStream(new BufferedInputStream(file.getContent().getInputStream()))) {
+            if(input.readInt() != magic || input.readInt() != version) {
+                logger.warn("Build state file {} has an unsupported format, deleting it", file);
+                delete(file);
+                return null;
+            }
+            final ResourceIdTable ids = new ResourceIdTable();
+            final BuildState state = new BuildState(ids);
+            final int languageCount = input.readInt();
+            for(int i = 0; i < languageCount; ++i) {
+                final String id = input.readUTF();
+                final int length = input.readInt();
+                final ILanguageImpl language = languageService.getImpl(LanguageIdentifier.parseFull(id));
+                if(language == null) {
+                    logger.debug("Language {} of persisted build state is not loaded, skipping", id);
+                    input.readFully(new byte[length]);
+                    continue;
+                }
+                final LanguageBuildState languageState = LanguageBuildState.read(input, resourceService,
+                    languageIdentifierService, languageService, language, ids);
+                state.add(language, languageState);
+            }
+            return state;
+        } catch(IOException | IllegalArgumentException e) {
+            logger.warn("Cannot read build state file {}, deleting it", e, file);
+            delete(file);
+            return null;
+        }
+    }
+
+    /**
+     * Persists given build state of given project, replacing the previously persisted build state.
+     *
+     * @param project
+     *            Project to persist the build state for.
+     * @param state
+     *            Build state to persist.
+     * @throws IOException
+     *             When writing the build state file fails.
+     */
+    public void persist(IProject project, BuildState state) throws IOException {
+        final FileObject file = new CommonPaths(project.location()).buildStateFile();
+        // Write to a temporary file first and move it over the build state file, such that a build state file is never
+        // partially written when writing fails or the process is killed.
+        final FileObject tempFile = file.getParent().resolveFile(file.getName().getBaseName() + ".tmp");
+        final Set<ILanguageImpl> languages = state.languages();
+        try(final DataOutputStream output =
+            new DataOutputStream(new BufferedOutputStream(tempFile.getContent().getOutputStream()))) {
+            output.writeInt(magic);
+            output.writeInt(version);
+            output.writeInt(languages.size());
+            for(ILanguageImpl language : languages) {
+                final LanguageBuildState languageState = state.getIfPresent(language);
+                // Write language state to a buffer first, such that its length is known and it can be skipped.
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try(final DataOutputStream languageOutput = new DataOutputStream(bytes)) {
+                    languageState.write(languageOutput);
+                }
+                output.writeUTF(language.id().toString());
+                output.writeInt(bytes.size());
+                bytes.writeTo(output);
+            }
+        } catch(IOException e) {
+            delete(tempFile);
+            throw e;
+        }
+        move(tempFile, file);
+    }
+
+    /**
+     * Deletes the persisted build state of given project, if it exists.
+     *
+     * @param project
+     *            Project to delete the build state for.
+     */
+    public void delete(IProject project) {
+        delete(new CommonPaths(project.location()).buildStateFile());
+    }
+
+
+    private void move(FileObject source, FileObject target) throws IOException {
+        final File localSource = resourceService.localPath(source);
+        final File localTarget = resourceService.localPath(target);
+        if(localSource != null && localTarget != null) {
+            try {
+                Files.move(localSource.toPath(), localTarget.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+                return;
+            } catch(AtomicMoveNotSupportedException e) {
+                logger.debug("Cannot atomically move {} to {}, moving non-atomically", e, source, target);
+            }
+        }
+        source.moveTo(target);
+    }
+
+    private void delete(FileObject file) {
+        try {
+            file.delete();
+        } catch(FileSystemException e) {
+            logger.error("Cannot delete build state file {}", e, file);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.metaborg.core.build;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -18,7 +19,6 @@ import org.metaborg.core.analysis.IAnalysisService;
 import org.metaborg.core.analysis.IAnalyzeResults;
 import org.metaborg.core.analysis.IAnalyzeUnit;
 import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
-import org.metaborg.core.build.paths.ILanguagePathService;
 import org.metaborg.core.context.ContextException;
 import org.metaborg.core.context.ContextUtils;
 import org.metaborg.core.context.IContext;
@@ -26,16 +26,23 @@ import org.metaborg.core.context.IContextService;
 import org.metaborg.core.language.ILanguageIdentifierService;
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.language.IdentifiedResource;
+import org.metaborg.core.language.LanguageUtils;
 import org.metaborg.core.language.LanguagesFileSelector;
 import org.metaborg.core.messages.IMessage;
 import org.metaborg.core.messages.IMessagePrinter;
 import org.metaborg.core.messages.MessageFactory;
 import org.metaborg.core.messages.MessageSeverity;
 import org.metaborg.core.messages.MessageUtils;
+import org.metaborg.core.metrics.BuildPhase;
+import org.metaborg.core.metrics.IBuildMetrics;
 import org.metaborg.core.processing.ICancellationToken;
 import org.metaborg.core.processing.IProgressReporter;
+import org.metaborg.core.processing.InterruptOnCancel;
 import org.metaborg.core.processing.analyze.IAnalysisResultUpdater;
 import org.metaborg.core.processing.parse.IParseResultUpdater;
+import org.metaborg.core.resource.FileTreeFilters;
+import org.metaborg.core.resource.IFileTreeFilter;
+import org.metaborg.core.resource.IFileTreeScanner;
 import org.metaborg.core.resource.IResourceService;
 import org.metaborg.core.resource.IdentifiedResourceChange;
 import org.metaborg.core.resource.ResourceChange;
@@ -55,6 +62,7 @@ import org.metaborg.util.iterators.Iterables2;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 import org.metaborg.util.resource.FileSelectorUtils;
+import org.metaborg.util.time.Timer;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterables;
@@ -85,8 +93,8 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
     private static final ILogger logger = LoggerUtils.logger(Builder.class);
 
     private final IResourceService resourceService;
+    private final IFileTreeScanner fileTreeScanner;
     private final ILanguageIdentifierService languageIdentifier;
-    private final ILanguagePathService languagePathService;
     private final IUnitService<I, P, A, AU, TP, TA> unitService;
     private final ISourceTextService sourceTextService;
     private final ISyntaxService<I, P> syntaxService;
@@ -96,19 +104,20 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
 
     private final IParseResultUpdater<P> parseResultUpdater;
     private final IAnalysisResultUpdater<P, A> analysisResultUpdater;
+    private final IBuildMetrics metrics;
 
     private final Provider<IBuildOutputInternal<P, A, AU, T>> buildOutputProvider;
 
 
-    @Inject public Builder(IResourceService resourceService, ILanguageIdentifierService languageIdentifier,
-        ILanguagePathService languagePathService, IUnitService<I, P, A, AU, TP, TA> unitService,
+    @Inject public Builder(IResourceService resourceService, IFileTreeScanner fileTreeScanner,
+        ILanguageIdentifierService languageIdentifier, IUnitService<I, P, A, AU, TP, TA> unitService,
         ISourceTextService sourceTextService, ISyntaxService<I, P> syntaxService, IContextService contextService,
         IAnalysisService<P, A, AU> analysisService, ITransformService<P, A, TP, TA> transformService,
         IParseResultUpdater<P> parseResultUpdater, IAnalysisResultUpdater<P, A> analysisResultUpdater,
-        Provider<IBuildOutputInternal<P, A, AU, T>> buildOutputProvider) {
+        IBuildMetrics metrics, Provider<IBuildOutputInternal<P, A, AU, T>> buildOutputProvider) {
         this.resourceService = resourceService;
+        this.fileTreeScanner = fileTreeScanner;
         this.languageIdentifier = languageIdentifier;
-        this.languagePathService = languagePathService;
         this.unitService = unitService;
         this.sourceTextService = sourceTextService;
         this.syntaxService = syntaxService;
@@ -118,6 +127,7 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
 
         this.parseResultUpdater = parseResultUpdater;
         this.analysisResultUpdater = analysisResultUpdater;
+        this.metrics = metrics;
 
         this.buildOutputProvider = buildOutputProvider;
     }
@@ -133,6 +143,8 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
 
         final FileSelector selector = input.selector;
         final FileObject location = input.project.location();
+        final Collection<ResourceChange> includedChanges = Lists.newArrayList();
+        final Collection<FileObject> includedResources = Lists.newArrayList();
         for(ResourceChange change : input.sourceChanges) {
             cancel.throwIfCancelled();
 
@@ -148,7 +160,15 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
                 }
             }
 
-            final IdentifiedResource identifiedResource = languageIdentifier.identifyToResource(resource, languages);
+            includedChanges.add(change);
+            includedResources.add(resource);
+        }
+
+        cancel.throwIfCancelled();
+        final Map<FileName, IdentifiedResource> identifiedResources =
+            languageIdentifier.identifyToResources(includedResources, languages);
+        for(ResourceChange change : includedChanges) {
+            final IdentifiedResource identifiedResource = identifiedResources.get(change.resource.getName());
             if(identifiedResource != null) {
                 final IdentifiedResourceChange identifiedChange =
                     new IdentifiedResourceChange(change, identifiedResource);
@@ -167,13 +187,15 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
 
         cancel.throwIfCancelled();
 
-        final BuildState newState = new BuildState();
+        // Identifiers of deleted resources accumulate in the shared identifier table, compact it when needed.
+        final BuildState oldState = input.state.compact();
+        final BuildState newState = new BuildState(oldState);
         final IBuildOutputInternal<P, A, AU, T> buildOutput = buildOutputProvider.get();
         buildOutput.setState(newState);
         for(ILanguageImpl language : input.buildOrder.buildOrder()) {
             cancel.throwIfCancelled();
 
-            final LanguageBuildState languageState = input.state.get(resourceService, languageIdentifier, language);
+            final LanguageBuildState languageState = oldState.get(resourceService, languageIdentifier, language);
             final Collection<IdentifiedResourceChange> sourceChanges = changes.get(language);
             if(sourceChanges.size() == 0) {
                 // When there are no source changes for this language, keep the old state and don't build.
@@ -182,8 +204,10 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
             }
 
             final Iterable<FileObject> includePaths = input.includePaths.get(language);
-            final Iterable<IdentifiedResource> includeFiles = languagePathService.toFiles(includePaths, language);
-            final LanguageBuildDiff diff = languageState.diff(changes.get(language), includeFiles);
+            // Complete source changes cover the project, but not include paths outside of the project.
+            final FileObject changesRoot = input.completeChanges ? location : null;
+            final LanguageBuildDiff diff =
+                languageState.diff(changes.get(language), includePaths, input.sourceChanges, changesRoot);
             final boolean pardoned = input.pardonedLanguages.contains(language);
             updateLanguageResources(input, language, diff, buildOutput, pardoned, cancel);
             newState.add(language, diff.newState);
@@ -308,7 +332,15 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
                     final String sourceText = sourceTextService.text(resource);
                     parseResultUpdater.invalidate(resource);
                     final I inputUnit = unitService.inputUnit(resource, sourceText, langImpl, dialect);
-                    final P parseResult = syntaxService.parse(inputUnit);
+                    final P parseResult;
+                    final Timer timer = new Timer(true);
+                    try(InterruptOnCancel interrupt = new InterruptOnCancel(cancel)) {
+                        parseResult = syntaxService.parse(inputUnit);
+                    } finally {
+                        metrics.record(BuildPhase.Parse, resource.getName().getURI(), timer.stop());
+                    }
+                    // An interrupted parse returns a result with a fatal error, do not publish it.
+                    cancel.throwIfCancelled();
                     final boolean noErrors = printMessages(parseResult.messages(), "Parsing", input, pardoned);
                     success.and(noErrors);
                     allParseUnits.add(parseResult);
@@ -316,6 +348,7 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
                     changedResources.add(resource);
                 }
             } catch(ParseException e) {
+                cancel.throwIfCancelled();
                 final String message = logger.format("Parsing {} failed unexpectedly", resource);
                 final boolean noErrors = printMessage(resource, message, e, input, pardoned);
                 success.and(noErrors);
@@ -355,7 +388,15 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
             try {
                 try(IClosableLock lock = context.write()) {
                     analysisResultUpdater.invalidate(parseResults);
-                    final IAnalyzeResults<A, AU> results = analysisService.analyzeAll(parseResults, context);
+                    final IAnalyzeResults<A, AU> results;
+                    final Timer timer = new Timer(true);
+                    // Not wrapped in InterruptOnCancel: the Stratego interpreter has no interrupt points, so an
+                    // interrupt would not stop analysis, but could break unrelated blocking I/O in analyzers.
+                    try {
+                        results = analysisService.analyzeAll(parseResults, context);
+                    } finally {
+                        metrics.record(BuildPhase.Analysis, context.location().getName().getURI(), timer.stop());
+                    }
                     for(A result : results.results()) {
                         cancel.throwIfCancelled();
                         final boolean noErrors = printMessages(result.messages(), "Analysis", input, pardoned);
@@ -365,9 +406,12 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
                     }
                     analyzeUpdates.addAll(results.updates());
                 } finally {
+                    final Timer timer = new Timer(true);
                     context.persist();
+                    metrics.record(BuildPhase.Persist, context.location().getName().getURI(), timer.stop());
                 }
             } catch(AnalysisException e) {
+                cancel.throwIfCancelled();
                 final String message = "Analysis failed unexpectedly";
                 final boolean noErrors = printMessage(message, e, input, pardoned);
                 success.and(noErrors);
@@ -423,7 +467,13 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
                             continue;
                         }
                         try {
-                            final Collection<TA> results = transformService.transform(analysisResult, context, goal);
+                            final Timer timer = new Timer(true);
+                            final Collection<TA> results;
+                            try {
+                                results = transformService.transform(analysisResult, context, goal);
+                            } finally {
+                                metrics.record(BuildPhase.Transform, goal.toString(), timer.stop());
+                            }
                             for(TA result : results) {
                                 final boolean noErrors =
                                     printMessages(result.messages(), goal + " transformation", input, pardoned);
@@ -493,26 +543,55 @@ public class Builder<I extends IInputUnit, P extends IParseUnit, A extends IAnal
         final FileObject location = input.project.location();
         logger.debug("Cleaning {}", location);
 
-        FileSelector selector = new LanguagesFileSelector(languageIdentifier, input.languages);
+        final Iterable<FileObject> resources;
         if(input.selector != null) {
-            selector = FileSelectorUtils.and(selector, input.selector);
-        }
-        try {
-            final FileObject[] resources = location.findFiles(selector);
-            if(resources == null) {
+            // Arbitrary selectors need file system objects for every file, scan with VFS.
+            final FileSelector selector =
+                FileSelectorUtils.and(new LanguagesFileSelector(languageIdentifier, input.languages), input.selector);
+            try {
+                final FileObject[] foundResources = location.findFiles(selector);
+                if(foundResources == null) {
+                    return;
+                }
+                resources = Iterables2.from(foundResources);
+            } catch(FileSystemException e) {
+                logger.error("Could not clean contexts at {}", e, location);
                 return;
             }
-            final Set<IContext> contexts =
-                ContextUtils.getAll(Iterables2.from(resources), input.project, languageIdentifier, contextService);
-            for(IContext context : contexts) {
-                try {
-                    context.reset();
-                } catch(IOException e) {
-                    logger.error("Could not clean {}", e, context);
-                }
+        } else {
+            resources = languageResources(location, input.languages);
+        }
+        final Set<IContext> contexts =
+            ContextUtils.getAll(resources, input.project, languageIdentifier, contextService);
+        for(IContext context : contexts) {
+            try {
+                context.reset();
+            } catch(IOException e) {
+                logger.error("Could not clean {}", e, context);
+            }
+        }
+    }
+
+    private Collection<FileObject> languageResources(FileObject location, Iterable<ILanguageImpl> languages) {
+        // Only scan for files with extensions of the languages, if identification is purely based on extensions.
+        final Set<String> extensions = Sets.newHashSet();
+        for(ILanguageImpl language : languages) {
+            final Set<String> languageExtensions = LanguageUtils.identifiedExtensions(language);
+            if(languageExtensions == null) {
+                extensions.clear();
+                break;
+            }
+            extensions.addAll(languageExtensions);
+        }
+        final IFileTreeFilter filter =
+            extensions.isEmpty() ? FileTreeFilters.all() : FileTreeFilters.extensions(extensions);
+
+        final Collection<FileObject> resources = Lists.newArrayList();
+        for(FileObject resource : fileTreeScanner.scan(Iterables2.singleton(location), filter)) {
+            if(languageIdentifier.identify(resource, languages) != null) {
+                resources.add(resource);
             }
-        } catch(FileSystemException e) {
-            logger.error("Could not clean contexts at {}", e, location);
         }
+        return resources;
     }
 }
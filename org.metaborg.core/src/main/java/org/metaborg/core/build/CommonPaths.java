@@ -80,6 +80,13 @@ public class CommonPaths {
     }
 
 
+    /**
+     * @return Persisted build state file.
+     */
+    public FileObject buildStateFile() {
+        return resolve(targetDir(), "metaborg-build.state");
+    }
+
     /**
      * @return Target output directory for replicated resources.
      */
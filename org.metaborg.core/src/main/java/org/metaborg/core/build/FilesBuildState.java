@@ -0,0 +1,198 @@
+package org.metaborg.core.build;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.metaborg.core.resource.IResourceService;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Build state of files, as persistent maps from interned resource identifiers to modification stamps and content
+ * hashes. Copying a state is free, and updating a state only copies the path to the updated entry. Content hashes are
+ * computed lazily, and are discarded when the modification stamp of a file changes.
+ */
+class FilesBuildState {
+    private static final ILogger logger = LoggerUtils.logger(FilesBuildState.class);
+
+    private final ResourceIdTable ids;
+    private PersistentStampMap modification;
+    private PersistentStampMap hashes;
+
+
+    public FilesBuildState(ResourceIdTable ids) {
+        this(ids, PersistentStampMap.empty(), PersistentStampMap.empty());
+    }
+
+    private FilesBuildState(ResourceIdTable ids, PersistentStampMap modification, PersistentStampMap hashes) {
+        this.ids = ids;
+        this.modification = modification;
+        this.hashes = hashes;
+    }
+
+
+    public FilesBuildState copy() {
+        return new FilesBuildState(ids, modification, hashes);
+    }
+
+    /**
+     * Copies this state into given identifier table, interning only the resources that this state references.
+     */
+    public FilesBuildState copy(ResourceIdTable newIds) {
+        PersistentStampMap newModification = PersistentStampMap.empty();
+        PersistentStampMap newHashes = PersistentStampMap.empty();
+        for(int key : modification.keys()) {
+            final int newKey = newIds.id(ids.uri(key));
+            newModification = newModification.put(newKey, modification.get(key, Long.MIN_VALUE));
+            if(hashes.contains(key)) {
+                newHashes = newHashes.put(newKey, hashes.get(key, 0));
+            }
+        }
+        return new FilesBuildState(newIds, newModification, newHashes);
+    }
+
+    public long add(FileObject resource) {
+        final int id = ids.id(resource.getName());
+        final long oldModification = modification.get(id, Long.MIN_VALUE);
+        long newModification;
+        try {
+            newModification = resource.getContent().getLastModifiedTime();
+            modification = modification.put(id, newModification);
+        } catch(FileSystemException e) {
+            newModification = Long.MAX_VALUE;
+            modification = modification.put(id, Long.MIN_VALUE);
+        }
+        if(newModification != oldModification) {
+            hashes = hashes.remove(id);
+        }
+        return newModification;
+    }
+
+    /**
+     * Updates the modification stamp of given file, keeping its content hash. Used when the modification stamp of a
+     * file changed but its content did not, such that the content is not hashed again in the next build.
+     */
+    public void restamp(FileName name, long newModification) {
+        final int id = ids.find(name);
+        if(id == ResourceIdTable.absent) {
+            return;
+        }
+        modification = modification.put(id, newModification);
+    }
+
+    public void remove(FileName name) {
+        final int id = ids.find(name);
+        if(id == ResourceIdTable.absent) {
+            return;
+        }
+        modification = modification.remove(id);
+        hashes = hashes.remove(id);
+    }
+
+    public boolean contains(FileName name) {
+        return modification.contains(ids.find(name));
+    }
+
+    public long modification(FileName name, long defaultModification) {
+        return modification.get(ids.find(name), defaultModification);
+    }
+
+    public boolean hasHash(FileName name) {
+        return hashes.contains(ids.find(name));
+    }
+
+    public long hash(FileName name) {
+        return hashes.get(ids.find(name), 0);
+    }
+
+    public Collection<String> uris() {
+        final int[] keys = modification.keys();
+        final Collection<String> uris = Lists.newArrayListWithCapacity(keys.length);
+        for(int key : keys) {
+            uris.add(ids.uri(key));
+        }
+        return uris;
+    }
+
+    public int size() {
+        return modification.size();
+    }
+
+
+    /**
+     * Computes content hashes for all files that do not have a hash yet.
+     */
+    public void updateHashes(IResourceService resourceService) {
+        for(int key : modification.keys()) {
+            if(hashes.contains(key)) {
+                continue;
+            }
+            final FileObject resource = resourceService.resolve(ids.uri(key));
+            try {
+                hashes = hashes.put(key, hash(resource));
+            } catch(IOException e) {
+                logger.debug("Cannot hash {}, skipping", e, resource);
+            }
+        }
+    }
+
+    /**
+     * Computes the content hash of given file.
+     */
+    public static long hash(FileObject resource) throws IOException {
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        final byte[] buffer = new byte[8192];
+        try(InputStream stream = resource.getContent().getInputStream()) {
+            int read;
+            while((read = stream.read(buffer)) != -1) {
+                hasher.putBytes(buffer, 0, read);
+            }
+        }
+        return hasher.hash().asLong();
+    }
+
+
+    /**
+     * Writes this state as a count, followed by a URI, modification stamp, and optional content hash per file.
+     */
+    public void write(DataOutput output) throws IOException {
+        final int[] keys = modification.keys();
+        output.writeInt(keys.length);
+        for(int key : keys) {
+            output.writeUTF(ids.uri(key));
+            output.writeLong(modification.get(key, Long.MIN_VALUE));
+            final boolean hasHash = hashes.contains(key);
+            output.writeBoolean(hasHash);
+            if(hasHash) {
+                output.writeLong(hashes.get(key, 0));
+            }
+        }
+    }
+
+    /**
+     * Reads a state written with {@link #write(DataOutput)}, interning resources into given table.
+     */
+    public static FilesBuildState read(DataInput input, ResourceIdTable ids) throws IOException {
+        final int size = input.readInt();
+        PersistentStampMap modification = PersistentStampMap.empty();
+        PersistentStampMap hashes = PersistentStampMap.empty();
+        for(int i = 0; i < size; ++i) {
+            final int id = ids.id(input.readUTF());
+            modification = modification.put(id, input.readLong());
+            if(input.readBoolean()) {
+                hashes = hashes.put(id, input.readLong());
+            }
+        }
+        return new FilesBuildState(ids, modification, hashes);
+    }
+}
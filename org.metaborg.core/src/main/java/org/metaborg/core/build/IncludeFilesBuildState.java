@@ -0,0 +1,170 @@
+package org.metaborg.core.build;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.IdentifiedResource;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.resource.IResourceService;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Build state of the include files of a language. Keeps a snapshot of include directories with their modification
+ * stamps, their include files, and their subdirectories. Entries are immutable, entries of directories that did not
+ * change are shared with the state of the previous build.
+ */
+class IncludeFilesBuildState {
+    /**
+     * Stamp of a directory or file that could not be stamped, never equal to any other stamp.
+     */
+    public static final long unknownStamp = Long.MIN_VALUE;
+
+    /**
+     * Include directories, including nested directories, by name.
+     */
+    public final Map<FileName, DirectoryState> directories = Maps.newHashMap();
+
+    /**
+     * Include paths that are files instead of directories, by name.
+     */
+    public final Map<FileName, FileState> rootFiles = Maps.newHashMap();
+
+
+    /**
+     * Writes this state. Resources are written as URIs, and dialects of include files as language identifiers.
+     */
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(directories.size());
+        for(Entry<FileName, DirectoryState> entry : directories.entrySet()) {
+            final DirectoryState directory = entry.getValue();
+            output.writeUTF(entry.getKey().getURI());
+            output.writeLong(directory.modification);
+            writeFiles(output, directory.files.values());
+            output.writeInt(Iterables.size(directory.subdirectories));
+            for(FileObject subdirectory : directory.subdirectories) {
+                output.writeUTF(subdirectory.getName().getURI());
+            }
+        }
+        writeFiles(output, rootFiles.values());
+    }
+
+    /**
+     * Reads a state written with {@link #write(DataOutput)}. Directories with include files of a dialect that is not
+     * loaded are skipped, such that they are listed again in the next build.
+     */
+    public static IncludeFilesBuildState read(DataInput input, IResourceService resourceService,
+        ILanguageService languageService, ILanguageImpl language) throws IOException {
+        final IncludeFilesBuildState state = new IncludeFilesBuildState();
+        final int directoryCount = input.readInt();
+        for(int i = 0; i < directoryCount; ++i) {
+            final FileObject directory = resourceService.resolve(input.readUTF());
+            final long modification = input.readLong();
+            final Map<FileName, FileState> files = readFiles(input, resourceService, languageService, language);
+            final int subdirectoryCount = input.readInt();
+            final Collection<FileObject> subdirectories = Lists.newArrayListWithCapacity(subdirectoryCount);
+            for(int j = 0; j < subdirectoryCount; ++j) {
+                subdirectories.add(resourceService.resolve(input.readUTF()));
+            }
+            if(files != null) {
+                state.directories.put(directory.getName(), new DirectoryState(modification, files, subdirectories));
+            }
+        }
+        final Map<FileName, FileState> rootFiles = readFiles(input, resourceService, languageService, language);
+        if(rootFiles != null) {
+            state.rootFiles.putAll(rootFiles);
+        }
+        return state;
+    }
+
+    private static void writeFiles(DataOutput output, Collection<FileState> files) throws IOException {
+        output.writeInt(files.size());
+        for(FileState file : files) {
+            final IdentifiedResource resource = file.resource;
+            output.writeUTF(resource.resource.getName().getURI());
+            output.writeLong(file.modification);
+            output.writeUTF(resource.dialect != null ? resource.dialect.id().toString() : "");
+        }
+    }
+
+    private static @Nullable Map<FileName, FileState> readFiles(DataInput input, IResourceService resourceService,
+        ILanguageService languageService, ILanguageImpl language) throws IOException {
+        final int count = input.readInt();
+        final Map<FileName, FileState> files = Maps.newHashMapWithExpectedSize(count);
+        boolean complete = true;
+        for(int i = 0; i < count; ++i) {
+            final FileObject resource = resourceService.resolve(input.readUTF());
+            final long modification = input.readLong();
+            final String dialectId = input.readUTF();
+            final ILanguageImpl dialect;
+            if(dialectId.isEmpty()) {
+                dialect = null;
+            } else {
+                dialect = languageService.getImpl(LanguageIdentifier.parseFull(dialectId));
+                if(dialect == null) {
+                    complete = false;
+                    continue;
+                }
+            }
+            final IdentifiedResource identifiedResource = new IdentifiedResource(resource, dialect, language);
+            files.put(resource.getName(), new FileState(identifiedResource, modification));
+        }
+        return complete ? files : null;
+    }
+
+
+    /**
+     * Snapshot of a single include directory.
+     */
+    static class DirectoryState {
+        /**
+         * Modification stamp of the directory, or of the archive that contains the directory, when its children were
+         * listed. Unknown when the stamp cannot be trusted to detect changes to the listing.
+         */
+        public final long modification;
+
+        /**
+         * Include files directly in this directory, by name.
+         */
+        public final Map<FileName, FileState> files;
+
+        /**
+         * Directories directly in this directory.
+         */
+        public final Iterable<FileObject> subdirectories;
+
+
+        public DirectoryState(long modification, Map<FileName, FileState> files,
+            Iterable<FileObject> subdirectories) {
+            this.modification = modification;
+            this.files = files;
+            this.subdirectories = subdirectories;
+        }
+    }
+
+    /**
+     * Snapshot of a single include file.
+     */
+    static class FileState {
+        public final IdentifiedResource resource;
+        public final long modification;
+
+
+        public FileState(IdentifiedResource resource, long modification) {
+            this.resource = resource;
+            this.modification = modification;
+        }
+    }
+}
@@ -1,59 +1,208 @@
 package org.metaborg.core.build;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.metaborg.core.build.IncludeFilesBuildState.DirectoryState;
+import org.metaborg.core.build.IncludeFilesBuildState.FileState;
 import org.metaborg.core.language.ILanguageIdentifierService;
 import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.ILanguageService;
 import org.metaborg.core.language.IdentifiedResource;
 import org.metaborg.core.resource.IResourceService;
 import org.metaborg.core.resource.IdentifiedResourceChange;
 import org.metaborg.core.resource.ResourceChange;
 import org.metaborg.core.resource.ResourceChangeKind;
 import org.metaborg.util.iterators.Iterables2;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 
-import it.unimi.dsi.fastutil.objects.Object2LongMap;
-import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
-
 public class LanguageBuildState {
+    private static final ILogger logger = LoggerUtils.logger(LanguageBuildState.class);
+
+    /**
+     * Directories modified less than this many milliseconds before they were listed are listed again in the next build,
+     * since their modification stamp may not reflect changes made in the same clock tick, on file systems with a coarse
+     * modification time granularity.
+     */
+    private static final long racyStampMillis = 2000;
+
     private final IResourceService resourceService;
     private final ILanguageIdentifierService languageIdentifierService;
     private final ILanguageImpl language;
 
-    private final FilesBuildState source = new FilesBuildState();
-    private final FilesBuildState include = new FilesBuildState();
+    private final FilesBuildState source;
+    private final IncludeFilesBuildState include;
 
 
     public LanguageBuildState(IResourceService resourceService, ILanguageIdentifierService languageIdentifierService,
         ILanguageImpl language) {
+        this(resourceService, languageIdentifierService, language, new ResourceIdTable());
+    }
+
+    LanguageBuildState(IResourceService resourceService, ILanguageIdentifierService languageIdentifierService,
+        ILanguageImpl language, ResourceIdTable ids) {
+        this(resourceService, languageIdentifierService, language, new FilesBuildState(ids),
+            new IncludeFilesBuildState());
+    }
+
+    private LanguageBuildState(IResourceService resourceService,
+        ILanguageIdentifierService languageIdentifierService, ILanguageImpl language, FilesBuildState source,
+        IncludeFilesBuildState include) {
         this.resourceService = resourceService;
         this.languageIdentifierService = languageIdentifierService;
         this.language = language;
+        this.source = source;
+        this.include = include;
     }
 
+    /**
+     * Computes the difference between this build state, and a new build state with given source file changes, and
+     * include files in given include paths. Include directories are only listed again when their modification stamp
+     * changed since the previous build. Files in include directories inside archives are not stamped when the archive
+     * is unchanged. Files in include directories inside the changes root, whose changes are all in given resource
+     * changes, are only stamped when the resource changes contain the directory or its files. Files in all other
+     * include directories are stamped on every build, since in-place changes to those files are not reported.
+     * 
+     * @param sourceFileChanges
+     *            Identified source file changes.
+     * @param includePaths
+     *            Include paths of the language.
+     * @param resourceChanges
+     *            All resource changes of the build, used to detect changes to files in unchanged include directories.
+     * @param changesRoot
+     *            Directory whose changes are all included in the resource changes, or null if the resource changes
+     *            cannot be trusted to be complete for any directory.
+     * @return Build difference, with the new build state.
+     */
     public LanguageBuildDiff diff(Iterable<IdentifiedResourceChange> sourceFileChanges,
-        Iterable<IdentifiedResource> newIncludeFiles) {
+        Iterable<FileObject> includePaths, Iterable<ResourceChange> resourceChanges, @Nullable FileObject changesRoot) {
         final LanguageBuildState newState = copy();
         sourceDiff(newState, sourceFileChanges);
-        final Iterable<IdentifiedResourceChange> includeFileChanges = includeDiff(newState, newIncludeFiles);
+        final Iterable<IdentifiedResourceChange> includeFileChanges =
+            includeDiff(newState, includePaths, resourceChanges, changesRoot);
         return new LanguageBuildDiff(newState, sourceFileChanges, includeFileChanges);
     }
 
+    /**
+     * Copies this build state into given identifier table.
+     */
+    LanguageBuildState copy(ResourceIdTable ids) {
+        return new LanguageBuildState(resourceService, languageIdentifierService, language, source.copy(ids), include);
+    }
+
+    /**
+     * @return Number of resource identifiers this build state references.
+     */
+    int referencedIds() {
+        return source.size();
+    }
+
     private LanguageBuildState copy() {
-        final LanguageBuildState newState =
-            new LanguageBuildState(resourceService, languageIdentifierService, language);
-        newState.source.add(this.source);
-        newState.include.add(this.include);
+        final FilesBuildState newSource = source.copy();
+        // Include state is not copied, it is recomputed from the include paths in the diff.
+        return new LanguageBuildState(resourceService, languageIdentifierService, language, newSource,
+            new IncludeFilesBuildState());
+    }
+
+    /**
+     * Computes the changes to source files since the build that produced this build state, given the current source
+     * files. Files with a changed modification stamp, but with the same content hash as recorded in this build state,
+     * are not considered changed, and their modification stamp is updated in this build state.
+     * 
+     * @param sources
+     *            Current source files.
+     * @return Changes to source files.
+     */
+    public Collection<ResourceChange> sourceChanges(Iterable<IdentifiedResource> sources) {
+        final Collection<ResourceChange> changes = Lists.newArrayList();
+        final Set<FileName> existing = Sets.newHashSet();
+        for(IdentifiedResource identifiedResource : sources) {
+            final FileObject resource = identifiedResource.resource;
+            final FileName name = resource.getName();
+            existing.add(name);
+            if(!source.contains(name)) {
+                changes.add(new ResourceChange(resource, ResourceChangeKind.Create));
+                continue;
+            }
+            final long modification = stamp(resource);
+            if(modification != IncludeFilesBuildState.unknownStamp
+                && modification == source.modification(name, IncludeFilesBuildState.unknownStamp)) {
+                continue;
+            }
+            if(source.hasHash(name)) {
+                try {
+                    if(FilesBuildState.hash(resource) == source.hash(name)) {
+                        if(modification != IncludeFilesBuildState.unknownStamp) {
+                            source.restamp(name, modification);
+                        }
+                        continue;
+                    }
+                } catch(IOException e) {
+                    logger.debug("Cannot hash {}, assuming it was modified", e, resource);
+                }
+            }
+            changes.add(new ResourceChange(resource, ResourceChangeKind.Modify));
+        }
+
+        for(String uri : source.uris()) {
+            final FileObject resource = resourceService.resolve(uri);
+            if(!existing.contains(resource.getName())) {
+                changes.add(new ResourceChange(resource, ResourceChangeKind.Delete));
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * @return If this build state has any source files.
+     */
+    public boolean hasSources() {
+        return source.size() > 0;
+    }
+
+
+    /**
+     * Writes this build state, computing content hashes of source files that do not have a hash yet.
+     */
+    void write(DataOutput output) throws IOException {
+        source.updateHashes(resourceService);
+        source.write(output);
+        include.write(output);
+    }
 
-        return newState;
+    /**
+     * Reads a build state written with {@link #write(DataOutput)}.
+     */
+    static LanguageBuildState read(DataInput input, IResourceService resourceService,
+        ILanguageIdentifierService languageIdentifierService, ILanguageService languageService,
+        ILanguageImpl language, ResourceIdTable ids) throws IOException {
+        final FilesBuildState source = FilesBuildState.read(input, ids);
+        final IncludeFilesBuildState include =
+            IncludeFilesBuildState.read(input, resourceService, languageService, language);
+        return new LanguageBuildState(resourceService, languageIdentifierService, language, source, include);
     }
 
+
     private void sourceDiff(LanguageBuildState newState, Iterable<IdentifiedResourceChange> changes) {
         for(IdentifiedResourceChange identifiedChange : changes) {
             final ResourceChange change = identifiedChange.change;
@@ -61,6 +210,9 @@ public class LanguageBuildState {
                 case Create:
                     newState.source.add(change.resource);
                     break;
+                case Modify:
+                    newState.source.add(change.resource);
+                    break;
                 case Delete:
                     newState.source.remove(change.resource.getName());
                     break;
@@ -81,67 +233,235 @@ public class LanguageBuildState {
     }
 
     private Iterable<IdentifiedResourceChange> includeDiff(LanguageBuildState newState,
-        Iterable<IdentifiedResource> newFiles) {
-        final Collection<IdentifiedResourceChange> changes = Lists.newLinkedList();
-        final Set<FileName> existingFiles = Sets.newHashSet(include.files);
-        for(IdentifiedResource identifiedResource : newFiles) {
-            final FileObject resource = identifiedResource.resource;
+        Iterable<FileObject> includePaths, Iterable<ResourceChange> resourceChanges, @Nullable FileObject changesRoot) {
+        final Collection<IdentifiedResourceChange> changes = Lists.newArrayList();
+        final FileName changesRootName = changesRoot != null ? changesRoot.getName() : null;
+        final IncludeFilesBuildState newInclude = newState.include;
+
+        // Directories that contain, or are, resources that changed according to the resource changes.
+        final Set<FileName> changedDirectories = Sets.newHashSet();
+        for(ResourceChange change : resourceChanges) {
+            addChanged(changedDirectories, change.resource);
+            addChanged(changedDirectories, change.from);
+            addChanged(changedDirectories, change.to);
+        }
+
+        // Modification stamps of archives that contain include directories, to stamp each archive only once.
+        final Map<FileName, Long> archiveStamps = Maps.newHashMap();
+
+        final Deque<FileObject> worklist = Queues.newArrayDeque(includePaths);
+        while(!worklist.isEmpty()) {
+            final FileObject resource = worklist.pop();
             final FileName name = resource.getName();
-            final long newModification = newState.include.add(resource);
-            existingFiles.remove(name);
-            if(include.files.contains(name)) {
-                final long existingModification = include.modification.get(name);
-                if(existingModification != newModification) {
-                    changes.add(new IdentifiedResourceChange(new ResourceChange(resource, ResourceChangeKind.Modify),
-                        identifiedResource));
+            if(newInclude.directories.containsKey(name) || newInclude.rootFiles.containsKey(name)) {
+                continue;
+            }
+
+            final FileType type;
+            try {
+                type = resource.getType();
+            } catch(FileSystemException e) {
+                logger.error("Cannot determine file type of include path {}, skipping", e, resource);
+                continue;
+            }
+
+            if(type == FileType.FOLDER) {
+                final DirectoryState oldDirectory = include.directories.get(name);
+                final FileObject archive = archive(resource);
+                final long modification;
+                if(archive != null) {
+                    // Files inside an archive only change when the archive itself changes.
+                    final FileName archiveName = archive.getName();
+                    final Long archiveModification = archiveStamps.get(archiveName);
+                    if(archiveModification != null) {
+                        modification = archiveModification;
+                    } else {
+                        modification = stamp(archive);
+                        archiveStamps.put(archiveName, modification);
+                    }
+                } else {
+                    modification = stamp(resource);
+                }
+                final DirectoryState newDirectory;
+                if(oldDirectory == null || modification == IncludeFilesBuildState.unknownStamp
+                    || oldDirectory.modification != modification) {
+                    newDirectory = listDirectory(resource, modification, oldDirectory, changes);
+                } else if(archive != null
+                    || (!changedDirectories.contains(name) && isInside(changesRootName, name))) {
+                    // Unchanged archive, or no changed files according to a complete change feed, reuse snapshot
+                    // without stamping its files.
+                    newDirectory = oldDirectory;
+                } else {
+                    // Unchanged directory listing, but files may have changed in place.
+                    newDirectory = stampDirectory(oldDirectory, changes);
+                }
+                if(newDirectory == null) {
+                    continue;
+                }
+                newInclude.directories.put(name, newDirectory);
+                Iterables.addAll(worklist, newDirectory.subdirectories);
+            } else if(type == FileType.FILE) {
+                final FileState newFile = stampFile(resource, include.rootFiles.get(name), changes);
+                if(newFile != null) {
+                    newInclude.rootFiles.put(name, newFile);
                 }
-            } else {
-                changes.add(new IdentifiedResourceChange(new ResourceChange(resource, ResourceChangeKind.Create),
-                    identifiedResource));
             }
         }
 
-        for(FileName name : existingFiles) {
-            newState.include.remove(name);
-            final FileObject resource = resourceService.resolve(name.getURI());
-            final IdentifiedResource identifiedResource =
-                languageIdentifierService.identifyToResource(resource, Iterables2.singleton(language));
-            if(identifiedResource != null) {
-                changes.add(new IdentifiedResourceChange(new ResourceChange(resource, ResourceChangeKind.Delete),
-                    identifiedResource));
+        // Directories and files that are not in the include paths any more are removed.
+        for(Entry<FileName, DirectoryState> entry : include.directories.entrySet()) {
+            if(!newInclude.directories.containsKey(entry.getKey())) {
+                for(FileState file : entry.getValue().files.values()) {
+                    changes.add(removed(file));
+                }
+            }
+        }
+        for(Entry<FileName, FileState> entry : include.rootFiles.entrySet()) {
+            if(!newInclude.rootFiles.containsKey(entry.getKey())) {
+                changes.add(removed(entry.getValue()));
             }
         }
 
         return changes;
     }
-}
 
-class FilesBuildState {
-    public final Set<FileName> files = Sets.newHashSet();
-    public final Object2LongMap<FileName> modification = new Object2LongOpenHashMap<FileName>();
+    /**
+     * Lists the children of a directory that is new or has changed, and stamps its files.
+     */
+    private @Nullable DirectoryState listDirectory(FileObject directory, long modification,
+        @Nullable DirectoryState oldDirectory, Collection<IdentifiedResourceChange> changes) {
+        final FileObject[] children;
+        try {
+            children = directory.getChildren();
+        } catch(FileSystemException e) {
+            logger.error("Cannot list children of include directory {}, skipping", e, directory);
+            return null;
+        }
+
+        final Map<FileName, FileState> files = Maps.newHashMapWithExpectedSize(children.length);
+        final Collection<FileObject> subdirectories = Lists.newArrayList();
+        for(FileObject child : children) {
+            final FileName name = child.getName();
+            try {
+                final FileType type = child.getType();
+                if(type == FileType.FOLDER) {
+                    subdirectories.add(child);
+                    continue;
+                } else if(type != FileType.FILE) {
+                    continue;
+                }
+            } catch(FileSystemException e) {
+                logger.error("Cannot determine file type of include file {}, skipping", e, child);
+                continue;
+            }
+            final FileState oldFile = oldDirectory != null ? oldDirectory.files.get(name) : null;
+            final FileState newFile = stampFile(child, oldFile, changes);
+            if(newFile != null) {
+                files.put(name, newFile);
+            }
+        }
+
+        if(oldDirectory != null) {
+            for(Entry<FileName, FileState> entry : oldDirectory.files.entrySet()) {
+                if(!files.containsKey(entry.getKey())) {
+                    changes.add(removed(entry.getValue()));
+                }
+            }
+        }
+
+        // Creating a file in the same clock tick as listing the directory does not change its modification stamp, do
+        // not trust the stamp of such a directory in the next build.
+        final long listedModification =
+            System.currentTimeMillis() - modification < racyStampMillis ? IncludeFilesBuildState.unknownStamp
+                : modification;
+        return new DirectoryState(listedModification, files, subdirectories);
+    }
+
+    /**
+     * Stamps the files of a directory whose listing did not change. Returns given directory state if no file changed.
+     */
+    private DirectoryState stampDirectory(DirectoryState oldDirectory, Collection<IdentifiedResourceChange> changes) {
+        final Map<FileName, FileState> files = Maps.newHashMapWithExpectedSize(oldDirectory.files.size());
+        boolean changed = false;
+        for(Entry<FileName, FileState> entry : oldDirectory.files.entrySet()) {
+            final FileState oldFile = entry.getValue();
+            final FileState newFile = stampFile(oldFile.resource.resource, oldFile, changes);
+            changed |= newFile.modification != oldFile.modification;
+            files.put(entry.getKey(), newFile);
+        }
+        if(!changed) {
+            return oldDirectory;
+        }
+        return new DirectoryState(oldDirectory.modification, files, oldDirectory.subdirectories);
+    }
+
+    /**
+     * Stamps an include file, and adds a change when it is new or was modified. Returns null if the file does not
+     * belong to the language.
+     */
+    private @Nullable FileState stampFile(FileObject resource, @Nullable FileState oldFile,
+        Collection<IdentifiedResourceChange> changes) {
+        final IdentifiedResource identifiedResource;
+        if(oldFile != null) {
+            identifiedResource = oldFile.resource;
+        } else {
+            identifiedResource =
+                languageIdentifierService.identifyToResource(resource, Iterables2.singleton(language));
+            if(identifiedResource == null) {
+                return null;
+            }
+        }
+
+        final long modification = stamp(resource);
+        if(oldFile == null) {
+            changes.add(new IdentifiedResourceChange(new ResourceChange(resource, ResourceChangeKind.Create),
+                identifiedResource));
+        } else if(modification == IncludeFilesBuildState.unknownStamp || oldFile.modification != modification) {
+            changes.add(new IdentifiedResourceChange(new ResourceChange(resource, ResourceChangeKind.Modify),
+                identifiedResource));
+        }
+        return new FileState(identifiedResource, modification);
+    }
 
+    private static IdentifiedResourceChange removed(FileState file) {
+        final IdentifiedResource identifiedResource = file.resource;
+        return new IdentifiedResourceChange(new ResourceChange(identifiedResource.resource, ResourceChangeKind.Delete),
+            identifiedResource);
+    }
 
-    public long add(FileObject resource) {
+    private static boolean isInside(@Nullable FileName root, FileName name) {
+        return root != null && (root.equals(name) || root.isDescendent(name));
+    }
+
+    private static void addChanged(Set<FileName> changedDirectories, @Nullable FileObject resource) {
+        if(resource == null) {
+            return;
+        }
         final FileName name = resource.getName();
-        files.add(name);
-        long newModification;
-        try {
-            newModification = resource.getContent().getLastModifiedTime();
-            modification.put(name, newModification);
-        } catch(FileSystemException e) {
-            newModification = Long.MAX_VALUE;
-            modification.put(name, Long.MIN_VALUE);
+        final FileName parent = name.getParent();
+        if(parent != null) {
+            changedDirectories.add(parent);
         }
-        return newModification;
+        // Resource may be a directory itself.
+        changedDirectories.add(name);
     }
 
-    public void add(FilesBuildState state) {
-        this.files.addAll(state.files);
-        this.modification.putAll(state.modification);
+    /**
+     * Returns the archive file that contains given resource, or null if the resource is not inside an archive.
+     */
+    private static @Nullable FileObject archive(FileObject resource) {
+        try {
+            return resource.getFileSystem().getParentLayer();
+        } catch(FileSystemException e) {
+            return null;
+        }
     }
 
-    public void remove(FileName name) {
-        files.remove(name);
-        modification.remove(name);
+    private static long stamp(FileObject resource) {
+        try {
+            return resource.getContent().getLastModifiedTime();
+        } catch(FileSystemException e) {
+            return IncludeFilesBuildState.unknownStamp;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,267 @@
+package org.metaborg.core.build;
+
+import javax.annotation.Nullable;
+
+/**
+ * Persistent (immutable) map from integer resource identifiers to long modification stamps, implemented as a hash array
+ * mapped trie. Updates return a new map that shares all unchanged nodes with the original map, such that an update
+ * costs time and memory logarithmic in the size of the map, and copying a map is free.
+ */
+public final class PersistentStampMap {
+    private static final int bitsPerLevel = 5;
+    private static final int levelMask = (1 << bitsPerLevel) - 1;
+
+    private static final PersistentStampMap empty = new PersistentStampMap(null, 0);
+
+    private final @Nullable Node root;
+    private final int size;
+
+
+    private PersistentStampMap(@Nullable Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static PersistentStampMap empty() {
+        return empty;
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int key) {
+        return find(key) != null;
+    }
+
+    public long get(int key, long defaultValue) {
+        final Leaf leaf = find(key);
+        if(leaf == null) {
+            return defaultValue;
+        }
+        return leaf.value;
+    }
+
+    public PersistentStampMap put(int key, long value) {
+        if(root == null) {
+            return new PersistentStampMap(new Node(bit(key, 0), new Object[] { new Leaf(key, value) }), 1);
+        }
+        final boolean exists = contains(key);
+        final Node newRoot = put(root, key, value, 0);
+        if(newRoot == root) {
+            return this;
+        }
+        return new PersistentStampMap(newRoot, exists ? size : size + 1);
+    }
+
+    public PersistentStampMap remove(int key) {
+        if(root == null) {
+            return this;
+        }
+        final Object newRoot = remove(root, key, 0);
+        if(newRoot == root) {
+            return this;
+        }
+        if(newRoot == null) {
+            return empty;
+        }
+        if(newRoot instanceof Leaf) {
+            final Leaf leaf = (Leaf) newRoot;
+            return new PersistentStampMap(new Node(bit(leaf.key, 0), new Object[] { leaf }), size - 1);
+        }
+        return new PersistentStampMap((Node) newRoot, size - 1);
+    }
+
+    /**
+     * @return Keys of this map, in no particular order.
+     */
+    public int[] keys() {
+        final int[] keys = new int[size];
+        visit(new Visitor() {
+            private int index = 0;
+
+            @Override public void visit(int key, long value) {
+                keys[index++] = key;
+            }
+        });
+        return keys;
+    }
+
+    /**
+     * Visits all entries of this map, in no particular order.
+     */
+    public void visit(Visitor visitor) {
+        if(root != null) {
+            visit(root, visitor);
+        }
+    }
+
+
+    public interface Visitor {
+        void visit(int key, long value);
+    }
+
+
+    private @Nullable Leaf find(int key) {
+        Node node = root;
+        int shift = 0;
+        while(node != null) {
+            final int bit = bit(key, shift);
+            if((node.bitmap & bit) == 0) {
+                return null;
+            }
+            final Object child = node.children[index(node.bitmap, bit)];
+            if(child instanceof Leaf) {
+                final Leaf leaf = (Leaf) child;
+                return leaf.key == key ? leaf : null;
+            }
+            node = (Node) child;
+            shift += bitsPerLevel;
+        }
+        return null;
+    }
+
+    private static Node put(Node node, int key, long value, int shift) {
+        final int bit = bit(key, shift);
+        final int index = index(node.bitmap, bit);
+        if((node.bitmap & bit) == 0) {
+            final Object[] children = new Object[node.children.length + 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            children[index] = new Leaf(key, value);
+            System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+            return new Node(node.bitmap | bit, children);
+        }
+
+        final Object child = node.children[index];
+        final Object newChild;
+        if(child instanceof Leaf) {
+            final Leaf leaf = (Leaf) child;
+            if(leaf.key == key) {
+                if(leaf.value == value) {
+                    return node;
+                }
+                newChild = new Leaf(key, value);
+            } else {
+                newChild = pair(leaf, new Leaf(key, value), shift + bitsPerLevel);
+            }
+        } else {
+            final Node subNode = (Node) child;
+            final Node newSubNode = put(subNode, key, value, shift + bitsPerLevel);
+            if(newSubNode == subNode) {
+                return node;
+            }
+            newChild = newSubNode;
+        }
+
+        final Object[] children = node.children.clone();
+        children[index] = newChild;
+        return new Node(node.bitmap, children);
+    }
+
+    private static Node pair(Leaf first, Leaf second, int shift) {
+        final int firstPosition = position(first.key, shift);
+        final int secondPosition = position(second.key, shift);
+        if(firstPosition == secondPosition) {
+            return new Node(1 << firstPosition, new Object[] { pair(first, second, shift + bitsPerLevel) });
+        }
+        final Object[] children =
+            firstPosition < secondPosition ? new Object[] { first, second } : new Object[] { second, first };
+        return new Node((1 << firstPosition) | (1 << secondPosition), children);
+    }
+
+    /**
+     * Removes key from given node. Returns the same node if the key was not found, null if the node became empty, or a
+     * leaf if the node only has a single leaf left, such that it can be inlined into its parent.
+     */
+    private static @Nullable Object remove(Node node, int key, int shift) {
+        final int bit = bit(key, shift);
+        if((node.bitmap & bit) == 0) {
+            return node;
+        }
+        final int index = index(node.bitmap, bit);
+        final Object child = node.children[index];
+        final Object newChild;
+        if(child instanceof Leaf) {
+            if(((Leaf) child).key != key) {
+                return node;
+            }
+            newChild = null;
+        } else {
+            newChild = remove((Node) child, key, shift + bitsPerLevel);
+            if(newChild == child) {
+                return node;
+            }
+        }
+
+        if(newChild != null) {
+            if(node.children.length == 1 && newChild instanceof Leaf) {
+                return newChild;
+            }
+            final Object[] children = node.children.clone();
+            children[index] = newChild;
+            return new Node(node.bitmap, children);
+        }
+
+        if(node.bitmap == bit) {
+            return null;
+        }
+        final Object[] children = new Object[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        if(children.length == 1 && children[0] instanceof Leaf) {
+            return children[0];
+        }
+        return new Node(node.bitmap & ~bit, children);
+    }
+
+    private static void visit(Node node, Visitor visitor) {
+        for(Object child : node.children) {
+            if(child instanceof Leaf) {
+                final Leaf leaf = (Leaf) child;
+                visitor.visit(leaf.key, leaf.value);
+            } else {
+                visit((Node) child, visitor);
+            }
+        }
+    }
+
+    private static int position(int key, int shift) {
+        return (key >>> shift) & levelMask;
+    }
+
+    private static int bit(int key, int shift) {
+        return 1 << position(key, shift);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+
+    private static final class Node {
+        private final int bitmap;
+        private final Object[] children;
+
+
+        private Node(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+
+    private static final class Leaf {
+        private final int key;
+        private final long value;
+
+
+        private Leaf(int key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
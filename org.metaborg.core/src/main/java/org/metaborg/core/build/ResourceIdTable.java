@@ -0,0 +1,77 @@
+package org.metaborg.core.build;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.vfs2.FileName;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Interns resource names into compact integer identifiers. Identifiers are assigned sequentially, and are never reused
+ * or removed. A table is shared between a build state and the build states that succeed it, such that identifiers are
+ * stable across builds. Since identifiers of deleted resources are never removed, a build state replaces its table
+ * with a table of only the identifiers it references when the table holds too many unreferenced identifiers, see
+ * {@link BuildState#compact()}. Identifiers are not stable across processes, persisted build states store resource
+ * URIs, and loading a build state interns them into a new table.
+ */
+class ResourceIdTable {
+    /**
+     * Identifier returned by {@link #find(FileName)} for resources that have not been interned.
+     */
+    public static final int absent = -1;
+
+    private final ConcurrentMap<String, Integer> ids = Maps.newConcurrentMap();
+    private final List<String> uris = Lists.newArrayList();
+
+
+    public int id(FileName name) {
+        return id(name.getURI());
+    }
+
+    public int id(String uri) {
+        final Integer id = ids.get(uri);
+        if(id != null) {
+            return id;
+        }
+        synchronized(uris) {
+            final Integer existingId = ids.get(uri);
+            if(existingId != null) {
+                return existingId;
+            }
+            final int newId = uris.size();
+            uris.add(uri);
+            ids.put(uri, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Gets the identifier of given resource, without interning it.
+     * 
+     * @return Identifier of the resource, or {@link #absent} if the resource has not been interned.
+     */
+    public int find(FileName name) {
+        final Integer id = ids.get(name.getURI());
+        if(id == null) {
+            return absent;
+        }
+        return id;
+    }
+
+    public String uri(int id) {
+        synchronized(uris) {
+            return uris.get(id);
+        }
+    }
+
+    /**
+     * @return Number of interned resources.
+     */
+    public int size() {
+        synchronized(uris) {
+            return uris.size();
+        }
+    }
+}
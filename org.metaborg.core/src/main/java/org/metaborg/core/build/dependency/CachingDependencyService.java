@@ -0,0 +1,210 @@
+package org.metaborg.core.build.dependency;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileName;
+import org.metaborg.core.config.IProjectConfig;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.LanguageComponentChange;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.language.LanguageImplChange;
+import org.metaborg.core.project.IProject;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+import com.google.inject.Inject;
+
+import rx.functions.Action1;
+
+/**
+ * Implementation of the {@link IDependencyService} that memoizes the dependencies resolved by the
+ * {@link DefaultDependencyService}. Resolved dependencies are cached per project and language component, and are
+ * invalidated when languages are added, reloaded, or removed. Project entries are keyed by project location and the
+ * dependencies declared in the project configuration, such that new instances of the same project hit the cache, and a
+ * changed configuration file does not. Missing dependencies are never cached.
+ */
+public class CachingDependencyService implements ICachingDependencyService {
+    private static final ILogger logger = LoggerUtils.logger(CachingDependencyService.class);
+
+    private final DefaultDependencyService dependencyService;
+
+    private final Cache<ProjectKey, Collection<ILanguageComponent>> compileDeps =
+        CacheBuilder.newBuilder().maximumSize(256).build();
+    private final Cache<ProjectKey, Collection<ILanguageComponent>> projectSourceDeps =
+        CacheBuilder.newBuilder().maximumSize(256).build();
+    private final ConcurrentMap<ILanguageComponent, Collection<ILanguageComponent>> componentSourceDeps =
+        new MapMaker().weakKeys().makeMap();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Incremented on invalidation. Dependencies that were resolved in an older generation are not stored, such that
+    // dependencies that are resolved while languages change do not survive the invalidation. Guarded by this.
+    private long generation;
+
+
+    @Inject public CachingDependencyService(DefaultDependencyService dependencyService,
+        ILanguageService languageService) {
+        this.dependencyService = dependencyService;
+
+        languageService.componentChanges().subscribe(new Action1<LanguageComponentChange>() {
+            @Override public void call(LanguageComponentChange change) {
+                invalidateAll();
+            }
+        });
+        languageService.implChanges().subscribe(new Action1<LanguageImplChange>() {
+            @Override public void call(LanguageImplChange change) {
+                invalidateAll();
+            }
+        });
+    }
+
+
+    @Override public Collection<ILanguageComponent> compileDeps(IProject project) throws MissingDependencyException {
+        final ProjectKey key = new ProjectKey(project);
+        final Collection<ILanguageComponent> cached = compileDeps.getIfPresent(key);
+        if(cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        final long resolveGeneration = generation();
+        final Collection<ILanguageComponent> components =
+            ImmutableList.copyOf(dependencyService.compileDeps(project));
+        synchronized(this) {
+            if(resolveGeneration == generation) {
+                compileDeps.put(key, components);
+            }
+        }
+        return components;
+    }
+
+    @Override public Collection<ILanguageComponent> sourceDeps(IProject project) throws MissingDependencyException {
+        final ProjectKey key = new ProjectKey(project);
+        final Collection<ILanguageComponent> cached = projectSourceDeps.getIfPresent(key);
+        if(cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        final long resolveGeneration = generation();
+        final Collection<ILanguageComponent> components =
+            ImmutableList.copyOf(dependencyService.sourceDeps(project));
+        synchronized(this) {
+            if(resolveGeneration == generation) {
+                projectSourceDeps.put(key, components);
+            }
+        }
+        return components;
+    }
+
+    @Override public Collection<ILanguageComponent> sourceDeps(ILanguageComponent component)
+        throws MissingDependencyException {
+        final Collection<ILanguageComponent> cached = componentSourceDeps.get(component);
+        if(cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        final long resolveGeneration = generation();
+        final Collection<ILanguageComponent> components =
+            ImmutableList.copyOf(dependencyService.sourceDeps(component));
+        synchronized(this) {
+            if(resolveGeneration == generation) {
+                componentSourceDeps.put(component, components);
+            }
+        }
+        return components;
+    }
+
+    @Override public MissingDependencies checkDependencies(IProject project) {
+        return dependencyService.checkDependencies(project);
+    }
+
+
+    @Override public synchronized void invalidate(IProject project) {
+        // Also drops dependencies of other projects that are being resolved, which only causes them to be resolved
+        // again on the next request.
+        ++generation;
+        final FileName location = project.location().getName();
+        removeLocation(compileDeps, location);
+        removeLocation(projectSourceDeps, location);
+        invalidations.incrementAndGet();
+    }
+
+    @Override public synchronized void invalidateAll() {
+        logger.trace("Invalidating all cached dependencies");
+        ++generation;
+        compileDeps.invalidateAll();
+        projectSourceDeps.invalidateAll();
+        componentSourceDeps.clear();
+        invalidations.incrementAndGet();
+    }
+
+    @Override public DependencyCacheStats stats() {
+        return new DependencyCacheStats(hits.get(), misses.get(), invalidations.get());
+    }
+
+
+    private synchronized long generation() {
+        return generation;
+    }
+
+
+    private static void removeLocation(Cache<ProjectKey, Collection<ILanguageComponent>> cache, FileName location) {
+        for(Iterator<ProjectKey> it = cache.asMap().keySet().iterator(); it.hasNext();) {
+            if(it.next().location.equals(location)) {
+                it.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Project cache key. Includes the declared dependencies, which are the only part of the configuration that
+     * dependency resolution depends on.
+     */
+    private static final class ProjectKey {
+        public final FileName location;
+        private final @Nullable List<LanguageIdentifier> compileDeps;
+        private final @Nullable List<LanguageIdentifier> sourceDeps;
+
+
+        public ProjectKey(IProject project) {
+            this.location = project.location().getName();
+            final IProjectConfig config = project.config();
+            this.compileDeps = config != null ? ImmutableList.copyOf(config.compileDeps()) : null;
+            this.sourceDeps = config != null ? ImmutableList.copyOf(config.sourceDeps()) : null;
+        }
+
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final ProjectKey other = (ProjectKey) obj;
+            return location.equals(other.location) && Objects.equal(compileDeps, other.compileDeps)
+                && Objects.equal(sourceDeps, other.sourceDeps);
+        }
+
+        @Override public int hashCode() {
+            return Objects.hashCode(location, compileDeps, sourceDeps);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.metaborg.core.build.dependency;
+
+/**
+ * Statistics of the {@link CachingDependencyService}.
+ */
+public class DependencyCacheStats {
+    /**
+     * Number of dependency requests that were answered from the cache.
+     */
+    public final long hits;
+
+    /**
+     * Number of dependency requests that required resolving dependencies.
+     */
+    public final long misses;
+
+    /**
+     * Number of times (part of) the cache was invalidated.
+     */
+    public final long invalidations;
+
+
+    public DependencyCacheStats(long hits, long misses, long invalidations) {
+        this.hits = hits;
+        this.misses = misses;
+        this.invalidations = invalidations;
+    }
+
+
+    public long requests() {
+        return hits + misses;
+    }
+
+    public double hitRate() {
+        final long requests = requests();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+
+    @Override public String toString() {
+        return String.format("dependency cache [hits=%d, misses=%d, invalidations=%d, hit rate=%.2f]", hits, misses,
+            invalidations, hitRate());
+    }
+}
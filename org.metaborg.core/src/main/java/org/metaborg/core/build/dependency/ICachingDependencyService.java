@@ -0,0 +1,26 @@
+package org.metaborg.core.build.dependency;
+
+import org.metaborg.core.project.IProject;
+
+/**
+ * Interface for a dependency service that caches resolved dependencies.
+ */
+public interface ICachingDependencyService extends IDependencyService {
+    /**
+     * Invalidates cached dependencies of given project, for example when its configuration file was changed in place.
+     *
+     * @param project
+     *            Project to invalidate dependencies for.
+     */
+    void invalidate(IProject project);
+
+    /**
+     * Invalidates all cached dependencies.
+     */
+    void invalidateAll();
+
+    /**
+     * @return Hit, miss, and invalidation statistics of the cache.
+     */
+    DependencyCacheStats stats();
+}
@@ -8,11 +8,14 @@ import org.metaborg.core.MetaborgException;
 import org.metaborg.core.language.ILanguageIdentifierService;
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.language.IdentifiedResource;
+import org.metaborg.core.language.LanguageUtils;
 import org.metaborg.core.project.IProject;
+import org.metaborg.core.resource.FileTreeFilters;
+import org.metaborg.core.resource.IFileTreeFilter;
+import org.metaborg.core.resource.IFileTreeScanner;
 import org.metaborg.util.iterators.Iterables2;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
-import org.metaborg.util.resource.ResourceUtils;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -23,12 +26,14 @@ public class LanguagePathService implements ILanguagePathService {
     private static final ILogger logger = LoggerUtils.logger(LanguagePathService.class);
 
     private final ILanguageIdentifierService languageIdentifierService;
+    private final IFileTreeScanner fileTreeScanner;
     private final Set<ILanguagePathProvider> providers;
 
 
     @Inject public LanguagePathService(ILanguageIdentifierService languageIdentifierService,
-        Set<ILanguagePathProvider> providers) {
+        IFileTreeScanner fileTreeScanner, Set<ILanguagePathProvider> providers) {
         this.languageIdentifierService = languageIdentifierService;
+        this.fileTreeScanner = fileTreeScanner;
         this.providers = providers;
     }
 
@@ -86,7 +91,11 @@ public class LanguagePathService implements ILanguagePathService {
 
 
     @Override public Collection<IdentifiedResource> toFiles(Iterable<FileObject> paths, ILanguageImpl language) {
-        final Collection<FileObject> files = ResourceUtils.expand(paths);
+        // Only scan for files with extensions of the language, if identification is purely based on extensions.
+        final Set<String> extensions = LanguageUtils.identifiedExtensions(language);
+        final IFileTreeFilter filter =
+            extensions != null ? FileTreeFilters.extensions(extensions) : FileTreeFilters.all();
+        final Collection<FileObject> files = fileTreeScanner.scan(paths, filter);
         final Collection<IdentifiedResource> identifiedFiles = Lists.newArrayListWithExpectedSize(files.size());
         for(FileObject file : files) {
             final IdentifiedResource identifiedFile =
@@ -40,4 +40,11 @@ public interface IProjectConfig {
      * @return the typesmart property.
      */
     boolean typesmart();
+
+    /**
+     * Gets whether analysis results are hash-consed, such that structurally equal subterms are shared.
+     * 
+     * @return True if analysis results are shared, false otherwise.
+     */
+    boolean termSharing();
 }
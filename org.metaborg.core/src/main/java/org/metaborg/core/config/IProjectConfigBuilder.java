@@ -103,4 +103,13 @@ public interface IProjectConfigBuilder {
      * @return This builder.
      */
     IProjectConfigBuilder withTypesmart(boolean typesmart);
+
+    /**
+     * Sets whether analysis results are hash-consed.
+     *
+     * @param termSharing
+     *            True to share structurally equal subterms of analysis results.
+     * @return This builder.
+     */
+    IProjectConfigBuilder withTermSharing(boolean termSharing);
 }
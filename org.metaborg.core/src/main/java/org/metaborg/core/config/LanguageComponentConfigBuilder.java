@@ -39,7 +39,8 @@ public class LanguageComponentConfigBuilder extends ProjectConfigBuilder impleme
         }
         final LanguageComponentConfig config =
             new LanguageComponentConfig(configuration, metaborgVersion, identifier, name, compileDeps, sourceDeps,
-                javaDeps, sdfEnabled, parseTable, completionsParseTable, typesmart, langContribs, generates, exports);
+                javaDeps, sdfEnabled, parseTable, completionsParseTable, typesmart, termSharing, langContribs,
+                generates, exports);
         return config;
     }
 
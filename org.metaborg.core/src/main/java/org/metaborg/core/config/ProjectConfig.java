@@ -26,6 +26,7 @@ public class ProjectConfig implements IProjectConfig, IConfig {
     private static final String PROP_SOURCE_DEPENDENCIES = "dependencies.source";
     private static final String PROP_JAVA_DEPENDENCIES = "dependencies.java";
     private static final String PROP_DEBUG_TYPESMART = "debug.typesmart";
+    private static final String PROP_ANALYSIS_TERM_SHARING = "analysis.termSharing";
 
     protected final HierarchicalConfiguration<ImmutableNode> config;
 
@@ -41,7 +42,8 @@ public class ProjectConfig implements IProjectConfig, IConfig {
 
     protected ProjectConfig(HierarchicalConfiguration<ImmutableNode> config, @Nullable String metaborgVersion,
         @Nullable Collection<LanguageIdentifier> compileDeps, @Nullable Collection<LanguageIdentifier> sourceDeps,
-        @Nullable Collection<LanguageIdentifier> javaDeps, @Nullable Boolean typesmart) {
+        @Nullable Collection<LanguageIdentifier> javaDeps, @Nullable Boolean typesmart,
+        @Nullable Boolean termSharing) {
         this(config);
 
         if(metaborgVersion != null) {
@@ -59,6 +61,9 @@ public class ProjectConfig implements IProjectConfig, IConfig {
         if(typesmart != null) {
             config.setProperty(PROP_DEBUG_TYPESMART, typesmart);
         }
+        if(termSharing != null) {
+            config.setProperty(PROP_ANALYSIS_TERM_SHARING, termSharing);
+        }
     }
 
 
@@ -90,6 +95,10 @@ public class ProjectConfig implements IProjectConfig, IConfig {
         return config.getBoolean(PROP_DEBUG_TYPESMART, false);
     }
 
+    @Override public boolean termSharing() {
+        return config.getBoolean(PROP_ANALYSIS_TERM_SHARING, false);
+    }
+
     public Collection<IMessage> validate(MessageBuilder mb) {
         final Collection<IMessage> messages = Lists.newArrayList();
         validateDeps(config, PROP_COMPILE_DEPENDENCIES, "compile", mb, messages);
@@ -1,7 +1,10 @@
 package org.metaborg.core.language;
 
+import java.util.Map;
+
 import javax.annotation.Nullable;
 
+import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.metaborg.core.project.IProject;
 
@@ -91,6 +94,20 @@ public interface ILanguageIdentifierService {
      */
     @Nullable IdentifiedResource identifyToResource(FileObject resource, Iterable<? extends ILanguageImpl> languages);
 
+    /**
+     * Attempts to identify the languages of given resources, among given list of languages. Faster than identifying
+     * resources one by one, since the languages are indexed once for all resources, and file types are only determined
+     * for resources that can be identified by name.
+     * 
+     * @param resources
+     *            Resources to identify.
+     * @return Identified resources by resource name. Resources whose language could not be identified have no entry.
+     * @throws IllegalStateException
+     *             When a resource can be identified to multiple languages.
+     */
+    Map<FileName, IdentifiedResource> identifyToResources(Iterable<FileObject> resources,
+        Iterable<? extends ILanguageImpl> languages);
+
     /**
      * Returns if language identification is available for given implementation.
      * 
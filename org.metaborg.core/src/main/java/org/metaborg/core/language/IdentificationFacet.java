@@ -1,5 +1,9 @@
 package org.metaborg.core.language;
 
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
 import org.apache.commons.vfs2.FileObject;
 
 import rx.functions.Func1;
@@ -25,4 +29,17 @@ public class IdentificationFacet implements IFacet {
     public boolean identify(FileObject file) {
         return identifier.call(file);
     }
+
+    /**
+     * Gets the extensions this facet identifies resources with, if identification is purely based on the extension of
+     * resources.
+     * 
+     * @return Identified extensions, or null if identification is not (purely) based on extensions.
+     */
+    public @Nullable Set<String> extensions() {
+        if(identifier instanceof ResourceExtensionsIdentifier) {
+            return ((ResourceExtensionsIdentifier) identifier).extensions();
+        }
+        return null;
+    }
 }
@@ -0,0 +1,69 @@
+package org.metaborg.core.language;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.vfs2.FileObject;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Index from resource extensions to the language implementations that can identify resources with that extension.
+ * Language implementations with an identification facet that is not based on extensions cannot be indexed, and are
+ * always a candidate. Candidates are returned in the order in which the language implementations were given.
+ */
+final class LanguageIdentifierIndex {
+    private final Map<String, List<ILanguageImpl>> extensionToImpls = Maps.newHashMap();
+    private final List<ILanguageImpl> unindexedImpls = Lists.newArrayList();
+
+
+    LanguageIdentifierIndex(Iterable<? extends ILanguageImpl> impls) {
+        for(ILanguageImpl impl : impls) {
+            final Iterable<IdentificationFacet> facets = impl.facets(IdentificationFacet.class);
+            if(Iterables.isEmpty(facets)) {
+                // Cannot identify any resource, skip.
+                continue;
+            }
+
+            final Collection<String> extensions = LanguageUtils.identifiedExtensions(impl);
+            if(extensions == null) {
+                unindexedImpls.add(impl);
+                for(List<ILanguageImpl> candidates : extensionToImpls.values()) {
+                    candidates.add(impl);
+                }
+                continue;
+            }
+
+            for(String extension : extensions) {
+                List<ILanguageImpl> candidates = extensionToImpls.get(extension);
+                if(candidates == null) {
+                    candidates = Lists.newArrayList(unindexedImpls);
+                    extensionToImpls.put(extension, candidates);
+                }
+                if(!candidates.contains(impl)) {
+                    candidates.add(impl);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Gets the language implementations that can possibly identify given resource. Only the name of the resource is
+     * inspected, the file system is never accessed.
+     *
+     * @param resource
+     *            Resource to get candidates for.
+     * @return Candidate language implementations.
+     */
+    public Collection<ILanguageImpl> candidates(FileObject resource) {
+        final List<ILanguageImpl> candidates = extensionToImpls.get(resource.getName().getExtension());
+        if(candidates == null) {
+            return unindexedImpls;
+        }
+        return candidates;
+    }
+}
@@ -1,15 +1,20 @@
 package org.metaborg.core.language;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileType;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.MetaborgRuntimeException;
 import org.metaborg.core.build.dependency.IDependencyService;
+import org.metaborg.core.config.IProjectConfig;
 import org.metaborg.core.language.dialect.IDialectIdentifier;
 import org.metaborg.core.language.dialect.IdentifiedDialect;
 import org.metaborg.core.project.IProject;
@@ -18,10 +23,17 @@ import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
 import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 
+import rx.functions.Action1;
+
 public class LanguageIdentifierService implements ILanguageIdentifierService {
     private static final ILogger logger = LoggerUtils.logger(LanguageIdentifierService.class);
 
@@ -30,6 +42,20 @@ public class LanguageIdentifierService implements ILanguageIdentifierService {
     private final IProjectService projectService;
     private final IDependencyService dependencyService;
 
+    // Indexes are invalidated when languages change. Project indexes are keyed by project location and the compile
+    // dependencies in the project configuration, since project services may return a new project instance for each
+    // request, and a project with a changed configuration gets a new index.
+    private final Cache<ProjectKey, LanguageIdentifierIndex> projectIndexes =
+        CacheBuilder.newBuilder().maximumSize(256).build();
+    private final Cache<List<ILanguageImpl>, LanguageIdentifierIndex> implsIndexes =
+        CacheBuilder.newBuilder().maximumSize(32).build();
+    private volatile @Nullable LanguageIdentifierIndex activeImplsIndex;
+
+    // Incremented when indexes are invalidated. Indexes that were computed in an older generation are not stored, such
+    // that an index that is computed while languages change does not survive the invalidation. Guarded by indexLock.
+    private final Object indexLock = new Object();
+    private long generation;
+
 
     @Inject public LanguageIdentifierService(ILanguageService languageService, IDialectIdentifier dialectIdentifier,
         IProjectService projectService, IDependencyService dependencyService) {
@@ -37,6 +63,17 @@ public class LanguageIdentifierService implements ILanguageIdentifierService {
         this.dialectIdentifier = dialectIdentifier;
         this.projectService = projectService;
         this.dependencyService = dependencyService;
+
+        languageService.componentChanges().subscribe(new Action1<LanguageComponentChange>() {
+            @Override public void call(LanguageComponentChange change) {
+                invalidateIndexes();
+            }
+        });
+        languageService.implChanges().subscribe(new Action1<LanguageImplChange>() {
+            @Override public void call(LanguageImplChange change) {
+                invalidateIndexes();
+            }
+        });
     }
 
 
@@ -59,22 +96,11 @@ public class LanguageIdentifierService implements ILanguageIdentifierService {
     }
 
     @Nullable @Override public ILanguageImpl identify(FileObject resource, @Nullable IProject project) {
-        if(project != null) {
-            try {
-                final Iterable<ILanguageComponent> dependencies = dependencyService.compileDeps(project);
-                final Iterable<ILanguageImpl> impls = LanguageUtils.toImpls(dependencies);
-                ILanguageImpl impl = identify(resource, impls);
-                if(impl == null) {
-                    // Try with all active languages if identification with dependencies fails
-                    impl = identify(resource, LanguageUtils.allActiveImpls(languageService));
-                }
-                return impl;
-            } catch(MetaborgException e) {
-                return identify(resource, LanguageUtils.allActiveImpls(languageService));
-            }
-        } else {
-            return identify(resource, LanguageUtils.allActiveImpls(languageService));
+        final IdentifiedResource identified = identifyToResource(resource, project);
+        if(identified == null) {
+            return null;
         }
+        return identified.dialectOrLanguage();
     }
 
     @Override public @Nullable IdentifiedResource identifyToResource(FileObject resource) {
@@ -83,23 +109,15 @@ public class LanguageIdentifierService implements ILanguageIdentifierService {
 
     @Override public @Nullable IdentifiedResource identifyToResource(FileObject resource, @Nullable IProject project) {
         if(project != null) {
-            try {
-                final Iterable<ILanguageComponent> dependencies = dependencyService.compileDeps(project);
-                final Iterable<ILanguageImpl> impls = LanguageUtils.toImpls(dependencies);
-                IdentifiedResource identified = identifyToResource(resource, impls);
-                if(identified == null) {
-                    // Try with all active languages if identification with dependencies fails
-                    identified = identifyToResource(resource, LanguageUtils.allActiveImpls(languageService));
-                }
-                return identified;
-            } catch(MetaborgException e) {
-                return identifyToResource(resource, LanguageUtils.allActiveImpls(languageService));
+            final LanguageIdentifierIndex projectIndex = projectIndex(project);
+            if(projectIndex != null) {
+                // Try with all active languages if identification with dependencies fails
+                return identifyToResource(resource, projectIndex, activeImplsIndex());
             }
-        } else {
-            return identifyToResource(resource, LanguageUtils.allActiveImpls(languageService));
         }
+        return identifyToResource(resource, activeImplsIndex());
     }
-    
+
     @Override public @Nullable ILanguageImpl identify(FileObject resource,
         Iterable<? extends ILanguageImpl> languages) {
         final IdentifiedResource identified = identifyToResource(resource, languages);
@@ -111,21 +129,43 @@ public class LanguageIdentifierService implements ILanguageIdentifierService {
 
     @Override public @Nullable IdentifiedResource identifyToResource(FileObject resource,
         Iterable<? extends ILanguageImpl> impls) {
-        // Ignore directories.
-        try {
-            if(resource.getType() == FileType.FOLDER) {
-                return null;
+        return identifyToResource(resource, implsIndex(impls));
+    }
+
+    @Override public Map<FileName, IdentifiedResource> identifyToResources(Iterable<FileObject> resources,
+        Iterable<? extends ILanguageImpl> impls) {
+        final LanguageIdentifierIndex index = implsIndex(impls);
+        final Map<FileName, IdentifiedResource> identified = Maps.newHashMap();
+        for(FileObject resource : resources) {
+            final IdentifiedResource identifiedResource = identifyToResource(resource, index);
+            if(identifiedResource != null) {
+                identified.put(resource.getName(), identifiedResource);
             }
-        } catch(FileSystemException e) {
-            logger.error("Cannot identify {}, cannot determine its file type", e, resource);
-            return null;
+        }
+        return identified;
+    }
+
+
+    /**
+     * Identifies given resource with the candidates of given indexes, trying the next index only when identification
+     * with the previous index fails. The file type and dialect of the resource are only determined once. The file type
+     * is only determined when the resource can be identified by name, such that resources that are not of any language,
+     * which are the majority of changed resources in most projects, never access the file system.
+     */
+    private @Nullable IdentifiedResource identifyToResource(FileObject resource, LanguageIdentifierIndex... indexes) {
+        final List<Iterable<ILanguageImpl>> candidatesPerIndex = Lists.newArrayListWithCapacity(indexes.length);
+        boolean hasCandidates = false;
+        for(LanguageIdentifierIndex index : indexes) {
+            final Collection<ILanguageImpl> candidates = index.candidates(resource);
+            hasCandidates = hasCandidates || !candidates.isEmpty();
+            candidatesPerIndex.add(candidates);
         }
 
         // Try to identify using the dialect identifier first.
         try {
             final IdentifiedDialect dialect = dialectIdentifier.identify(resource);
             if(dialect != null) {
-                return new IdentifiedResource(resource, dialect);
+                return isFolder(resource) ? null : new IdentifiedResource(resource, dialect);
             }
         } catch(MetaborgException e) {
             logger.error("Cannot identify dialect of {}", e, resource);
@@ -134,26 +174,113 @@ public class LanguageIdentifierService implements ILanguageIdentifierService {
             // Ignore
         }
 
+        // Ignore directories.
+        if(!hasCandidates || isFolder(resource)) {
+            return null;
+        }
+
         // Identify using identification facet.
-        final Set<ILanguage> identifiedLanguages = Sets.newLinkedHashSet();
-        ILanguageImpl identifiedImpl = null;
-        for(ILanguageImpl impl : impls) {
-            if(identify(resource, impl)) {
-                identifiedLanguages.add(impl.belongsTo());
-                identifiedImpl = impl;
+        for(Iterable<ILanguageImpl> candidates : candidatesPerIndex) {
+            final Set<ILanguage> identifiedLanguages = Sets.newLinkedHashSet();
+            ILanguageImpl identifiedImpl = null;
+            for(ILanguageImpl impl : candidates) {
+                if(identify(resource, impl)) {
+                    identifiedLanguages.add(impl.belongsTo());
+                    identifiedImpl = impl;
+                }
+            }
+
+            if(identifiedLanguages.size() > 1) {
+                throw new IllegalStateException("Resource " + resource + " identifies to multiple languages: "
+                    + Joiner.on(", ").join(identifiedLanguages));
+            }
+
+            if(identifiedImpl != null) {
+                return new IdentifiedResource(resource, null, identifiedImpl);
             }
         }
 
-        if(identifiedLanguages.size() > 1) {
-            throw new IllegalStateException("Resource " + resource + " identifies to multiple languages: "
-                + Joiner.on(", ").join(identifiedLanguages));
+        return null;
+    }
+
+    private boolean isFolder(FileObject resource) {
+        try {
+            return resource.getType() == FileType.FOLDER;
+        } catch(FileSystemException e) {
+            logger.error("Cannot identify {}, cannot determine its file type", e, resource);
+            // Treat as folder, such that the resource is not identified.
+            return true;
         }
+    }
 
-        if(identifiedImpl == null) {
+    private @Nullable LanguageIdentifierIndex projectIndex(final IProject project) {
+        final ProjectKey key = new ProjectKey(project);
+        final LanguageIdentifierIndex index = projectIndexes.getIfPresent(key);
+        if(index != null) {
+            return index;
+        }
+        final long indexGeneration = generation();
+        try {
+            final Iterable<ILanguageComponent> dependencies = dependencyService.compileDeps(project);
+            final LanguageIdentifierIndex newIndex =
+                new LanguageIdentifierIndex(LanguageUtils.toImpls(dependencies));
+            synchronized(indexLock) {
+                if(indexGeneration == generation) {
+                    projectIndexes.put(key, newIndex);
+                }
+            }
+            return newIndex;
+        } catch(MetaborgException e) {
+            // Do not cache, dependencies may become available later.
             return null;
         }
+    }
 
-        return new IdentifiedResource(resource, null, identifiedImpl);
+    private LanguageIdentifierIndex activeImplsIndex() {
+        final LanguageIdentifierIndex index = activeImplsIndex;
+        if(index != null) {
+            return index;
+        }
+        final long indexGeneration = generation();
+        final LanguageIdentifierIndex newIndex =
+            new LanguageIdentifierIndex(LanguageUtils.allActiveImpls(languageService));
+        synchronized(indexLock) {
+            if(indexGeneration == generation) {
+                activeImplsIndex = newIndex;
+            }
+        }
+        return newIndex;
+    }
+
+    private LanguageIdentifierIndex implsIndex(Iterable<? extends ILanguageImpl> impls) {
+        final List<ILanguageImpl> key = ImmutableList.<ILanguageImpl>copyOf(impls);
+        final LanguageIdentifierIndex index = implsIndexes.getIfPresent(key);
+        if(index != null) {
+            return index;
+        }
+        final long indexGeneration = generation();
+        final LanguageIdentifierIndex newIndex = new LanguageIdentifierIndex(key);
+        synchronized(indexLock) {
+            if(indexGeneration == generation) {
+                implsIndexes.put(key, newIndex);
+            }
+        }
+        return newIndex;
+    }
+
+    private long generation() {
+        synchronized(indexLock) {
+            return generation;
+        }
+    }
+
+    private void invalidateIndexes() {
+        synchronized(indexLock) {
+            ++generation;
+            projectIndexes.invalidateAll();
+            implsIndexes.invalidateAll();
+            activeImplsIndex = null;
+        }
     }
 
 
@@ -164,4 +291,37 @@ public class LanguageIdentifierService implements ILanguageIdentifierService {
         }
         return true;
     }
+
+
+    /**
+     * Key of a project index: the project location, and the compile dependencies from the project configuration.
+     */
+    private static final class ProjectKey {
+        private final FileName location;
+        private final @Nullable List<LanguageIdentifier> compileDeps;
+
+
+        public ProjectKey(IProject project) {
+            this.location = project.location().getName();
+            final IProjectConfig config = project.config();
+            this.compileDeps = config != null ? ImmutableList.copyOf(config.compileDeps()) : null;
+        }
+
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final ProjectKey other = (ProjectKey) obj;
+            return location.equals(other.location)
+                && (compileDeps == null ? other.compileDeps == null : compileDeps.equals(other.compileDeps));
+        }
+
+        @Override public int hashCode() {
+            return 31 * location.hashCode() + (compileDeps == null ? 0 : compileDeps.hashCode());
+        }
+    }
 }
@@ -24,6 +24,26 @@ public class LanguageUtils {
         return impls;
     }
 
+    /**
+     * Gets the extensions of resources that given language implementation identifies, if identification is purely based
+     * on extensions.
+     * 
+     * @param impl
+     *            Language implementation to get extensions for.
+     * @return Identified extensions, or null if identification is not (purely) based on extensions.
+     */
+    public static @Nullable Set<String> identifiedExtensions(ILanguageImpl impl) {
+        final Set<String> extensions = Sets.newHashSet();
+        for(IdentificationFacet facet : impl.facets(IdentificationFacet.class)) {
+            final Set<String> facetExtensions = facet.extensions();
+            if(facetExtensions == null) {
+                return null;
+            }
+            extensions.addAll(facetExtensions);
+        }
+        return extensions;
+    }
+
     public static @Nullable ILanguageImpl active(Iterable<? extends ILanguageImpl> impls) {
         ILanguageImpl active = null;
         for(ILanguageImpl impl : impls) {
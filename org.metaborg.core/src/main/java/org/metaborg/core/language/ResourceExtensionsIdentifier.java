@@ -23,4 +23,9 @@ public class ResourceExtensionsIdentifier implements Func1<FileObject, Boolean>,
     @Override public Boolean call(FileObject resource) {
         return extensions.contains(resource.getName().getExtension());
     }
+
+
+    public Set<String> extensions() {
+        return extensions;
+    }
 }
@@ -1,26 +1,46 @@
 package org.metaborg.core.messages;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
 
+import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.source.AffectedSourceHelper;
 import org.metaborg.core.source.ISourceRegion;
 import org.metaborg.core.source.ISourceTextService;
+import org.metaborg.core.source.LineIndex;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.Level;
 import org.metaborg.util.log.LoggerUtils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
- * Message printer implementation that prints detailed messages to a stream.
+ * Message printer implementation that prints detailed messages to a stream. Messages are formatted and written on a
+ * background thread, in the order they were printed, through buffered streams that are flushed when no more messages
+ * are pending. Source texts for highlighting are read once for consecutive messages in the same source.
+ * {@link #printSummary()} waits until all messages have been written, and clears the cached source texts.
  */
 public class StreamMessagePrinter implements IMessagePrinter {
+    private static final ILogger logger = LoggerUtils.logger(StreamMessagePrinter.class);
+
+    private static final int maxCachedSources = 16;
+
     private final ISourceTextService sourceTextService;
     private final PrintStream infoStream;
     private final PrintStream warnStream;
@@ -28,6 +48,20 @@ public class StreamMessagePrinter implements IMessagePrinter {
     private final boolean printHighlight;
     private final boolean printExceptions;
 
+    // Single non-daemon thread, which stops when idle, such that pending messages are written before the JVM exits.
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder().setNameFormat("message-printer-%d").build());
+    private final AtomicInteger pending = new AtomicInteger();
+    // Only accessed on the printing thread.
+    private @Nullable PrintStream lastStream;
+    private final Map<FileName, Source> sources = new LinkedHashMap<FileName, Source>(16, 0.75f, true) {
+        private static final long serialVersionUID = -2151519543418883218L;
+
+        @Override protected boolean removeEldestEntry(Map.Entry<FileName, Source> eldest) {
+            return size() > maxCachedSources;
+        }
+    };
+
     private int notes = 0;
     private int warnings = 0;
     private int warningsPardoned = 0;
@@ -40,9 +74,9 @@ public class StreamMessagePrinter implements IMessagePrinter {
     public StreamMessagePrinter(ISourceTextService sourceTextService, boolean printHighlight, boolean printExceptions,
         OutputStream infoStream, OutputStream warnStream, OutputStream errorStream) {
         this.sourceTextService = sourceTextService;
-        this.infoStream = new PrintStream(infoStream);
-        this.warnStream = new PrintStream(warnStream);
-        this.errorStream = new PrintStream(errorStream);
+        this.infoStream = new PrintStream(new BufferedOutputStream(infoStream));
+        this.warnStream = new PrintStream(new BufferedOutputStream(warnStream));
+        this.errorStream = new PrintStream(new BufferedOutputStream(errorStream));
         this.printHighlight = printHighlight;
         this.printExceptions = printExceptions;
     }
@@ -54,42 +88,8 @@ public class StreamMessagePrinter implements IMessagePrinter {
     }
 
 
-    @Override public void print(IMessage message, boolean pardoned) {
-        final StringBuilder sb = new StringBuilder();
-
+    @Override public void print(final IMessage message, final boolean pardoned) {
         final MessageSeverity severity = message.severity();
-        sb.append(severity);
-        if(severity != MessageSeverity.NOTE && pardoned) {
-            sb.append(" (pardoned)");
-        }
-
-        final FileObject source = message.source();
-        final ISourceRegion region = message.region();
-        if(source != null) {
-            sb.append(" in ");
-            sb.append(source.getName().getURI());
-            if(region != null) {
-                sb.append(":").append(region.startRow());
-            }
-            sb.append('\n');
-        }
-
-        if(printHighlight) {
-            try {
-                final String sourceText = sourceTextService.text(source);
-                if(region != null) {
-                    final String affected =
-                        AffectedSourceHelper.affectedSourceText(message.region(), sourceText, "    ");
-                    if(affected != null) {
-                        sb.append(affected);
-                    }
-                }
-            } catch(IOException e) {
-            }
-        }
-
-        print(sb, message.message(), message.exception(), message.severity(), pardoned);
-
         switch(severity) {
             case NOTE:
                 ++notes;
@@ -109,44 +109,125 @@ public class StreamMessagePrinter implements IMessagePrinter {
                 }
                 break;
         }
+
+        submit(new Runnable() {
+            @Override public void run() {
+                printMessage(message, pardoned);
+            }
+        });
     }
 
-    @Override public void print(FileObject source, String message, @Nullable Throwable e, boolean pardoned) {
-        final StringBuilder sb = new StringBuilder();
-        sb.append("EXCEPTION");
+    @Override public void print(final FileObject source, final String message, final @Nullable Throwable e,
+        final boolean pardoned) {
         if(pardoned) {
-            sb.append(" (pardoned)");
+            ++exceptionsPardoned;
+        } else {
+            ++exceptions;
         }
-        sb.append(" in ");
-        sb.append(source.getName().getPath());
-        sb.append('\n');
 
-        print(sb, message, e, MessageSeverity.ERROR, pardoned);
+        submit(new Runnable() {
+            @Override public void run() {
+                final StringBuilder sb = new StringBuilder();
+                sb.append("EXCEPTION");
+                if(pardoned) {
+                    sb.append(" (pardoned)");
+                }
+                sb.append(" in ");
+                sb.append(source.getName().getPath());
+                sb.append('\n');
 
+                print(sb, message, e, MessageSeverity.ERROR, pardoned);
+            }
+        });
+    }
+
+    @Override public void print(final IProject project, final String message, final @Nullable Throwable e,
+        final boolean pardoned) {
         if(pardoned) {
             ++exceptionsPardoned;
         } else {
             ++exceptions;
         }
+
+        submit(new Runnable() {
+            @Override public void run() {
+                final StringBuilder sb = new StringBuilder();
+                sb.append("EXCEPTION");
+                if(pardoned) {
+                    sb.append(" (pardoned)");
+                }
+                sb.append(" in project ");
+                sb.append(project.location().getName().getPath());
+                sb.append('\n');
+
+                print(sb, message, e, MessageSeverity.ERROR, pardoned);
+            }
+        });
     }
 
-    @Override public void print(IProject project, String message, @Nullable Throwable e, boolean pardoned) {
+    private void submit(final Runnable task) {
+        pending.incrementAndGet();
+        executor.execute(new Runnable() {
+            @Override public void run() {
+                try {
+                    task.run();
+                } catch(RuntimeException e) {
+                    logger.error("Printing message failed unexpectedly", e);
+                } finally {
+                    if(pending.decrementAndGet() == 0) {
+                        flush();
+                    }
+                }
+            }
+        });
+    }
+
+    private void printMessage(IMessage message, boolean pardoned) {
         final StringBuilder sb = new StringBuilder();
-        sb.append("EXCEPTION");
-        if(pardoned) {
+
+        final MessageSeverity severity = message.severity();
+        sb.append(severity);
+        if(severity != MessageSeverity.NOTE && pardoned) {
             sb.append(" (pardoned)");
         }
-        sb.append(" in project ");
-        sb.append(project.location().getName().getPath());
-        sb.append('\n');
 
-        print(sb, message, e, MessageSeverity.ERROR, pardoned);
+        final FileObject source = message.source();
+        final ISourceRegion region = message.region();
+        if(source != null) {
+            sb.append(" in ");
+            sb.append(source.getName().getURI());
+            if(region != null) {
+                sb.append(":").append(region.startRow());
+            }
+            sb.append('\n');
+        }
 
-        if(pardoned) {
-            ++exceptionsPardoned;
-        } else {
-            ++exceptions;
+        if(printHighlight && source != null && region != null) {
+            final Source sourceText = source(source);
+            if(sourceText.text != null) {
+                final String affected =
+                    AffectedSourceHelper.affectedSourceText(region, sourceText.text, sourceText.lines, "    ");
+                if(affected != null) {
+                    sb.append(affected);
+                }
+            }
         }
+
+        print(sb, message.message(), message.exception(), severity, pardoned);
+    }
+
+    private Source source(FileObject resource) {
+        Source source = sources.get(resource.getName());
+        if(source == null) {
+            try {
+                final String text = sourceTextService.text(resource);
+                source = new Source(text, LineIndex.of(text));
+            } catch(IOException e) {
+                source = new Source(null, null);
+            }
+            sources.put(resource.getName(), source);
+        }
+        return source;
     }
 
     private void print(StringBuilder sb, String message, @Nullable Throwable e, MessageSeverity severity,
@@ -169,30 +250,42 @@ public class StreamMessagePrinter implements IMessagePrinter {
 
         final String str = sb.toString();
         if(pardoned) {
-            infoStream.print(str);
-            infoStream.flush();
+            write(infoStream, str);
         } else {
             switch(severity) {
                 case NOTE:
-                    infoStream.print(str);
-                    infoStream.flush();
+                    write(infoStream, str);
                     break;
                 case WARNING:
-                    warnStream.print(str);
-                    warnStream.flush();
+                    write(warnStream, str);
                     break;
                 case ERROR:
-                    errorStream.print(str);
-                    errorStream.flush();
+                    write(errorStream, str);
                     break;
             }
         }
     }
 
+    private void write(PrintStream stream, String str) {
+        // Streams may write to the same underlying stream, flush when switching streams to keep messages in order.
+        if(lastStream != null && lastStream != stream) {
+            lastStream.flush();
+        }
+        stream.print(str);
+        lastStream = stream;
+    }
+
+    private void flush() {
+        infoStream.flush();
+        warnStream.flush();
+        errorStream.flush();
+    }
+
     @Override public void printSummary() {
         final int total =
             notes + warnings + warningsPardoned + errors + errorsPardoned + exceptions + exceptionsPardoned;
         if(total == 0) {
+            awaitPrinted();
             return;
         }
 
@@ -246,7 +339,43 @@ public class StreamMessagePrinter implements IMessagePrinter {
         sb.append('\n');
 
         final String str = sb.toString();
-        infoStream.print(str);
-        infoStream.flush();
+        submit(new Runnable() {
+            @Override public void run() {
+                write(infoStream, str);
+            }
+        });
+        awaitPrinted();
+    }
+
+    /**
+     * Waits until all messages printed before have been written. Cached source texts are cleared, since sources may
+     * change before messages are printed again.
+     */
+    private void awaitPrinted() {
+        final Future<?> printed = executor.submit(new Runnable() {
+            @Override public void run() {
+                sources.clear();
+                flush();
+            }
+        });
+        try {
+            printed.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException e) {
+            logger.error("Printing messages failed unexpectedly", e);
+        }
+    }
+
+
+    private static class Source {
+        public final @Nullable String text;
+        public final @Nullable LineIndex lines;
+
+
+        public Source(@Nullable String text, @Nullable LineIndex lines) {
+            this.text = text;
+            this.lines = lines;
+        }
     }
 }
@@ -13,6 +13,7 @@ import org.metaborg.core.project.IProjectService;
 import org.metaborg.core.source.AffectedSourceHelper;
 import org.metaborg.core.source.ISourceRegion;
 import org.metaborg.core.source.ISourceTextService;
+import org.metaborg.core.source.LineIndex;
 
 /**
  * Prints note, warning, and error messages similar to large compilers such as GCC or Clang. That is, the message
@@ -31,6 +32,14 @@ public class WithLocationStreamMessagePrinter implements IMessagePrinter {
 
     private final PrintStream outputStream;
 
+    /**
+     * Text and line index of the last printed source file, since consecutive messages are often in the same file.
+     * Cleared by {@link #printSummary()}, since the source file may change before messages are printed again.
+     */
+    private @Nullable FileObject lastSourceFile;
+    private @Nullable String lastSourceText;
+    private @Nullable LineIndex lastSourceLines;
+
     public WithLocationStreamMessagePrinter(ISourceTextService sourceTextService, IProjectService projectService,
         OutputStream outputStream) {
         this.sourceTextService = sourceTextService;
@@ -55,6 +64,9 @@ public class WithLocationStreamMessagePrinter implements IMessagePrinter {
 
     @Override
     public void printSummary() {
+        lastSourceFile = null;
+        lastSourceText = null;
+        lastSourceLines = null;
     }
 
     private void print(String message, boolean pardoned, @Nullable FileObject sourceFile, @Nullable MessageSeverity
@@ -63,6 +75,12 @@ public class WithLocationStreamMessagePrinter implements IMessagePrinter {
             return;
         }
 
+        // if available, read source code once for line numbers and pretty-printing
+        final boolean hasSource = sourceFile != null && sourceRegion != null && readSource(sourceFile);
+        if (hasSource) {
+            sourceRegion = lastSourceLines.region(sourceRegion);
+        }
+
         final StringBuilder sb = new StringBuilder();
         // if available, print filename, line number, and column
         if (sourceFile != null) {
@@ -100,14 +118,11 @@ public class WithLocationStreamMessagePrinter implements IMessagePrinter {
         sb.append('\n');
 
         // if available, pretty-print source code
-        if (sourceFile != null && sourceRegion != null) {
-            try {
-                final String affectedSource = AffectedSourceHelper
-                    .affectedSourceText(sourceRegion, sourceTextService.text(sourceFile), " ");
-                if (affectedSource != null) { // affectedSourceText() is @Nullable
-                    sb.append(affectedSource);
-                }
-            } catch (IOException ignored) {
+        if (hasSource) {
+            final String affectedSource = AffectedSourceHelper
+                .affectedSourceText(sourceRegion, lastSourceText, lastSourceLines, " ");
+            if (affectedSource != null) { // affectedSourceText() is @Nullable
+                sb.append(affectedSource);
             }
         }
 
@@ -115,4 +130,23 @@ public class WithLocationStreamMessagePrinter implements IMessagePrinter {
         outputStream.flush();
     }
 
+    /**
+     * Reads the text of given source file, unless it was the last read source file.
+     *
+     * @return True if the text of given source file is available.
+     */
+    private boolean readSource(FileObject sourceFile) {
+        if (!sourceFile.equals(lastSourceFile)) {
+            lastSourceFile = sourceFile;
+            try {
+                lastSourceText = sourceTextService.text(sourceFile);
+                lastSourceLines = LineIndex.of(lastSourceText);
+            } catch (IOException ignored) {
+                lastSourceText = null;
+                lastSourceLines = null;
+            }
+        }
+        return lastSourceText != null;
+    }
+
 }
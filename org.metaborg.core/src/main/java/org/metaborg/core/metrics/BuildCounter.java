@@ -0,0 +1,43 @@
+package org.metaborg.core.metrics;
+
+/**
+ * Counters of things that happen during builds. All counters are keyed by context location.
+ */
+public enum BuildCounter {
+    /**
+     * Partitions affected by a task engine analysis.
+     */
+    AffectedPartitions,
+    /**
+     * Index entries added by a task engine analysis.
+     */
+    IndexEntriesAdded,
+    /**
+     * Index entries removed by a task engine analysis.
+     */
+    IndexEntriesRemoved,
+    /**
+     * Tasks added by a task engine analysis.
+     */
+    TasksAdded,
+    /**
+     * Tasks removed by a task engine analysis.
+     */
+    TasksRemoved,
+    /**
+     * Tasks invalidated by a task engine analysis.
+     */
+    TasksInvalidated,
+    /**
+     * Tasks evaluated by a task engine analysis.
+     */
+    TasksEvaluated,
+    /**
+     * Tasks skipped by a task engine analysis.
+     */
+    TasksSkipped,
+    /**
+     * Tasks left unevaluated by a task engine analysis.
+     */
+    TasksUnevaluated
+}
@@ -0,0 +1,149 @@
+package org.metaborg.core.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.metaborg.core.MetaborgRuntimeException;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Build metrics implementation that keeps an in-memory histogram of durations per build phase, and a total per build
+ * counter. Keys are not stored, to keep memory use constant regardless of the number of resources that are built.
+ * Histograms and counters can be dumped as JSON.
+ */
+public class BuildMetrics implements IBuildMetrics {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final double[] percentiles = { 50, 90, 99 };
+
+    private final Map<BuildPhase, Histogram> histograms = new EnumMap<>(BuildPhase.class);
+    private final Map<BuildCounter, AtomicLong> counters = new EnumMap<>(BuildCounter.class);
+
+
+    public BuildMetrics() {
+        for(BuildPhase phase : BuildPhase.values()) {
+            histograms.put(phase, new Histogram());
+        }
+        for(BuildCounter counter : BuildCounter.values()) {
+            counters.put(counter, new AtomicLong());
+        }
+    }
+
+
+    @Override public void record(BuildPhase phase, String key, long durationNanos) {
+        histograms.get(phase).record(durationNanos);
+    }
+
+    @Override public void count(BuildCounter counter, String key, long amount) {
+        counters.get(counter).addAndGet(amount);
+    }
+
+
+    /**
+     * @return Histogram of durations of given phase.
+     */
+    public Histogram histogram(BuildPhase phase) {
+        return histograms.get(phase);
+    }
+
+    /**
+     * @return Total of given counter.
+     */
+    public long counter(BuildCounter counter) {
+        return counters.get(counter).get();
+    }
+
+    /**
+     * Removes all recorded durations and counts.
+     */
+    public void reset() {
+        for(Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for(AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+    }
+
+
+    /**
+     * Writes histograms and counters as a JSON object, with a field per phase in the {@code phases} object, and a field
+     * per counter in the {@code counters} object. Durations are written in milliseconds.
+     *
+     * @param stream
+     *            Stream to write to, which is not closed.
+     * @throws IOException
+     *             When writing to the stream fails.
+     */
+    public void writeJson(OutputStream stream) throws IOException {
+        final JsonGenerator generator = jsonFactory.createGenerator(stream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        write(generator);
+    }
+
+    /**
+     * @return Histograms and counters as a JSON object, see {@link #writeJson(OutputStream)}.
+     */
+    public String toJson() {
+        final StringWriter writer = new StringWriter();
+        try {
+            write(jsonFactory.createGenerator(writer));
+        } catch(IOException e) {
+            throw new MetaborgRuntimeException("Writing build metrics as JSON failed unexpectedly", e);
+        }
+        return writer.toString();
+    }
+
+
+    private void write(JsonGenerator generator) throws IOException {
+        generator.useDefaultPrettyPrinter();
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("phases");
+        for(Entry<BuildPhase, Histogram> entry : histograms.entrySet()) {
+            final Histogram histogram = entry.getValue();
+            generator.writeObjectFieldStart(entry.getKey().name());
+            generator.writeNumberField("count", histogram.count());
+            generator.writeNumberField("totalMillis", millis(histogram.total()));
+            generator.writeNumberField("minMillis", millis(histogram.min()));
+            generator.writeNumberField("meanMillis", millis(histogram.mean()));
+            generator.writeNumberField("maxMillis", millis(histogram.max()));
+            for(double percentile : percentiles) {
+                generator.writeNumberField("p" + (int) percentile + "Millis",
+                    millis(histogram.percentile(percentile)));
+            }
+            generator.writeArrayFieldStart("buckets");
+            final long[] snapshot = histogram.snapshot();
+            for(int i = 0; i < snapshot.length; ++i) {
+                if(snapshot[i] == 0) {
+                    continue;
+                }
+                generator.writeStartObject();
+                generator.writeNumberField("upperMillis", millis(Histogram.upperBound(i)));
+                generator.writeNumberField("count", snapshot[i]);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+        generator.writeObjectFieldStart("counters");
+        for(Entry<BuildCounter, AtomicLong> entry : counters.entrySet()) {
+            generator.writeNumberField(entry.getKey().name(), entry.getValue().get());
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private static double millis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
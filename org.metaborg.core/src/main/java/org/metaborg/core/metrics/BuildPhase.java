@@ -0,0 +1,55 @@
+package org.metaborg.core.metrics;
+
+/**
+ * Phases of a build that durations are recorded for.
+ */
+public enum BuildPhase {
+    /**
+     * Parsing a single resource, keyed by resource.
+     */
+    Parse,
+    /**
+     * Analyzing all parse units of a single context, keyed by context location.
+     */
+    Analysis,
+    /**
+     * Transforming a single analysis unit with a single goal, keyed by goal.
+     */
+    Transform,
+    /**
+     * Acquiring a runtime, such as a Stratego interpreter, for a single language component, keyed by component.
+     */
+    RuntimeAcquisition,
+    /**
+     * Persisting a single context, keyed by context location.
+     */
+    Persist,
+    /**
+     * Waiting between requesting and starting a build, keyed by project location.
+     */
+    QueueWait,
+    /**
+     * Pre-analysis transformation of the task engine analysis of a single context, keyed by context location.
+     */
+    TaskEnginePreTransform,
+    /**
+     * Collection of index entries and tasks of the task engine analysis of a single context, keyed by context location.
+     */
+    TaskEngineCollect,
+    /**
+     * Evaluation of tasks of the task engine analysis of a single context, keyed by context location.
+     */
+    TaskEngineEvaluate,
+    /**
+     * Post-analysis transformation of the task engine analysis of a single context, keyed by context location.
+     */
+    TaskEnginePostTransform,
+    /**
+     * Persisting the index of the task engine analysis of a single context, keyed by context location.
+     */
+    TaskEngineIndexPersist,
+    /**
+     * Persisting tasks of the task engine analysis of a single context, keyed by context location.
+     */
+    TaskEngineTaskPersist
+}
@@ -0,0 +1,149 @@
+package org.metaborg.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of durations, with a bucket per power of two nanoseconds. Percentiles are estimated as the
+ * upper bound of the bucket they fall in, which is at most twice the actual value.
+ */
+public class Histogram {
+    private static final int bucketCount = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(bucketCount);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+
+    /**
+     * Records given duration.
+     *
+     * @param durationNanos
+     *            Duration in nanoseconds, negative durations are recorded as 0.
+     */
+    public void record(long durationNanos) {
+        final long duration = Math.max(0, durationNanos);
+        buckets.incrementAndGet(bucket(duration));
+        count.incrementAndGet();
+        total.addAndGet(duration);
+        long current;
+        while((current = min.get()) > duration && !min.compareAndSet(current, duration)) {
+        }
+        while((current = max.get()) < duration && !max.compareAndSet(current, duration)) {
+        }
+    }
+
+    /**
+     * Removes all recorded durations.
+     */
+    public void reset() {
+        for(int i = 0; i < bucketCount; ++i) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+
+
+    /**
+     * @return Number of recorded durations.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * @return Sum of recorded durations in nanoseconds.
+     */
+    public long total() {
+        return total.get();
+    }
+
+    /**
+     * @return Smallest recorded duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long min() {
+        final long value = min.get();
+        return value == Long.MAX_VALUE ? 0 : value;
+    }
+
+    /**
+     * @return Largest recorded duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long max() {
+        final long value = max.get();
+        return value == Long.MIN_VALUE ? 0 : value;
+    }
+
+    /**
+     * @return Mean of recorded durations in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long mean() {
+        final long n = count.get();
+        return n == 0 ? 0 : total.get() / n;
+    }
+
+    /**
+     * Estimates a percentile of recorded durations.
+     *
+     * @param percentile
+     *            Percentile between 0 and 100.
+     * @return Upper bound of the bucket the percentile falls in, in nanoseconds, capped at the largest recorded
+     *         duration, or 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        final long[] snapshot = snapshot();
+        long n = 0;
+        for(long bucketSize : snapshot) {
+            n += bucketSize;
+        }
+        if(n == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+        long seen = 0;
+        for(int i = 0; i < snapshot.length; ++i) {
+            seen += snapshot[i];
+            if(seen >= rank) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * @return Copy of the number of durations per bucket. Bucket 0 holds durations of 0 nanoseconds, bucket i > 0 holds
+     *         durations from 2^(i-1) up to and excluding 2^i nanoseconds.
+     */
+    public long[] snapshot() {
+        final long[] snapshot = new long[bucketCount];
+        for(int i = 0; i < bucketCount; ++i) {
+            snapshot[i] = buckets.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return Exclusive upper bound of given bucket in nanoseconds.
+     */
+    public static long upperBound(int bucket) {
+        return bucket >= bucketCount - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+
+    @Override public String toString() {
+        return String.format("count=%d, mean=%dms, max=%dms", count(), TimeUnit.NANOSECONDS.toMillis(mean()),
+            TimeUnit.NANOSECONDS.toMillis(max()));
+    }
+
+
+    private static int bucket(long duration) {
+        return Math.min(bucketCount - 1, 64 - Long.numberOfLeadingZeros(duration));
+    }
+}
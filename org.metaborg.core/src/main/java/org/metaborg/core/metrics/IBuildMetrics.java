@@ -0,0 +1,32 @@
+package org.metaborg.core.metrics;
+
+/**
+ * Interface for recording durations of build phases, and counts of things that happened during builds. Implement and bind to record durations elsewhere, for example to
+ * trace individual builds. Implementations must be thread-safe and fast, since durations are recorded from build
+ * threads while building.
+ */
+public interface IBuildMetrics {
+    /**
+     * Records the duration of a build phase.
+     *
+     * @param phase
+     *            Phase that was executed.
+     * @param key
+     *            What the phase was executed for, see {@link BuildPhase} for what the key is for each phase.
+     * @param durationNanos
+     *            Duration of the phase in nanoseconds.
+     */
+    void record(BuildPhase phase, String key, long durationNanos);
+
+    /**
+     * Adds to a build counter.
+     *
+     * @param counter
+     *            Counter to add to.
+     * @param key
+     *            What was counted, see {@link BuildCounter} for what the key is for each counter.
+     * @param amount
+     *            Amount to add.
+     */
+    void count(BuildCounter counter, String key, long amount);
+}
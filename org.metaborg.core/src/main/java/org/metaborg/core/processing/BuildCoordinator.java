@@ -0,0 +1,319 @@
+package org.metaborg.core.processing;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileName;
+import org.metaborg.core.MetaborgRuntimeException;
+import org.metaborg.core.analysis.IAnalyzeUnit;
+import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
+import org.metaborg.core.build.BuildInput;
+import org.metaborg.core.build.BuildState;
+import org.metaborg.core.build.IBuildOutput;
+import org.metaborg.core.metrics.BuildPhase;
+import org.metaborg.core.metrics.IBuildMetrics;
+import org.metaborg.core.syntax.IParseUnit;
+import org.metaborg.core.transform.ITransformUnit;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Build coordinator implementation that builds through a {@link IProcessorRunner}. Quiet periods are tracked on a
+ * single scheduler thread, and merged builds are run and waited for on a cached thread pool, one build at a time per
+ * project. Bookkeeping of a project is removed once it has no pending or running build, only its build state is kept,
+ * for at most {@link #maxStates} projects. When a build fails unexpectedly, its requests fail with the same exception.
+ */
+public class BuildCoordinator<P extends IParseUnit, A extends IAnalyzeUnit, AU extends IAnalyzeUnitUpdate, T extends ITransformUnit<?>>
+    implements IBuildCoordinator<P, A, AU, T>, AutoCloseable {
+    private static final ILogger logger = LoggerUtils.logger(BuildCoordinator.class);
+
+    /**
+     * Name of the injected time without build requests for a project after which the merged build for the project
+     * starts, in milliseconds.
+     */
+    public static final String quietPeriodName = "BuildCoordinatorQuietPeriodMillis";
+    /**
+     * Default time without build requests for a project after which the merged build for the project starts.
+     */
+    public static final long defaultQuietPeriodMillis = 300;
+    /**
+     * Maximum number of projects to keep the build state of.
+     */
+    public static final int maxStates = 256;
+
+    private final IProcessorRunner<P, A, AU, T> runner;
+    private final IBuildMetrics metrics;
+    private final long quietPeriodMillis;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("metaborg-build-coordinator").setDaemon(true).build());
+    private final ExecutorService buildExecutor = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("metaborg-build-coordinator-%d").setDaemon(true).build());
+
+    // Guarded by this.
+    private final Map<FileName, ProjectBuilds> projects = Maps.newHashMap();
+    private final Cache<FileName, BuildState> states = CacheBuilder.newBuilder().maximumSize(maxStates).build();
+
+
+    public BuildCoordinator(IProcessorRunner<P, A, AU, T> runner, IBuildMetrics metrics) {
+        this(runner, metrics, defaultQuietPeriodMillis);
+    }
+
+    /**
+     * @param quietPeriodMillis
+     *            Time without build requests for a project after which the merged build for the project starts.
+     */
+    @Inject public BuildCoordinator(IProcessorRunner<P, A, AU, T> runner, IBuildMetrics metrics,
+        @Named(quietPeriodName) long quietPeriodMillis) {
+        this.runner = runner;
+        this.metrics = metrics;
+        this.quietPeriodMillis = quietPeriodMillis;
+    }
+
+
+    @Override public ITask<? extends IBuildOutput<P, A, AU, T>> build(BuildInput input) {
+        return new Request(input);
+    }
+
+    @Override public void close() {
+        scheduler.shutdownNow();
+        buildExecutor.shutdown();
+    }
+
+
+    private synchronized void request(Request request) {
+        final FileName name = request.input.project.location().getName();
+        ProjectBuilds project = projects.get(name);
+        if(project == null) {
+            project = new ProjectBuilds(name);
+            projects.put(name, project);
+        }
+
+        final Build pending = project.pending;
+        if(pending == null) {
+            project.pending = new Build(request.input);
+        } else {
+            pending.input = request.input.mergeSourceChanges(pending.input);
+        }
+        project.pending.requests.add(request);
+
+        if(project.flush != null) {
+            project.flush.cancel(false);
+        }
+        final ProjectBuilds flushProject = project;
+        project.flush = scheduler.schedule(new Runnable() {
+            @Override public void run() {
+                flush(flushProject);
+            }
+        }, quietPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void flush(final ProjectBuilds project) {
+        final Build build = project.pending;
+        if(build == null) {
+            return;
+        }
+        project.pending = null;
+        project.flush = null;
+
+        final Build previous = project.running;
+        if(previous != null && !previous.finished) {
+            logger.debug("Cancelling superseded build of {}", previous.input.project.location());
+            previous.cancellationToken.cancel();
+            build.input = build.input.mergeSourceChanges(previous.input);
+            build.requests.addAll(previous.requests);
+        }
+        project.running = build;
+
+        buildExecutor.execute(new Runnable() {
+            @Override public void run() {
+                run(project, build, previous);
+            }
+        });
+    }
+
+    private void run(ProjectBuilds project, Build build, @Nullable Build previous) {
+        IBuildOutput<P, A, AU, T> output = null;
+        RuntimeException failure = null;
+        try {
+            if(previous != null) {
+                // Builds of the same project may not run concurrently, wait for the cancelled build to stop.
+                previous.done.await();
+            }
+            metrics.record(BuildPhase.QueueWait, build.input.project.location().getName().getURI(),
+                System.nanoTime() - build.created);
+
+            BuildInput input = build.input;
+            final BuildState state = states.getIfPresent(project.name);
+            if(state != null) {
+                input = input.withState(state);
+            }
+            output = runner.build(input, null, build.cancellationToken).schedule().block().result();
+        } catch(InterruptedException e) {
+            // Build was cancelled.
+        } catch(RuntimeException e) {
+            logger.error("Build of {} failed unexpectedly", e, build.input.project.location());
+            failure = e;
+        } finally {
+            final List<Request> requests;
+            synchronized(this) {
+                if(output != null) {
+                    states.put(project.name, output.state());
+                }
+                build.finished = true;
+                requests = Lists.newArrayList(build.requests);
+                if(project.running == build && project.pending == null && projects.get(project.name) == project) {
+                    projects.remove(project.name);
+                }
+            }
+            // A superseded build without output has moved its requests to the build that superseded it.
+            if(output != null || !build.cancellationToken.cancelled()) {
+                for(Request request : requests) {
+                    if(failure != null) {
+                        request.fail(failure);
+                    } else {
+                        request.complete(output);
+                    }
+                }
+            }
+            build.done.countDown();
+        }
+    }
+
+
+    /**
+     * Builds of a single project.
+     */
+    private class ProjectBuilds {
+        public final FileName name;
+        public @Nullable Build pending;
+        public @Nullable ScheduledFuture<?> flush;
+        public @Nullable Build running;
+
+
+        public ProjectBuilds(FileName name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Single merged build.
+     */
+    private class Build {
+        public volatile BuildInput input;
+        public final List<Request> requests = Lists.newArrayList();
+        public final ICancellationToken cancellationToken = new CancellationToken();
+        public final CountDownLatch done = new CountDownLatch(1);
+        public final long created = System.nanoTime();
+        public boolean finished;
+
+
+        public Build(BuildInput input) {
+            this.input = input;
+        }
+    }
+
+    /**
+     * Single build request, which completes when the build that includes its source changes completes.
+     */
+    private class Request implements ITask<IBuildOutput<P, A, AU, T>> {
+        public final BuildInput input;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean completed;
+        private volatile boolean cancelled;
+        private volatile @Nullable IBuildOutput<P, A, AU, T> result;
+        private volatile @Nullable RuntimeException exception;
+
+
+        public Request(BuildInput input) {
+            this.input = input;
+        }
+
+
+        @Override public ITask<IBuildOutput<P, A, AU, T>> schedule() {
+            if(scheduled.compareAndSet(false, true)) {
+                request(this);
+            }
+            return this;
+        }
+
+        @Override public void cancel() {
+            synchronized(done) {
+                if(done.getCount() == 0) {
+                    return;
+                }
+                cancelled = true;
+                done.countDown();
+            }
+        }
+
+        @Override public void cancel(int forceTimeout) {
+            cancel();
+        }
+
+        @Override public boolean completed() {
+            return completed;
+        }
+
+        @Override public boolean cancelled() {
+            return cancelled;
+        }
+
+        @Override public @Nullable IBuildOutput<P, A, AU, T> result() {
+            return result;
+        }
+
+        @Override public ITask<IBuildOutput<P, A, AU, T>> block() throws InterruptedException {
+            done.await();
+            if(cancelled) {
+                throw new InterruptedException();
+            }
+            final RuntimeException buildException = exception;
+            if(buildException != null) {
+                throw new MetaborgRuntimeException("Build failed unexpectedly", buildException);
+            }
+            return this;
+        }
+
+
+        public void complete(@Nullable IBuildOutput<P, A, AU, T> output) {
+            synchronized(done) {
+                if(done.getCount() == 0) {
+                    return;
+                }
+                result = output;
+                completed = true;
+                done.countDown();
+            }
+        }
+
+        public void fail(RuntimeException buildException) {
+            synchronized(done) {
+                if(done.getCount() == 0) {
+                    return;
+                }
+                exception = buildException;
+                done.countDown();
+            }
+        }
+    }
+}
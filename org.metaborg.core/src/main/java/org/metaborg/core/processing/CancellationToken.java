@@ -1,11 +1,18 @@
 package org.metaborg.core.processing;
 
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
 /**
  * Simple cancellation token implementation.
  */
-public class CancellationToken implements ICancellationToken {
+public class CancellationToken implements IListenableCancellationToken {
     private volatile boolean cancelled = false;
 
+    // Guarded by this. Cleared when cancellation is requested.
+    private final List<Runnable> listeners = Lists.newArrayList();
+
 
     @Override public boolean cancelled() {
         return cancelled;
@@ -19,6 +26,34 @@ public class CancellationToken implements ICancellationToken {
     }
 
     @Override public void cancel() {
-        cancelled = true;
+        final List<Runnable> notify;
+        synchronized(this) {
+            if(cancelled) {
+                return;
+            }
+            cancelled = true;
+            notify = Lists.newArrayList(listeners);
+            listeners.clear();
+        }
+        // THREADING: call listeners without holding the lock, listeners may take their own locks.
+        for(Runnable listener : notify) {
+            listener.run();
+        }
+    }
+
+
+    @Override public boolean addListener(Runnable listener) {
+        synchronized(this) {
+            if(!cancelled) {
+                listeners.add(listener);
+                return true;
+            }
+        }
+        listener.run();
+        return true;
+    }
+
+    @Override public synchronized void removeListener(Runnable listener) {
+        listeners.remove(listener);
     }
 }
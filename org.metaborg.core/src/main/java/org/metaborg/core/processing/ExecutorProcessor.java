@@ -0,0 +1,203 @@
+package org.metaborg.core.processing;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.analysis.IAnalyzeUnit;
+import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
+import org.metaborg.core.build.BuildInput;
+import org.metaborg.core.build.CleanInput;
+import org.metaborg.core.build.IBuildOutput;
+import org.metaborg.core.build.IBuilder;
+import org.metaborg.core.language.LanguageComponentChange;
+import org.metaborg.core.language.LanguageImplChange;
+import org.metaborg.core.language.dialect.IDialectProcessor;
+import org.metaborg.core.metrics.BuildPhase;
+import org.metaborg.core.metrics.IBuildMetrics;
+import org.metaborg.core.resource.ResourceChange;
+import org.metaborg.core.syntax.IParseUnit;
+import org.metaborg.core.transform.ITransformUnit;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+
+/**
+ * Processor implementation that uses {@link ExecutorTask} as task implementation. Tasks run on an executor when
+ * scheduled. Tasks for the same project run one at a time in the order they were scheduled, while tasks for different
+ * projects run concurrently. Scheduling a build for a project cancels the build that was scheduled before it for the
+ * same project, if it has not completed yet, and builds its source changes as part of the new build. The queue of a
+ * project is removed once all its tasks have run.
+ */
+public class ExecutorProcessor<P extends IParseUnit, A extends IAnalyzeUnit, AU extends IAnalyzeUnitUpdate, T extends ITransformUnit<?>>
+    implements IProcessor<P, A, AU, T>, AutoCloseable {
+    private static final Object languageChangeKey = new Object();
+
+    private final IDialectProcessor dialectProcessor;
+    private final IBuilder<P, A, AU, T> builder;
+    private final ILanguageChangeProcessor languageChangeProcessor;
+    private final IBuildMetrics metrics;
+
+    private final ExecutorService executor;
+    // Guarded by serialExecutors.
+    private final Map<Object, SerialExecutor> serialExecutors = Maps.newHashMap();
+    private final ConcurrentMap<FileName, BuildTask> scheduledBuilds = Maps.newConcurrentMap();
+
+
+    /**
+     * Creates a processor that runs tasks on given executor.
+     */
+    public ExecutorProcessor(IDialectProcessor dialectProcessor, IBuilder<P, A, AU, T> builder,
+        ILanguageChangeProcessor languageChangeProcessor, IBuildMetrics metrics, ExecutorService executor) {
+        this.dialectProcessor = dialectProcessor;
+        this.builder = builder;
+        this.languageChangeProcessor = languageChangeProcessor;
+        this.metrics = metrics;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a processor that runs tasks on a cached thread pool with daemon threads.
+     */
+    @Inject public ExecutorProcessor(IDialectProcessor dialectProcessor, IBuilder<P, A, AU, T> builder,
+        ILanguageChangeProcessor languageChangeProcessor, IBuildMetrics metrics) {
+        this(dialectProcessor, builder, languageChangeProcessor, metrics, Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("metaborg-processor-%d").setDaemon(true).build()));
+    }
+
+
+    @Override public ITask<? extends IBuildOutput<P, A, AU, T>> build(BuildInput input,
+        @Nullable IProgressReporter progressReporter, @Nullable ICancellationToken cancellationToken) {
+        return new BuildTask(input, progressReporter, cancellationToken);
+    }
+
+    @Override public ITask<?> clean(final CleanInput input, final @Nullable IProgressReporter progressReporter,
+        @Nullable ICancellationToken cancellationToken) {
+        return new ExecutorTask<Object>(serialExecutor(input.project.location().getName()), cancellationToken) {
+            @Override protected Object run(ICancellationToken cancellationToken) throws InterruptedException {
+                builder.clean(input, progressReporter(progressReporter), cancellationToken);
+                return null;
+            }
+        };
+    }
+
+
+    @Override public ITask<?> updateDialects(final FileObject location, final Iterable<ResourceChange> changes) {
+        return new ExecutorTask<Object>(serialExecutor(location.getName()), null) {
+            @Override protected Object run(ICancellationToken cancellationToken) {
+                dialectProcessor.update(location, changes);
+                return null;
+            }
+        };
+    }
+
+
+    @Override public ITask<?> languageChange(final LanguageComponentChange change) {
+        return new ExecutorTask<Object>(serialExecutor(languageChangeKey), null) {
+            @Override protected Object run(ICancellationToken cancellationToken) {
+                languageChangeProcessor.processComponentChange(change, new NullProgressReporter());
+                return null;
+            }
+        };
+    }
+
+    @Override public ITask<?> languageChange(final LanguageImplChange change) {
+        return new ExecutorTask<Object>(serialExecutor(languageChangeKey), null) {
+            @Override protected Object run(ICancellationToken cancellationToken) {
+                languageChangeProcessor.processImplChange(change, new NullProgressReporter());
+                return null;
+            }
+        };
+    }
+
+
+    @Override public void close() {
+        executor.shutdown();
+    }
+
+
+    private Executor serialExecutor(final Object key) {
+        return new Executor() {
+            @Override public void execute(Runnable task) {
+                executeSerially(key, task);
+            }
+        };
+    }
+
+    private void executeSerially(final Object key, Runnable task) {
+        // THREADING: looking up the serial executor and submitting to it happens under the same lock as removing an
+        // idle serial executor, such that tasks for the same key never end up in two different serial executors.
+        synchronized(serialExecutors) {
+            SerialExecutor serialExecutor = serialExecutors.get(key);
+            if(serialExecutor == null) {
+                serialExecutor = new SerialExecutor(executor, new Runnable() {
+                    @Override public void run() {
+                        removeIfIdle(key);
+                    }
+                });
+                serialExecutors.put(key, serialExecutor);
+            }
+            serialExecutor.execute(task);
+        }
+    }
+
+    private void removeIfIdle(Object key) {
+        synchronized(serialExecutors) {
+            final SerialExecutor serialExecutor = serialExecutors.get(key);
+            if(serialExecutor != null && serialExecutor.idle()) {
+                serialExecutors.remove(key);
+            }
+        }
+    }
+
+    private static IProgressReporter progressReporter(@Nullable IProgressReporter progressReporter) {
+        return progressReporter != null ? progressReporter : new NullProgressReporter();
+    }
+
+
+    private class BuildTask extends ExecutorTask<IBuildOutput<P, A, AU, T>> {
+        private final FileName project;
+        private final @Nullable IProgressReporter progressReporter;
+
+        private volatile BuildInput input;
+        private volatile long scheduled;
+
+
+        public BuildTask(BuildInput input, @Nullable IProgressReporter progressReporter,
+            @Nullable ICancellationToken cancellationToken) {
+            super(serialExecutor(input.project.location().getName()), cancellationToken);
+            this.project = input.project.location().getName();
+            this.progressReporter = progressReporter;
+            this.input = input;
+        }
+
+
+        @Override protected void onSchedule() {
+            scheduled = System.nanoTime();
+            final BuildTask superseded = scheduledBuilds.put(project, this);
+            // THREADING: the superseded build may complete before it is cancelled, in which case its changes are
+            // built again. Building changes again is only wasteful, not wrong, so it is acceptable.
+            if(superseded != null && !superseded.completed() && !superseded.cancelled()) {
+                superseded.cancel();
+                input = input.mergeSourceChanges(superseded.input);
+            }
+        }
+
+        @Override protected IBuildOutput<P, A, AU, T> run(ICancellationToken cancellationToken)
+            throws InterruptedException {
+            metrics.record(BuildPhase.QueueWait, project.getURI(), System.nanoTime() - scheduled);
+            try {
+                return builder.build(input, progressReporter(progressReporter), cancellationToken);
+            } finally {
+                scheduledBuilds.remove(project, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.metaborg.core.processing;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.core.MetaborgRuntimeException;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Task implementation that runs on an executor when scheduled. Cancellation is requested through a cancellation token,
+ * and forced by interrupting the thread that runs the task. Each task has its own cancellation token, linked to the
+ * token it was created with, such that cancelling a task does not cancel other tasks created with the same token. When
+ * running the task throws an unexpected exception or error, the task is not completed, and {@link #block()} throws it
+ * wrapped in a {@link MetaborgRuntimeException}. Errors are rethrown on the executor thread after the task finishes.
+ */
+public abstract class ExecutorTask<T> implements ITask<T> {
+    private static final ILogger logger = LoggerUtils.logger(ExecutorTask.class);
+
+    private static final Timer forceCancelTimer = new Timer("metaborg-task-cancel", true);
+
+    private final Executor executor;
+    private final ICancellationToken cancellationToken;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final CountDownLatch done = new CountDownLatch(1);
+    // Guarded by threadLock, such that a forced cancellation never interrupts the thread after this task has run on it.
+    private final Object threadLock = new Object();
+    private @Nullable Thread thread;
+    private volatile boolean completed;
+    private volatile boolean cancelled;
+    private volatile @Nullable T result;
+    private volatile @Nullable Throwable exception;
+
+
+    /**
+     * @param executor
+     *            Executor to run the task on.
+     * @param cancellationToken
+     *            Cancellation token that cancels the task when cancelled, or null if the task is only cancelled through
+     *            {@link #cancel()}.
+     */
+    public ExecutorTask(Executor executor, @Nullable ICancellationToken cancellationToken) {
+        this.executor = executor;
+        this.cancellationToken =
+            cancellationToken != null ? new LinkedCancellationToken(cancellationToken) : new CancellationToken();
+    }
+
+
+    /**
+     * Runs the task.
+     *
+     * @param cancellationToken
+     *            Cancellation token to check for cancellation.
+     * @return Result of the task.
+     * @throws InterruptedException
+     *             When the task has been cancelled.
+     */
+    protected abstract T run(ICancellationToken cancellationToken) throws InterruptedException;
+
+    /**
+     * Called once when the task is scheduled, before it is submitted to the executor.
+     */
+    protected void onSchedule() {
+    }
+
+
+    @Override public ITask<T> schedule() {
+        if(scheduled.compareAndSet(false, true)) {
+            onSchedule();
+            executor.execute(new Runnable() {
+                @Override public void run() {
+                    execute();
+                }
+            });
+        }
+        return this;
+    }
+
+    @Override public void cancel() {
+        cancellationToken.cancel();
+        if(scheduled.compareAndSet(false, true)) {
+            // Never scheduled, will not run.
+            finish(null, true);
+        }
+    }
+
+    @Override public void cancel(int forceTimeout) {
+        cancel();
+        forceCancelTimer.schedule(new TimerTask() {
+            @Override public void run() {
+                synchronized(threadLock) {
+                    if(thread != null) {
+                        thread.interrupt();
+                    }
+                }
+            }
+        }, forceTimeout);
+    }
+
+    @Override public boolean completed() {
+        return completed;
+    }
+
+    @Override public boolean cancelled() {
+        return cancelled;
+    }
+
+    @Override public @Nullable T result() {
+        return result;
+    }
+
+    /**
+     * @return If running the task threw an unexpected exception or error.
+     */
+    public boolean failed() {
+        return exception != null;
+    }
+
+    /**
+     * @return Unexpected exception or error that running the task threw, or null if it did not fail, or has not
+     *         finished yet.
+     */
+    public @Nullable Throwable exception() {
+        return exception;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws MetaborgRuntimeException
+     *             When running the task threw an unexpected exception or error, which is the cause of the thrown
+     *             exception.
+     */
+    @Override public ITask<T> block() throws InterruptedException {
+        done.await();
+        if(cancelled) {
+            throw new InterruptedException();
+        }
+        final Throwable taskException = exception;
+        if(taskException != null) {
+            throw new MetaborgRuntimeException("Task failed unexpectedly", taskException);
+        }
+        return this;
+    }
+
+
+    private void execute() {
+        if(cancellationToken.cancelled()) {
+            finish(null, true);
+            return;
+        }
+
+        T taskResult = null;
+        boolean taskCancelled = false;
+        Error error = null;
+        synchronized(threadLock) {
+            thread = Thread.currentThread();
+        }
+        try {
+            taskResult = run(cancellationToken);
+        } catch(InterruptedException e) {
+            taskCancelled = true;
+        } catch(RuntimeException e) {
+            logger.error("Task failed unexpectedly", e);
+            exception = e;
+        } catch(Error e) {
+            logger.error("Task failed unexpectedly", e);
+            exception = e;
+            error = e;
+        } finally {
+            synchronized(threadLock) {
+                thread = null;
+                // Clear interrupt caused by forced cancellation, the thread is reused by the executor.
+                Thread.interrupted();
+            }
+            finish(taskResult, taskCancelled);
+        }
+        if(error != null) {
+            throw error;
+        }
+    }
+
+    private void finish(@Nullable T taskResult, boolean taskCancelled) {
+        result = taskResult;
+        cancelled = taskCancelled;
+        completed = !taskCancelled && exception == null;
+        done.countDown();
+    }
+}
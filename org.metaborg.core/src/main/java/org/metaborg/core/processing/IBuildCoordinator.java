@@ -0,0 +1,39 @@
+package org.metaborg.core.processing;
+
+import org.metaborg.core.analysis.IAnalyzeUnit;
+import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
+import org.metaborg.core.build.BuildInput;
+import org.metaborg.core.build.IBuildOutput;
+import org.metaborg.core.syntax.IParseUnit;
+import org.metaborg.core.transform.ITransformUnit;
+
+/**
+ * Interface for requesting builds that are coalesced per project. Build requests for the same project that are
+ * scheduled in quick succession are merged into a single build with the source changes of all requests, which runs once
+ * no more requests have been scheduled for a quiet period. A build that is still running when a merged build starts is
+ * cancelled, and its source changes are built by the merged build instead. The build state of each build is used as the
+ * state of the next build for the same project.
+ *
+ * @param <P>
+ *            Type of parse units.
+ * @param <A>
+ *            Type of analyze units.
+ * @param <AU>
+ *            Type of analyze unit updates.
+ * @param <T>
+ *            Type of transform units.
+ */
+public interface IBuildCoordinator<P extends IParseUnit, A extends IAnalyzeUnit, AU extends IAnalyzeUnitUpdate, T extends ITransformUnit<?>> {
+    /**
+     * Creates a task that requests a build with given build input. When scheduled, the source changes of the input are
+     * merged with other pending requests for the same project. All other properties of the build, such as the language
+     * build order and transformation goals, are taken from the latest request.
+     *
+     * @param input
+     *            Build input to request a build for.
+     * @return Task that has the output of the build that built the source changes of given input as result. Cancelling
+     *         the task only stops waiting for the result, it does not remove the source changes from the build. When
+     *         the build fails unexpectedly, blocking on the task throws a runtime exception caused by the failure.
+     */
+    ITask<? extends IBuildOutput<P, A, AU, T>> build(BuildInput input);
+}
@@ -0,0 +1,28 @@
+package org.metaborg.core.processing;
+
+/**
+ * Cancellation token that notifies listeners when cancellation is requested, such that waiting for cancellation does
+ * not require polling the token.
+ */
+public interface IListenableCancellationToken extends ICancellationToken {
+    /**
+     * Adds a listener that is called once when cancellation is requested, on the thread that requests cancellation.
+     * When cancellation has already been requested, the listener is called immediately on the current thread.
+     * Listeners must be short and must not throw.
+     * 
+     * @param listener
+     *            Listener to add.
+     * @return True if the listener was added or called, false if this token cannot notify listeners, for example
+     *         because it depends on a token that cannot notify listeners. The token must be polled in that case.
+     */
+    boolean addListener(Runnable listener);
+
+    /**
+     * Removes a listener that was added with {@link #addListener(Runnable)}. Does nothing when the listener was already
+     * called or was not added.
+     * 
+     * @param listener
+     *            Listener to remove.
+     */
+    void removeListener(Runnable listener);
+}
@@ -0,0 +1,117 @@
+package org.metaborg.core.processing;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.annotation.Nullable;
+
+/**
+ * Interrupts the thread that created it when cancellation is requested through a cancellation token, until it is
+ * closed. Use in a try-with-resources block around long running calls that do not take a cancellation token, but do
+ * stop when their thread is interrupted, such as parsing with SGLR. A {@link IListenableCancellationToken} notifies
+ * this object of cancellation. Other tokens are polled every {@link #pollIntervalMillis}.
+ *
+ * The Stratego interpreter has no interrupt points. Invoking a strategy inside this block is refused when the thread
+ * was already interrupted, but a running invocation is not stopped.
+ *
+ * When closed, an interrupt that was caused by this object is cleared. Cancellation must be checked through the token
+ * after closing, since a call that is interrupted may return normally, for example with an error result.
+ *
+ * Must be closed on the thread that created it. Use {@link #active()} to only treat an interrupt as cancellation inside
+ * such a block, since threads outside of it may have an interrupt flag set for unrelated reasons.
+ */
+public class InterruptOnCancel implements AutoCloseable {
+    /**
+     * Time between checks of a cancellation token that cannot notify listeners.
+     */
+    public static final long pollIntervalMillis = 10;
+
+    private static final Timer pollTimer = new Timer("metaborg-cancel-poll", true);
+    private static final ThreadLocal<int[]> depth = new ThreadLocal<int[]>() {
+        @Override protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private final ICancellationToken cancellationToken;
+    private final Thread thread;
+    private final Runnable listener;
+    private final @Nullable IListenableCancellationToken listenedToken;
+    private final @Nullable TimerTask poll;
+
+    // Guarded by this.
+    private boolean closed;
+    private boolean interrupted;
+
+
+    /**
+     * Starts interrupting the current thread when cancellation is requested through given token.
+     *
+     * @param cancellationToken
+     *            Cancellation token to listen to or poll.
+     */
+    public InterruptOnCancel(ICancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        this.thread = Thread.currentThread();
+        this.listener = new Runnable() {
+            @Override public void run() {
+                interrupt();
+            }
+        };
+        ++depth.get()[0];
+        if(cancellationToken instanceof IListenableCancellationToken
+            && ((IListenableCancellationToken) cancellationToken).addListener(listener)) {
+            this.listenedToken = (IListenableCancellationToken) cancellationToken;
+            this.poll = null;
+        } else {
+            this.listenedToken = null;
+            this.poll = new TimerTask() {
+                @Override public void run() {
+                    interrupt();
+                }
+            };
+            pollTimer.schedule(poll, pollIntervalMillis, pollIntervalMillis);
+        }
+    }
+
+
+    /**
+     * @return True if the current thread is inside a block that interrupts it on cancellation, false otherwise.
+     */
+    public static boolean active() {
+        return depth.get()[0] > 0;
+    }
+
+
+    @Override public void close() {
+        if(listenedToken != null) {
+            listenedToken.removeListener(listener);
+        } else if(poll != null) {
+            poll.cancel();
+        }
+        synchronized(this) {
+            if(closed) {
+                return;
+            }
+            --depth.get()[0];
+            closed = true;
+            if(interrupted) {
+                // THREADING: this also clears an interrupt from another source that happened at the same time, which
+                // is acceptable since cancellation has been requested through the token anyway.
+                Thread.interrupted();
+            }
+        }
+    }
+
+
+    private synchronized void interrupt() {
+        if(closed || interrupted || !cancellationToken.cancelled()) {
+            return;
+        }
+        interrupted = true;
+        if(poll != null) {
+            poll.cancel();
+        }
+        thread.interrupt();
+    }
+}
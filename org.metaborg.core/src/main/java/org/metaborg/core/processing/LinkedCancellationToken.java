@@ -0,0 +1,97 @@
+package org.metaborg.core.processing;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Cancellation token that is cancelled when it is cancelled itself, or when its parent token is cancelled. Cancelling
+ * this token does not cancel the parent token, such that a task can be cancelled without cancelling other tasks that
+ * share the parent token. Listeners are only supported when the parent token supports listeners.
+ */
+public class LinkedCancellationToken implements IListenableCancellationToken {
+    private final ICancellationToken parent;
+    private volatile boolean cancelled = false;
+
+    // Registered with the parent token while this token has listeners.
+    private final Runnable parentListener = new Runnable() {
+        @Override public void run() {
+            notifyListeners();
+        }
+    };
+
+    // Guarded by this. Cleared when listeners are notified.
+    private final List<Runnable> listeners = Lists.newArrayList();
+    private boolean notified;
+
+
+    public LinkedCancellationToken(ICancellationToken parent) {
+        this.parent = parent;
+    }
+
+
+    @Override public boolean cancelled() {
+        return cancelled || parent.cancelled();
+    }
+
+    @Override public void throwIfCancelled() throws InterruptedException {
+        if(cancelled()) {
+            throw new InterruptedException();
+        }
+    }
+
+    @Override public void cancel() {
+        cancelled = true;
+        notifyListeners();
+    }
+
+
+    @Override public boolean addListener(Runnable listener) {
+        if(!(parent instanceof IListenableCancellationToken)) {
+            return false;
+        }
+        synchronized(this) {
+            if(!notified) {
+                listeners.add(listener);
+                if(listeners.size() == 1) {
+                    // THREADING: lock order is this token, then the parent token. The parent calls the parent
+                    // listener immediately when it is already cancelled, which re-enters this lock.
+                    ((IListenableCancellationToken) parent).addListener(parentListener);
+                }
+                return true;
+            }
+        }
+        listener.run();
+        return true;
+    }
+
+    @Override public void removeListener(Runnable listener) {
+        if(!(parent instanceof IListenableCancellationToken)) {
+            return;
+        }
+        synchronized(this) {
+            if(listeners.remove(listener) && listeners.isEmpty()) {
+                ((IListenableCancellationToken) parent).removeListener(parentListener);
+            }
+        }
+    }
+
+
+    private void notifyListeners() {
+        final List<Runnable> notify;
+        synchronized(this) {
+            if(notified) {
+                return;
+            }
+            notified = true;
+            notify = Lists.newArrayList(listeners);
+            listeners.clear();
+            if(parent instanceof IListenableCancellationToken) {
+                ((IListenableCancellationToken) parent).removeListener(parentListener);
+            }
+        }
+        for(Runnable listener : notify) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package org.metaborg.core.processing;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileName;
+
+import com.google.common.collect.Maps;
+
+import rx.Observable;
+import rx.Observable.OnSubscribe;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Func1;
+import rx.subjects.BehaviorSubject;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Keeps a subject of result changes per resource, for result processors. Subjects without observers that have not been
+ * accessed for an idle time, {@link #defaultIdleMillis} by default, are evicted, such that resources that are no longer
+ * used do not keep their results in memory. Requests for results subscribe to the subject instead of blocking a thread
+ * until a result is available.
+ *
+ * @param <C>
+ *            Type of changes.
+ */
+public class ResultUpdates<C> {
+    /**
+     * Default time after which subjects without observers that have not been accessed are evicted.
+     */
+    public static final long defaultIdleMillis = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * Default minimum time between sweeps for idle subjects.
+     */
+    public static final long defaultSweepIntervalMillis = TimeUnit.MINUTES.toMillis(1);
+
+    private final long idleMillis;
+    private final long sweepIntervalMillis;
+
+    private final ConcurrentMap<FileName, Updates<C>> updatesPerResource = Maps.newConcurrentMap();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong lastSweep = new AtomicLong(System.currentTimeMillis());
+
+
+    public ResultUpdates() {
+        this(defaultIdleMillis, defaultSweepIntervalMillis);
+    }
+
+    /**
+     * @param idleMillis
+     *            Time after which subjects without observers that have not been accessed are evicted.
+     * @param sweepIntervalMillis
+     *            Minimum time between sweeps for idle subjects.
+     */
+    public ResultUpdates(long idleMillis, long sweepIntervalMillis) {
+        this.idleMillis = idleMillis;
+        this.sweepIntervalMillis = sweepIntervalMillis;
+    }
+
+
+    /**
+     * @return Updates for given resource, or null if there are none.
+     */
+    public @Nullable Updates<C> getIfPresent(FileName resource) {
+        sweep();
+        final Updates<C> updates = updatesPerResource.get(resource);
+        if(updates != null) {
+            updates.touch();
+        }
+        return updates;
+    }
+
+    /**
+     * @return Updates for given resource, created if there are none.
+     */
+    public Updates<C> get(FileName resource) {
+        final Updates<C> updates = getIfPresent(resource);
+        if(updates != null) {
+            return updates;
+        }
+        final Updates<C> newUpdates = new Updates<>(this);
+        final Updates<C> prevUpdates = updatesPerResource.putIfAbsent(resource, newUpdates);
+        return prevUpdates == null ? newUpdates : prevUpdates;
+    }
+
+    /**
+     * @return Number of requests that are waiting for a change.
+     */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    /**
+     * @return Number of resources that updates are kept for.
+     */
+    public int size() {
+        return updatesPerResource.size();
+    }
+
+
+    private void sweep() {
+        final long now = System.currentTimeMillis();
+        final long last = lastSweep.get();
+        if(now - last < sweepIntervalMillis || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+
+        // THREADING: updates may be accessed concurrently while they are evicted, in which case changes pushed to
+        // them are lost. This only happens to updates that have not been accessed for a long time, and a lost change
+        // causes a result to be recomputed when requested, so it is acceptable.
+        for(Iterator<Entry<FileName, Updates<C>>> it = updatesPerResource.entrySet().iterator(); it.hasNext();) {
+            final Updates<C> updates = it.next().getValue();
+            if(updates.observers.get() == 0 && now - updates.lastAccess > idleMillis) {
+                it.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Changes for a single resource.
+     */
+    public static class Updates<C> {
+        private final ResultUpdates<C> parent;
+        private final BehaviorSubject<C> subject = BehaviorSubject.create();
+        private final AtomicInteger observers = new AtomicInteger();
+
+        private volatile @Nullable C latest;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+
+        private Updates(ResultUpdates<C> parent) {
+            this.parent = parent;
+        }
+
+
+        /**
+         * Pushes given change to observers.
+         */
+        public void push(C change) {
+            touch();
+            latest = change;
+            subject.onNext(change);
+        }
+
+        /**
+         * @return Latest pushed change, or null if no change has been pushed yet. Does not block.
+         */
+        public @Nullable C latest() {
+            return latest;
+        }
+
+        /**
+         * @return Hot observable that pushes the latest change, and all subsequent changes, to subscribers.
+         */
+        public Observable<C> changes() {
+            return Observable.create(new OnSubscribe<C>() {
+                @Override public void call(final Subscriber<? super C> subscriber) {
+                    observe(subscriber, new Subscriber<C>() {
+                        @Override public void onNext(C change) {
+                            subscriber.onNext(change);
+                        }
+
+                        @Override public void onError(Throwable e) {
+                            subscriber.onError(e);
+                        }
+
+                        @Override public void onCompleted() {
+                            subscriber.onCompleted();
+                        }
+                    }, false);
+                }
+            });
+        }
+
+        /**
+         * Returns an observable that pushes the first change that matches given predicate, which may be the latest
+         * change, and then completes. Subscribing does not block; the subscriber is counted as waiting until the
+         * change is pushed or it unsubscribes.
+         *
+         * @param predicate
+         *            Predicate that the change must match.
+         * @return Cold observable that pushes a single change.
+         */
+        public Observable<C> first(final Func1<? super C, Boolean> predicate) {
+            return Observable.create(new OnSubscribe<C>() {
+                @Override public void call(final Subscriber<? super C> subscriber) {
+                    observe(subscriber, new Subscriber<C>() {
+                        @Override public void onNext(C change) {
+                            if(!predicate.call(change)) {
+                                return;
+                            }
+                            unsubscribe();
+                            subscriber.onNext(change);
+                            subscriber.onCompleted();
+                        }
+
+                        @Override public void onError(Throwable e) {
+                            subscriber.onError(e);
+                        }
+
+                        @Override public void onCompleted() {
+                            subscriber.onCompleted();
+                        }
+                    }, true);
+                }
+            });
+        }
+
+
+        private void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+
+        private void observe(Subscriber<?> subscriber, Subscriber<C> observer, final boolean waiting) {
+            if(subscriber.isUnsubscribed()) {
+                return;
+            }
+
+            touch();
+            observers.incrementAndGet();
+            if(waiting) {
+                parent.waiting.incrementAndGet();
+            }
+            observer.add(Subscriptions.create(new Action0() {
+                @Override public void call() {
+                    observers.decrementAndGet();
+                    if(waiting) {
+                        parent.waiting.decrementAndGet();
+                    }
+                    touch();
+                }
+            }));
+            subscriber.add(observer);
+            subject.subscribe(observer);
+        }
+    }
+}
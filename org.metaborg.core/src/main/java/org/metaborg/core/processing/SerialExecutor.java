@@ -0,0 +1,67 @@
+package org.metaborg.core.processing;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import javax.annotation.Nullable;
+
+/**
+ * Executor that runs tasks one at a time, in the order they were submitted, on an underlying executor. Tasks of
+ * different serial executors that share an underlying executor run concurrently.
+ */
+class SerialExecutor implements Executor {
+    private final Executor executor;
+    private final @Nullable Runnable onIdle;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private Runnable active;
+
+
+    public SerialExecutor(Executor executor) {
+        this(executor, null);
+    }
+
+    /**
+     * @param onIdle
+     *            Called after the last submitted task has run, without holding the lock of this executor.
+     */
+    public SerialExecutor(Executor executor, @Nullable Runnable onIdle) {
+        this.executor = executor;
+        this.onIdle = onIdle;
+    }
+
+
+    /**
+     * @return True if no task is running or waiting to run, false otherwise.
+     */
+    public synchronized boolean idle() {
+        return active == null && tasks.isEmpty();
+    }
+
+
+    @Override public synchronized void execute(final Runnable task) {
+        tasks.add(new Runnable() {
+            @Override public void run() {
+                try {
+                    task.run();
+                } finally {
+                    if(!scheduleNext() && onIdle != null) {
+                        onIdle.run();
+                    }
+                }
+            }
+        });
+        if(active == null) {
+            scheduleNext();
+        }
+    }
+
+    private synchronized boolean scheduleNext() {
+        active = tasks.poll();
+        if(active != null) {
+            executor.execute(active);
+            return true;
+        }
+        return false;
+    }
+}
@@ -1,7 +1,8 @@
 package org.metaborg.core.processing.analyze;
 
 import java.util.Set;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import javax.annotation.Nullable;
 
@@ -15,6 +16,8 @@ import org.metaborg.core.analysis.IAnalyzeUnit;
 import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
 import org.metaborg.core.build.UpdateKind;
 import org.metaborg.core.context.IContext;
+import org.metaborg.core.processing.ResultUpdates;
+import org.metaborg.core.processing.ResultUpdates.Updates;
 import org.metaborg.core.processing.parse.IParseResultRequester;
 import org.metaborg.core.syntax.IInputUnit;
 import org.metaborg.core.syntax.IParseUnit;
@@ -22,30 +25,48 @@ import org.metaborg.util.concurrent.IClosableLock;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
-import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 
 import rx.Observable;
 import rx.Observable.OnSubscribe;
+import rx.Observer;
 import rx.Subscriber;
 import rx.functions.Func1;
-import rx.subjects.BehaviorSubject;
 
+/**
+ * Analysis result processor that keeps analysis results per resource. Requested results that are not available are
+ * analyzed on an executor once their parse result is available, never on the thread that pushes the parse result,
+ * which is a build thread when the parse result was not cached.
+ */
 public class AnalysisResultProcessor<I extends IInputUnit, P extends IParseUnit, A extends IAnalyzeUnit, AU extends IAnalyzeUnitUpdate>
     implements IAnalysisResultProcessor<I, P, A> {
     private static final ILogger logger = LoggerUtils.logger(AnalysisResultProcessor.class);
 
     private final IAnalysisService<P, A, AU> analysisService;
     private final IParseResultRequester<I, P> parseResultRequester;
+    private final Executor analysisExecutor;
 
-    private final ConcurrentMap<FileName, BehaviorSubject<AnalysisChange<A>>> updatesPerResource =
-        Maps.newConcurrentMap();
+    private final ResultUpdates<AnalysisChange<A>> updatesPerResource = new ResultUpdates<>();
 
 
-    @Inject public AnalysisResultProcessor(IAnalysisService<P, A, AU> analysisService,
-        IParseResultRequester<I, P> parseResultRequester) {
+    /**
+     * Creates a processor that analyzes requested results on given executor.
+     */
+    public AnalysisResultProcessor(IAnalysisService<P, A, AU> analysisService,
+        IParseResultRequester<I, P> parseResultRequester, Executor analysisExecutor) {
         this.analysisService = analysisService;
         this.parseResultRequester = parseResultRequester;
+        this.analysisExecutor = analysisExecutor;
+    }
+
+    /**
+     * Creates a processor that analyzes requested results on a cached thread pool with daemon threads.
+     */
+    @Inject public AnalysisResultProcessor(IAnalysisService<P, A, AU> analysisService,
+        IParseResultRequester<I, P> parseResultRequester) {
+        this(analysisService, parseResultRequester, Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("metaborg-analysis-request-%d").setDaemon(true).build()));
     }
 
 
@@ -55,75 +76,89 @@ public class AnalysisResultProcessor<I extends IInputUnit, P extends IParseUnit,
         }
         final FileObject resource = input.source();
         return Observable.create(new OnSubscribe<A>() {
-            @Override public void call(Subscriber<? super A> observer) {
+            @Override public void call(final Subscriber<? super A> observer) {
                 if(observer.isUnsubscribed()) {
                     logger.trace("Unsubscribed from analysis result request for {}", resource);
                     return;
                 }
 
-                final BehaviorSubject<AnalysisChange<A>> updates = getUpdates(input, context);
-                final AnalysisChange<A> update = updates.toBlocking().first(new Func1<AnalysisChange<A>, Boolean>() {
+                final Updates<AnalysisChange<A>> updates = getUpdates(input, context);
+                final Observable<AnalysisChange<A>> update = updates.first(new Func1<AnalysisChange<A>, Boolean>() {
                     @Override public Boolean call(AnalysisChange<A> updateToFilter) {
                         final UpdateKind kind = updateToFilter.kind;
                         return kind != UpdateKind.Invalidate;
                     }
                 });
+                observer.add(update.subscribe(new Observer<AnalysisChange<A>>() {
+                    @Override public void onNext(AnalysisChange<A> update) {
+                        if(observer.isUnsubscribed()) {
+                            logger.trace("Unsubscribed from analysis result request for {}", resource);
+                            return;
+                        }
 
-                if(observer.isUnsubscribed()) {
-                    logger.trace("Unsubscribed from analysis result request for {}", resource);
-                    return;
-                }
+                        switch(update.kind) {
+                            case Update:
+                                logger.trace("Returning cached analysis result for {}", resource);
+                                observer.onNext(update.result);
+                                observer.onCompleted();
+                                break;
+                            case Error:
+                                logger.trace("Returning analysis error for {}", resource);
+                                observer.onError(update.exception);
+                                break;
+                            case Remove: {
+                                final String message =
+                                    String.format("Analysis result for %s was removed unexpectedly", resource);
+                                logger.error(message);
+                                observer.onError(new AnalysisException(context, message));
+                                break;
+                            }
+                            default: {
+                                final String message =
+                                    String.format("Unexpected analysis update kind %s for %s", update.kind, resource);
+                                logger.error(message);
+                                observer.onError(new MetaborgRuntimeException(message));
+                                break;
+                            }
+                        }
+                    }
 
-                switch(update.kind) {
-                    case Update:
-                        logger.trace("Returning cached analysis result for {}", resource);
-                        observer.onNext(update.result);
-                        observer.onCompleted();
-                        break;
-                    case Error:
-                        logger.trace("Returning analysis error for {}", resource);
-                        observer.onError(update.exception);
-                        break;
-                    case Remove: {
-                        final String message =
-                            String.format("Analysis result for %s was removed unexpectedly", resource);
-                        logger.error(message);
-                        observer.onError(new AnalysisException(context, message));
-                        break;
+                    @Override public void onError(Throwable e) {
+                        observer.onError(e);
                     }
-                    default: {
-                        final String message =
-                            String.format("Unexpected analysis update kind %s for %s", update.kind, resource);
-                        logger.error(message);
-                        observer.onError(new MetaborgRuntimeException(message));
-                        break;
+
+                    @Override public void onCompleted() {
                     }
-                }
+                }));
             }
         });
     }
 
     @Override public Observable<AnalysisChange<A>> updates(FileObject resource) {
-        return getUpdates(resource.getName());
+        return getUpdates(resource.getName()).changes();
     }
 
     @Override public @Nullable A get(FileObject resource) {
-        final BehaviorSubject<AnalysisChange<A>> subject = updatesPerResource.get(resource.getName());
-        if(subject == null) {
+        final Updates<AnalysisChange<A>> updates = updatesPerResource.getIfPresent(resource.getName());
+        if(updates == null) {
             return null;
         }
-        final AnalysisChange<A> change = subject.toBlocking().firstOrDefault(null);
+        final AnalysisChange<A> change = updates.latest();
         if(change == null) {
             return null;
         }
         return change.result;
     }
 
+    @Override public int waiting() {
+        return updatesPerResource.waiting();
+    }
+
 
     @Override public void invalidate(FileObject resource) {
         logger.trace("Invalidating analysis result for {}", resource);
-        final BehaviorSubject<AnalysisChange<A>> updates = getUpdates(resource.getName());
-        updates.onNext(AnalysisChange.<A>invalidate(resource));
+        final Updates<AnalysisChange<A>> updates = getUpdates(resource.getName());
+        updates.push(AnalysisChange.<A>invalidate(resource));
     }
 
     @Override public void invalidate(Iterable<P> results) {
@@ -145,15 +180,15 @@ public class AnalysisResultProcessor<I extends IInputUnit, P extends IParseUnit,
             remove(resource);
         } else {
             logger.trace("Pushing analysis result for {}", name);
-            final BehaviorSubject<AnalysisChange<A>> updates = getUpdates(name);
-            updates.onNext(AnalysisChange.update(resource, result));
+            final Updates<AnalysisChange<A>> updates = getUpdates(name);
+            updates.push(AnalysisChange.update(resource, result));
         }
     }
 
     @Override public void error(FileObject resource, AnalysisException exception) {
         logger.trace("Pushing analysis error for {}", resource);
-        final BehaviorSubject<AnalysisChange<A>> updates = getUpdates(resource.getName());
-        updates.onNext(AnalysisChange.<A>error(resource, exception));
+        final Updates<AnalysisChange<A>> updates = getUpdates(resource.getName());
+        updates.push(AnalysisChange.<A>error(resource, exception));
     }
 
     @Override public void error(Iterable<P> results, AnalysisException exception) {
@@ -162,64 +197,85 @@ public class AnalysisResultProcessor<I extends IInputUnit, P extends IParseUnit,
             if(parseResult.detached()) {
                 throw new MetaborgRuntimeException("Cannot process analysis errors for detached (no source) units");
             }
-            final BehaviorSubject<AnalysisChange<A>> updates = getUpdates(resource.getName());
-            updates.onNext(AnalysisChange.<A>error(resource, exception));
+            final Updates<AnalysisChange<A>> updates = getUpdates(resource.getName());
+            updates.push(AnalysisChange.<A>error(resource, exception));
         }
     }
 
     @Override public void remove(FileObject resource) {
         logger.trace("Removing analysis result for {}", resource);
-        final BehaviorSubject<AnalysisChange<A>> updates = getUpdates(resource.getName());
-        updates.onNext(AnalysisChange.<A>remove(resource));
+        final Updates<AnalysisChange<A>> updates = getUpdates(resource.getName());
+        updates.push(AnalysisChange.<A>remove(resource));
     }
 
 
-    private BehaviorSubject<AnalysisChange<A>> getUpdates(FileName file) {
-        final BehaviorSubject<AnalysisChange<A>> newUpdates = BehaviorSubject.create();
-        final BehaviorSubject<AnalysisChange<A>> prevUpdates = updatesPerResource.putIfAbsent(file, newUpdates);
-        return prevUpdates == null ? newUpdates : prevUpdates;
+    private Updates<AnalysisChange<A>> getUpdates(FileName file) {
+        return updatesPerResource.get(file);
     }
 
-    private BehaviorSubject<AnalysisChange<A>> getUpdates(I input, IContext context) {
+    private Updates<AnalysisChange<A>> getUpdates(I input, final IContext context) {
         if(input.detached()) {
             throw new MetaborgRuntimeException("Cannot get updates for detached (no source) units");
         }
         final FileObject source = input.source();
         final FileName name = source.getName();
 
-        // THREADING: it is possible that two different threads asking for a subject may do the parsing twice here, as
+        // THREADING: it is possible that two different threads asking for updates may do the parsing twice here, as
         // this is not an atomic operation. However, the chance is very low and it does not break anything (only
         // duplicates some work), so it is acceptable.
-        BehaviorSubject<AnalysisChange<A>> updates = updatesPerResource.get(name);
-        if(updates == null) {
-            updates = BehaviorSubject.create();
-            updatesPerResource.put(name, updates);
-            try {
-                logger.trace("Requesting parse result for {}", source);
-                final P parseResult = parseResultRequester.request(input).toBlocking().single();
-                if(!parseResult.valid()) {
-                    updates.onNext(AnalysisChange.<A>error(source, new AnalysisException(context, "Parsing failed")));
-                    return updates;
-                }
+        final Updates<AnalysisChange<A>> existingUpdates = updatesPerResource.getIfPresent(name);
+        if(existingUpdates != null) {
+            return existingUpdates;
+        }
 
-                logger.trace("Analysing for {}", source);
-                final IAnalyzeResult<A, AU> result;
-                try(IClosableLock lock = context.write()) {
-                    result = analysisService.analyze(parseResult, context);
-                }
+        final Updates<AnalysisChange<A>> updates = updatesPerResource.get(name);
+        logger.trace("Requesting parse result for {}", source);
+        // Analyze when the parse result is available, without blocking. The parse result may be pushed by a build
+        // thread, which must not run the analysis, so analyze on the executor.
+        parseResultRequester.request(input).subscribe(new Observer<P>() {
+            @Override public void onNext(final P parseResult) {
+                analysisExecutor.execute(new Runnable() {
+                    @Override public void run() {
+                        analyze(source, parseResult, context, updates);
+                    }
+                });
+            }
 
-                updates.onNext(AnalysisChange.<A>update(source, result.result()));
-                // HACK: ignore analyze unit updates from result.updates(), may cause incrementality problems.
-            } catch(AnalysisException e) {
+            @Override public void onError(Throwable e) {
                 final String message = logger.format("Analysis for {} failed", name);
                 logger.error(message, e);
-                updates.onNext(AnalysisChange.<A>error(source, e));
-            } catch(Exception e) {
-                final String message = logger.format("Analysis for {} failed", name);
-                logger.error(message, e);
-                updates.onNext(AnalysisChange.<A>error(source, new AnalysisException(context, message, e)));
+                updates.push(AnalysisChange.<A>error(source, new AnalysisException(context, message, e)));
             }
-        }
+
+            @Override public void onCompleted() {
+            }
+        });
         return updates;
     }
+
+    private void analyze(FileObject source, P parseResult, IContext context, Updates<AnalysisChange<A>> updates) {
+        try {
+            if(!parseResult.valid()) {
+                updates.push(AnalysisChange.<A>error(source, new AnalysisException(context, "Parsing failed")));
+                return;
+            }
+
+            logger.trace("Analysing for {}", source);
+            final IAnalyzeResult<A, AU> result;
+            try(IClosableLock lock = context.write()) {
+                result = analysisService.analyze(parseResult, context);
+            }
+
+            updates.push(AnalysisChange.<A>update(source, result.result()));
+            // HACK: ignore analyze unit updates from result.updates(), may cause incrementality problems.
+        } catch(AnalysisException e) {
+            final String message = logger.format("Analysis for {} failed", source);
+            logger.error(message, e);
+            updates.push(AnalysisChange.<A>error(source, e));
+        } catch(Exception e) {
+            final String message = logger.format("Analysis for {} failed", source);
+            logger.error(message, e);
+            updates.push(AnalysisChange.<A>error(source, new AnalysisException(context, message, e)));
+        }
+    }
 }
@@ -25,6 +25,9 @@ public interface IAnalysisResultRequester<I extends IInputUnit, A extends IAnaly
      * (when it is in the process of being updated), it will be pushed when it has been updated. If there is no analysis
      * result yet, it will request a parse result, analyze the resource in given context, and push the analysis result.
      * 
+     * Subscribing does not block the subscribing thread while waiting for an invalidated result to be updated; the
+     * element is pushed on the thread that updates the result.
+     * 
      * The simplest way to get the analysis result is to wait for it: {@code
      *   result = requester.request(resource, context, text).toBlocking().single();
      * }
@@ -54,4 +57,9 @@ public interface IAnalysisResultRequester<I extends IInputUnit, A extends IAnaly
      * @return Latest analysis result for given resource, or null if there is none.
      */
     @Nullable A get(FileObject resource);
+
+    /**
+     * @return Number of requests that are waiting for an invalidated analysis result to be updated.
+     */
+    int waiting();
 }
@@ -19,6 +19,9 @@ public interface IParseResultRequester<I extends IInputUnit, P extends IParseUni
      * in the process of being updated), it will be pushed when it has been updated. If there is no parse result yet, it
      * will parse with given text and push the parse result.
      * 
+     * Subscribing does not block the subscribing thread while waiting for an invalidated result to be updated; the
+     * element is pushed on the thread that updates the result.
+     * 
      * The simplest way to get the parse result is to wait for it: {@code
      *   result = requester.request(resource, language, text).toBlocking().single();
      * }
@@ -47,4 +50,9 @@ public interface IParseResultRequester<I extends IInputUnit, P extends IParseUni
      * @return Latest parse result for given resource, or null if there is none.
      */
     @Nullable P get(FileObject resource);
-}
\ No newline at end of file
+
+    /**
+     * @return Number of requests that are waiting for an invalidated parse result to be updated.
+     */
+    int waiting();
+}
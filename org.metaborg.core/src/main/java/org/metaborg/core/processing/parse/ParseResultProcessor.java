@@ -1,12 +1,12 @@
 package org.metaborg.core.processing.parse;
 
-import java.util.concurrent.ConcurrentMap;
-
 import javax.annotation.Nullable;
 
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.metaborg.core.build.UpdateKind;
+import org.metaborg.core.processing.ResultUpdates;
+import org.metaborg.core.processing.ResultUpdates.Updates;
 import org.metaborg.core.syntax.IInputUnit;
 import org.metaborg.core.syntax.IParseUnit;
 import org.metaborg.core.syntax.ISyntaxService;
@@ -14,14 +14,13 @@ import org.metaborg.core.syntax.ParseException;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
-import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 
 import rx.Observable;
 import rx.Observable.OnSubscribe;
+import rx.Observer;
 import rx.Subscriber;
 import rx.functions.Func1;
-import rx.subjects.BehaviorSubject;
 
 
 public class ParseResultProcessor<I extends IInputUnit, P extends IParseUnit> implements IParseResultProcessor<I, P> {
@@ -29,7 +28,7 @@ public class ParseResultProcessor<I extends IInputUnit, P extends IParseUnit> im
 
     private final ISyntaxService<I, P> syntaxService;
 
-    private final ConcurrentMap<FileName, BehaviorSubject<ParseChange<P>>> updatesPerResource = Maps.newConcurrentMap();
+    private final ResultUpdates<ParseChange<P>> updatesPerResource = new ResultUpdates<>();
 
 
     @Inject public ParseResultProcessor(ISyntaxService<I, P> syntaxService) {
@@ -40,120 +39,132 @@ public class ParseResultProcessor<I extends IInputUnit, P extends IParseUnit> im
     @Override public Observable<P> request(final I input) {
         final FileObject resource = input.source();
         return Observable.create(new OnSubscribe<P>() {
-            @Override public void call(Subscriber<? super P> observer) {
+            @Override public void call(final Subscriber<? super P> observer) {
                 if(observer.isUnsubscribed()) {
                     logger.trace("Unsubscribed from parse result request for {}", input);
                     return;
                 }
 
-                final BehaviorSubject<ParseChange<P>> updates = getUpdates(input);
-                final ParseChange<P> update = updates.toBlocking().first(new Func1<ParseChange<P>, Boolean>() {
+                final Updates<ParseChange<P>> updates = getUpdates(input);
+                final Observable<ParseChange<P>> update = updates.first(new Func1<ParseChange<P>, Boolean>() {
                     @Override public Boolean call(ParseChange<P> updateToFilter) {
                         final UpdateKind kind = updateToFilter.kind;
                         return kind != UpdateKind.Invalidate;
                     }
                 });
+                observer.add(update.subscribe(new Observer<ParseChange<P>>() {
+                    @Override public void onNext(ParseChange<P> update) {
+                        if(observer.isUnsubscribed()) {
+                            logger.trace("Unsubscribed from parse result request for {}", resource);
+                            return;
+                        }
+
+                        switch(update.kind) {
+                            case Update:
+                                logger.trace("Returning cached parse result for {}", resource);
+                                observer.onNext(update.unit);
+                                observer.onCompleted();
+                                break;
+                            case Error:
+                                logger.trace("Returning parse error for {}", resource);
+                                observer.onError(update.exception);
+                                break;
+                            case Remove: {
+                                final String message =
+                                    logger.format("Parse result for {} was removed unexpectedly", resource);
+                                logger.error(message);
+                                observer.onError(new ParseException(input, message));
+                                break;
+                            }
+                            default: {
+                                final String message =
+                                    logger.format("Unexpected parse update kind {} for {}", update.kind, resource);
+                                logger.error(message);
+                                observer.onError(new ParseException(input, message));
+                                break;
+                            }
+                        }
+                    }
 
-                if(observer.isUnsubscribed()) {
-                    logger.trace("Unsubscribed from parse result request for {}", resource);
-                    return;
-                }
-
-                switch(update.kind) {
-                    case Update:
-                        logger.trace("Returning cached parse result for {}", resource);
-                        observer.onNext(update.unit);
-                        observer.onCompleted();
-                        break;
-                    case Error:
-                        logger.trace("Returning parse error for {}", resource);
-                        observer.onError(update.exception);
-                        break;
-                    case Remove: {
-                        final String message = logger.format("Parse result for {} was removed unexpectedly", resource);
-                        logger.error(message);
-                        observer.onError(new ParseException(input, message));
-                        break;
+                    @Override public void onError(Throwable e) {
+                        observer.onError(e);
                     }
-                    default: {
-                        final String message =
-                            logger.format("Unexpected parse update kind {} for {}", update.kind, resource);
-                        logger.error(message);
-                        observer.onError(new ParseException(input, message));
-                        break;
+
+                    @Override public void onCompleted() {
                     }
-                }
+                }));
             }
         });
     }
 
     @Override public Observable<ParseChange<P>> updates(FileObject resource) {
-        return getUpdates(resource.getName());
+        return getUpdates(resource.getName()).changes();
     }
 
     @Override public @Nullable P get(FileObject resource) {
-        final BehaviorSubject<ParseChange<P>> subject = updatesPerResource.get(resource.getName());
-        if(subject == null) {
+        final Updates<ParseChange<P>> updates = updatesPerResource.getIfPresent(resource.getName());
+        if(updates == null) {
             return null;
         }
-        final ParseChange<P> change = subject.toBlocking().firstOrDefault(null);
+        final ParseChange<P> change = updates.latest();
         if(change == null) {
             return null;
         }
         return change.unit;
     }
 
+    @Override public int waiting() {
+        return updatesPerResource.waiting();
+    }
+
 
     @Override public void invalidate(FileObject resource) {
         logger.trace("Invalidating parse result for {}", resource);
-        final BehaviorSubject<ParseChange<P>> updates = getUpdates(resource.getName());
-        updates.onNext(ParseChange.<P>invalidate(resource));
+        final Updates<ParseChange<P>> updates = getUpdates(resource.getName());
+        updates.push(ParseChange.<P>invalidate(resource));
     }
 
     @Override public void update(FileObject resource, P unit) {
         logger.trace("Pushing parse result for {}", resource);
-        final BehaviorSubject<ParseChange<P>> updates = getUpdates(resource.getName());
-        updates.onNext(ParseChange.<P>update(unit));
+        final Updates<ParseChange<P>> updates = getUpdates(resource.getName());
+        updates.push(ParseChange.<P>update(unit));
     }
 
     @Override public void error(FileObject resource, ParseException exception) {
         logger.trace("Pushing parse error for {}", resource);
-        final BehaviorSubject<ParseChange<P>> updates = getUpdates(resource.getName());
-        updates.onNext(ParseChange.<P>error(exception));
+        final Updates<ParseChange<P>> updates = getUpdates(resource.getName());
+        updates.push(ParseChange.<P>error(exception));
     }
 
     @Override public void remove(FileObject resource) {
         logger.trace("Removing parse result for {}", resource);
-        final BehaviorSubject<ParseChange<P>> updates = getUpdates(resource.getName());
-        updates.onNext(ParseChange.<P>remove(resource));
+        final Updates<ParseChange<P>> updates = getUpdates(resource.getName());
+        updates.push(ParseChange.<P>remove(resource));
     }
 
 
-    private BehaviorSubject<ParseChange<P>> getUpdates(FileName file) {
-        final BehaviorSubject<ParseChange<P>> newUpdates = BehaviorSubject.create();
-        final BehaviorSubject<ParseChange<P>> prevUpdates = updatesPerResource.putIfAbsent(file, newUpdates);
-        return prevUpdates == null ? newUpdates : prevUpdates;
+    private Updates<ParseChange<P>> getUpdates(FileName file) {
+        return updatesPerResource.get(file);
     }
 
-    private BehaviorSubject<ParseChange<P>> getUpdates(I unit) {
+    private Updates<ParseChange<P>> getUpdates(I unit) {
         final FileObject resource = unit.source();
         final FileName name = resource.getName();
 
-        // THREADING: it is possible that two different threads asking for a subject may do the parsing twice here, as
+        // THREADING: it is possible that two different threads asking for updates may do the parsing twice here, as
         // this is not an atomic operation. However, the chance is very low and it does not break anything (only
         // duplicates some work), so it is acceptable.
-        BehaviorSubject<ParseChange<P>> updates = updatesPerResource.get(name);
+        Updates<ParseChange<P>> updates = updatesPerResource.getIfPresent(name);
         if(updates == null) {
-            updates = BehaviorSubject.create();
-            updatesPerResource.put(name, updates);
+            updates = updatesPerResource.get(name);
             try {
                 logger.trace("Parsing for {}", resource);
                 final P result = syntaxService.parse(unit);
-                updates.onNext(ParseChange.update(result));
+                updates.push(ParseChange.update(result));
             } catch(ParseException e) {
                 final String message = String.format("Parsing for %s failed", name);
                 logger.error(message, e);
-                updates.onNext(ParseChange.<P>error(e));
+                updates.push(ParseChange.<P>error(e));
             }
         }
         return updates;
@@ -0,0 +1,60 @@
+package org.metaborg.core.resource;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.apache.commons.io.FilenameUtils;
+
+import com.google.common.collect.ImmutableSet;
+
+public class FileTreeFilters {
+    private static final IFileTreeFilter all = new IFileTreeFilter() {
+        @Override public boolean traverse(String name) {
+            return true;
+        }
+
+        @Override public boolean include(String name) {
+            return true;
+        }
+    };
+
+
+    /**
+     * @return Filter that traverses all directories and includes all files.
+     */
+    public static IFileTreeFilter all() {
+        return all;
+    }
+
+    /**
+     * @return Filter that traverses all directories and includes files with one of given extensions.
+     */
+    public static IFileTreeFilter extensions(Collection<String> extensions) {
+        final Set<String> extensionSet = ImmutableSet.copyOf(extensions);
+        return new IFileTreeFilter() {
+            @Override public boolean traverse(String name) {
+                return true;
+            }
+
+            @Override public boolean include(String name) {
+                return extensionSet.contains(FilenameUtils.getExtension(name));
+            }
+        };
+    }
+
+    /**
+     * @return Filter that includes files with given name, and does not traverse directories with one of given names.
+     */
+    public static IFileTreeFilter name(final String fileName, Collection<String> excludedDirectoryNames) {
+        final Set<String> excludedDirectoryNameSet = ImmutableSet.copyOf(excludedDirectoryNames);
+        return new IFileTreeFilter() {
+            @Override public boolean traverse(String name) {
+                return !excludedDirectoryNameSet.contains(name);
+            }
+
+            @Override public boolean include(String name) {
+                return fileName.equals(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,232 @@
+package org.metaborg.core.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+
+/**
+ * File tree scanner that walks directories of the local file system with NIO, traversing subdirectories in parallel,
+ * and only creates file system objects for files that pass the filter. Locations of other file systems, including file
+ * systems that are backed by local files but use a different scheme, are scanned with VFS, such that found files keep
+ * the scheme of their location. Symbolic links are followed, links to an ancestor directory are skipped.
+ */
+public class FileTreeScanner implements IFileTreeScanner {
+    private static final ILogger logger = LoggerUtils.logger(FileTreeScanner.class);
+
+    private final IResourceService resourceService;
+
+    private final ForkJoinPool pool = new ForkJoinPool();
+
+
+    @Inject public FileTreeScanner(IResourceService resourceService) {
+        this.resourceService = resourceService;
+    }
+
+
+    @Override public Collection<FileObject> scan(Iterable<FileObject> locations, IFileTreeFilter filter) {
+        final Queue<Path> localFiles = new ConcurrentLinkedQueue<>();
+        final List<FileObject> files = Lists.newArrayList();
+        for(FileObject location : locations) {
+            final File localLocation =
+                location.getName().getScheme().equals("file") ? resourceService.localPath(location) : null;
+            if(localLocation != null) {
+                final Path path = localLocation.toPath();
+                if(Files.isDirectory(path)) {
+                    pool.invoke(new ScanDirectory(path, Ancestor.of(path, null), filter, localFiles));
+                } else if(Files.isRegularFile(path) && filter.include(localLocation.getName())) {
+                    localFiles.add(path);
+                }
+            } else {
+                scanVFS(location, filter, files);
+            }
+        }
+
+        for(Path localFile : localFiles) {
+            files.add(resourceService.resolve(localFile.toFile()));
+        }
+        Collections.sort(files, new Comparator<FileObject>() {
+            @Override public int compare(FileObject file1, FileObject file2) {
+                return file1.getName().compareTo(file2.getName());
+            }
+        });
+        return files;
+    }
+
+    @Override public Collection<FileObject> scan(Iterable<FileObject> locations) {
+        return scan(locations, FileTreeFilters.all());
+    }
+
+
+    private void scanVFS(FileObject location, final IFileTreeFilter filter, Collection<FileObject> files) {
+        try {
+            if(location.getType() == FileType.FILE) {
+                if(filter.include(location.getName().getBaseName())) {
+                    files.add(location);
+                }
+                return;
+            }
+            final FileObject[] foundFiles = location.findFiles(new FileSelector() {
+                @Override public boolean traverseDescendents(FileSelectInfo fileInfo) throws Exception {
+                    // Base folder is always traversed, its name is not filtered.
+                    return fileInfo.getDepth() == 0 || filter.traverse(fileInfo.getFile().getName().getBaseName());
+                }
+
+                @Override public boolean includeFile(FileSelectInfo fileInfo) throws Exception {
+                    final FileObject file = fileInfo.getFile();
+                    return file.getType() == FileType.FILE && filter.include(file.getName().getBaseName());
+                }
+            });
+            if(foundFiles != null) {
+                Collections.addAll(files, foundFiles);
+            }
+        } catch(FileSystemException e) {
+            logger.error("Could not scan {}, skipping", e, location);
+        }
+    }
+
+
+    /**
+     * Immutable chain of directories from a scanned directory up to the scanned location, identified by their file key,
+     * or by their real path if the file system has no file keys, to detect cycles through symbolic links.
+     */
+    private static class Ancestor {
+        private final Object key;
+        private final @Nullable Ancestor parent;
+
+
+        private Ancestor(Object key, @Nullable Ancestor parent) {
+            this.key = key;
+            this.parent = parent;
+        }
+
+        public static @Nullable Ancestor of(Path directory, @Nullable Ancestor parent) {
+            try {
+                return of(directory, Files.readAttributes(directory, BasicFileAttributes.class), parent);
+            } catch(IOException e) {
+                logger.error("Could not identify {}, skipping", e, directory);
+                return null;
+            }
+        }
+
+        public static @Nullable Ancestor of(Path directory, BasicFileAttributes attrs, @Nullable Ancestor parent) {
+            final Object fileKey = attrs.fileKey();
+            if(fileKey != null) {
+                return new Ancestor(fileKey, parent);
+            }
+            try {
+                return new Ancestor(directory.toRealPath(), parent);
+            } catch(IOException e) {
+                logger.error("Could not identify {}, skipping", e, directory);
+                return null;
+            }
+        }
+
+
+        public boolean contains(Object key) {
+            for(Ancestor ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                if(ancestor.key.equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Walks a single directory, forking a new task for each subdirectory.
+     */
+    private static class ScanDirectory extends RecursiveAction {
+        private static final long serialVersionUID = -1426937407785137393L;
+
+        private final Path directory;
+        private final @Nullable Ancestor ancestors;
+        private final IFileTreeFilter filter;
+        private final Queue<Path> files;
+
+
+        public ScanDirectory(Path directory, @Nullable Ancestor ancestors, IFileTreeFilter filter, Queue<Path> files) {
+            this.directory = directory;
+            this.ancestors = ancestors;
+            this.filter = filter;
+            this.files = files;
+        }
+
+
+        @Override protected void compute() {
+            if(ancestors == null) {
+                return;
+            }
+            final List<ScanDirectory> subtasks = Lists.newArrayList();
+            try {
+                Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                    new SimpleFileVisitor<Path>() {
+                        @Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            if(dir.equals(directory)) {
+                                return FileVisitResult.CONTINUE;
+                            }
+                            if(filter.traverse(dir.getFileName().toString())) {
+                                final Ancestor dirAncestors = Ancestor.of(dir, attrs, ancestors);
+                                if(dirAncestors != null && ancestors.contains(dirAncestors.key)) {
+                                    logger.debug("Not scanning {}, it links to one of its ancestors", dir);
+                                } else if(dirAncestors != null) {
+                                    final ScanDirectory subtask = new ScanDirectory(dir, dirAncestors, filter, files);
+                                    subtask.fork();
+                                    subtasks.add(subtask);
+                                }
+                            }
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+
+                        @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if(attrs.isRegularFile() && filter.include(file.getFileName().toString())) {
+                                files.add(file);
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override public FileVisitResult visitFileFailed(Path file, IOException e) {
+                            if(e instanceof FileSystemLoopException) {
+                                logger.debug("Not scanning {}, it links to one of its ancestors", file);
+                                return FileVisitResult.CONTINUE;
+                            }
+                            logger.error("Could not scan {}, skipping", e, file);
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+            } catch(IOException e) {
+                logger.error("Could not scan {}, skipping", e, directory);
+            }
+            for(ScanDirectory subtask : subtasks) {
+                subtask.join();
+            }
+        }
+    }
+}
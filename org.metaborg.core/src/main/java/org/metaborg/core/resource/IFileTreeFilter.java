@@ -0,0 +1,25 @@
+package org.metaborg.core.resource;
+
+/**
+ * Filter on names of files and directories, used when scanning file trees. Filters only get names, such that they can
+ * be applied without creating file system objects for every scanned file.
+ */
+public interface IFileTreeFilter {
+    /**
+     * Checks if the directory with given name should be traversed.
+     * 
+     * @param name
+     *            Base name of the directory.
+     * @return True if the directory should be traversed, false if it should be skipped.
+     */
+    boolean traverse(String name);
+
+    /**
+     * Checks if the file with given name should be included.
+     * 
+     * @param name
+     *            Base name of the file.
+     * @return True if the file should be included, false otherwise.
+     */
+    boolean include(String name);
+}
@@ -0,0 +1,31 @@
+package org.metaborg.core.resource;
+
+import java.util.Collection;
+
+import org.apache.commons.vfs2.FileObject;
+
+/**
+ * Interface for finding files in file trees.
+ */
+public interface IFileTreeScanner {
+    /**
+     * Finds files at given locations. Locations that are files are included if they pass the filter, locations that are
+     * directories are scanned recursively.
+     * 
+     * @param locations
+     *            Files and directories to scan.
+     * @param filter
+     *            Filter on names of files to include and directories to traverse.
+     * @return Found files, sorted by name.
+     */
+    Collection<FileObject> scan(Iterable<FileObject> locations, IFileTreeFilter filter);
+
+    /**
+     * Finds all files at given locations.
+     * 
+     * @param locations
+     *            Files and directories to scan.
+     * @return Found files, sorted by name.
+     */
+    Collection<FileObject> scan(Iterable<FileObject> locations);
+}
@@ -0,0 +1,60 @@
+package org.metaborg.core.resource;
+
+import java.util.List;
+
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+
+import rx.Observable;
+
+/**
+ * Interface for watching locations on the local file system for changes. Bursts of changes are coalesced, and
+ * published as batches, which can be passed to
+ * {@link org.metaborg.core.build.BuildInputBuilder#addSourceChanges(Iterable)} to build incrementally without
+ * scanning source locations.
+ */
+public interface IResourceWatchService extends IResourceChangeService {
+    /**
+     * Starts watching given location, and all directories below it. Does nothing if the location is not on the local
+     * file system.
+     * 
+     * @param location
+     *            Directory to watch.
+     */
+    void watch(FileObject location);
+
+    /**
+     * Starts watching the source and include locations of given language in given project.
+     * 
+     * @param project
+     *            Project to watch locations of.
+     * @param language
+     *            Language to watch source and include locations of.
+     */
+    void watch(IProject project, ILanguageImpl language);
+
+    /**
+     * Stops watching given location, and all directories below it.
+     * 
+     * @param location
+     *            Directory to stop watching.
+     */
+    void unwatch(FileObject location);
+
+    /**
+     * Returns an observable over batches of coalesced resource changes. This returns a 'hot' observable, meaning that
+     * any batches published before subscribing are NOT observed.
+     */
+    Observable<List<ResourceChange>> batches();
+
+    /**
+     * Returns an observable over watched directories in which changes were lost, for example because the operating
+     * system dropped change events, or because the directory was deleted or moved away, in which case no changes are
+     * published for the files in it. Changes in such a directory are not or only partially published in
+     * {@link #batches()}, so subscribers must fall back to scanning the directory, or building all sources, to pick
+     * them up. A directory is published after the batch of changes that were observed before the loss. This returns a
+     * 'hot' observable, meaning that any directories published before subscribing are NOT observed.
+     */
+    Observable<FileObject> rescans();
+}
@@ -0,0 +1,377 @@
+package org.metaborg.core.resource;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.MetaborgRuntimeException;
+import org.metaborg.core.build.paths.ILanguagePathService;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.inject.Inject;
+
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
+/**
+ * Resource change service backed by a {@link WatchService}. Directories are registered recursively, and directories
+ * that are created later are registered when their creation is observed. Changes are collected on a single watcher
+ * thread, coalesced per resource, and published once no changes have been observed for {@link #quietPeriodMillis},
+ * or when changes have been pending for {@link #maxDelayMillis}. Directories in which changes were lost because the
+ * watch service overflowed, and watched directories that were deleted or moved away, for which no changes of the files
+ * in them are reported, are published through {@link #rescans()}, after the pending changes. Exceptions thrown by
+ * subscribers are logged, they do not stop watching.
+ */
+public class ResourceWatchService implements IResourceWatchService, AutoCloseable {
+    private static final ILogger logger = LoggerUtils.logger(ResourceWatchService.class);
+
+    /**
+     * Time without changes after which pending changes are published.
+     */
+    public static final long quietPeriodMillis = 200;
+    /**
+     * Maximum time changes are pending before they are published, when changes keep being observed.
+     */
+    public static final long maxDelayMillis = 2000;
+
+    private final IResourceService resourceService;
+    private final ILanguagePathService languagePathService;
+
+    private final PublishSubject<ResourceChange> changes = PublishSubject.create();
+    private final PublishSubject<List<ResourceChange>> batches = PublishSubject.create();
+    private final PublishSubject<FileObject> rescans = PublishSubject.create();
+
+    private final ConcurrentMap<Path, WatchKey> keys = Maps.newConcurrentMap();
+    // Only accessed by the watcher thread.
+    private final Map<Path, ResourceChangeKind> pending = Maps.newLinkedHashMap();
+    private final Set<Path> pendingRescans = Sets.newLinkedHashSet();
+    private long pendingSince;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+
+    @Inject public ResourceWatchService(IResourceService resourceService, ILanguagePathService languagePathService) {
+        this.resourceService = resourceService;
+        this.languagePathService = languagePathService;
+    }
+
+
+    @Override public Observable<ResourceChange> changes() {
+        return changes;
+    }
+
+    @Override public Observable<List<ResourceChange>> batches() {
+        return batches;
+    }
+
+    @Override public Observable<FileObject> rescans() {
+        return rescans;
+    }
+
+    @Override public void watch(FileObject location) {
+        final File localLocation = resourceService.localPath(location);
+        if(localLocation == null) {
+            logger.debug("Cannot watch {}, it is not on the local file system", location);
+            return;
+        }
+        final Path path = localLocation.toPath();
+        if(!Files.isDirectory(path)) {
+            return;
+        }
+        registerAll(path, false);
+    }
+
+    @Override public void watch(IProject project, ILanguageImpl language) {
+        for(FileObject location : languagePathService.sourceAndIncludePaths(project, language.belongsTo().name())) {
+            watch(location);
+        }
+    }
+
+    @Override public void unwatch(FileObject location) {
+        final File localLocation = resourceService.localPath(location);
+        if(localLocation == null) {
+            return;
+        }
+        final Path path = localLocation.toPath();
+        for(Iterator<Entry<Path, WatchKey>> it = keys.entrySet().iterator(); it.hasNext();) {
+            final Entry<Path, WatchKey> entry = it.next();
+            if(entry.getKey().startsWith(path)) {
+                entry.getValue().cancel();
+                it.remove();
+            }
+        }
+    }
+
+    @Override public synchronized void close() throws IOException {
+        if(watchService == null) {
+            return;
+        }
+        watcherThread.interrupt();
+        watchService.close();
+        watchService = null;
+        watcherThread = null;
+        keys.clear();
+    }
+
+
+    private synchronized WatchService watchService() {
+        if(watchService == null) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+            } catch(IOException e) {
+                throw new MetaborgRuntimeException("Cannot create watch service", e);
+            }
+            final WatchService service = watchService;
+            watcherThread = new Thread(new Runnable() {
+                @Override public void run() {
+                    processEvents(service);
+                }
+            }, "metaborg-resource-watcher");
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+        }
+        return watchService;
+    }
+
+    /**
+     * Registers given directory and all directories below it.
+     *
+     * @param created
+     *            If the directory was just created, in which case changes for the files in it are added, since they
+     *            may have been created before the directory was registered.
+     */
+    private void registerAll(Path directory, final boolean created) {
+        final WatchService service = watchService();
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                    throws IOException {
+                    if(!keys.containsKey(dir)) {
+                        keys.put(dir, dir.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if(created && attrs.isRegularFile()) {
+                        addPending(file, ResourceChangeKind.Create);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    logger.warn("Cannot watch {}, skipping", e, file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch(IOException e) {
+            logger.error("Cannot watch {}", e, directory);
+        }
+    }
+
+    private void processEvents(WatchService service) {
+        try {
+            while(true) {
+                final WatchKey key;
+                if(!hasPending()) {
+                    key = service.take();
+                } else {
+                    key = service.poll(quietPeriodMillis, TimeUnit.MILLISECONDS);
+                }
+
+                if(key != null) {
+                    try {
+                        processKey(key);
+                    } catch(RuntimeException e) {
+                        logger.error("Processing changes in {} failed unexpectedly", e, key.watchable());
+                    }
+                }
+
+                if(hasPending() && (key == null || System.currentTimeMillis() - pendingSince >= maxDelayMillis)) {
+                    try {
+                        publish();
+                    } catch(RuntimeException e) {
+                        logger.error("Publishing changes failed unexpectedly", e);
+                    }
+                }
+            }
+        } catch(InterruptedException | ClosedWatchServiceException e) {
+            // Watch service was closed.
+        }
+    }
+
+    private void processKey(WatchKey key) {
+        final Path directory = (Path) key.watchable();
+        for(WatchEvent<?> event : key.pollEvents()) {
+            final WatchEvent.Kind<?> kind = event.kind();
+            if(kind == OVERFLOW) {
+                logger.warn("Changes in {} were lost, requesting a rescan", directory);
+                if(!hasPending()) {
+                    pendingSince = System.currentTimeMillis();
+                }
+                pendingRescans.add(directory);
+                // Directories created during the overflow were not registered.
+                registerAll(directory, false);
+                continue;
+            }
+
+            final Path path = directory.resolve((Path) event.context());
+            if(kind == ENTRY_CREATE) {
+                if(Files.isDirectory(path)) {
+                    registerAll(path, true);
+                } else {
+                    addPending(path, ResourceChangeKind.Create);
+                }
+            } else if(kind == ENTRY_DELETE) {
+                if(keys.containsKey(path)) {
+                    deleteDirectory(path);
+                }
+                addPending(path, ResourceChangeKind.Delete);
+            } else if(kind == ENTRY_MODIFY && !Files.isDirectory(path)) {
+                addPending(path, ResourceChangeKind.Modify);
+            }
+        }
+        if(!key.reset()) {
+            keys.remove(directory);
+        }
+    }
+
+    /**
+     * Handles deletion of a watched directory, which is also reported when the directory is moved away. No changes are
+     * reported for the files and directories in it, so request a rescan of the directory.
+     */
+    private void deleteDirectory(Path directory) {
+        for(Iterator<Entry<Path, WatchKey>> it = keys.entrySet().iterator(); it.hasNext();) {
+            final Entry<Path, WatchKey> entry = it.next();
+            if(entry.getKey().startsWith(directory)) {
+                entry.getValue().cancel();
+                it.remove();
+            }
+        }
+        for(Iterator<Entry<Path, ResourceChangeKind>> it = pending.entrySet().iterator(); it.hasNext();) {
+            final Entry<Path, ResourceChangeKind> entry = it.next();
+            if(entry.getKey().startsWith(directory)) {
+                final ResourceChangeKind kind = coalesce(entry.getValue(), ResourceChangeKind.Delete);
+                if(kind == null) {
+                    it.remove();
+                } else {
+                    entry.setValue(kind);
+                }
+            }
+        }
+        if(!hasPending()) {
+            pendingSince = System.currentTimeMillis();
+        }
+        pendingRescans.add(directory);
+    }
+
+    private boolean hasPending() {
+        return !pending.isEmpty() || !pendingRescans.isEmpty();
+    }
+
+    private void addPending(Path path, ResourceChangeKind kind) {
+        if(!hasPending()) {
+            pendingSince = System.currentTimeMillis();
+        }
+
+        final ResourceChangeKind coalesced = coalesce(pending.get(path), kind);
+        if(coalesced == null) {
+            pending.remove(path);
+        } else {
+            pending.put(path, coalesced);
+        }
+    }
+
+    /**
+     * Coalesces two consecutive changes of the same resource.
+     *
+     * @param previous
+     *            Pending change, or null if there is none.
+     * @param kind
+     *            Change that happened after the pending change.
+     * @return Change that has the same effect as both changes, or null if the resource did not change.
+     */
+    public static @Nullable ResourceChangeKind coalesce(@Nullable ResourceChangeKind previous,
+        ResourceChangeKind kind) {
+        if(previous == null) {
+            return kind;
+        }
+        switch(kind) {
+            case Create:
+                // Deleted and created again.
+                return previous == ResourceChangeKind.Delete ? ResourceChangeKind.Modify : kind;
+            case Modify:
+                // Keep creation, a created file is built as a whole.
+                return previous == ResourceChangeKind.Create ? previous : kind;
+            case Delete:
+                // Created and deleted again, nothing changed.
+                return previous == ResourceChangeKind.Create ? null : kind;
+            default:
+                return kind;
+        }
+    }
+
+    private void publish() {
+        final List<ResourceChange> batch = Lists.newArrayListWithCapacity(pending.size());
+        for(Entry<Path, ResourceChangeKind> entry : pending.entrySet()) {
+            try {
+                final FileObject resource = resourceService.resolve(entry.getKey().toFile());
+                batch.add(new ResourceChange(resource, entry.getValue()));
+            } catch(MetaborgRuntimeException e) {
+                logger.error("Cannot resolve changed resource {}, skipping", e, entry.getKey());
+            }
+        }
+        pending.clear();
+        final List<FileObject> rescanDirectories = Lists.newArrayListWithCapacity(pendingRescans.size());
+        for(Path directory : pendingRescans) {
+            try {
+                rescanDirectories.add(resourceService.resolve(directory.toFile()));
+            } catch(MetaborgRuntimeException e) {
+                logger.error("Cannot resolve directory {} to rescan, skipping", e, directory);
+            }
+        }
+        pendingRescans.clear();
+
+        if(!batch.isEmpty()) {
+            for(ResourceChange change : batch) {
+                changes.onNext(change);
+            }
+            batches.onNext(Collections.unmodifiableList(batch));
+        }
+        for(FileObject directory : rescanDirectories) {
+            rescans.onNext(directory);
+        }
+    }
+}
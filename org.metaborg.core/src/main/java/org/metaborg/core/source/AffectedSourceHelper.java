@@ -21,64 +21,54 @@ public class AffectedSourceHelper {
      * @return Multi-line string that highlights the affected source code region.
      */
     public static @Nullable String affectedSourceText(ISourceRegion region, String sourceText, String indentation) {
-        final int startOffset = region.startOffset();
-        final int endOffset = region.endOffset();
-
-        int startRow = -1;
-        int endRow = -1;
-        int startExtend = Integer.MAX_VALUE;
-        int endExtend = 0;
-        int pos = 0;
-        final String[] lines = sourceText.split("\\r?\\n");
-        for(int i = 0; i < lines.length; ++i) {
-            final String line = lines[i];
-            final int length = line.length();
-
-            final int startDist = startOffset - pos;
-            if(startDist >= 0 && startDist <= length) {
-                startExtend = Math.min(startExtend, startDist);
-            }
-
-            final int endDist = endOffset - pos;
-            if(endDist >= 0 && endDist <= length) {
-                endExtend = Math.max(endExtend, endDist + 1);
-            }
+        return affectedSourceText(region, sourceText, LineIndex.of(sourceText), indentation);
+    }
 
-            pos += length + 1; // + 1 because newline characters are stripped out.
-            if(startRow == -1 && pos >= startOffset) {
-                startRow = i;
-            }
-            if(startRow != -1) {
-                if(pos >= endOffset) {
-                    endRow = i;
-                    break;
-                } else {
-                    startExtend = 0;
-                    endExtend = Math.max(endExtend, length);
-                }
-            }
+    /**
+     * Returns a multi-line string that highlights the affected source code region, given the full source text, a line
+     * index of the source text, and indentation to use. Only the affected lines are inspected.
+     * 
+     * @param region
+     *            Region in the source text that should be highlighted.
+     * @param sourceText
+     *            Full source text.
+     * @param lines
+     *            Line index of the full source text.
+     * @param indentation
+     *            Indentation to add to each line in the resulting string.
+     * @return Multi-line string that highlights the affected source code region.
+     */
+    public static @Nullable String affectedSourceText(ISourceRegion region, String sourceText, LineIndex lines,
+        String indentation) {
+        final int startOffset = region.startOffset();
+        final int endOffset = Math.max(startOffset, region.endOffset());
+        if(startOffset < 0 || endOffset > lines.length()) {
+            return null;
         }
 
-        if(endRow == -1 || startExtend == Integer.MAX_VALUE) {
-            return null;
+        final int startRow = lines.line(startOffset);
+        final int endRow = lines.line(endOffset);
+        final int startExtend;
+        int endExtend = lines.column(endOffset) + 1;
+        if(startRow == endRow) {
+            startExtend = lines.column(startOffset);
+        } else {
+            startExtend = 0;
+            for(int i = startRow; i < endRow; ++i) {
+                endExtend = Math.max(endExtend, lines.lineEnd(i) - lines.lineStart(i));
+            }
         }
 
         final StringBuilder builder = new StringBuilder();
         for(int i = startRow; i <= endRow; ++i) {
             builder.append(indentation);
-            builder.append(lines[i].replace('\t', ' '));
-            builder.append('\n');
-        }
-        if (startExtend <= endExtend) {
-            // WORKAROUND: On Windows apparently startExtend can be bigger than endExtend,
-            // causing an IllegalArgumentException: invalid count: -22
-            // As a workaround, we skip generating the ^^^^, but this is of course a bug.
-
-            builder.append(indentation);
-            builder.append(Strings.repeat(" ", startExtend));
-            builder.append(Strings.repeat("^", endExtend - startExtend));
+            builder.append(sourceText.substring(lines.lineStart(i), lines.lineEnd(i)).replace('\t', ' '));
             builder.append('\n');
         }
+        builder.append(indentation);
+        builder.append(Strings.repeat(" ", startExtend));
+        builder.append(Strings.repeat("^", Math.max(1, endExtend - startExtend)));
+        builder.append('\n');
 
         return builder.toString();
     }
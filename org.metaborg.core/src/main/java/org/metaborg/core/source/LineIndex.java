@@ -0,0 +1,123 @@
+package org.metaborg.core.source;
+
+import java.util.Arrays;
+
+/**
+ * Index of the start offsets of lines in a source text, for converting between offsets and lines and columns without
+ * scanning the text. Lines are terminated by a line feed, a carriage return before a line feed is not part of the
+ * line. Lines and columns are zero-based.
+ */
+public class LineIndex {
+    private final int[] lineStarts;
+    private final int[] lineEnds;
+    private final int length;
+
+
+    private LineIndex(int[] lineStarts, int[] lineEnds, int length) {
+        this.lineStarts = lineStarts;
+        this.lineEnds = lineEnds;
+        this.length = length;
+    }
+
+    /**
+     * Creates a line index for given text.
+     */
+    public static LineIndex of(String text) {
+        final int length = text.length();
+        int lineCount = 1;
+        for(int i = 0; i < length; ++i) {
+            if(text.charAt(i) == '\n') {
+                ++lineCount;
+            }
+        }
+
+        final int[] lineStarts = new int[lineCount];
+        final int[] lineEnds = new int[lineCount];
+        int line = 0;
+        for(int i = 0; i < length; ++i) {
+            if(text.charAt(i) == '\n') {
+                lineEnds[line] = i > lineStarts[line] && text.charAt(i - 1) == '\r' ? i - 1 : i;
+                ++line;
+                lineStarts[line] = i + 1;
+            }
+        }
+        lineEnds[line] = length;
+        return new LineIndex(lineStarts, lineEnds, length);
+    }
+
+
+    /**
+     * @return Length of the indexed text.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return Number of lines in the indexed text. An empty text has a single empty line.
+     */
+    public int lineCount() {
+        return lineStarts.length;
+    }
+
+    /**
+     * @return Offset of the first character of given line.
+     */
+    public int lineStart(int line) {
+        return lineStarts[line];
+    }
+
+    /**
+     * @return Offset after the last character of given line, excluding line terminators.
+     */
+    public int lineEnd(int line) {
+        return lineEnds[line];
+    }
+
+    /**
+     * @return Line that contains given offset. Offsets of line terminators belong to the line they terminate.
+     */
+    public int line(int offset) {
+        final int index = Arrays.binarySearch(lineStarts, offset);
+        if(index >= 0) {
+            return index;
+        }
+        // Insertion point is the line after the line that contains the offset.
+        return Math.max(0, -index - 2);
+    }
+
+    /**
+     * @return Column of given offset in its line.
+     */
+    public int column(int offset) {
+        return offset - lineStarts[line(offset)];
+    }
+
+    /**
+     * @return Offset of given column in given line.
+     */
+    public int offset(int line, int column) {
+        return lineStarts[line] + column;
+    }
+
+    /**
+     * @return Source region between given offsets, with rows and columns.
+     */
+    public ISourceRegion region(int startOffset, int endOffset) {
+        final int startRow = line(startOffset);
+        final int endRow = line(endOffset);
+        return new SourceRegion(startOffset, startRow, startOffset - lineStarts[startRow], endOffset, endRow,
+            endOffset - lineStarts[endRow]);
+    }
+
+    /**
+     * @return Given region if it has rows and columns, or a region with the same offsets, and rows and columns.
+     */
+    public ISourceRegion region(ISourceRegion region) {
+        if(region.startRow() != -1 && region.startColumn() != -1 && region.endRow() != -1
+            && region.endColumn() != -1) {
+            return region;
+        }
+        return region(region.startOffset(), region.endOffset());
+    }
+}
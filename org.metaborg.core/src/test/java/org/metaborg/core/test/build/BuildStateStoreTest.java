@@ -0,0 +1,224 @@
+package org.metaborg.core.test.build;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.VFS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.metaborg.core.build.BuildState;
+import org.metaborg.core.build.BuildStateStore;
+import org.metaborg.core.build.CommonPaths;
+import org.metaborg.core.build.LanguageBuildDiff;
+import org.metaborg.core.build.LanguageBuildState;
+import org.metaborg.core.language.ILanguageIdentifierService;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.IdentifiedResource;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.project.IProject;
+import org.metaborg.core.resource.IResourceService;
+import org.metaborg.core.resource.IdentifiedResourceChange;
+import org.metaborg.core.resource.ResourceChange;
+import org.metaborg.core.resource.ResourceChangeKind;
+import org.metaborg.util.iterators.Iterables2;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+public class BuildStateStoreTest {
+    private static final LanguageIdentifier languageId = LanguageIdentifier.parseFull("org.metaborg:test:1.0.0");
+
+    private FileObject location;
+    private FileObject source;
+    private FileObject includeDir;
+    private ILanguageImpl language;
+    private IProject project;
+    private IResourceService resourceService;
+    private ILanguageService languageService;
+    private ILanguageIdentifierService languageIdentifierService;
+
+
+    @Before public void setUp() throws FileSystemException {
+        location = VFS.getManager().resolveFile("ram:///BuildStateStoreTest");
+        location.deleteAll();
+        source = location.resolveFile("src/a.test");
+        write(source, "a");
+        includeDir = location.resolveFile("include");
+        write(includeDir.resolveFile("b.test"), "b");
+
+        language = proxy(ILanguageImpl.class, new InvocationHandler() {
+            @Override public Object invoke(Object proxy, Method method, Object[] args) {
+                switch(method.getName()) {
+                    case "id":
+                        return languageId;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return languageId.toString();
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+        project = proxy(IProject.class, new InvocationHandler() {
+            @Override public Object invoke(Object proxy, Method method, Object[] args) {
+                if(method.getName().equals("location")) {
+                    return location;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        resourceService = proxy(IResourceService.class, new InvocationHandler() {
+            @Override public Object invoke(Object proxy, Method method, Object[] args) throws FileSystemException {
+                switch(method.getName()) {
+                    case "resolve":
+                        return VFS.getManager().resolveFile((String) args[0]);
+                    case "localPath":
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+        languageService = proxy(ILanguageService.class, new InvocationHandler() {
+            @Override public Object invoke(Object proxy, Method method, Object[] args) {
+                if(method.getName().equals("getImpl")) {
+                    return languageId.equals(args[0]) ? language : null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        languageIdentifierService = proxy(ILanguageIdentifierService.class, new InvocationHandler() {
+            @Override public Object invoke(Object proxy, Method method, Object[] args) {
+                if(method.getName().equals("identifyToResource")) {
+                    return new IdentifiedResource((FileObject) args[0], null, language);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @After public void tearDown() throws FileSystemException {
+        location.deleteAll();
+    }
+
+
+    @Test public void testRoundTrip() throws IOException {
+        final BuildStateStore store = new BuildStateStore(resourceService, languageService, languageIdentifierService);
+        final BuildState state = build(new BuildState());
+        store.persist(project, state);
+        assertFalse(location.resolveFile("target/metaborg-build.state.tmp").exists());
+
+        final BuildState loaded = store.load(project);
+        assertNotNull(loaded);
+        assertEquals(Collections.singleton(language), loaded.languages());
+        final LanguageBuildState languageState = loaded.getIfPresent(language);
+        assertTrue(languageState.hasSources());
+
+        // Unchanged sources and include files are not changed according to the loaded state.
+        final IdentifiedResource identifiedSource = new IdentifiedResource(source, null, language);
+        assertTrue(languageState.sourceChanges(Iterables2.singleton(identifiedSource)).isEmpty());
+        final LanguageBuildDiff diff = languageState.diff(Collections.<IdentifiedResourceChange>emptyList(),
+            Iterables2.singleton(includeDir), Collections.<ResourceChange>emptyList(), null);
+        assertTrue(Iterables.isEmpty(diff.includeChanges));
+
+        // A changed source is changed according to the loaded state.
+        write(source, "changed");
+        source.getContent().setLastModifiedTime(source.getContent().getLastModifiedTime() + 1000);
+        final Collection<ResourceChange> changes =
+            languageState.sourceChanges(Iterables2.singleton(identifiedSource));
+        assertEquals(1, changes.size());
+        assertEquals(ResourceChangeKind.Modify, Iterables.getOnlyElement(changes).kind);
+    }
+
+    @Test public void testLoadMissing() {
+        final BuildStateStore store = new BuildStateStore(resourceService, languageService, languageIdentifierService);
+        assertNull(store.load(project));
+    }
+
+    @Test public void testLoadCorrupt() throws IOException {
+        final BuildStateStore store = new BuildStateStore(resourceService, languageService, languageIdentifierService);
+        final FileObject file = new CommonPaths(location).buildStateFile();
+        write(file, "not a build state");
+
+        assertNull(store.load(project));
+        assertFalse(file.exists());
+    }
+
+    @Test public void testLoadTruncated() throws IOException {
+        final BuildStateStore store = new BuildStateStore(resourceService, languageService, languageIdentifierService);
+        store.persist(project, build(new BuildState()));
+        final FileObject file = new CommonPaths(location).buildStateFile();
+        final byte[] bytes = read(file);
+        try(OutputStream output = file.getContent().getOutputStream()) {
+            output.write(bytes, 0, bytes.length - 8);
+        }
+
+        assertNull(store.load(project));
+        assertFalse(file.exists());
+    }
+
+    @Test public void testLoadUnknownLanguage() throws IOException {
+        final BuildStateStore store = new BuildStateStore(resourceService, languageService, languageIdentifierService);
+        store.persist(project, build(new BuildState()));
+
+        final ILanguageService emptyLanguageService = proxy(ILanguageService.class, new InvocationHandler() {
+            @Override public Object invoke(Object proxy, Method method, Object[] args) {
+                return null;
+            }
+        });
+        final BuildStateStore otherStore =
+            new BuildStateStore(resourceService, emptyLanguageService, languageIdentifierService);
+        final BuildState loaded = otherStore.load(project);
+        assertNotNull(loaded);
+        assertTrue(loaded.languages().isEmpty());
+    }
+
+
+    private BuildState build(BuildState oldState) {
+        final LanguageBuildState languageState = oldState.get(resourceService, languageIdentifierService, language);
+        final IdentifiedResourceChange change = new IdentifiedResourceChange(
+            new ResourceChange(source, ResourceChangeKind.Create), null, language);
+        final Collection<IdentifiedResourceChange> changes = Lists.newArrayList(change);
+        final LanguageBuildDiff diff = languageState.diff(changes, Iterables2.singleton(includeDir),
+            Lists.newArrayList(change.change), null);
+        assertEquals(1, Iterables.size(diff.includeChanges));
+        final BuildState newState = new BuildState(oldState);
+        newState.add(language, diff.newState);
+        return newState;
+    }
+
+    private static void write(FileObject file, String text) throws FileSystemException {
+        file.createFile();
+        try(OutputStream output = file.getContent().getOutputStream()) {
+            output.write(text.getBytes());
+        } catch(IOException e) {
+            throw new FileSystemException(e);
+        }
+    }
+
+    private static byte[] read(FileObject file) throws IOException {
+        try(InputStream input = file.getContent().getInputStream()) {
+            return IOUtils.toByteArray(input);
+        }
+    }
+
+    @SuppressWarnings("unchecked") private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+}
@@ -0,0 +1,169 @@
+package org.metaborg.core.test.build;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.metaborg.core.build.PersistentStampMap;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class PersistentStampMapTest {
+    @Test public void testEmpty() {
+        final PersistentStampMap map = PersistentStampMap.empty();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.size());
+        assertFalse(map.contains(0));
+        assertEquals(-1, map.get(0, -1));
+        assertEquals(0, map.keys().length);
+    }
+
+    @Test public void testPut() {
+        final PersistentStampMap map = PersistentStampMap.empty().put(1, 10).put(2, 20);
+        assertEquals(2, map.size());
+        assertEquals(10, map.get(1, -1));
+        assertEquals(20, map.get(2, -1));
+        assertEquals(-1, map.get(3, -1));
+    }
+
+    @Test public void testPutReplace() {
+        final PersistentStampMap map = PersistentStampMap.empty().put(1, 10).put(1, 11);
+        assertEquals(1, map.size());
+        assertEquals(11, map.get(1, -1));
+    }
+
+    @Test public void testPutSameValue() {
+        final PersistentStampMap map = PersistentStampMap.empty().put(1, 10).put(33, 20);
+        assertSame(map, map.put(1, 10));
+        assertSame(map, map.put(33, 20));
+    }
+
+    @Test public void testRemove() {
+        final PersistentStampMap map = PersistentStampMap.empty().put(1, 10).put(2, 20).remove(1);
+        assertEquals(1, map.size());
+        assertFalse(map.contains(1));
+        assertEquals(20, map.get(2, -1));
+    }
+
+    @Test public void testRemoveAbsent() {
+        final PersistentStampMap map = PersistentStampMap.empty().put(1, 10).put(33, 20);
+        assertSame(map, map.remove(2));
+        // Same position at the first level as existing keys, different at deeper levels.
+        assertSame(map, map.remove(65));
+        assertSame(PersistentStampMap.empty(), PersistentStampMap.empty().remove(1));
+    }
+
+    @Test public void testRemoveLast() {
+        final PersistentStampMap map = PersistentStampMap.empty().put(1, 10).remove(1);
+        assertTrue(map.isEmpty());
+        assertSame(PersistentStampMap.empty(), map);
+    }
+
+    @Test public void testCollision() {
+        // Keys that share the positions of their lowest levels, such that they are stored in nested nodes.
+        final int[] keys = { 1, 1 + (1 << 5), 1 + (1 << 10), 1 + (1 << 15), 1 + (1 << 30), 1 + (1 << 10) + (1 << 30) };
+        PersistentStampMap map = PersistentStampMap.empty();
+        for(int key : keys) {
+            map = map.put(key, key * 2L);
+        }
+        assertEquals(keys.length, map.size());
+        for(int key : keys) {
+            assertEquals(key * 2L, map.get(key, -1));
+        }
+        assertEquals(-1, map.get(1 + (1 << 20), -1));
+
+        // Removing keys collapses nested nodes, the remaining keys must still be found.
+        final PersistentStampMap removed = map.remove(1 + (1 << 10)).remove(1);
+        assertEquals(keys.length - 2, removed.size());
+        assertFalse(removed.contains(1));
+        assertFalse(removed.contains(1 + (1 << 10)));
+        assertEquals(2L * (1 + (1 << 5)), removed.get(1 + (1 << 5), -1));
+        assertEquals(2L * (1 + (1 << 10) + (1 << 30)), removed.get(1 + (1 << 10) + (1 << 30), -1));
+
+        PersistentStampMap single = removed;
+        for(int key : keys) {
+            if(key != 1 + (1 << 15)) {
+                single = single.remove(key);
+            }
+        }
+        assertEquals(1, single.size());
+        assertEquals(2L * (1 + (1 << 15)), single.get(1 + (1 << 15), -1));
+        assertSame(PersistentStampMap.empty(), single.remove(1 + (1 << 15)));
+    }
+
+    @Test public void testNegativeKeys() {
+        final PersistentStampMap map =
+            PersistentStampMap.empty().put(-1, 1).put(Integer.MIN_VALUE, 2).put(Integer.MAX_VALUE, 3).put(0, 4);
+        assertEquals(4, map.size());
+        assertEquals(1, map.get(-1, -1));
+        assertEquals(2, map.get(Integer.MIN_VALUE, -1));
+        assertEquals(3, map.get(Integer.MAX_VALUE, -1));
+        assertEquals(4, map.get(0, -1));
+    }
+
+    @Test public void testPersistent() {
+        final PersistentStampMap original = PersistentStampMap.empty().put(1, 10).put(33, 20).put(2, 30);
+        final PersistentStampMap updated = original.put(1, 11).put(65, 40).remove(2);
+
+        // Updates share unchanged nodes with the original map, but never change it.
+        assertEquals(3, original.size());
+        assertEquals(10, original.get(1, -1));
+        assertEquals(30, original.get(2, -1));
+        assertFalse(original.contains(65));
+
+        assertEquals(3, updated.size());
+        assertEquals(11, updated.get(1, -1));
+        assertEquals(20, updated.get(33, -1));
+        assertEquals(40, updated.get(65, -1));
+        assertFalse(updated.contains(2));
+    }
+
+    @Test public void testRandomOperations() {
+        final Random random = new Random(42);
+        final Map<Integer, Long> expected = Maps.newHashMap();
+        PersistentStampMap map = PersistentStampMap.empty();
+        for(int i = 0; i < 20000; ++i) {
+            // Small key range such that keys are replaced and removed often, with some keys in the full range.
+            final int key = random.nextInt(8) == 0 ? random.nextInt() : random.nextInt(2048);
+            if(random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                final long value = random.nextLong();
+                expected.put(key, value);
+                map = map.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for(Map.Entry<Integer, Long> entry : expected.entrySet()) {
+            assertEquals((long) entry.getValue(), map.get(entry.getKey(), -1));
+        }
+        final Set<Integer> keys = Sets.newHashSet();
+        for(int key : map.keys()) {
+            assertTrue(keys.add(key));
+        }
+        assertEquals(expected.keySet(), keys);
+    }
+
+    @Test public void testVisit() {
+        final PersistentStampMap map = PersistentStampMap.empty().put(3, 30).put(35, 350).put(1, 10);
+        final Map<Integer, Long> visited = Maps.newHashMap();
+        map.visit(new PersistentStampMap.Visitor() {
+            @Override public void visit(int key, long value) {
+                visited.put(key, value);
+            }
+        });
+        assertEquals(3, visited.size());
+        assertEquals(350L, (long) visited.get(35));
+
+        final int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(new int[] { 1, 3, 35 }, keys);
+    }
+}
@@ -0,0 +1,76 @@
+package org.metaborg.core.test.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.metaborg.core.metrics.Histogram;
+
+public class HistogramTest {
+    @Test public void testEmpty() {
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.total());
+        assertEquals(0, histogram.min());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.mean());
+        assertEquals(0, histogram.percentile(50));
+    }
+
+    @Test public void testRecord() {
+        final Histogram histogram = histogram(1, 3, 100);
+        assertEquals(3, histogram.count());
+        assertEquals(104, histogram.total());
+        assertEquals(1, histogram.min());
+        assertEquals(100, histogram.max());
+        assertEquals(34, histogram.mean());
+    }
+
+    @Test public void testRecordNegative() {
+        final Histogram histogram = histogram(-5);
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.total());
+        assertEquals(0, histogram.min());
+        assertEquals(1, histogram.snapshot()[0]);
+    }
+
+    @Test public void testBuckets() {
+        final long[] snapshot = histogram(0, 1, 2, 3, 4, 7, 8).snapshot();
+        assertEquals(1, snapshot[0]);
+        assertEquals(1, snapshot[1]);
+        assertEquals(2, snapshot[2]);
+        assertEquals(2, snapshot[3]);
+        assertEquals(1, snapshot[4]);
+        assertEquals(2, Histogram.upperBound(1));
+        assertEquals(8, Histogram.upperBound(3));
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(63));
+    }
+
+    @Test public void testPercentile() {
+        final Histogram histogram = histogram(1, 3, 100);
+        assertEquals(2, histogram.percentile(0));
+        assertEquals(4, histogram.percentile(50));
+        // Upper bound of the bucket is 128, capped at the largest recorded duration.
+        assertEquals(100, histogram.percentile(99));
+        assertEquals(100, histogram.percentile(100));
+    }
+
+    @Test public void testReset() {
+        final Histogram histogram = histogram(1, 3, 100);
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.total());
+        assertEquals(0, histogram.min());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.snapshot()[7]);
+    }
+
+
+    private static Histogram histogram(long... durations) {
+        final Histogram histogram = new Histogram();
+        for(long duration : durations) {
+            histogram.record(duration);
+        }
+        return histogram;
+    }
+}
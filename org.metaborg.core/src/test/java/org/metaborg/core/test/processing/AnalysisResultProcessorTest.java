@@ -0,0 +1,150 @@
+package org.metaborg.core.test.processing;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+import org.junit.Test;
+import org.metaborg.core.analysis.AnalysisException;
+import org.metaborg.core.analysis.IAnalysisService;
+import org.metaborg.core.analysis.IAnalyzeResult;
+import org.metaborg.core.analysis.IAnalyzeResults;
+import org.metaborg.core.analysis.IAnalyzeUnit;
+import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
+import org.metaborg.core.context.IContext;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.processing.analyze.AnalysisResultProcessor;
+import org.metaborg.core.processing.parse.ParseResultProcessor;
+import org.metaborg.core.syntax.IInputUnit;
+import org.metaborg.core.syntax.IParseUnit;
+import org.metaborg.util.concurrent.NullClosableLock;
+
+import com.google.common.collect.Maps;
+
+import rx.Observer;
+
+public class AnalysisResultProcessorTest {
+    @Test public void testBuildDoesNotAnalyzeRequests() throws Exception {
+        final FileObject resource = VFS.getManager().resolveFile("ram:///a");
+        final IContext context = stub(IContext.class, "write", new NullClosableLock());
+        final IInputUnit input = stub(IInputUnit.class, "source", resource, "detached", false);
+        final IParseUnit parseUnit = stub(IParseUnit.class, "source", resource, "detached", false, "valid", true);
+        final IAnalyzeUnit analyzeUnit = stub(IAnalyzeUnit.class, "source", resource, "detached", false);
+
+        final BlockingAnalysisService analysisService = new BlockingAnalysisService(analyzeUnit);
+        final ParseResultProcessor<IInputUnit, IParseUnit> parseProcessor = new ParseResultProcessor<IInputUnit, IParseUnit>(null);
+        final AnalysisResultProcessor<IInputUnit, IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate> processor =
+            new AnalysisResultProcessor<>(analysisService, parseProcessor);
+
+        // Builder invalidates the parse result before parsing, a request then waits for the parse result.
+        parseProcessor.invalidate(resource);
+        final AtomicReference<IAnalyzeUnit> result = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        processor.request(input, context).subscribe(new Observer<IAnalyzeUnit>() {
+            @Override public void onNext(IAnalyzeUnit unit) {
+                result.set(unit);
+            }
+
+            @Override public void onError(Throwable e) {
+                done.countDown();
+            }
+
+            @Override public void onCompleted() {
+                done.countDown();
+            }
+        });
+
+        // Builder pushes the parse result, which must return without running the requested analysis.
+        parseProcessor.update(resource, parseUnit);
+        analysisService.release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertSame(analyzeUnit, result.get());
+        assertNotNull(analysisService.thread);
+        assertNotSame(Thread.currentThread(), analysisService.thread);
+    }
+
+
+    @SuppressWarnings("unchecked") private static <T> T stub(final Class<T> type, Object... methodResults) {
+        final Map<String, Object> results = Maps.newHashMap();
+        for(int i = 0; i < methodResults.length; i += 2) {
+            results.put((String) methodResults[i], methodResults[i + 1]);
+        }
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+            @Override public Object invoke(Object proxy, Method method, Object[] args) {
+                final String name = method.getName();
+                if(results.containsKey(name)) {
+                    return results.get(name);
+                }
+                switch(name) {
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return type.getSimpleName();
+                    default:
+                        throw new UnsupportedOperationException(name);
+                }
+            }
+        });
+    }
+
+
+    private static class BlockingAnalysisService
+        implements IAnalysisService<IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate> {
+        public final CountDownLatch release = new CountDownLatch(1);
+        public volatile Thread thread;
+
+        private final IAnalyzeUnit result;
+
+
+        public BlockingAnalysisService(IAnalyzeUnit result) {
+            this.result = result;
+        }
+
+
+        @Override public boolean available(ILanguageImpl langImpl) {
+            return true;
+        }
+
+        @Override public IAnalyzeResult<IAnalyzeUnit, IAnalyzeUnitUpdate> analyze(IParseUnit input,
+            final IContext context) throws AnalysisException {
+            thread = Thread.currentThread();
+            try {
+                // Blocks a build that would run this analysis until the release times out.
+                release.await(5, TimeUnit.SECONDS);
+            } catch(InterruptedException e) {
+                throw new AnalysisException(context, "Interrupted", e);
+            }
+            return new IAnalyzeResult<IAnalyzeUnit, IAnalyzeUnitUpdate>() {
+                @Override public IAnalyzeUnit result() {
+                    return result;
+                }
+
+                @Override public Collection<IAnalyzeUnitUpdate> updates() {
+                    return Collections.emptyList();
+                }
+
+                @Override public IContext context() {
+                    return context;
+                }
+            };
+        }
+
+        @Override public IAnalyzeResults<IAnalyzeUnit, IAnalyzeUnitUpdate> analyzeAll(Iterable<IParseUnit> inputs,
+            IContext context) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.metaborg.core.test.processing;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.VFS;
+import org.junit.After;
+import org.junit.Test;
+import org.metaborg.core.MetaborgRuntimeException;
+import org.metaborg.core.action.ITransformGoal;
+import org.metaborg.core.analysis.IAnalyzeUnit;
+import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
+import org.metaborg.core.build.BuildInput;
+import org.metaborg.core.build.BuildOrder;
+import org.metaborg.core.build.BuildOutput;
+import org.metaborg.core.build.BuildState;
+import org.metaborg.core.build.CleanInput;
+import org.metaborg.core.build.IBuildOutput;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.metrics.BuildMetrics;
+import org.metaborg.core.processing.BuildCoordinator;
+import org.metaborg.core.processing.ExecutorTask;
+import org.metaborg.core.processing.ICancellationToken;
+import org.metaborg.core.processing.IProcessorRunner;
+import org.metaborg.core.processing.IProgressReporter;
+import org.metaborg.core.processing.ITask;
+import org.metaborg.core.project.IProject;
+import org.metaborg.core.project.Project;
+import org.metaborg.core.resource.ResourceChange;
+import org.metaborg.core.syntax.IParseUnit;
+import org.metaborg.core.transform.ITransformUnit;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class BuildCoordinatorTest {
+    private final RecordingRunner runner = new RecordingRunner();
+    private BuildCoordinator<IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate, ITransformUnit<?>> coordinator;
+
+
+    @After public void close() {
+        if(coordinator != null) {
+            coordinator.close();
+        }
+        runner.close();
+    }
+
+
+    @Test public void testMergePending() throws FileSystemException, InterruptedException {
+        coordinator = new BuildCoordinator<>(runner, new BuildMetrics(), 200);
+        final IProject project = project("p");
+        final ITask<? extends IBuildOutput<?, ?, ?, ?>> requestA = coordinator.build(input(project, "a")).schedule();
+        final ITask<? extends IBuildOutput<?, ?, ?, ?>> requestB = coordinator.build(input(project, "b")).schedule();
+        requestA.block();
+        requestB.block();
+
+        assertEquals(1, runner.inputs.size());
+        assertEquals(names(project, "a", "b"), names(runner.inputs.get(0)));
+        assertNotNull(requestA.result());
+        assertSame(requestA.result(), requestB.result());
+    }
+
+    @Test public void testMergeOnSupersede() throws FileSystemException, InterruptedException {
+        coordinator = new BuildCoordinator<>(runner, new BuildMetrics(), 10);
+        runner.blockFirst = true;
+        final IProject project = project("p");
+        final ITask<? extends IBuildOutput<?, ?, ?, ?>> requestA = coordinator.build(input(project, "a")).schedule();
+        assertTrue(runner.started.tryAcquire(5, TimeUnit.SECONDS));
+        final ITask<? extends IBuildOutput<?, ?, ?, ?>> requestB = coordinator.build(input(project, "b")).schedule();
+        requestB.block();
+        requestA.block();
+
+        assertEquals(2, runner.inputs.size());
+        assertEquals(names(project, "a"), names(runner.inputs.get(0)));
+        assertEquals(names(project, "a", "b"), names(runner.inputs.get(1)));
+        assertTrue(requestA.completed());
+        assertNotNull(requestA.result());
+        assertSame(requestA.result(), requestB.result());
+    }
+
+    @Test public void testCarryOverState() throws FileSystemException, InterruptedException {
+        coordinator = new BuildCoordinator<>(runner, new BuildMetrics(), 10);
+        final IProject project = project("p");
+        final IBuildOutput<?, ?, ?, ?> output = coordinator.build(input(project, "a")).schedule().block().result();
+        coordinator.build(input(project, "b")).schedule().block();
+
+        assertEquals(2, runner.inputs.size());
+        assertSame(output.state(), runner.inputs.get(1).state);
+    }
+
+    @Test public void testFail() throws FileSystemException, InterruptedException {
+        coordinator = new BuildCoordinator<>(runner, new BuildMetrics(), 10);
+        final RuntimeException exception = new IllegalStateException();
+        runner.exception = exception;
+        final ITask<? extends IBuildOutput<?, ?, ?, ?>> request =
+            coordinator.build(input(project("p"), "a")).schedule();
+        try {
+            request.block();
+            fail("Expected block to throw");
+        } catch(MetaborgRuntimeException e) {
+            Throwable cause = e;
+            while(cause != null && cause != exception) {
+                cause = cause.getCause();
+            }
+            assertSame(exception, cause);
+        }
+
+        assertFalse(request.completed());
+        assertFalse(request.cancelled());
+        assertNull(request.result());
+    }
+
+
+    private static IProject project(String name) throws FileSystemException {
+        return new Project(VFS.getManager().resolveFile("ram:///" + name), null);
+    }
+
+    private static BuildInput input(IProject project, String... names) throws FileSystemException {
+        final List<ResourceChange> changes = Lists.newArrayList();
+        for(String name : names) {
+            changes.add(new ResourceChange(project.location().resolveFile(name)));
+        }
+        return new BuildInput(new BuildState(), project, changes, ArrayListMultimap.<ILanguageImpl, FileObject>create(),
+            new BuildOrder(Collections.<ILanguageImpl>emptyList()), null, false, null, false, null,
+            Collections.<ITransformGoal>emptyList(), null, false, Collections.<ILanguageImpl>emptySet());
+    }
+
+    private static Set<FileName> names(IProject project, String... names) throws FileSystemException {
+        final Set<FileName> fileNames = Sets.newHashSet();
+        for(String name : names) {
+            fileNames.add(project.location().resolveFile(name).getName());
+        }
+        return fileNames;
+    }
+
+    private static Set<FileName> names(BuildInput input) {
+        final Set<FileName> fileNames = Sets.newHashSet();
+        for(ResourceChange change : input.sourceChanges) {
+            fileNames.add(change.resource.getName());
+        }
+        return fileNames;
+    }
+
+
+    private static class RecordingRunner
+        implements IProcessorRunner<IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate, ITransformUnit<?>> {
+        public final List<BuildInput> inputs = Collections.synchronizedList(Lists.<BuildInput>newArrayList());
+        public final Semaphore started = new Semaphore(0);
+        public volatile boolean blockFirst;
+        public volatile @Nullable RuntimeException exception;
+
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+
+
+        @Override public ITask<? extends IBuildOutput<IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate, ITransformUnit<?>>>
+            build(final BuildInput input, @Nullable IProgressReporter progressReporter,
+                @Nullable ICancellationToken cancellationToken) {
+            return new ExecutorTask<IBuildOutput<IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate, ITransformUnit<?>>>(
+                executor, cancellationToken) {
+                @Override protected IBuildOutput<IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate, ITransformUnit<?>> run(
+                    ICancellationToken cancellationToken) throws InterruptedException {
+                    final boolean first;
+                    synchronized(inputs) {
+                        first = inputs.isEmpty();
+                        inputs.add(input);
+                    }
+                    started.release();
+                    if(first && blockFirst) {
+                        // Run until superseded.
+                        while(true) {
+                            cancellationToken.throwIfCancelled();
+                            Thread.sleep(1);
+                        }
+                    }
+                    if(exception != null) {
+                        throw exception;
+                    }
+                    final BuildOutput<IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate, ITransformUnit<?>> output =
+                        new BuildOutput<>();
+                    output.state = new BuildState(input.state);
+                    return output;
+                }
+            };
+        }
+
+        @Override public ITask<?> clean(CleanInput input, @Nullable IProgressReporter progressReporter,
+            @Nullable ICancellationToken cancellationToken) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override public ITask<?> updateDialects(FileObject location, Iterable<ResourceChange> changes) {
+            throw new UnsupportedOperationException();
+        }
+
+
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+}
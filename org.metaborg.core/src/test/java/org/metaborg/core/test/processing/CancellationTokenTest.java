@@ -0,0 +1,118 @@
+package org.metaborg.core.test.processing;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.metaborg.core.processing.CancellationToken;
+import org.metaborg.core.processing.ICancellationToken;
+import org.metaborg.core.processing.LinkedCancellationToken;
+
+public class CancellationTokenTest {
+    @Test public void testListenerOnCancel() {
+        final CancellationToken token = new CancellationToken();
+        final Counter counter = new Counter();
+        assertTrue(token.addListener(counter));
+        assertEquals(0, counter.count.get());
+
+        token.cancel();
+        token.cancel();
+        assertEquals(1, counter.count.get());
+    }
+
+    @Test public void testListenerWhenCancelled() {
+        final CancellationToken token = new CancellationToken();
+        token.cancel();
+        final Counter counter = new Counter();
+        assertTrue(token.addListener(counter));
+        assertEquals(1, counter.count.get());
+    }
+
+    @Test public void testRemoveListener() {
+        final CancellationToken token = new CancellationToken();
+        final Counter counter = new Counter();
+        token.addListener(counter);
+        token.removeListener(counter);
+        token.cancel();
+        assertEquals(0, counter.count.get());
+    }
+
+    @Test public void testLinkedListenerOnParentCancel() {
+        final CancellationToken parent = new CancellationToken();
+        final LinkedCancellationToken token = new LinkedCancellationToken(parent);
+        final Counter counter = new Counter();
+        assertTrue(token.addListener(counter));
+
+        parent.cancel();
+        token.cancel();
+        assertEquals(1, counter.count.get());
+    }
+
+    @Test public void testLinkedListenerOnCancel() {
+        final CancellationToken parent = new CancellationToken();
+        final LinkedCancellationToken token = new LinkedCancellationToken(parent);
+        final Counter counter = new Counter();
+        token.addListener(counter);
+
+        token.cancel();
+        assertEquals(1, counter.count.get());
+        assertFalse(parent.cancelled());
+    }
+
+    @Test public void testLinkedListenerWhenParentCancelled() {
+        final CancellationToken parent = new CancellationToken();
+        parent.cancel();
+        final LinkedCancellationToken token = new LinkedCancellationToken(parent);
+        final Counter counter = new Counter();
+        assertTrue(token.addListener(counter));
+        assertEquals(1, counter.count.get());
+    }
+
+    @Test public void testLinkedRemoveListener() {
+        final CancellationToken parent = new CancellationToken();
+        final LinkedCancellationToken token = new LinkedCancellationToken(parent);
+        final Counter counter = new Counter();
+        token.addListener(counter);
+        token.removeListener(counter);
+        parent.cancel();
+        assertEquals(0, counter.count.get());
+    }
+
+    @Test public void testLinkedUnlistenableParent() {
+        final LinkedCancellationToken token = new LinkedCancellationToken(new PolledCancellationToken());
+        assertFalse(token.addListener(new Counter()));
+    }
+
+
+    private static class Counter implements Runnable {
+        public final AtomicInteger count = new AtomicInteger();
+
+
+        @Override public void run() {
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * Cancellation token that cannot notify listeners.
+     */
+    static class PolledCancellationToken implements ICancellationToken {
+        private volatile boolean cancelled = false;
+
+
+        @Override public boolean cancelled() {
+            return cancelled;
+        }
+
+        @Override public void throwIfCancelled() throws InterruptedException {
+            if(cancelled) {
+                throw new InterruptedException();
+            }
+        }
+
+        @Override public void cancel() {
+            cancelled = true;
+        }
+    }
+}
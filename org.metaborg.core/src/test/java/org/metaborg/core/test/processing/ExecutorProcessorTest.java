@@ -0,0 +1,128 @@
+package org.metaborg.core.test.processing;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.VFS;
+import org.junit.After;
+import org.junit.Test;
+import org.metaborg.core.analysis.IAnalyzeUnit;
+import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
+import org.metaborg.core.build.BuildInput;
+import org.metaborg.core.build.CleanInput;
+import org.metaborg.core.build.IBuildOutput;
+import org.metaborg.core.build.IBuilder;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.metrics.BuildMetrics;
+import org.metaborg.core.processing.ExecutorProcessor;
+import org.metaborg.core.processing.ICancellationToken;
+import org.metaborg.core.processing.IProgressReporter;
+import org.metaborg.core.processing.ITask;
+import org.metaborg.core.project.IProject;
+import org.metaborg.core.project.Project;
+import org.metaborg.core.syntax.IParseUnit;
+import org.metaborg.core.transform.ITransformUnit;
+
+import com.google.common.collect.Lists;
+
+public class ExecutorProcessorTest {
+    private final CleaningBuilder builder = new CleaningBuilder();
+    private final ExecutorProcessor<IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate, ITransformUnit<?>> processor =
+        new ExecutorProcessor<>(null, builder, null, new BuildMetrics());
+
+
+    @After public void close() {
+        processor.close();
+    }
+
+
+    @Test public void testSameProjectSerial() throws FileSystemException, InterruptedException {
+        final IProject project = project("a");
+        final List<ITask<?>> tasks = Lists.newArrayList();
+        for(int i = 0; i < 8; ++i) {
+            tasks.add(processor.clean(cleanInput(project), null, null).schedule());
+        }
+        for(ITask<?> task : tasks) {
+            task.block();
+            assertTrue(task.completed());
+        }
+
+        assertEquals(1, builder.maxRunning.get());
+        assertEquals(8, builder.cleaned.size());
+    }
+
+    @Test public void testSameProjectInOrder() throws FileSystemException, InterruptedException {
+        final List<CleanInput> inputs = Lists.newArrayList();
+        final List<ITask<?>> tasks = Lists.newArrayList();
+        final IProject project = project("a");
+        for(int i = 0; i < 8; ++i) {
+            final CleanInput input = cleanInput(project);
+            inputs.add(input);
+            tasks.add(processor.clean(input, null, null).schedule());
+        }
+        for(ITask<?> task : tasks) {
+            task.block();
+        }
+
+        assertEquals(inputs, builder.cleaned);
+    }
+
+    @Test public void testDifferentProjectsConcurrent() throws FileSystemException, InterruptedException {
+        // Cleaning waits until two cleans run at the same time, which never happens if all cleans run serially.
+        builder.rendezvous = new CountDownLatch(2);
+        final ITask<?> taskA = processor.clean(cleanInput(project("a")), null, null).schedule();
+        final ITask<?> taskB = processor.clean(cleanInput(project("b")), null, null).schedule();
+        taskA.block();
+        taskB.block();
+
+        assertEquals(2, builder.maxRunning.get());
+        assertEquals(0, builder.rendezvous.getCount());
+    }
+
+
+    private static IProject project(String name) throws FileSystemException {
+        return new Project(VFS.getManager().resolveFile("ram:///" + name), null);
+    }
+
+    private static CleanInput cleanInput(IProject project) {
+        return new CleanInput(project, Collections.<ILanguageImpl>emptyList(), null);
+    }
+
+
+    private static class CleaningBuilder
+        implements IBuilder<IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate, ITransformUnit<?>> {
+        public final List<CleanInput> cleaned = Collections.synchronizedList(Lists.<CleanInput>newArrayList());
+        public final AtomicInteger maxRunning = new AtomicInteger();
+        public volatile CountDownLatch rendezvous = new CountDownLatch(0);
+
+        private final AtomicInteger running = new AtomicInteger();
+
+
+        @Override public IBuildOutput<IParseUnit, IAnalyzeUnit, IAnalyzeUnitUpdate, ITransformUnit<?>> build(
+            BuildInput input, IProgressReporter progressReporter, ICancellationToken cancellationToken) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override public void clean(CleanInput input, IProgressReporter progressReporter,
+            ICancellationToken cancellationToken) throws InterruptedException {
+            final int nowRunning = running.incrementAndGet();
+            int max;
+            while((max = maxRunning.get()) < nowRunning && !maxRunning.compareAndSet(max, nowRunning)) {
+            }
+            try {
+                rendezvous.countDown();
+                rendezvous.await(1, TimeUnit.SECONDS);
+                Thread.sleep(5);
+                cleaned.add(input);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.metaborg.core.test.processing;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Test;
+import org.metaborg.core.MetaborgRuntimeException;
+import org.metaborg.core.processing.CancellationToken;
+import org.metaborg.core.processing.ExecutorTask;
+import org.metaborg.core.processing.ICancellationToken;
+
+public class ExecutorTaskTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+
+    @After public void close() {
+        executor.shutdownNow();
+    }
+
+
+    @Test public void testComplete() throws InterruptedException {
+        final ExecutorTask<String> task = task(null, "a", null);
+        task.schedule().block();
+
+        assertTrue(task.completed());
+        assertFalse(task.cancelled());
+        assertFalse(task.failed());
+        assertEquals("a", task.result());
+    }
+
+    @Test public void testFail() throws InterruptedException {
+        final RuntimeException exception = new IllegalStateException();
+        final ExecutorTask<String> task = task(null, null, exception);
+        task.schedule();
+        try {
+            task.block();
+            fail("Expected block to throw");
+        } catch(MetaborgRuntimeException e) {
+            assertSame(exception, e.getCause());
+        }
+
+        assertFalse(task.completed());
+        assertFalse(task.cancelled());
+        assertTrue(task.failed());
+        assertSame(exception, task.exception());
+    }
+
+    @Test public void testFailWithError() throws InterruptedException {
+        final Error error = new StackOverflowError();
+        final ExecutorTask<String> task = new ExecutorTask<String>(executor, null) {
+            @Override protected String run(ICancellationToken cancellationToken) {
+                throw error;
+            }
+        };
+        task.schedule();
+        try {
+            task.block();
+            fail("Expected block to throw");
+        } catch(MetaborgRuntimeException e) {
+            assertSame(error, e.getCause());
+        }
+
+        assertFalse(task.completed());
+        assertTrue(task.failed());
+        assertSame(error, task.exception());
+    }
+
+    @Test public void testForceCancel() throws InterruptedException {
+        final ExecutorTask<String> task = new ExecutorTask<String>(executor, null) {
+            @Override protected String run(ICancellationToken cancellationToken) throws InterruptedException {
+                // Ignores the cancellation token, only stops when interrupted.
+                Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                return "a";
+            }
+        };
+        task.schedule();
+        task.cancel(10);
+        try {
+            task.block();
+            fail("Expected block to throw");
+        } catch(InterruptedException e) {
+        }
+
+        assertTrue(task.cancelled());
+        assertNull(task.result());
+    }
+
+    @Test(expected = InterruptedException.class) public void testCancelBeforeSchedule() throws InterruptedException {
+        final ExecutorTask<String> task = task(null, "a", null);
+        task.cancel();
+        assertTrue(task.cancelled());
+        task.block();
+    }
+
+    @Test public void testCancelThroughToken() throws InterruptedException {
+        final ICancellationToken token = new CancellationToken();
+        final ExecutorTask<String> task = task(token, "a", null);
+        token.cancel();
+        task.schedule();
+        try {
+            task.block();
+            fail("Expected block to throw");
+        } catch(InterruptedException e) {
+        }
+
+        assertTrue(task.cancelled());
+        assertFalse(task.completed());
+    }
+
+    @Test public void testCancelDoesNotCancelSharedToken() throws InterruptedException {
+        final ICancellationToken token = new CancellationToken();
+        final ExecutorTask<String> cancelledTask = task(token, "a", null);
+        final ExecutorTask<String> task = task(token, "b", null);
+        cancelledTask.cancel();
+        task.schedule().block();
+
+        assertFalse(token.cancelled());
+        assertTrue(cancelledTask.cancelled());
+        assertTrue(task.completed());
+        assertEquals("b", task.result());
+    }
+
+
+    private ExecutorTask<String> task(@Nullable ICancellationToken cancellationToken, final @Nullable String result,
+        final @Nullable RuntimeException exception) {
+        return new ExecutorTask<String>(executor, cancellationToken) {
+            @Override protected String run(ICancellationToken cancellationToken) throws InterruptedException {
+                if(cancellationToken.cancelled()) {
+                    throw new InterruptedException();
+                }
+                if(exception != null) {
+                    throw exception;
+                }
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package org.metaborg.core.test.processing;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.metaborg.core.processing.CancellationToken;
+import org.metaborg.core.processing.ICancellationToken;
+import org.metaborg.core.processing.InterruptOnCancel;
+
+public class InterruptOnCancelTest {
+    @After public void clearInterrupt() {
+        Thread.interrupted();
+    }
+
+
+    @Test public void testInterruptOnCancel() {
+        final ICancellationToken token = new CancellationToken();
+        boolean interrupted = false;
+        try(InterruptOnCancel interrupt = new InterruptOnCancel(token)) {
+            token.cancel();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(5));
+        } catch(InterruptedException e) {
+            interrupted = true;
+        }
+
+        assertTrue(interrupted);
+        assertTrue(token.cancelled());
+    }
+
+    @Test public void testInterruptOnCancelPolled() {
+        final ICancellationToken token = new CancellationTokenTest.PolledCancellationToken();
+        boolean interrupted = false;
+        try(InterruptOnCancel interrupt = new InterruptOnCancel(token)) {
+            token.cancel();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(5));
+        } catch(InterruptedException e) {
+            interrupted = true;
+        }
+
+        assertTrue(interrupted);
+    }
+
+    @Test public void testInterruptWhenCancelled() {
+        final ICancellationToken token = new CancellationToken();
+        token.cancel();
+        try(InterruptOnCancel interrupt = new InterruptOnCancel(token)) {
+            assertTrue(Thread.currentThread().isInterrupted());
+        }
+
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test public void testClearInterruptOnClose() throws InterruptedException {
+        final ICancellationToken token = new CancellationToken();
+        try(InterruptOnCancel interrupt = new InterruptOnCancel(token)) {
+            token.cancel();
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while(!Thread.currentThread().isInterrupted() && System.currentTimeMillis() < deadline) {
+                Thread.yield();
+            }
+            assertTrue(Thread.currentThread().isInterrupted());
+        }
+
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test public void testNoInterruptWithoutCancel() throws InterruptedException {
+        final ICancellationToken token = new CancellationToken();
+        try(InterruptOnCancel interrupt = new InterruptOnCancel(token)) {
+            Thread.sleep(10 * InterruptOnCancel.pollIntervalMillis);
+        }
+        token.cancel();
+        Thread.sleep(10 * InterruptOnCancel.pollIntervalMillis);
+
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test public void testActive() {
+        assertFalse(InterruptOnCancel.active());
+        try(InterruptOnCancel outer = new InterruptOnCancel(new CancellationToken())) {
+            assertTrue(InterruptOnCancel.active());
+            try(InterruptOnCancel inner = new InterruptOnCancel(new CancellationToken())) {
+                assertTrue(InterruptOnCancel.active());
+            }
+            assertTrue(InterruptOnCancel.active());
+            outer.close();
+            assertFalse(InterruptOnCancel.active());
+        }
+        assertFalse(InterruptOnCancel.active());
+    }
+}
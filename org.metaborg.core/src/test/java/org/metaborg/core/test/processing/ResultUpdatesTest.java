@@ -0,0 +1,136 @@
+package org.metaborg.core.test.processing;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.VFS;
+import org.junit.Test;
+import org.metaborg.core.processing.ResultUpdates;
+import org.metaborg.core.processing.ResultUpdates.Updates;
+
+import com.google.common.collect.Lists;
+
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Func1;
+
+public class ResultUpdatesTest {
+    private static final long idleMillis = 50;
+
+
+    @Test public void testFirstMatchThenComplete() throws FileSystemException {
+        final ResultUpdates<String> resultUpdates = new ResultUpdates<>();
+        final Updates<String> updates = resultUpdates.get(name("a"));
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        updates.first(equalTo("b")).subscribe(subscriber);
+
+        updates.push("a");
+        assertTrue(subscriber.changes.isEmpty());
+        assertFalse(subscriber.completed);
+
+        updates.push("b");
+        updates.push("b");
+        assertEquals(Lists.newArrayList("b"), subscriber.changes);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test public void testFirstMatchesLatest() throws FileSystemException {
+        final ResultUpdates<String> resultUpdates = new ResultUpdates<>();
+        final Updates<String> updates = resultUpdates.get(name("a"));
+        updates.push("b");
+        assertEquals("b", updates.latest());
+
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        updates.first(equalTo("b")).subscribe(subscriber);
+        assertEquals(Lists.newArrayList("b"), subscriber.changes);
+        assertTrue(subscriber.completed);
+        assertEquals(0, resultUpdates.waiting());
+    }
+
+    @Test public void testWaiting() throws FileSystemException {
+        final ResultUpdates<String> resultUpdates = new ResultUpdates<>();
+        final Updates<String> updates = resultUpdates.get(name("a"));
+        assertEquals(0, resultUpdates.waiting());
+
+        updates.first(equalTo("b")).subscribe(new RecordingSubscriber());
+        final Subscription subscription = updates.first(equalTo("c")).subscribe(new RecordingSubscriber());
+        updates.changes().subscribe(new RecordingSubscriber());
+        assertEquals(2, resultUpdates.waiting());
+
+        updates.push("b");
+        assertEquals(1, resultUpdates.waiting());
+
+        subscription.unsubscribe();
+        assertEquals(0, resultUpdates.waiting());
+    }
+
+    @Test public void testEvictIdle() throws FileSystemException, InterruptedException {
+        final ResultUpdates<String> resultUpdates = new ResultUpdates<>(idleMillis, 0);
+        final FileName name = name("a");
+        final Updates<String> updates = resultUpdates.get(name);
+        updates.push("a");
+        assertSame(updates, resultUpdates.getIfPresent(name));
+
+        Thread.sleep(2 * idleMillis);
+        assertNull(resultUpdates.getIfPresent(name));
+        assertEquals(0, resultUpdates.size());
+        assertNotSame(updates, resultUpdates.get(name));
+    }
+
+    @Test public void testKeepObserved() throws FileSystemException, InterruptedException {
+        final ResultUpdates<String> resultUpdates = new ResultUpdates<>(idleMillis, 0);
+        final FileName name = name("a");
+        final Updates<String> updates = resultUpdates.get(name);
+        final Subscription subscription = updates.changes().subscribe(new RecordingSubscriber());
+
+        Thread.sleep(2 * idleMillis);
+        assertSame(updates, resultUpdates.getIfPresent(name));
+
+        subscription.unsubscribe();
+        Thread.sleep(2 * idleMillis);
+        assertNull(resultUpdates.getIfPresent(name));
+    }
+
+    @Test public void testKeepRecentlyAccessed() throws FileSystemException {
+        final ResultUpdates<String> resultUpdates = new ResultUpdates<>(ResultUpdates.defaultIdleMillis, 0);
+        final FileName name = name("a");
+        final Updates<String> updates = resultUpdates.get(name);
+        assertSame(updates, resultUpdates.getIfPresent(name));
+        assertEquals(1, resultUpdates.size());
+    }
+
+
+    private static FileName name(String path) throws FileSystemException {
+        return VFS.getManager().resolveFile("ram:///" + path).getName();
+    }
+
+    private static Func1<String, Boolean> equalTo(final String expected) {
+        return new Func1<String, Boolean>() {
+            @Override public Boolean call(String change) {
+                return expected.equals(change);
+            }
+        };
+    }
+
+
+    private static class RecordingSubscriber extends Subscriber<String> {
+        public final List<String> changes = Lists.newArrayList();
+        public boolean completed;
+
+
+        @Override public void onNext(String change) {
+            changes.add(change);
+        }
+
+        @Override public void onError(Throwable e) {
+            throw new AssertionError(e);
+        }
+
+        @Override public void onCompleted() {
+            completed = true;
+        }
+    }
+}
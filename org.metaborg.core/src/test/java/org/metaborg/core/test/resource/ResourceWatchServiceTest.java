@@ -0,0 +1,43 @@
+package org.metaborg.core.test.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.metaborg.core.resource.ResourceChangeKind.*;
+import static org.metaborg.core.resource.ResourceWatchService.coalesce;
+
+import org.junit.Test;
+import org.metaborg.core.resource.ResourceChangeKind;
+
+public class ResourceWatchServiceTest {
+    @Test public void testCoalesceFirst() {
+        for(ResourceChangeKind kind : ResourceChangeKind.values()) {
+            assertEquals(kind, coalesce(null, kind));
+        }
+    }
+
+    @Test public void testCoalesceCreate() {
+        assertEquals(Create, coalesce(Create, Create));
+        assertEquals(Modify, coalesce(Delete, Create));
+        assertEquals(Create, coalesce(Modify, Create));
+    }
+
+    @Test public void testCoalesceModify() {
+        assertEquals(Create, coalesce(Create, Modify));
+        assertEquals(Modify, coalesce(Modify, Modify));
+        assertEquals(Modify, coalesce(Delete, Modify));
+    }
+
+    @Test public void testCoalesceDelete() {
+        assertNull(coalesce(Create, Delete));
+        assertEquals(Delete, coalesce(Modify, Delete));
+        assertEquals(Delete, coalesce(Delete, Delete));
+    }
+
+    @Test public void testCoalesceCreateModifyDelete() {
+        assertNull(coalesce(coalesce(coalesce(null, Create), Modify), Delete));
+    }
+
+    @Test public void testCoalesceDeleteCreateModify() {
+        assertEquals(Modify, coalesce(coalesce(coalesce(null, Delete), Create), Modify));
+    }
+}
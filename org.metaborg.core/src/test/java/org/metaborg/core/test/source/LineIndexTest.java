@@ -0,0 +1,91 @@
+package org.metaborg.core.test.source;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.metaborg.core.source.ISourceRegion;
+import org.metaborg.core.source.LineIndex;
+
+public class LineIndexTest {
+    @Test public void testEmpty() {
+        final LineIndex index = LineIndex.of("");
+        assertEquals(0, index.length());
+        assertEquals(1, index.lineCount());
+        assertEquals(0, index.lineStart(0));
+        assertEquals(0, index.lineEnd(0));
+        assertEquals(0, index.line(0));
+        assertEquals(0, index.column(0));
+    }
+
+    @Test public void testLineFeed() {
+        final LineIndex index = LineIndex.of("ab\ncd");
+        assertEquals(2, index.lineCount());
+        assertEquals(0, index.lineStart(0));
+        assertEquals(2, index.lineEnd(0));
+        assertEquals(3, index.lineStart(1));
+        assertEquals(5, index.lineEnd(1));
+        assertEquals(0, index.line(2));
+        assertEquals(2, index.column(2));
+        assertEquals(1, index.line(3));
+        assertEquals(0, index.column(3));
+        assertEquals(4, index.offset(1, 1));
+    }
+
+    @Test public void testCarriageReturnLineFeed() {
+        final LineIndex index = LineIndex.of("ab\r\ncd\r\n");
+        assertEquals(3, index.lineCount());
+        assertEquals(2, index.lineEnd(0));
+        assertEquals(4, index.lineStart(1));
+        assertEquals(6, index.lineEnd(1));
+        assertEquals(8, index.lineStart(2));
+        assertEquals(8, index.lineEnd(2));
+        // Line terminators belong to the line they terminate.
+        assertEquals(0, index.line(2));
+        assertEquals(0, index.line(3));
+        assertEquals(3, index.column(3));
+        assertEquals(1, index.line(5));
+        assertEquals(1, index.column(5));
+    }
+
+    @Test public void testEmptyLineCarriageReturnLineFeed() {
+        final LineIndex index = LineIndex.of("\r\n\r\n");
+        assertEquals(3, index.lineCount());
+        assertEquals(0, index.lineEnd(0));
+        assertEquals(2, index.lineStart(1));
+        assertEquals(2, index.lineEnd(1));
+    }
+
+    @Test public void testCarriageReturnOnly() {
+        final LineIndex index = LineIndex.of("a\rb");
+        assertEquals(1, index.lineCount());
+        assertEquals(3, index.lineEnd(0));
+        assertEquals(2, index.column(2));
+    }
+
+    @Test public void testEndOfFile() {
+        final LineIndex index = LineIndex.of("ab\ncd");
+        assertEquals(1, index.line(5));
+        assertEquals(2, index.column(5));
+
+        final ISourceRegion region = index.region(3, 5);
+        assertEquals(3, region.startOffset());
+        assertEquals(1, region.startRow());
+        assertEquals(0, region.startColumn());
+        assertEquals(5, region.endOffset());
+        assertEquals(1, region.endRow());
+        assertEquals(2, region.endColumn());
+    }
+
+    @Test public void testEndOfFileAfterTerminator() {
+        final LineIndex index = LineIndex.of("ab\r\n");
+        assertEquals(2, index.lineCount());
+        assertEquals(1, index.line(4));
+        assertEquals(0, index.column(4));
+
+        final ISourceRegion region = index.region(4, 4);
+        assertEquals(1, region.startRow());
+        assertEquals(0, region.startColumn());
+        assertEquals(1, region.endRow());
+        assertEquals(0, region.endColumn());
+    }
+}
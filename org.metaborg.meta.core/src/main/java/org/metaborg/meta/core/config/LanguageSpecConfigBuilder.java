@@ -35,8 +35,8 @@ public class LanguageSpecConfigBuilder extends LanguageComponentConfigBuilder im
             configuration = configReaderWriter.create(null, rootFolder);
         }
         final LanguageSpecConfig config = new LanguageSpecConfig(configuration, metaborgVersion, identifier, name,
-            compileDeps, sourceDeps, javaDeps, sdfEnabled, parseTable, completionsParseTable, typesmart, langContribs,
-            generates, exports, pardonedLanguages, useBuildSystemSpec);
+            compileDeps, sourceDeps, javaDeps, sdfEnabled, parseTable, completionsParseTable, typesmart, termSharing,
+            langContribs, generates, exports, pardonedLanguages, useBuildSystemSpec);
         return config;
     }
 
@@ -15,6 +15,7 @@ import org.metaborg.core.language.dialect.IDialectProcessor;
 import org.metaborg.core.language.dialect.IDialectService;
 import org.metaborg.core.menu.IMenuService;
 import org.metaborg.core.outline.IOutlineService;
+import org.metaborg.core.processing.IBuildCoordinator;
 import org.metaborg.core.processing.IProcessor;
 import org.metaborg.core.processing.IProcessorRunner;
 import org.metaborg.core.processing.analyze.IAnalysisResultProcessor;
@@ -60,9 +61,11 @@ import org.metaborg.spoofax.core.language.dialect.DialectService;
 import org.metaborg.spoofax.core.menu.MenuService;
 import org.metaborg.spoofax.core.outline.ISpoofaxOutlineService;
 import org.metaborg.spoofax.core.outline.OutlineService;
+import org.metaborg.spoofax.core.processing.ISpoofaxBuildCoordinator;
 import org.metaborg.spoofax.core.processing.ISpoofaxProcessor;
 import org.metaborg.spoofax.core.processing.ISpoofaxProcessorRunner;
 import org.metaborg.spoofax.core.processing.SpoofaxBlockingProcessor;
+import org.metaborg.spoofax.core.processing.SpoofaxBuildCoordinator;
 import org.metaborg.spoofax.core.processing.SpoofaxProcessorRunner;
 import org.metaborg.spoofax.core.processing.analyze.ISpoofaxAnalysisResultProcessor;
 import org.metaborg.spoofax.core.processing.analyze.ISpoofaxAnalysisResultRequester;
@@ -474,6 +477,21 @@ public class SpoofaxModule extends MetaborgModule {
         bind(IProcessorRunner.class).to(SpoofaxProcessorRunner.class);
     }
 
+    /**
+     * Overrides {@link MetaborgModule#bindBuildCoordinator()} to provide
+     * Spoofax-specific bindings with generics filled
+     * in as {@link IStrategoTerm}.
+     */
+    @Override protected void bindBuildCoordinator() {
+        bind(SpoofaxBuildCoordinator.class).in(Singleton.class);
+        bind(ISpoofaxBuildCoordinator.class).to(SpoofaxBuildCoordinator.class);
+        bind(new TypeLiteral<IBuildCoordinator<ISpoofaxParseUnit,ISpoofaxAnalyzeUnit,ISpoofaxAnalyzeUnitUpdate,
+                ISpoofaxTransformUnit<?>>>() {}).to(SpoofaxBuildCoordinator.class);
+        bind(new TypeLiteral<IBuildCoordinator<?,?,?,?>>() {}).to(SpoofaxBuildCoordinator.class);
+        bind(IBuildCoordinator.class).to(SpoofaxBuildCoordinator.class);
+        autoClosableBinder.addBinding().to(SpoofaxBuildCoordinator.class);
+    }
+
     /**
      * Overrides {@link MetaborgModule#bindProcessor()} to provide
      * Spoofax-specific bindings with generics filled in as
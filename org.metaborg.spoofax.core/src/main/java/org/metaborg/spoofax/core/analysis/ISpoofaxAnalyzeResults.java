@@ -1,6 +1,9 @@
 package org.metaborg.spoofax.core.analysis;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.core.analysis.IAnalyzeResults;
+import org.metaborg.spoofax.core.analysis.taskengine.TaskEngineAnalyzerData;
 import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnitUpdate;
 
@@ -8,5 +11,9 @@ import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnitUpdate;
  * Typedef interface for {@link IAnalyzeResults} with Spoofax interfaces.
  */
 public interface ISpoofaxAnalyzeResults extends IAnalyzeResults<ISpoofaxAnalyzeUnit, ISpoofaxAnalyzeUnitUpdate> {
-
+    /**
+     * @return Affected partitions, debug data, and timing data of the analysis, or null if the results were not
+     *         produced by the task engine analyzer, or if the analysis did not produce valid data.
+     */
+    @Nullable TaskEngineAnalyzerData taskEngineData();
 }
@@ -2,8 +2,11 @@ package org.metaborg.spoofax.core.analysis;
 
 import java.util.Collection;
 
+import javax.annotation.Nullable;
+
 import org.metaborg.core.analysis.AnalyzeResults;
 import org.metaborg.core.context.IContext;
+import org.metaborg.spoofax.core.analysis.taskengine.TaskEngineAnalyzerData;
 import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnitUpdate;
 
@@ -12,16 +15,32 @@ import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnitUpdate;
  */
 public class SpoofaxAnalyzeResults extends AnalyzeResults<ISpoofaxAnalyzeUnit, ISpoofaxAnalyzeUnitUpdate>
     implements ISpoofaxAnalyzeResults {
+    private final @Nullable TaskEngineAnalyzerData taskEngineData;
+
+
     public SpoofaxAnalyzeResults(Collection<ISpoofaxAnalyzeUnit> results, Collection<ISpoofaxAnalyzeUnitUpdate> updates,
-        IContext context) {
+        IContext context, @Nullable TaskEngineAnalyzerData taskEngineData) {
         super(results, updates, context);
+        this.taskEngineData = taskEngineData;
+    }
+
+    public SpoofaxAnalyzeResults(Collection<ISpoofaxAnalyzeUnit> results, Collection<ISpoofaxAnalyzeUnitUpdate> updates,
+        IContext context) {
+        this(results, updates, context, null);
     }
 
     public SpoofaxAnalyzeResults(Collection<ISpoofaxAnalyzeUnit> results, IContext context) {
         super(results, context);
+        this.taskEngineData = null;
     }
 
     public SpoofaxAnalyzeResults(IContext context) {
         super(context);
+        this.taskEngineData = null;
+    }
+
+
+    @Override public @Nullable TaskEngineAnalyzerData taskEngineData() {
+        return taskEngineData;
     }
 }
@@ -11,6 +11,7 @@ import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.messages.IMessage;
 import org.metaborg.core.messages.MessageFactory;
 import org.metaborg.core.messages.MessageSeverity;
+import org.metaborg.core.project.IProject;
 import org.metaborg.core.source.ISourceLocation;
 import org.metaborg.spoofax.core.analysis.AnalysisCommon;
 import org.metaborg.spoofax.core.analysis.AnalysisFacet;
@@ -46,6 +47,7 @@ abstract class AbstractConstraintAnalyzer<C extends ISpoofaxScopeGraphContext<?>
     protected final IStrategoRuntimeService runtimeService;
     protected final IStrategoCommon strategoCommon;
     protected final ISpoofaxTracingService tracingService;
+    protected final ITermFactoryService termFactoryService;
 
     protected final ITermFactory termFactory;
     protected final IStrategoConstructor analyzeInitial;
@@ -60,6 +62,7 @@ abstract class AbstractConstraintAnalyzer<C extends ISpoofaxScopeGraphContext<?>
         this.runtimeService = runtimeService;
         this.strategoCommon = strategoCommon;
         this.tracingService = tracingService;
+        this.termFactoryService = termFactoryService;
         termFactory = termFactoryService.getGeneric();
         analyzeInitial = termFactory.makeConstructor("AnalyzeInitial", 1);
         analyzeUnit = termFactory.makeConstructor("AnalyzeUnit", 3);
@@ -135,6 +138,18 @@ abstract class AbstractConstraintAnalyzer<C extends ISpoofaxScopeGraphContext<?>
         }
     }
 
+    /**
+     * Shares structurally equal subterms of given analysis result, if enabled in the configuration of the project of
+     * given context.
+     */
+    protected IStrategoTerm share(IStrategoTerm result, ISpoofaxScopeGraphContext<?> context) {
+        final IProject project = context.project();
+        if (project == null || project.config() == null || !project.config().termSharing()) {
+            return result;
+        }
+        return termFactoryService.share(result);
+    }
+
     protected Multimap<String,IMessage> messages(IStrategoTerm messageList, MessageSeverity severity) {
         Multimap<String,IMessage> messages = HashMultimap.create();
         for (IStrategoTerm messageTerm : messageList) {
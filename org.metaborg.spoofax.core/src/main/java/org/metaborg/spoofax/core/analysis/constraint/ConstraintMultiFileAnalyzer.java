@@ -78,7 +78,7 @@ public class ConstraintMultiFileAnalyzer extends AbstractConstraintAnalyzer<IMul
             } catch (MetaborgException e) {
                 throw new AnalysisException(context, "Initial analysis failed.", e);
             }
-            globalUnit.setPartialAnalysis(initialResult.solution);
+            globalUnit.setPartialAnalysis(share(initialResult.solution, context));
         }
 
         for (String input : removed.keySet()) {
@@ -105,7 +105,7 @@ public class ConstraintMultiFileAnalyzer extends AbstractConstraintAnalyzer<IMul
                 unitResult = UnitResult.fromTerm(unitResultTerm);
                 astsByFile.put(source, unitResult.ast);
                 ambiguitiesByFile.putAll(source, analysisCommon.ambiguityMessages(parseUnit.source(), unitResult.ast));
-                unit.setPartialAnalysis(unitResult.solution);
+                unit.setPartialAnalysis(share(unitResult.solution, context));
             } catch (MetaborgException e) {
                 logger.warn("Skipping {}, because analysis failed\n{}", source, e.getCause());
             }
@@ -126,7 +126,7 @@ public class ConstraintMultiFileAnalyzer extends AbstractConstraintAnalyzer<IMul
                 globalUnit.partialAnalysis(), termFactory.makeList(unitSolutions)), context, runtime);
         FinalResult finalResult;
         try {
-            finalResult = FinalResult.fromTerm(finalResultTerm);
+            finalResult = FinalResult.fromTerm(share(finalResultTerm, context));
         } catch (MetaborgException e) {
             throw new AnalysisException(context, "Final analysis failed.", e);
         }
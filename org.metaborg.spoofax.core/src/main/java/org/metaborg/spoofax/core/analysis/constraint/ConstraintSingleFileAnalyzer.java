@@ -83,7 +83,7 @@ public class ConstraintSingleFileAnalyzer extends AbstractConstraintAnalyzer<ISi
 
                 IStrategoTerm finalResultTerm = doAction(strategy, termFactory.makeAppl(analyzeFinal, sourceTerm,
                         initialResult.solution, termFactory.makeList(unitResult.solution)), context, runtime);
-                FinalResult finalResult = FinalResult.fromTerm(finalResultTerm);
+                FinalResult finalResult = FinalResult.fromTerm(share(finalResultTerm, context));
                 unit.setScopeGraph(finalResult.scopeGraph);
                 unit.setNameResolution(finalResult.nameResolution);
                 unit.setOccurrenceTypes(finalResult.occurrenceTypes);
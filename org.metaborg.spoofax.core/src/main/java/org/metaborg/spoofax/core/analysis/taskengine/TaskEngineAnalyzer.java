@@ -1,7 +1,9 @@
 package org.metaborg.spoofax.core.analysis.taskengine;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -14,6 +16,9 @@ import org.metaborg.core.language.FacetContribution;
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.messages.IMessage;
 import org.metaborg.core.messages.MessageSeverity;
+import org.metaborg.core.metrics.BuildCounter;
+import org.metaborg.core.metrics.BuildPhase;
+import org.metaborg.core.metrics.IBuildMetrics;
 import org.metaborg.core.resource.IResourceService;
 import org.metaborg.spoofax.core.analysis.AnalysisCommon;
 import org.metaborg.spoofax.core.analysis.AnalysisFacet;
@@ -37,12 +42,14 @@ import org.metaborg.util.log.LoggerUtils;
 import org.spoofax.interpreter.core.Tools;
 import org.spoofax.interpreter.terms.IStrategoAppl;
 import org.spoofax.interpreter.terms.IStrategoConstructor;
+import org.spoofax.interpreter.terms.IStrategoList;
 import org.spoofax.interpreter.terms.IStrategoReal;
 import org.spoofax.interpreter.terms.IStrategoString;
 import org.spoofax.interpreter.terms.IStrategoTerm;
 import org.spoofax.interpreter.terms.ITermFactory;
 import org.strategoxt.HybridInterpreter;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
@@ -62,18 +69,20 @@ public class TaskEngineAnalyzer implements ISpoofaxAnalyzer {
 
     private final IStrategoCommon strategoCommon;
     private final AnalysisCommon analysisCommon;
+    private final IBuildMetrics metrics;
     private final IStrategoConstructor fileCons;
 
 
     @Inject public TaskEngineAnalyzer(IResourceService resourceService, ISpoofaxUnitService unitService,
         ITermFactoryService termFactoryService, IStrategoRuntimeService runtimeService, IStrategoCommon strategoCommon,
-        AnalysisCommon analysisCommon) {
+        AnalysisCommon analysisCommon, IBuildMetrics metrics) {
         this.resourceService = resourceService;
         this.unitService = unitService;
         this.termFactoryService = termFactoryService;
         this.runtimeService = runtimeService;
         this.strategoCommon = strategoCommon;
         this.analysisCommon = analysisCommon;
+        this.metrics = metrics;
 
         this.fileCons = termFactoryService.getGeneric().makeConstructor("File", 3);
     }
@@ -178,16 +187,48 @@ public class TaskEngineAnalyzer implements ISpoofaxAnalyzer {
             updateResults.add(updateResult);
         }
 
-        // Currently unused debugging and performance data.
-        // final IStrategoTerm affectedPartitionsTerm = resultTerm.getSubterm(2);
-        // final IStrategoTerm debugResultTerm = resultTerm.getSubterm(3);
-        // final IStrategoTerm timeResultTerm = resultTerm.getSubterm(4);
-        // final Collection<String> affectedPartitions = affectedPartitions(affectedPartitionsTerm);
-        // final AnalysisDebugResult debugResult = debugResult(debugResultTerm);
-        // final AnalysisTimeResult timeResult = timeResult(timeResultTerm);
-        // final TaskEngineAnalyzerData data = new TaskEngineAnalyzerData(affectedPartitions, debugResult, timeResult);
+        final TaskEngineAnalyzerData data = data(resultTerm);
+        if(data != null) {
+            record(data, context);
+        }
+
+        return new SpoofaxAnalyzeResults(fileResults, updateResults, context, data);
+    }
+
+    private @Nullable TaskEngineAnalyzerData data(IStrategoTerm resultTerm) {
+        try {
+            final Collection<String> affectedPartitions = affectedPartitions(resultTerm.getSubterm(2));
+            final AnalysisDebugResult debugResult = debugResult(resultTerm.getSubterm(3));
+            final AnalysisTimeResult timeResult = timeResult(resultTerm.getSubterm(4));
+            return new TaskEngineAnalyzerData(affectedPartitions, debugResult, timeResult);
+        } catch(RuntimeException e) {
+            // Debugging and performance data is optional, do not fail the analysis when it has an unexpected shape.
+            logger.warn("Unexpected debugging and performance data from analysis, ignoring", e);
+            return null;
+        }
+    }
 
-        return new SpoofaxAnalyzeResults(fileResults, updateResults, context);
+    private void record(TaskEngineAnalyzerData data, IContext context) {
+        final String key = context.location().getName().getURI();
+
+        final AnalysisTimeResult time = data.timeResult;
+        metrics.record(BuildPhase.TaskEnginePreTransform, key, TimeUnit.MILLISECONDS.toNanos(time.preTrans));
+        metrics.record(BuildPhase.TaskEngineCollect, key, TimeUnit.MILLISECONDS.toNanos(time.collect));
+        metrics.record(BuildPhase.TaskEngineEvaluate, key, TimeUnit.MILLISECONDS.toNanos(time.taskEval));
+        metrics.record(BuildPhase.TaskEnginePostTransform, key, TimeUnit.MILLISECONDS.toNanos(time.postTrans));
+        metrics.record(BuildPhase.TaskEngineIndexPersist, key, TimeUnit.MILLISECONDS.toNanos(time.indexPersist));
+        metrics.record(BuildPhase.TaskEngineTaskPersist, key, TimeUnit.MILLISECONDS.toNanos(time.taskPersist));
+
+        final AnalysisDebugResult debug = data.debugResult;
+        metrics.count(BuildCounter.AffectedPartitions, key, Iterables.size(data.affectedPartitions));
+        metrics.count(BuildCounter.IndexEntriesAdded, key, debug.indexEntriesAdded);
+        metrics.count(BuildCounter.IndexEntriesRemoved, key, debug.indexEntriesRemoved);
+        metrics.count(BuildCounter.TasksAdded, key, debug.tasksAdded);
+        metrics.count(BuildCounter.TasksRemoved, key, debug.tasksRemoved);
+        metrics.count(BuildCounter.TasksInvalidated, key, debug.tasksInvalidated);
+        metrics.count(BuildCounter.TasksEvaluated, key, debug.evaluatedTasks.size());
+        metrics.count(BuildCounter.TasksSkipped, key, debug.skippedTasks.size());
+        metrics.count(BuildCounter.TasksUnevaluated, key, debug.unevaluatedTasks.size());
     }
 
     private @Nullable ISpoofaxAnalyzeUnit result(IStrategoTerm result, Map<String, ISpoofaxParseUnit> inputsPerSource,
@@ -252,7 +293,6 @@ public class TaskEngineAnalyzer implements ISpoofaxAnalyzer {
         return unitService.analyzeUnitUpdate(source, new AnalyzeUpdateData(messages), context);
     }
 
-    /* Currently unused debugging and performance data. @formatter:off
     private Collection<String> affectedPartitions(IStrategoTerm affectedTerm) {
         final Collection<String> affected = new ArrayList<>(affectedTerm.getSubtermCount());
         for(IStrategoTerm partition : affectedTerm) {
@@ -276,5 +316,4 @@ public class TaskEngineAnalyzer implements ISpoofaxAnalyzer {
             (long) Tools.asJavaDouble(time.getSubterm(3)), (long) Tools.asJavaDouble(time.getSubterm(4)),
             (long) Tools.asJavaDouble(time.getSubterm(5)), (long) Tools.asJavaDouble(time.getSubterm(6)));
     }
-    @formatter:on */
 }
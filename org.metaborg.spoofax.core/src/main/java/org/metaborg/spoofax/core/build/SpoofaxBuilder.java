@@ -2,9 +2,10 @@ package org.metaborg.spoofax.core.build;
 
 import org.metaborg.core.build.Builder;
 import org.metaborg.core.build.IBuildOutputInternal;
-import org.metaborg.core.build.paths.ILanguagePathService;
 import org.metaborg.core.context.IContextService;
 import org.metaborg.core.language.ILanguageIdentifierService;
+import org.metaborg.core.metrics.IBuildMetrics;
+import org.metaborg.core.resource.IFileTreeScanner;
 import org.metaborg.core.resource.IResourceService;
 import org.metaborg.core.source.ISourceTextService;
 import org.metaborg.spoofax.core.analysis.ISpoofaxAnalysisService;
@@ -28,14 +29,15 @@ import com.google.inject.Provider;
 public class SpoofaxBuilder extends
     Builder<ISpoofaxInputUnit, ISpoofaxParseUnit, ISpoofaxAnalyzeUnit, ISpoofaxAnalyzeUnitUpdate, ISpoofaxTransformUnit<?>, ISpoofaxTransformUnit<ISpoofaxParseUnit>, ISpoofaxTransformUnit<ISpoofaxAnalyzeUnit>>
     implements ISpoofaxBuilder {
-    @Inject public SpoofaxBuilder(IResourceService resourceService, ILanguageIdentifierService languageIdentifier,
-        ILanguagePathService languagePathService, ISpoofaxUnitService unitService, ISourceTextService sourceTextService,
-        ISpoofaxSyntaxService syntaxService, IContextService contextService, ISpoofaxAnalysisService analysisService,
-        ISpoofaxTransformService transformService, ISpoofaxParseResultUpdater parseResultUpdater,
-        ISpoofaxAnalysisResultUpdater analysisResultUpdater,
+    @Inject public SpoofaxBuilder(IResourceService resourceService, IFileTreeScanner fileTreeScanner,
+        ILanguageIdentifierService languageIdentifier, ISpoofaxUnitService unitService,
+        ISourceTextService sourceTextService, ISpoofaxSyntaxService syntaxService, IContextService contextService,
+        ISpoofaxAnalysisService analysisService, ISpoofaxTransformService transformService,
+        ISpoofaxParseResultUpdater parseResultUpdater, ISpoofaxAnalysisResultUpdater analysisResultUpdater,
+        IBuildMetrics metrics,
         Provider<IBuildOutputInternal<ISpoofaxParseUnit, ISpoofaxAnalyzeUnit, ISpoofaxAnalyzeUnitUpdate, ISpoofaxTransformUnit<?>>> buildOutputProvider) {
-        super(resourceService, languageIdentifier, languagePathService, unitService, sourceTextService, syntaxService,
-            contextService, analysisService, transformService, parseResultUpdater, analysisResultUpdater,
+        super(resourceService, fileTreeScanner, languageIdentifier, unitService, sourceTextService, syntaxService,
+            contextService, analysisService, transformService, parseResultUpdater, analysisResultUpdater, metrics,
             buildOutputProvider);
     }
 }
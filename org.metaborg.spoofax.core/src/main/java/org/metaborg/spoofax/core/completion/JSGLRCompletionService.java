@@ -187,30 +187,27 @@ public class JSGLRCompletionService implements ISpoofaxCompletionService {
 
 
     private boolean isCompletionBlankLine(int position, String text) {
-        int i = position - 1;
-        while(i >= 0) {
-            if(text.charAt(i) == '\n') {
-                break;
-            } else if(text.charAt(i) == ' ' || text.charAt(i) == '\t') {
-                i--;
-                continue;
-            } else
+        // Only scan the current line, the line index of a fresh input unit would scan the whole text.
+        for(int i = position - 1; i >= 0 && !isLineTerminator(text, i); --i) {
+            if(text.charAt(i) != ' ' && text.charAt(i) != '\t') {
                 return false;
+            }
         }
-        i = position;
-        while(i < text.length()) {
-            if(text.charAt(i) == '\n') {
-                break;
-            } else if(text.charAt(i) == ' ' || text.charAt(i) == '\t') {
-                i++;
-                continue;
-            } else
+        for(int i = position; i < text.length() && !isLineTerminator(text, i); ++i) {
+            if(text.charAt(i) != ' ' && text.charAt(i) != '\t') {
                 return false;
+            }
         }
 
         return true;
     }
 
+    private static boolean isLineTerminator(String text, int i) {
+        final char c = text.charAt(i);
+        // A carriage return is only part of the terminator when a line feed follows, as in LineIndex.
+        return c == '\n' || c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n';
+    }
+
     public Collection<ICompletion> completionCorrectPrograms(int position, boolean blankLineCompletion,
         ISpoofaxParseUnit parseResult) throws MetaborgException {
 
@@ -4,12 +4,22 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import javax.annotation.Nullable;
+
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.provider.local.LocalFile;
 import org.metaborg.core.build.CommonPaths;
 import org.metaborg.core.context.ContextIdentifier;
 import org.metaborg.core.context.IContextInternal;
@@ -21,9 +31,20 @@ import org.metaborg.util.file.FileUtils;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 import com.google.inject.Injector;
 
-abstract class AbstractScopeGraphContext<S extends Serializable> implements IContextInternal {
+/**
+ * Scope graph context that persists its state in segments: one segment for the global state and the index of units,
+ * and one segment per unit. The global segment is loaded on the first read or write, units are loaded on demand, and
+ * only changed segments are written back when persisting.
+ */
+abstract class AbstractScopeGraphContext<S extends Serializable, U extends AbstractScopeGraphUnit>
+        implements IContextInternal {
 
     private static final ILogger logger = LoggerUtils.logger(AbstractScopeGraphContext.class);
 
@@ -33,6 +54,12 @@ abstract class AbstractScopeGraphContext<S extends Serializable> implements ICon
     private final ReadWriteLock lock;
 
     protected S state = null;
+    private boolean stateChanged;
+
+    // Units are loaded on demand under read locks, all access to the index and loaded units is synchronized on units.
+    private final Map<String,U> units = Maps.newHashMap();
+    private final Set<String> unitIndex = Sets.newLinkedHashSet();
+    private final Set<String> removedUnits = Sets.newHashSet();
 
     public AbstractScopeGraphContext(Injector injector, ContextIdentifier identifier) {
         this.identifier = identifier;
@@ -61,7 +88,7 @@ abstract class AbstractScopeGraphContext<S extends Serializable> implements ICon
         if (state == null) {
             try (IClosableLock lock = writeLock()) {
                 if (state == null) {
-                    state = loadOrInitState();
+                    loadOrInitState();
                 }
             }
         }
@@ -77,7 +104,7 @@ abstract class AbstractScopeGraphContext<S extends Serializable> implements ICon
     @Override public IClosableLock write() {
         final IClosableLock lock = writeLock();
         if (state == null) {
-            state = loadOrInitState();
+            loadOrInitState();
         }
         return lock;
     }
@@ -102,7 +129,7 @@ abstract class AbstractScopeGraphContext<S extends Serializable> implements ICon
         try (IClosableLock lock = writeLock()) {
             if (state != null) {
                 // state.reset()
-                state = null;
+                clearState();
             }
         }
     }
@@ -116,7 +143,9 @@ abstract class AbstractScopeGraphContext<S extends Serializable> implements ICon
             return;
         }
         try (IClosableLock lock = writeLock()) {
+            clearState();
             state = initState();
+            stateChanged = true;
         }
     }
 
@@ -125,7 +154,7 @@ abstract class AbstractScopeGraphContext<S extends Serializable> implements ICon
             return;
         }
         try (IClosableLock lock = writeLock()) {
-            state = loadOrInitState();
+            loadOrInitState();
         }
     }
 
@@ -134,64 +163,270 @@ abstract class AbstractScopeGraphContext<S extends Serializable> implements ICon
             return;
         }
         try (IClosableLock lock = writeLock()) {
+            clearState();
+        }
+    }
+
+
+    protected abstract S initState();
+
+    protected abstract U initUnit(String resource);
+
+    /**
+     * Called when a unit is loaded from its segment, to attach it to this context.
+     */
+    protected void unitLoaded(U unit) {
+    }
+
+    /**
+     * Marks the global state as changed, such that it is persisted.
+     */
+    protected void stateChanged() {
+        stateChanged = true;
+    }
+
+    /**
+     * Gets the unit for given resource, loading it from its segment if needed, or creating it if it does not exist.
+     */
+    protected U loadUnit(String resource) {
+        synchronized (units) {
+            U unit = units.get(resource);
+            if (unit != null) {
+                return unit;
+            }
+            if (unitIndex.contains(resource)) {
+                unit = readUnit(resource);
+            }
+            if (unit == null) {
+                unit = initUnit(resource);
+                if (unitIndex.add(resource)) {
+                    stateChanged = true;
+                }
+                removedUnits.remove(resource);
+            }
+            units.put(resource, unit);
+            return unit;
+        }
+    }
+
+    /**
+     * Gets all units, loading the ones that were not loaded yet from their segments.
+     */
+    protected Collection<U> loadUnits() {
+        synchronized (units) {
+            final List<U> allUnits = Lists.newArrayListWithCapacity(unitIndex.size());
+            for (String resource : Lists.newArrayList(unitIndex)) {
+                allUnits.add(loadUnit(resource));
+            }
+            return allUnits;
+        }
+    }
+
+    /**
+     * Removes the unit for given resource, and its segment when persisting.
+     */
+    protected void deleteUnit(String resource) {
+        synchronized (units) {
+            units.remove(resource);
+            if (unitIndex.remove(resource)) {
+                removedUnits.add(resource);
+                stateChanged = true;
+            }
+        }
+    }
+
+
+    private void clearState() {
+        synchronized (units) {
             state = null;
+            stateChanged = false;
+            units.clear();
+            unitIndex.clear();
+            removedUnits.clear();
         }
     }
 
-    private S loadOrInitState() {
+    private void loadOrInitState() {
+        clearState();
         try {
-            final FileObject contextFile = contextFile();
+            final FileObject stateFile = stateFile();
             try {
-                if (contextFile.exists()) {
-                    return readContext(contextFile);
+                if (stateFile.exists()) {
+                    readState(stateFile);
+                    return;
                 }
-            } catch (IOException | ClassNotFoundException e) {
-                logger.warn("Load context {} failed.", contextFile, e);
-                deleteContextFile(contextFile);
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                logger.warn("Load context {} failed.", stateFile, e);
+                clearState();
+                deleteFile(stateFile);
+            }
+            // Context persisted in a single file by an older version, which cannot be loaded in segments.
+            final FileObject legacyFile = legacyContextFile();
+            if (legacyFile.exists()) {
+                deleteFile(legacyFile);
             }
         } catch (IOException e) {
             logger.warn("Failed to locate context.", e);
         }
-        return initState();
+        state = initState();
+        stateChanged = true;
     }
 
-    protected abstract S initState();
-
-    private FileObject contextFile() throws FileSystemException {
+    private FileObject analysisDir() throws FileSystemException {
         final CommonPaths paths = new CommonPaths(identifier.location);
-        return paths.targetDir().resolveFile("analysis").resolveFile(persistentIdentifier).resolveFile("scopegraph");
+        return paths.targetDir().resolveFile("analysis").resolveFile(persistentIdentifier);
+    }
+
+    private FileObject legacyContextFile() throws FileSystemException {
+        return analysisDir().resolveFile("scopegraph");
+    }
+
+    private FileObject segmentsDir() throws FileSystemException {
+        return analysisDir().resolveFile("scopegraph-segments");
+    }
+
+    private FileObject stateFile() throws FileSystemException {
+        return segmentsDir().resolveFile("state");
+    }
+
+    private FileObject unitsDir() throws FileSystemException {
+        return segmentsDir().resolveFile("units");
     }
 
-    @SuppressWarnings("unchecked") private S readContext(FileObject file) throws IOException, ClassNotFoundException {
+    private FileObject unitFile(String resource) throws FileSystemException {
+        return unitsDir().resolveFile(unitFileName(resource));
+    }
+
+    private static String unitFileName(String resource) {
+        return Hashing.murmur3_128().hashString(resource, Charsets.UTF_8).toString();
+    }
+
+    @SuppressWarnings("unchecked") private void readState(FileObject file) throws IOException, ClassNotFoundException {
         try (ObjectInputStream ois = new ObjectInputStream(file.getContent().getInputStream())) {
-            S fileState = (S) ois.readObject();
+            final S fileState = (S) ois.readObject();
             if (fileState == null) {
                 throw new IOException("Context file contains null.");
             }
-            return fileState;
+            final List<String> fileUnitIndex = (List<String>) ois.readObject();
+            synchronized (units) {
+                state = fileState;
+                unitIndex.addAll(fileUnitIndex);
+            }
         }
     }
 
-    private void persistState() {
+    @SuppressWarnings("unchecked") private @Nullable U readUnit(String resource) {
         try {
-            final FileObject contextFile = contextFile();
+            final FileObject unitFile = unitFile(resource);
+            try (ObjectInputStream ois = new ObjectInputStream(unitFile.getContent().getInputStream())) {
+                final U unit = (U) ois.readObject();
+                if (unit == null || !resource.equals(unit.resource())) {
+                    throw new IOException("Unit file does not contain unit " + resource);
+                }
+                unitLoaded(unit);
+                return unit;
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                logger.warn("Load unit {} from context {} failed.", resource, unitFile, e);
+                deleteFile(unitFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to locate unit {} of context.", resource, e);
+        }
+        return null;
+    }
+
+    private void persistState() {
+        synchronized (units) {
             try {
-                writeContext(contextFile);
+                for (U unit : units.values()) {
+                    if (unit.isChanged()) {
+                        writeUnit(unit);
+                    }
+                }
+                for (String resource : removedUnits) {
+                    deleteFile(unitFile(resource));
+                }
+                removedUnits.clear();
+                if (stateChanged) {
+                    writeState(stateFile());
+                    deleteUnindexedUnitFiles();
+                    stateChanged = false;
+                }
             } catch (IOException e) {
-                logger.warn("Store context {} failed.", contextFile, e);
+                logger.warn("Failed to locate context.", e);
+            }
+        }
+    }
+
+    private void writeState(FileObject file) {
+        try {
+            writeSegment(file, state, Lists.newArrayList(unitIndex));
+        } catch (IOException e) {
+            logger.warn("Store context {} failed.", file, e);
+        }
+    }
+
+    private void writeUnit(U unit) throws FileSystemException {
+        final FileObject file = unitFile(unit.resource());
+        try {
+            writeSegment(file, unit);
+            unit.persisted();
+        } catch (IOException e) {
+            logger.warn("Store unit {} to context {} failed.", unit.resource(), file, e);
+        }
+    }
+
+    /**
+     * Writes given objects to a temporary file and moves it over given segment, such that a segment is never partially
+     * written when writing fails or the process is killed.
+     */
+    private void writeSegment(FileObject file, Object... objects) throws IOException {
+        final FileObject tempFile = file.getParent().resolveFile(file.getName().getBaseName() + ".tmp");
+        try (ObjectOutputStream oos = new ObjectOutputStream(tempFile.getContent().getOutputStream())) {
+            for (Object object : objects) {
+                oos.writeObject(object);
             }
         } catch (IOException e) {
-            logger.warn("Failed to locate context.", e);
+            deleteFile(tempFile);
+            throw e;
+        }
+        moveFile(tempFile, file);
+    }
+
+    private static void moveFile(FileObject source, FileObject target) throws IOException {
+        if (source instanceof LocalFile && target instanceof LocalFile) {
+            try {
+                Files.move(FileUtils.toFile(source).toPath(), FileUtils.toFile(target).toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return;
+            } catch (AtomicMoveNotSupportedException e) {
+                logger.debug("Cannot atomically move {} to {}, moving non-atomically.", source, target, e);
+            }
         }
+        source.moveTo(target);
     }
 
-    private void writeContext(FileObject file) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(file.getContent().getOutputStream())) {
-            oos.writeObject(state);
+    /**
+     * Deletes unit segments that are not in the index, for example when the context was initialized instead of
+     * loaded.
+     */
+    private void deleteUnindexedUnitFiles() throws FileSystemException {
+        final FileObject unitsDir = unitsDir();
+        if (!unitsDir.exists()) {
+            return;
+        }
+        final Set<String> indexedFileNames = Sets.newHashSetWithExpectedSize(unitIndex.size());
+        for (String resource : unitIndex) {
+            indexedFileNames.add(unitFileName(resource));
+        }
+        for (FileObject file : unitsDir.getChildren()) {
+            if (!indexedFileNames.contains(file.getName().getBaseName())) {
+                deleteFile(file);
+            }
         }
     }
 
-    private void deleteContextFile(FileObject file) {
+    private void deleteFile(FileObject file) {
         try {
             file.delete();
         } catch (FileSystemException e) {
@@ -213,7 +448,7 @@ abstract class AbstractScopeGraphContext<S extends Serializable> implements ICon
             return false;
         if (getClass() != obj.getClass())
             return false;
-        @SuppressWarnings("unchecked") AbstractScopeGraphContext<S> other = (AbstractScopeGraphContext<S>) obj;
+        @SuppressWarnings("unchecked") AbstractScopeGraphContext<S, U> other = (AbstractScopeGraphContext<S, U>) obj;
         if (!identifier.equals(other.identifier))
             return false;
         return true;
@@ -0,0 +1,38 @@
+package org.metaborg.spoofax.core.context.scopegraph;
+
+import java.io.Serializable;
+
+/**
+ * Unit of a scope graph context, which is persisted in its own segment such that it can be loaded on demand.
+ * Implementations call {@link #changed()} when they are modified, such that only changed units are persisted.
+ */
+abstract class AbstractScopeGraphUnit implements Serializable {
+
+    private static final long serialVersionUID = 4562911785375262016L;
+
+    private final String resource;
+
+    // Not serialized, such that loaded units are unchanged, and new units are changed.
+    private transient boolean changed = true;
+
+    protected AbstractScopeGraphUnit(String resource) {
+        this.resource = resource;
+    }
+
+    public String resource() {
+        return resource;
+    }
+
+    protected void changed() {
+        changed = true;
+    }
+
+    boolean isChanged() {
+        return changed;
+    }
+
+    void persisted() {
+        changed = false;
+    }
+
+}
@@ -2,7 +2,7 @@ package org.metaborg.spoofax.core.context.scopegraph;
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.Map;
+import java.util.Collections;
 
 import javax.annotation.Nullable;
 
@@ -12,12 +12,12 @@ import org.metaborg.scopegraph.IScopeGraph;
 import org.metaborg.scopegraph.impl.ASTMetadata;
 import org.metaborg.scopegraph.impl.OccurrenceTypes;
 import org.metaborg.spoofax.core.context.scopegraph.MultiFileScopeGraphContext.State;
+import org.metaborg.spoofax.core.context.scopegraph.MultiFileScopeGraphContext.Unit;
 import org.spoofax.interpreter.terms.IStrategoTerm;
 
-import com.google.common.collect.Maps;
 import com.google.inject.Injector;
 
-public class MultiFileScopeGraphContext extends AbstractScopeGraphContext<State>
+public class MultiFileScopeGraphContext extends AbstractScopeGraphContext<State, Unit>
         implements IMultiFileScopeGraphContext {
 
     public MultiFileScopeGraphContext(Injector injector, ContextIdentifier identifier) {
@@ -28,51 +28,59 @@ public class MultiFileScopeGraphContext extends AbstractScopeGraphContext<State>
         return new State();
     }
 
+    @Override protected Unit initUnit(String resource) {
+        return new Unit(resource, state);
+    }
+
+    @Override protected void unitLoaded(Unit unit) {
+        unit.state = state;
+    }
+
     @Override public IMultiFileScopeGraphUnit unit(String resource) {
-        IMultiFileScopeGraphUnit unit;
-        if ((unit = state.units.get(resource)) == null) {
-            state.units.put(resource, (unit = state.new Unit(resource)));
-        }
-        return unit;
+        return loadUnit(resource);
     }
 
     @Override public void removeUnit(String resource) {
-        state.units.remove(resource);
+        deleteUnit(resource);
     }
 
     @Override public Collection<IMultiFileScopeGraphUnit> units() {
-        return state.units.values();
+        return Collections.<IMultiFileScopeGraphUnit>unmodifiableCollection(loadUnits());
     }
 
     @Override public void setScopeGraph(IScopeGraph scopeGraph) {
         state.scopeGraph = scopeGraph;
+        stateChanged();
     }
 
     @Override public void setNameResolution(INameResolution nameResolution) {
         state.nameResolution = nameResolution;
+        stateChanged();
     }
 
     @Override public void setAstMetadata(ASTMetadata astMetadata) {
         state.astMetadata = astMetadata;
+        stateChanged();
     }
     
     @Override public void setOccurrenceTypes(OccurrenceTypes occurrenceTypes) {
         state.occurrenceTypes = occurrenceTypes;
+        stateChanged();
     }
     
     @Override public void setAnalysis(IStrategoTerm analysis) {
         state.analysis = analysis;
+        stateChanged();
     }
 
     @Override public void clear() {
         state.clear();
+        stateChanged();
     }
 
     static class State implements Serializable {
 
-        private static final long serialVersionUID = -8133657561476824164L;
-
-        final Map<String,IMultiFileScopeGraphUnit> units = Maps.newHashMap();
+        private static final long serialVersionUID = -8133657561476824165L;
 
         @Nullable IStrategoTerm analysis;
         @Nullable INameResolution nameResolution;
@@ -86,56 +94,56 @@ public class MultiFileScopeGraphContext extends AbstractScopeGraphContext<State>
             scopeGraph = null;
         }
 
-        class Unit implements IMultiFileScopeGraphUnit {
-
-            private static final long serialVersionUID = 1176844388074495439L;
+    }
 
-            private final String resource;
+    static class Unit extends AbstractScopeGraphUnit implements IMultiFileScopeGraphUnit {
 
-            private @Nullable IStrategoTerm partialAnalysis;
+        private static final long serialVersionUID = 1176844388074495440L;
 
-            private Unit(String resource) {
-                this.resource = resource;
-            }
+        // Global state is persisted in its own segment, and attached when the unit is loaded.
+        private transient State state;
 
-            @Override public String resource() {
-                return resource;
-            }
+        private @Nullable IStrategoTerm partialAnalysis;
 
-            @Override public IStrategoTerm partialAnalysis() {
-                return partialAnalysis;
-            }
+        private Unit(String resource, State state) {
+            super(resource);
+            this.state = state;
+        }
 
-            @Override public IScopeGraph scopeGraph() {
-                return scopeGraph;
-            }
+        @Override public IStrategoTerm partialAnalysis() {
+            return partialAnalysis;
+        }
 
-            @Override public INameResolution nameResolution() {
-                return nameResolution;
-            }
+        @Override public IScopeGraph scopeGraph() {
+            return state.scopeGraph;
+        }
 
-            @Override public ASTMetadata astMetadata() {
-                return astMetadata;
-            }
-            
-            @Override public OccurrenceTypes occurrenceTypes() {
-                return occurrenceTypes;
-            }
-            
-            @Override public IStrategoTerm analysis() {
-                return analysis;
-            }
+        @Override public INameResolution nameResolution() {
+            return state.nameResolution;
+        }
 
-            @Override public void setPartialAnalysis(IStrategoTerm partialAnalysis) {
-                this.partialAnalysis = partialAnalysis;
-            }
+        @Override public ASTMetadata astMetadata() {
+            return state.astMetadata;
+        }
+        
+        @Override public OccurrenceTypes occurrenceTypes() {
+            return state.occurrenceTypes;
+        }
+        
+        @Override public IStrategoTerm analysis() {
+            return state.analysis;
+        }
 
-            @Override public void reset() {
-                this.partialAnalysis = null;
-            }
+        @Override public void setPartialAnalysis(IStrategoTerm partialAnalysis) {
+            this.partialAnalysis = partialAnalysis;
+            changed();
+        }
 
+        @Override public void reset() {
+            this.partialAnalysis = null;
+            changed();
         }
 
     }
 
-}
\ No newline at end of file
+}
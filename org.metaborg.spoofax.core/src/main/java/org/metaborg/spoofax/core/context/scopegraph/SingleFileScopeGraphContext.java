@@ -2,7 +2,7 @@ package org.metaborg.spoofax.core.context.scopegraph;
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.Map;
+import java.util.Collections;
 
 import javax.annotation.Nullable;
 
@@ -12,12 +12,12 @@ import org.metaborg.scopegraph.IScopeGraph;
 import org.metaborg.scopegraph.impl.ASTMetadata;
 import org.metaborg.scopegraph.impl.OccurrenceTypes;
 import org.metaborg.spoofax.core.context.scopegraph.SingleFileScopeGraphContext.State;
+import org.metaborg.spoofax.core.context.scopegraph.SingleFileScopeGraphContext.Unit;
 import org.spoofax.interpreter.terms.IStrategoTerm;
 
-import com.google.common.collect.Maps;
 import com.google.inject.Injector;
 
-public class SingleFileScopeGraphContext extends AbstractScopeGraphContext<State>
+public class SingleFileScopeGraphContext extends AbstractScopeGraphContext<State, Unit>
         implements ISingleFileScopeGraphContext {
 
     public SingleFileScopeGraphContext(Injector injector, ContextIdentifier identifier) {
@@ -28,100 +28,101 @@ public class SingleFileScopeGraphContext extends AbstractScopeGraphContext<State
         return new State();
     }
 
+    @Override protected Unit initUnit(String resource) {
+        return new Unit(resource);
+    }
+
     @Override public ISingleFileScopeGraphUnit unit(String resource) {
-        ISingleFileScopeGraphUnit unit;
-        if ((unit = state.units.get(resource)) == null) {
-            state.units.put(resource, (unit = state.new Unit(resource)));
-        }
-        return unit;
+        return loadUnit(resource);
     }
 
     @Override public Collection<ISingleFileScopeGraphUnit> units() {
-        return state.units.values();
+        return Collections.<ISingleFileScopeGraphUnit>unmodifiableCollection(loadUnits());
     }
 
     @Override public void removeUnit(String resource) {
-        state.units.remove(resource);
+        deleteUnit(resource);
     }
 
+    /**
+     * Global state, which is empty since all analysis results are stored per unit.
+     */
     static class State implements Serializable {
 
-        private static final long serialVersionUID = -8878117069378041686L;
-
-        final Map<String,ISingleFileScopeGraphUnit> units = Maps.newHashMap();
-
-        class Unit implements ISingleFileScopeGraphUnit {
+        private static final long serialVersionUID = -8878117069378041687L;
 
-            private static final long serialVersionUID = -2828933828253182233L;
-
-            private final String resource;
+    }
 
-            private @Nullable IScopeGraph scopeGraph;
-            private @Nullable INameResolution nameResolution;
-            private @Nullable ASTMetadata astMetadata;
-            private @Nullable OccurrenceTypes occurrenceTypes;
-            private @Nullable IStrategoTerm analysis;
+    static class Unit extends AbstractScopeGraphUnit implements ISingleFileScopeGraphUnit {
 
-            private Unit(String resource) {
-                this.resource = resource;
-            }
+        private static final long serialVersionUID = -2828933828253182234L;
 
-            @Override public String resource() {
-                return resource;
-            }
+        private @Nullable IScopeGraph scopeGraph;
+        private @Nullable INameResolution nameResolution;
+        private @Nullable ASTMetadata astMetadata;
+        private @Nullable OccurrenceTypes occurrenceTypes;
+        private @Nullable IStrategoTerm analysis;
 
-            @Override public IStrategoTerm partialAnalysis() {
-                return null;
-            }
+        private Unit(String resource) {
+            super(resource);
+        }
 
-            @Override public IScopeGraph scopeGraph() {
-                return scopeGraph;
-            }
+        @Override public IStrategoTerm partialAnalysis() {
+            return null;
+        }
 
-            @Override public INameResolution nameResolution() {
-                return nameResolution;
-            }
+        @Override public IScopeGraph scopeGraph() {
+            return scopeGraph;
+        }
 
-            @Override public ASTMetadata astMetadata() {
-                return astMetadata;
-            }
+        @Override public INameResolution nameResolution() {
+            return nameResolution;
+        }
 
-            @Override public OccurrenceTypes occurrenceTypes() {
-                return occurrenceTypes;
-            }
+        @Override public ASTMetadata astMetadata() {
+            return astMetadata;
+        }
 
-            @Override public IStrategoTerm analysis() {
-                return analysis;
-            }
+        @Override public OccurrenceTypes occurrenceTypes() {
+            return occurrenceTypes;
+        }
 
-            @Override public void setAnalysis(IStrategoTerm analysis) {
-                this.analysis = analysis;
-            }
+        @Override public IStrategoTerm analysis() {
+            return analysis;
+        }
 
-            @Override public void setScopeGraph(IScopeGraph scopeGraph) {
-                this.scopeGraph = scopeGraph;
-            }
+        @Override public void setAnalysis(IStrategoTerm analysis) {
+            this.analysis = analysis;
+            changed();
+        }
 
-            @Override public void setNameResolution(INameResolution nameResolution) {
-                this.nameResolution = nameResolution;
-            }
+        @Override public void setScopeGraph(IScopeGraph scopeGraph) {
+            this.scopeGraph = scopeGraph;
+            changed();
+        }
 
-            @Override public void setAstMetadata(ASTMetadata astMetadata) {
-                this.astMetadata = astMetadata;
-            }
+        @Override public void setNameResolution(INameResolution nameResolution) {
+            this.nameResolution = nameResolution;
+            changed();
+        }
 
-            @Override public void setOccurrenceTypes(OccurrenceTypes occurrenceTypes) {
-                this.occurrenceTypes = occurrenceTypes;
-            }
+        @Override public void setAstMetadata(ASTMetadata astMetadata) {
+            this.astMetadata = astMetadata;
+            changed();
+        }
 
-            @Override public void clear() {
-                this.scopeGraph = null;
-                this.nameResolution = null;
-                this.analysis = null;
-            }
+        @Override public void setOccurrenceTypes(OccurrenceTypes occurrenceTypes) {
+            this.occurrenceTypes = occurrenceTypes;
+            changed();
+        }
 
+        @Override public void clear() {
+            this.scopeGraph = null;
+            this.nameResolution = null;
+            this.analysis = null;
+            changed();
         }
 
     }
 
-}
\ No newline at end of file
+}
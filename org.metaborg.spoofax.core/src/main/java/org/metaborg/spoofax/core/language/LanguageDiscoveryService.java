@@ -1,6 +1,7 @@
 package org.metaborg.spoofax.core.language;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -9,8 +10,6 @@ import javax.annotation.Nullable;
 
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
-import org.apache.commons.vfs2.FileSelectInfo;
-import org.apache.commons.vfs2.FileSelector;
 import org.apache.commons.vfs2.FileSystemException;
 import org.metaborg.core.MetaborgConstants;
 import org.metaborg.core.MetaborgException;
@@ -33,6 +32,8 @@ import org.metaborg.core.language.LanguageIdentifier;
 import org.metaborg.core.language.ResourceExtensionFacet;
 import org.metaborg.core.language.ResourceExtensionsIdentifier;
 import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.resource.FileTreeFilters;
+import org.metaborg.core.resource.IFileTreeScanner;
 import org.metaborg.core.syntax.ParseFacet;
 import org.metaborg.spoofax.core.action.ActionFacet;
 import org.metaborg.spoofax.core.action.ActionFacetFromESV;
@@ -87,6 +88,7 @@ public class LanguageDiscoveryService implements ILanguageDiscoveryService {
     private final ILanguageService languageService;
     private final ILanguageComponentConfigService componentConfigService;
     private final ITermFactoryService termFactoryService;
+    private final IFileTreeScanner fileTreeScanner;
     private final Map<String,IContextFactory> contextFactories;
     private final Map<String,IContextStrategy> contextStrategies;
     private final Map<String,ISpoofaxAnalyzer> analyzers;
@@ -94,11 +96,12 @@ public class LanguageDiscoveryService implements ILanguageDiscoveryService {
 
     @Inject public LanguageDiscoveryService(ILanguageService languageService,
             ILanguageComponentConfigService componentConfigService, ITermFactoryService termFactoryService,
-            Map<String,IContextFactory> contextFactories, Map<String,IContextStrategy> contextStrategies,
-            Map<String,ISpoofaxAnalyzer> analyzers) {
+            IFileTreeScanner fileTreeScanner, Map<String,IContextFactory> contextFactories,
+            Map<String,IContextStrategy> contextStrategies, Map<String,ISpoofaxAnalyzer> analyzers) {
         this.languageService = languageService;
         this.componentConfigService = componentConfigService;
         this.termFactoryService = termFactoryService;
+        this.fileTreeScanner = fileTreeScanner;
         this.contextFactories = contextFactories;
         this.contextStrategies = contextStrategies;
         this.analyzers = analyzers;
@@ -107,24 +110,9 @@ public class LanguageDiscoveryService implements ILanguageDiscoveryService {
 
     @Override public Collection<ILanguageDiscoveryRequest> request(FileObject location) throws MetaborgException {
         final Collection<ILanguageDiscoveryRequest> requests = Lists.newLinkedList();
-        final FileObject[] configFiles;
-        try {
-            configFiles = location.findFiles(new FileSelector() {
-
-                @Override public boolean traverseDescendents(FileSelectInfo fileInfo) throws Exception {
-                    final String baseName = fileInfo.getFile().getName().getBaseName();
-                    return !baseName.equals("bin") && !baseName.equals("target");
-                }
-
-                @Override public boolean includeFile(FileSelectInfo fileInfo) throws Exception {
-                    return fileInfo.getFile().getName().getBaseName().equals(MetaborgConstants.FILE_COMPONENT_CONFIG);
-                }
-            });
-        } catch (FileSystemException e) {
-            throw new MetaborgException("Searching for language components failed unexpectedly", e);
-        }
-
-        if (configFiles == null || configFiles.length == 0) {
+        final Collection<FileObject> configFiles = fileTreeScanner.scan(Iterables2.singleton(location),
+                FileTreeFilters.name(MetaborgConstants.FILE_COMPONENT_CONFIG, Arrays.asList("bin", "target")));
+        if (configFiles.isEmpty()) {
             return requests;
         }
 
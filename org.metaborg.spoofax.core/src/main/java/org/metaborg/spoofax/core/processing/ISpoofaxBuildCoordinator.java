@@ -0,0 +1,21 @@
+package org.metaborg.spoofax.core.processing;
+
+import org.metaborg.core.build.BuildInput;
+import org.metaborg.core.processing.IBuildCoordinator;
+import org.metaborg.core.processing.ITask;
+import org.metaborg.spoofax.core.build.ISpoofaxBuildOutput;
+import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnitUpdate;
+import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxTransformUnit;
+
+/**
+ * Typedef interface for {@link IBuildCoordinator} with Spoofax interfaces.
+ */
+public interface ISpoofaxBuildCoordinator extends
+    IBuildCoordinator<ISpoofaxParseUnit, ISpoofaxAnalyzeUnit, ISpoofaxAnalyzeUnitUpdate, ISpoofaxTransformUnit<?>> {
+    /**
+     * {@inheritDoc}
+     */
+    ITask<ISpoofaxBuildOutput> build(BuildInput input);
+}
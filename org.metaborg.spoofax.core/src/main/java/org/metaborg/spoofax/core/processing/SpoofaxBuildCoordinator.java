@@ -0,0 +1,35 @@
+package org.metaborg.spoofax.core.processing;
+
+import org.metaborg.core.build.BuildInput;
+import org.metaborg.core.metrics.IBuildMetrics;
+import org.metaborg.core.processing.BuildCoordinator;
+import org.metaborg.core.processing.ITask;
+import org.metaborg.spoofax.core.build.ISpoofaxBuildOutput;
+import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnitUpdate;
+import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxTransformUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * Typedef class for {@link BuildCoordinator} with Spoofax interfaces.
+ */
+public class SpoofaxBuildCoordinator
+    extends BuildCoordinator<ISpoofaxParseUnit, ISpoofaxAnalyzeUnit, ISpoofaxAnalyzeUnitUpdate, ISpoofaxTransformUnit<?>>
+    implements ISpoofaxBuildCoordinator {
+    public SpoofaxBuildCoordinator(ISpoofaxProcessorRunner runner, IBuildMetrics metrics) {
+        super(runner, metrics);
+    }
+
+    @Inject public SpoofaxBuildCoordinator(ISpoofaxProcessorRunner runner, IBuildMetrics metrics,
+        @Named(quietPeriodName) long quietPeriodMillis) {
+        super(runner, metrics, quietPeriodMillis);
+    }
+
+
+    @SuppressWarnings("unchecked") @Override public ITask<ISpoofaxBuildOutput> build(BuildInput input) {
+        return (ITask<ISpoofaxBuildOutput>) super.build(input);
+    }
+}
@@ -0,0 +1,45 @@
+package org.metaborg.spoofax.core.processing;
+
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.core.build.BuildInput;
+import org.metaborg.core.language.dialect.IDialectProcessor;
+import org.metaborg.core.metrics.IBuildMetrics;
+import org.metaborg.core.processing.ExecutorProcessor;
+import org.metaborg.core.processing.ICancellationToken;
+import org.metaborg.core.processing.ILanguageChangeProcessor;
+import org.metaborg.core.processing.IProgressReporter;
+import org.metaborg.core.processing.ITask;
+import org.metaborg.spoofax.core.build.ISpoofaxBuildOutput;
+import org.metaborg.spoofax.core.build.ISpoofaxBuilder;
+import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnitUpdate;
+import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxTransformUnit;
+
+import com.google.inject.Inject;
+
+/**
+ * Typedef class for {@link ExecutorProcessor} with Spoofax interfaces.
+ */
+public class SpoofaxExecutorProcessor extends
+    ExecutorProcessor<ISpoofaxParseUnit, ISpoofaxAnalyzeUnit, ISpoofaxAnalyzeUnitUpdate, ISpoofaxTransformUnit<?>>
+    implements ISpoofaxProcessor {
+    @Inject public SpoofaxExecutorProcessor(IDialectProcessor dialectProcessor, ISpoofaxBuilder builder,
+        ILanguageChangeProcessor languageChangeProcessor, IBuildMetrics metrics) {
+        super(dialectProcessor, builder, languageChangeProcessor, metrics);
+    }
+
+    public SpoofaxExecutorProcessor(IDialectProcessor dialectProcessor, ISpoofaxBuilder builder,
+        ILanguageChangeProcessor languageChangeProcessor, IBuildMetrics metrics, ExecutorService executor) {
+        super(dialectProcessor, builder, languageChangeProcessor, metrics, executor);
+    }
+
+
+    @SuppressWarnings("unchecked") @Override public ITask<ISpoofaxBuildOutput> build(BuildInput input,
+        @Nullable IProgressReporter progressReporter, @Nullable ICancellationToken cancellationToken) {
+        return (ITask<ISpoofaxBuildOutput>) super.build(input, progressReporter, cancellationToken);
+    }
+}
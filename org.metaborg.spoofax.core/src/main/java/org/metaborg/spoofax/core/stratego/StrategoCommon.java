@@ -10,6 +10,7 @@ import org.metaborg.core.MetaborgException;
 import org.metaborg.core.context.IContext;
 import org.metaborg.core.language.ILanguageComponent;
 import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.processing.InterruptOnCancel;
 import org.metaborg.spoofax.core.terms.ITermFactoryService;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
@@ -93,6 +94,9 @@ public class StrategoCommon implements IStrategoCommon {
 
     @Override public @Nullable IStrategoTerm invoke(HybridInterpreter runtime, IStrategoTerm input, String strategy)
         throws MetaborgException {
+        // Stop before invoking when cancellation interrupted this thread. The interpreter itself has no interrupt
+        // points, so a single long running invocation, such as a task engine analysis of all resources, is not stopped.
+        throwIfInterrupted(strategy);
         runtime.setCurrent(input);
         try {
             boolean success = runtime.invoke(strategy);
@@ -101,11 +105,20 @@ public class StrategoCommon implements IStrategoCommon {
             }
             return runtime.current();
         } catch(InterpreterException e) {
+            throwIfInterrupted(strategy);
             handleException(e, runtime, strategy);
             throw new MetaborgException("Invoking Stratego strategy failed unexpectedly", e);
         }
     }
 
+    private void throwIfInterrupted(String strategy) throws MetaborgException {
+        // Only an interrupt inside an InterruptOnCancel block signals cancellation, other interrupts are not ours.
+        if(InterruptOnCancel.active() && Thread.currentThread().isInterrupted()) {
+            final String message = logger.format("Invoking Stratego strategy {} was interrupted", strategy);
+            throw new MetaborgException(message);
+        }
+    }
+
     private void handleException(InterpreterException ex, HybridInterpreter runtime, String strategy) throws MetaborgException {
         final String trace = traceToString(runtime.getCompiledContext().getTrace());
         try {
@@ -16,6 +16,8 @@ import org.metaborg.core.MetaborgRuntimeException;
 import org.metaborg.core.context.IContext;
 import org.metaborg.core.language.ILanguageComponent;
 import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.metrics.BuildPhase;
+import org.metaborg.core.metrics.IBuildMetrics;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.project.IProjectService;
 import org.metaborg.core.resource.IResourceService;
@@ -23,6 +25,7 @@ import org.metaborg.spoofax.core.stratego.strategies.ParseStrategoFileStrategy;
 import org.metaborg.spoofax.core.terms.ITermFactoryService;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
+import org.metaborg.util.time.Timer;
 import org.spoofax.interpreter.core.InterpreterException;
 import org.spoofax.interpreter.library.IOperatorRegistry;
 import org.spoofax.interpreter.terms.ITermFactory;
@@ -42,23 +45,26 @@ public class StrategoRuntimeService implements IStrategoRuntimeService {
     private final ParseStrategoFileStrategy parseStrategoFileStrategy;
     private final IProjectService projectService;
     private final Set<ClassLoader> additionalClassLoaders;
+    private final IBuildMetrics metrics;
 
     private final Map<ILanguageComponent, HybridInterpreter> prototypes = new HashMap<>();
 
 
     @Inject public StrategoRuntimeService(IResourceService resourceService, ITermFactoryService termFactoryService,
         Set<IOperatorRegistry> strategoLibraries, ParseStrategoFileStrategy parseStrategoFileStrategy,
-        IProjectService projectService, Set<ClassLoader> additionalClassLoaders) {
+        IProjectService projectService, Set<ClassLoader> additionalClassLoaders, IBuildMetrics metrics) {
         this.resourceService = resourceService;
         this.termFactoryService = termFactoryService;
         this.strategoLibraries = strategoLibraries;
         this.parseStrategoFileStrategy = parseStrategoFileStrategy;
         this.projectService = projectService;
         this.additionalClassLoaders = additionalClassLoaders;
+        this.metrics = metrics;
     }
 
     @Override public HybridInterpreter runtime(ILanguageComponent component, IContext context, boolean typesmart)
         throws MetaborgException {
+        final Timer timer = new Timer(true);
         HybridInterpreter prototype = prototypes.get(component);
         if(prototype == null) {
             prototype = createPrototype(component);
@@ -67,11 +73,13 @@ public class StrategoRuntimeService implements IStrategoRuntimeService {
         final HybridInterpreter runtime = clone(prototype, context.location(), component, context.project(), typesmart);
         runtime.getContext().setContextObject(context);
         runtime.getCompiledContext().setContextObject(context);
+        metrics.record(BuildPhase.RuntimeAcquisition, component.id().toString(), timer.stop());
         return runtime;
     }
 
     @Override public HybridInterpreter runtime(ILanguageComponent component, FileObject location, boolean typesmart)
         throws MetaborgException {
+        final Timer timer = new Timer(true);
         HybridInterpreter prototype = prototypes.get(component);
         if(prototype == null) {
             prototype = createPrototype(component);
@@ -79,6 +87,7 @@ public class StrategoRuntimeService implements IStrategoRuntimeService {
 
         final IProject project = projectService.get(location);
         final HybridInterpreter runtime = clone(prototype, location, component, project, typesmart);
+        metrics.record(BuildPhase.RuntimeAcquisition, component.id().toString(), timer.stop());
         return runtime;
     }
 
@@ -69,6 +69,10 @@ public class JSGLRI {
             result = null;
             errorHandler.setRecoveryFailed(parserConfig.recovery);
             errorHandler.processFatalException(new NullTokenizer(input, fileName), e);
+            if(e instanceof InterruptedException) {
+                // Restore interrupt, such that the caller can see that parsing was cancelled.
+                Thread.currentThread().interrupt();
+            }
         }
         final long duration = timer.stop();
 
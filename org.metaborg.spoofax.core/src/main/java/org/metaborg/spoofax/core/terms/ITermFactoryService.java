@@ -5,6 +5,7 @@ import javax.annotation.Nullable;
 import org.metaborg.core.language.ILanguageComponent;
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.project.IProject;
+import org.spoofax.interpreter.terms.IStrategoTerm;
 import org.spoofax.interpreter.terms.ITermFactory;
 
 /**
@@ -44,4 +45,15 @@ public interface ITermFactoryService {
      * @return Generic term factory.
      */
     ITermFactory getGeneric();
+
+    /**
+     * Returns a maximally shared version of given term, in which structurally equal subterms without attachments are
+     * represented by the same instance, across all terms shared through this service. Terms with attachments, such as
+     * origins, are kept as is. Shared terms must not be modified, for example by putting attachments on them.
+     * 
+     * @param term
+     *            Term to share.
+     * @return Shared term, structurally equal to given term.
+     */
+    IStrategoTerm share(IStrategoTerm term);
 }
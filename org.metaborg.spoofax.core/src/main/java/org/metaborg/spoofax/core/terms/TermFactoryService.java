@@ -1,6 +1,7 @@
 package org.metaborg.spoofax.core.terms;
 
-import java.util.Map;
+import java.io.IOException;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -14,13 +15,19 @@ import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.project.IProject;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
+import org.spoofax.interpreter.terms.IStrategoTerm;
 import org.spoofax.interpreter.terms.ITermFactory;
 import org.spoofax.jsglr.client.imploder.ImploderOriginTermFactory;
 import org.spoofax.terms.TermFactory;
 import org.spoofax.terms.typesmart.TypesmartContext;
 import org.spoofax.terms.typesmart.TypesmartTermFactory;
 
-import com.google.common.collect.Maps;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 
 public class TermFactoryService implements ITermFactoryService, ILanguageCache {
@@ -28,26 +35,52 @@ public class TermFactoryService implements ITermFactoryService, ILanguageCache {
 
     private final IDependencyService dependencyService;
 
+    private final ITermFactory genericFactory = new ImploderOriginTermFactory(new TermFactory());
+    // Weakly referenced, shared terms are removed when no longer used by any analysis result.
+    private final Interner<IStrategoTerm> sharedTerms = Interners.newWeakInterner();
+
+    // Term factories are only language-specific when the project configuration enables typesmart, in which case they
+    // depend only on the language, so they are cached per language. Caches load each value once, concurrent requests
+    // for the same language wait for the load in progress.
+    private final LoadingCache<ILanguageImpl, ITermFactory> implTypesmartFactories;
+    private final LoadingCache<ILanguageComponent, ITermFactory> componentTypesmartFactories;
+    private final LoadingCache<ILanguageComponent, ComponentTypesmart> componentTypesmarts;
+
+
     @Inject public TermFactoryService(IDependencyService dependencyService) {
         this.dependencyService = dependencyService;
-    }
 
-    private final ITermFactory genericFactory = new ImploderOriginTermFactory(new TermFactory());
+        this.implTypesmartFactories =
+            CacheBuilder.newBuilder().build(new CacheLoader<ILanguageImpl, ITermFactory>() {
+                @Override public ITermFactory load(ILanguageImpl impl) {
+                    // Merge signatures of all components first, and convert them into a single context.
+                    final ComponentTypesmart merged = new ComponentTypesmart();
+                    for(ILanguageComponent component : impl.components()) {
+                        merged.merge(componentTypesmarts.getUnchecked(component));
+                    }
+                    return typesmartFactory(merged.toContext());
+                }
+            });
+        this.componentTypesmartFactories =
+            CacheBuilder.newBuilder().build(new CacheLoader<ILanguageComponent, ITermFactory>() {
+                @Override public ITermFactory load(ILanguageComponent component) {
+                    return typesmartFactory(componentTypesmarts.getUnchecked(component).toContext());
+                }
+            });
+        this.componentTypesmarts =
+            CacheBuilder.newBuilder().build(new CacheLoader<ILanguageComponent, ComponentTypesmart>() {
+                @Override public ComponentTypesmart load(ILanguageComponent component) {
+                    return loadTypesmart(component);
+                }
+            });
+    }
 
-    private final Map<ILanguageImpl, TypesmartContext> implMergedTypesmartContexts = Maps.newHashMap();
-    private final Map<ILanguageComponent, TypesmartContext> mergedTypesmartContexts = Maps.newHashMap();
 
     @Override public ITermFactory get(ILanguageImpl impl, @Nullable IProject project, boolean supportsTypesmart) {
-        if(!supportsTypesmart || project == null || !project.config().typesmart()) {
-            return genericFactory;
-        }
-
-        TypesmartContext context = getTypesmartContext(impl);
-        if(!context.isEmpty()) {
-            return new TypesmartTermFactory(genericFactory, typesmartLogger, context);
-        } else {
+        if(!supportsTypesmart || project == null || project.config() == null || !project.config().typesmart()) {
             return genericFactory;
         }
+        return implTypesmartFactories.getUnchecked(impl);
     }
 
     @Override public ITermFactory get(ILanguageComponent component, @Nullable IProject project,
@@ -55,56 +88,87 @@ public class TermFactoryService implements ITermFactoryService, ILanguageCache {
         if(!supportsTypesmart || project == null || project.config() == null || !project.config().typesmart()) {
             return genericFactory;
         }
-
-        TypesmartContext context = getTypesmartContext(component);
-        if(!context.isEmpty()) {
-            return new TypesmartTermFactory(genericFactory, typesmartLogger, context);
-        } else {
-            return genericFactory;
-        }
+        return componentTypesmartFactories.getUnchecked(component);
     }
 
     @Override public ITermFactory getGeneric() {
         return genericFactory;
     }
 
+    @Override public IStrategoTerm share(IStrategoTerm term) {
+        return new TermSharer(sharedTerms, genericFactory).share(term);
+    }
+
     @Override public void invalidateCache(ILanguageImpl impl) {
-        implMergedTypesmartContexts.remove(impl);
+        implTypesmartFactories.invalidate(impl);
     }
 
     @Override public void invalidateCache(ILanguageComponent component) {
-        mergedTypesmartContexts.remove(component);
+        componentTypesmartFactories.invalidate(component);
+        componentTypesmarts.invalidate(component);
     }
 
-    private TypesmartContext getTypesmartContext(ILanguageImpl impl) {
-        TypesmartContext context = implMergedTypesmartContexts.get(impl);
-        if(context == null) {
-            context = TypesmartContext.empty();
-            for(ILanguageComponent component : impl.components()) {
-                context = context.merge(getTypesmartContext(component));
+
+    private ITermFactory typesmartFactory(TypesmartContext context) {
+        if(context.isEmpty()) {
+            return genericFactory;
+        }
+        return new TypesmartTermFactory(genericFactory, typesmartLogger, context);
+    }
+
+    private ComponentTypesmart loadTypesmart(ILanguageComponent component) {
+        final ComponentTypesmart typesmart = new ComponentTypesmart();
+        load(new CommonPaths(component.location()).strTypesmartExportedFile(), typesmart);
+        try {
+            for(ILanguageComponent other : dependencyService.sourceDeps(component)) {
+                load(new CommonPaths(other.location()).strTypesmartExportedFile(), typesmart);
             }
-            implMergedTypesmartContexts.put(impl, context);
+        } catch(MissingDependencyException e) {
+            typesmartLogger
+                .error("Could not load source dependencies of " + component + " to resolve typesmart contexts.", e);
         }
-        return context;
+        return typesmart;
     }
 
-    private TypesmartContext getTypesmartContext(ILanguageComponent component) {
-        TypesmartContext context = mergedTypesmartContexts.get(component);
-        if(context == null) {
-            FileObject localContextFile = new CommonPaths(component.location()).strTypesmartExportedFile();
-            context = TypesmartContext.load(localContextFile, typesmartLogger);
-            try {
-                for(ILanguageComponent other : dependencyService.sourceDeps(component)) {
-                    FileObject otherContextFile = new CommonPaths(other.location()).strTypesmartExportedFile();
-                    TypesmartContext otherContext = TypesmartContext.load(otherContextFile, typesmartLogger);
-                    context = context.merge(otherContext);
-                }
-            } catch(MissingDependencyException e) {
-                typesmartLogger
-                    .error("Could not load source dependencies of " + component + " to resolve typesmart contexts.", e);
+    private void load(FileObject file, ComponentTypesmart typesmart) {
+        try {
+            if(!file.exists()) {
+                return;
+            }
+            final TypesmartSignatures signatures = TypesmartSignatures.read(file);
+            if(signatures != null) {
+                typesmart.signatures.merge(signatures);
+                return;
+            }
+        } catch(IOException e) {
+            typesmartLogger.error("Could not load typesmart signatures from " + file, e);
+            return;
+        }
+        // Not in the signature format, context was serialized by an older language build.
+        typesmart.legacyContexts.add(TypesmartContext.load(file, typesmartLogger));
+    }
+
+
+    /**
+     * Typesmart signatures of a component and its source dependencies, and contexts of older language builds that are
+     * not in the signature format.
+     */
+    private static class ComponentTypesmart {
+        public final TypesmartSignatures signatures = new TypesmartSignatures();
+        public final List<TypesmartContext> legacyContexts = Lists.newArrayList();
+
+
+        public void merge(ComponentTypesmart other) {
+            signatures.merge(other.signatures);
+            legacyContexts.addAll(other.legacyContexts);
+        }
+
+        public TypesmartContext toContext() {
+            TypesmartContext context = signatures.isEmpty() ? TypesmartContext.empty() : signatures.toContext();
+            for(TypesmartContext legacyContext : legacyContexts) {
+                context = context.merge(legacyContext);
             }
-            mergedTypesmartContexts.put(component, context);
+            return context;
         }
-        return context;
     }
 }
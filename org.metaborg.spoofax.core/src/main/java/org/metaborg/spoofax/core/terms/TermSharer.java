@@ -0,0 +1,135 @@
+package org.metaborg.spoofax.core.terms;
+
+import javax.annotation.Nullable;
+
+import org.spoofax.interpreter.terms.IStrategoAppl;
+import org.spoofax.interpreter.terms.IStrategoInt;
+import org.spoofax.interpreter.terms.IStrategoList;
+import org.spoofax.interpreter.terms.IStrategoReal;
+import org.spoofax.interpreter.terms.IStrategoString;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+
+import com.google.common.collect.Interner;
+
+/**
+ * Hash-conses a single term through an interner, such that structurally equal subterms are represented by the same
+ * instance. Terms with attachments, such as origins, are never interned, since term equality ignores attachments and
+ * attachments are mutable. A term without attachments that has subterms with attachments is rebuilt with shared
+ * subterms, but is not interned itself. The interner only holds copies made by sharers, never terms passed to a
+ * sharer, such that attachments added to a given term through other references do not end up in shared terms. An
+ * interned term that has gained an attachment after it was interned is not shared any further. Not thread-safe, create
+ * one sharer per term to share.
+ */
+class TermSharer {
+    private final Interner<IStrategoTerm> interner;
+    private final ITermFactory factory;
+
+    /**
+     * If the last shared term, or one of its subterms, has attachments.
+     */
+    private boolean attached;
+
+
+    public TermSharer(Interner<IStrategoTerm> interner, ITermFactory factory) {
+        this.interner = interner;
+        this.factory = factory;
+    }
+
+
+    public IStrategoTerm share(IStrategoTerm term) {
+        if(term.getAttachment(null) != null) {
+            // Cannot rebuild a term with attachments without copying them, keep it and its subterms as is.
+            attached = true;
+            return term;
+        }
+
+        boolean anyAttached = false;
+        final IStrategoTerm[] subterms = term.getAllSubterms();
+        IStrategoTerm[] sharedSubterms = subterms;
+        for(int i = 0; i < subterms.length; ++i) {
+            final IStrategoTerm sharedSubterm = share(subterms[i]);
+            anyAttached |= attached;
+            if(sharedSubterm != subterms[i]) {
+                if(sharedSubterms == subterms) {
+                    sharedSubterms = subterms.clone();
+                }
+                sharedSubterms[i] = sharedSubterm;
+            }
+        }
+
+        final IStrategoList annotations = term.getAnnotations();
+        IStrategoList sharedAnnotations = annotations;
+        if(!annotations.isEmpty()) {
+            sharedAnnotations = (IStrategoList) share(annotations);
+            anyAttached |= attached;
+        }
+
+        final IStrategoTerm sharedTerm;
+        if(sharedSubterms == subterms && sharedAnnotations == annotations) {
+            sharedTerm = term;
+        } else {
+            sharedTerm = rebuild(term, sharedSubterms, sharedAnnotations);
+        }
+
+        attached = anyAttached;
+        if(anyAttached) {
+            return sharedTerm;
+        }
+        final IStrategoTerm ownedTerm = sharedTerm == term ? copy(term) : sharedTerm;
+        if(ownedTerm == null) {
+            return term;
+        }
+        final IStrategoTerm internedTerm = interner.intern(ownedTerm);
+        if(internedTerm.getAttachment(null) != null) {
+            return ownedTerm;
+        }
+        return internedTerm;
+    }
+
+
+    /**
+     * Copies given term without copying its subterms.
+     * 
+     * @return Copy of the term, or null if the term cannot be copied.
+     */
+    private @Nullable IStrategoTerm copy(IStrategoTerm term) {
+        final IStrategoList annotations = term.getAnnotations();
+        final IStrategoTerm copy;
+        switch(term.getTermType()) {
+            case IStrategoTerm.APPL:
+            case IStrategoTerm.LIST:
+            case IStrategoTerm.TUPLE:
+                return rebuild(term, term.getAllSubterms(), annotations);
+            case IStrategoTerm.INT:
+                copy = factory.makeInt(((IStrategoInt) term).intValue());
+                break;
+            case IStrategoTerm.REAL:
+                copy = factory.makeReal(((IStrategoReal) term).realValue());
+                break;
+            case IStrategoTerm.STRING:
+                copy = factory.makeString(((IStrategoString) term).stringValue());
+                break;
+            default:
+                return null;
+        }
+        if(annotations.isEmpty()) {
+            return copy;
+        }
+        return factory.annotateTerm(copy, annotations);
+    }
+
+    private IStrategoTerm rebuild(IStrategoTerm term, IStrategoTerm[] subterms, IStrategoList annotations) {
+        switch(term.getTermType()) {
+            case IStrategoTerm.APPL:
+                return factory.makeAppl(((IStrategoAppl) term).getConstructor(), subterms, annotations);
+            case IStrategoTerm.LIST:
+                return factory.makeList(subterms, annotations);
+            case IStrategoTerm.TUPLE:
+                return factory.makeTuple(subterms, annotations);
+            default:
+                // Other terms do not have subterms, only annotations.
+                return factory.annotateTerm(term, annotations);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package org.metaborg.spoofax.core.terms;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.vfs2.FileObject;
+import org.spoofax.terms.typesmart.TypesmartContext;
+import org.spoofax.terms.typesmart.types.SortType;
+import org.spoofax.terms.typesmart.types.TAny;
+import org.spoofax.terms.typesmart.types.TLexical;
+import org.spoofax.terms.typesmart.types.TList;
+import org.spoofax.terms.typesmart.types.TOption;
+import org.spoofax.terms.typesmart.types.TSort;
+import org.spoofax.terms.typesmart.types.TTuple;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Typesmart signatures of a language: constructor signatures, lexical sorts, and injections. Signatures are stored in
+ * a compact binary format with a string table, which is read with a single pass over a buffer. Signatures of multiple
+ * components are merged as plain sets, and converted into a {@link TypesmartContext} once.
+ */
+public class TypesmartSignatures {
+    private static final int magic = 0x54534D53;
+    private static final int version = 1;
+
+    private final Map<String, Set<List<Type>>> constructors = Maps.newHashMap();
+    private final Set<Type> lexicals = Sets.newHashSet();
+    private final Set<Entry<Type, Type>> injections = Sets.newHashSet();
+
+
+    public void addConstructor(String name, List<Type> signature) {
+        Set<List<Type>> signatures = constructors.get(name);
+        if(signatures == null) {
+            signatures = Sets.newHashSet();
+            constructors.put(name, signatures);
+        }
+        signatures.add(ImmutableList.copyOf(signature));
+    }
+
+    public void addLexical(Type sort) {
+        lexicals.add(sort);
+    }
+
+    public void addInjection(Type from, Type to) {
+        injections.add(new SimpleImmutableEntry<>(from, to));
+    }
+
+    /**
+     * Adds all signatures of given signatures to these signatures.
+     */
+    public void merge(TypesmartSignatures other) {
+        for(Entry<String, Set<List<Type>>> entry : other.constructors.entrySet()) {
+            for(List<Type> signature : entry.getValue()) {
+                addConstructor(entry.getKey(), signature);
+            }
+        }
+        lexicals.addAll(other.lexicals);
+        injections.addAll(other.injections);
+    }
+
+    public boolean isEmpty() {
+        return constructors.isEmpty() && lexicals.isEmpty() && injections.isEmpty();
+    }
+
+    /**
+     * Converts these signatures into a typesmart context.
+     */
+    public TypesmartContext toContext() {
+        final Map<String, Set<List<SortType>>> contextConstructors =
+            Maps.newHashMapWithExpectedSize(constructors.size());
+        for(Entry<String, Set<List<Type>>> entry : constructors.entrySet()) {
+            final Set<List<SortType>> signatures = Sets.newHashSetWithExpectedSize(entry.getValue().size());
+            for(List<Type> signature : entry.getValue()) {
+                final List<SortType> sortTypes = Lists.newArrayListWithCapacity(signature.size());
+                for(Type type : signature) {
+                    sortTypes.add(type.toSortType());
+                }
+                signatures.add(Collections.unmodifiableList(sortTypes));
+            }
+            contextConstructors.put(entry.getKey(), signatures);
+        }
+        final Set<SortType> contextLexicals = Sets.newHashSetWithExpectedSize(lexicals.size());
+        for(Type lexical : lexicals) {
+            contextLexicals.add(lexical.toSortType());
+        }
+        final Set<Entry<SortType, SortType>> contextInjections = Sets.newHashSetWithExpectedSize(injections.size());
+        for(Entry<Type, Type> injection : injections) {
+            contextInjections.add(
+                new SimpleImmutableEntry<>(injection.getKey().toSortType(), injection.getValue().toSortType()));
+        }
+        return new TypesmartContext(Collections.unmodifiableMap(contextConstructors),
+            Collections.unmodifiableSet(contextLexicals), Collections.unmodifiableSet(contextInjections));
+    }
+
+
+    /**
+     * Writes these signatures in the binary signature format.
+     */
+    public void write(OutputStream stream) throws IOException {
+        final Map<String, Integer> strings = Maps.newLinkedHashMap();
+        for(Entry<String, Set<List<Type>>> entry : constructors.entrySet()) {
+            intern(strings, entry.getKey());
+            for(List<Type> signature : entry.getValue()) {
+                for(Type type : signature) {
+                    type.internNames(strings);
+                }
+            }
+        }
+        for(Type lexical : lexicals) {
+            lexical.internNames(strings);
+        }
+        for(Entry<Type, Type> injection : injections) {
+            injection.getKey().internNames(strings);
+            injection.getValue().internNames(strings);
+        }
+
+        final DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(magic);
+        output.writeInt(version);
+        output.writeInt(strings.size());
+        for(String string : strings.keySet()) {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        output.writeInt(constructors.size());
+        for(Entry<String, Set<List<Type>>> entry : constructors.entrySet()) {
+            output.writeInt(strings.get(entry.getKey()));
+            output.writeInt(entry.getValue().size());
+            for(List<Type> signature : entry.getValue()) {
+                output.writeInt(signature.size());
+                for(Type type : signature) {
+                    type.write(output, strings);
+                }
+            }
+        }
+        output.writeInt(lexicals.size());
+        for(Type lexical : lexicals) {
+            lexical.write(output, strings);
+        }
+        output.writeInt(injections.size());
+        for(Entry<Type, Type> injection : injections) {
+            injection.getKey().write(output, strings);
+            injection.getValue().write(output, strings);
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads signatures in the binary signature format. The file is read into memory and decoded eagerly, such that it
+     * is not kept open or locked after reading.
+     *
+     * @param file
+     *            File to read signatures from.
+     * @return Read signatures, or null if the file is not in the binary signature format, for example when it holds a
+     *         serialized {@link TypesmartContext} of an older language build.
+     * @throws IOException
+     *             When reading fails, or the file is corrupt.
+     */
+    public static @Nullable TypesmartSignatures read(FileObject file) throws IOException {
+        final ByteBuffer buffer;
+        try(final InputStream stream = file.getContent().getInputStream()) {
+            buffer = ByteBuffer.wrap(IOUtils.toByteArray(stream));
+        }
+        return read(buffer);
+    }
+
+    /**
+     * Reads signatures in the binary signature format from given buffer.
+     *
+     * @return Read signatures, or null if the buffer does not hold signatures in the binary signature format.
+     * @throws IOException
+     *             When the buffer is corrupt.
+     */
+    public static @Nullable TypesmartSignatures read(ByteBuffer buffer) throws IOException {
+        if(buffer.remaining() < 8 || buffer.getInt() != magic) {
+            return null;
+        }
+        try {
+            final int fileVersion = buffer.getInt();
+            if(fileVersion != version) {
+                throw new IOException("Unsupported typesmart signatures version " + fileVersion);
+            }
+            final String[] strings = new String[readLength(buffer, 4)];
+            for(int i = 0; i < strings.length; ++i) {
+                final byte[] bytes = new byte[readLength(buffer, 1)];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            final TypesmartSignatures signatures = new TypesmartSignatures();
+            final int constructorCount = readLength(buffer, 8);
+            for(int i = 0; i < constructorCount; ++i) {
+                final String name = strings[buffer.getInt()];
+                final int signatureCount = readLength(buffer, 4);
+                for(int j = 0; j < signatureCount; ++j) {
+                    final Type[] signature = new Type[readLength(buffer, 1)];
+                    for(int k = 0; k < signature.length; ++k) {
+                        signature[k] = Type.read(buffer, strings, 0);
+                    }
+                    signatures.addConstructor(name, Arrays.asList(signature));
+                }
+            }
+            final int lexicalCount = readLength(buffer, 1);
+            for(int i = 0; i < lexicalCount; ++i) {
+                signatures.addLexical(Type.read(buffer, strings, 0));
+            }
+            final int injectionCount = readLength(buffer, 2);
+            for(int i = 0; i < injectionCount; ++i) {
+                signatures.addInjection(Type.read(buffer, strings, 0), Type.read(buffer, strings, 0));
+            }
+            return signatures;
+        } catch(BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt typesmart signatures", e);
+        }
+    }
+
+    /**
+     * Reads the length of a sequence whose elements take at least given number of bytes, such that a corrupt length is
+     * rejected before allocating memory for it.
+     */
+    private static int readLength(ByteBuffer buffer, int minElementBytes) throws IOException {
+        final int length = buffer.getInt();
+        if(length < 0 || length > buffer.remaining() / minElementBytes) {
+            throw new IOException("Corrupt typesmart signatures, length " + length + " exceeds the remaining "
+                + buffer.remaining() + " bytes");
+        }
+        return length;
+    }
+
+    @Override public int hashCode() {
+        return 31 * (31 * constructors.hashCode() + lexicals.hashCode()) + injections.hashCode();
+    }
+
+    @Override public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof TypesmartSignatures)) {
+            return false;
+        }
+        final TypesmartSignatures other = (TypesmartSignatures) obj;
+        return constructors.equals(other.constructors) && lexicals.equals(other.lexicals)
+            && injections.equals(other.injections);
+    }
+
+
+    private static void intern(Map<String, Integer> strings, String string) {
+        if(!strings.containsKey(string)) {
+            strings.put(string, strings.size());
+        }
+    }
+
+
+    /**
+     * Sort type of a typesmart signature.
+     */
+    public static final class Type {
+        private static final byte anyKind = 0;
+        private static final byte lexicalKind = 1;
+        private static final byte sortKind = 2;
+        private static final byte listKind = 3;
+        private static final byte optionKind = 4;
+        private static final byte tupleKind = 5;
+
+        // Sort types of real signatures are shallow, deeper nesting is a corrupt file and would overflow the stack.
+        private static final int maxDepth = 256;
+
+        private static final Type any = new Type(anyKind, null);
+        private static final Type lexical = new Type(lexicalKind, null);
+
+        private final byte kind;
+        private final @Nullable String name;
+        private final Type[] children;
+        private @Nullable SortType sortType;
+
+
+        private Type(byte kind, @Nullable String name, Type... children) {
+            this.kind = kind;
+            this.name = name;
+            this.children = children;
+        }
+
+        public static Type any() {
+            return any;
+        }
+
+        public static Type lexical() {
+            return lexical;
+        }
+
+        public static Type sort(String name) {
+            return new Type(sortKind, name);
+        }
+
+        public static Type list(Type element) {
+            return new Type(listKind, null, element);
+        }
+
+        public static Type option(Type element) {
+            return new Type(optionKind, null, element);
+        }
+
+        public static Type tuple(Type... elements) {
+            return new Type(tupleKind, null, elements);
+        }
+
+
+        public boolean isLexical() {
+            return kind == lexicalKind;
+        }
+
+        public SortType toSortType() {
+            if(sortType == null) {
+                switch(kind) {
+                    case anyKind:
+                        sortType = TAny.instance;
+                        break;
+                    case lexicalKind:
+                        sortType = TLexical.instance;
+                        break;
+                    case sortKind:
+                        sortType = new TSort(name);
+                        break;
+                    case listKind:
+                        sortType = new TList(children[0].toSortType());
+                        break;
+                    case optionKind:
+                        sortType = new TOption(children[0].toSortType());
+                        break;
+                    default:
+                        final SortType[] elements = new SortType[children.length];
+                        for(int i = 0; i < children.length; ++i) {
+                            elements[i] = children[i].toSortType();
+                        }
+                        sortType = new TTuple(elements);
+                        break;
+                }
+            }
+            return sortType;
+        }
+
+
+        private void internNames(Map<String, Integer> strings) {
+            if(name != null) {
+                intern(strings, name);
+            }
+            for(Type child : children) {
+                child.internNames(strings);
+            }
+        }
+
+        private void write(DataOutputStream output, Map<String, Integer> strings) throws IOException {
+            output.writeByte(kind);
+            switch(kind) {
+                case sortKind:
+                    output.writeInt(strings.get(name));
+                    break;
+                case listKind:
+                case optionKind:
+                    children[0].write(output, strings);
+                    break;
+                case tupleKind:
+                    output.writeInt(children.length);
+                    for(Type child : children) {
+                        child.write(output, strings);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private static Type read(ByteBuffer buffer, String[] strings, int depth) throws IOException {
+            if(depth > maxDepth) {
+                throw new IOException("Corrupt typesmart signatures, sort types are nested deeper than " + maxDepth);
+            }
+            final byte kind = buffer.get();
+            switch(kind) {
+                case anyKind:
+                    return any;
+                case lexicalKind:
+                    return lexical;
+                case sortKind:
+                    return sort(strings[buffer.getInt()]);
+                case listKind:
+                    return list(read(buffer, strings, depth + 1));
+                case optionKind:
+                    return option(read(buffer, strings, depth + 1));
+                case tupleKind:
+                    final Type[] elements = new Type[readLength(buffer, 1)];
+                    for(int i = 0; i < elements.length; ++i) {
+                        elements[i] = read(buffer, strings, depth + 1);
+                    }
+                    return tuple(elements);
+                default:
+                    throw new IOException("Unknown typesmart sort kind " + kind);
+            }
+        }
+
+
+        @Override public int hashCode() {
+            return 31 * (31 * kind + (name == null ? 0 : name.hashCode())) + Arrays.hashCode(children);
+        }
+
+        @Override public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof Type)) {
+                return false;
+            }
+            final Type other = (Type) obj;
+            return kind == other.kind && (name == null ? other.name == null : name.equals(other.name))
+                && Arrays.equals(children, other.children);
+        }
+
+        @Override public String toString() {
+            return toSortType().toString();
+        }
+    }
+}
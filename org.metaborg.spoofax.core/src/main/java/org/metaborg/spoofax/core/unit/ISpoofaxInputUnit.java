@@ -2,6 +2,7 @@ package org.metaborg.spoofax.core.unit;
 
 import javax.annotation.Nullable;
 
+import org.metaborg.core.source.LineIndex;
 import org.metaborg.core.syntax.IInputUnit;
 import org.metaborg.spoofax.core.syntax.JSGLRParserConfiguration;
 
@@ -13,4 +14,10 @@ public interface ISpoofaxInputUnit extends IInputUnit {
      * @return Parser-specific configuration, or null when no configuration has been set.
      */
     @Nullable JSGLRParserConfiguration config();
+
+    /**
+     * @return Line index of the text, for converting between offsets and lines and columns. Computed once when first
+     *         requested.
+     */
+    LineIndex lines();
 }
@@ -1,6 +1,7 @@
 package org.metaborg.spoofax.core.unit;
 
 import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.source.LineIndex;
 import org.metaborg.spoofax.core.syntax.JSGLRParserConfiguration;
 
 /**
@@ -9,6 +10,8 @@ import org.metaborg.spoofax.core.syntax.JSGLRParserConfiguration;
 public class InputUnit extends UnitWrapper implements ISpoofaxInputUnit {
     private final InputContrib contrib;
 
+    private volatile LineIndex lines;
+
 
     public InputUnit(Unit unit, InputContrib contrib) {
         super(unit);
@@ -32,4 +35,14 @@ public class InputUnit extends UnitWrapper implements ISpoofaxInputUnit {
     @Override public JSGLRParserConfiguration config() {
         return contrib.config;
     }
+
+    @Override public LineIndex lines() {
+        LineIndex lines = this.lines;
+        if(lines == null) {
+            // Computing the index more than once is harmless, no need to synchronize.
+            lines = LineIndex.of(contrib.text);
+            this.lines = lines;
+        }
+        return lines;
+    }
 }
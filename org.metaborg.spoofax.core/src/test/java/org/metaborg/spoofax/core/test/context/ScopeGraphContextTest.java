@@ -0,0 +1,173 @@
+package org.metaborg.spoofax.core.test.context;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.VFS;
+import org.junit.Test;
+import org.metaborg.core.build.CommonPaths;
+import org.metaborg.core.context.ContextIdentifier;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.spoofax.core.context.scopegraph.SingleFileScopeGraphContext;
+import org.metaborg.util.concurrent.IClosableLock;
+
+public class ScopeGraphContextTest {
+    private static final LanguageIdentifier languageId = LanguageIdentifier.parse("org.metaborg:test:1.0.0");
+
+
+    @Test public void testSegmentLayout() throws Exception {
+        final FileObject location = location("testSegmentLayout");
+        final SingleFileScopeGraphContext context = context(location);
+        try(IClosableLock lock = context.write()) {
+            context.unit("a");
+            context.unit("b");
+        }
+        context.persist();
+
+        assertTrue(segmentsDir(location).resolveFile("state").exists());
+        final FileObject[] unitFiles = unitsDir(location).getChildren();
+        assertEquals(2, unitFiles.length);
+        for(FileObject unitFile : unitFiles) {
+            assertFalse(unitFile.getName().getBaseName().endsWith(".tmp"));
+        }
+        for(FileObject file : segmentsDir(location).getChildren()) {
+            assertFalse(file.getName().getBaseName().endsWith(".tmp"));
+        }
+
+        final SingleFileScopeGraphContext loaded = context(location);
+        try(IClosableLock lock = loaded.read()) {
+            assertEquals(2, loaded.units().size());
+            assertEquals("a", loaded.unit("a").resource());
+        }
+    }
+
+    @Test public void testPersistChangedSegmentsOnly() throws Exception {
+        final FileObject location = location("testPersistChangedSegmentsOnly");
+        final SingleFileScopeGraphContext context = context(location);
+        try(IClosableLock lock = context.write()) {
+            context.unit("a");
+            context.unit("b");
+        }
+        context.persist();
+        for(FileObject unitFile : unitsDir(location).getChildren()) {
+            unitFile.getContent().setLastModifiedTime(0);
+        }
+        final FileObject stateFile = segmentsDir(location).resolveFile("state");
+        stateFile.getContent().setLastModifiedTime(0);
+
+        // Loading units does not change them, setting their analysis does.
+        final SingleFileScopeGraphContext loaded = context(location);
+        try(IClosableLock lock = loaded.write()) {
+            loaded.unit("a");
+            loaded.unit("b").setAnalysis(null);
+        }
+        loaded.persist();
+
+        assertEquals(0, stateFile.getContent().getLastModifiedTime());
+        final FileObject[] unitFiles = unitsDir(location).getChildren();
+        assertEquals(2, unitFiles.length);
+        int unchanged = 0;
+        for(FileObject unitFile : unitFiles) {
+            if(unitFile.getContent().getLastModifiedTime() == 0) {
+                ++unchanged;
+            }
+        }
+        assertEquals(1, unchanged);
+    }
+
+    @Test public void testDeleteRemovedUnitSegments() throws Exception {
+        final FileObject location = location("testDeleteRemovedUnitSegments");
+        final SingleFileScopeGraphContext context = context(location);
+        try(IClosableLock lock = context.write()) {
+            context.unit("a");
+            context.unit("b");
+        }
+        context.persist();
+
+        try(IClosableLock lock = context.write()) {
+            context.removeUnit("a");
+        }
+        context.persist();
+
+        assertEquals(1, unitsDir(location).getChildren().length);
+        final SingleFileScopeGraphContext loaded = context(location);
+        try(IClosableLock lock = loaded.read()) {
+            assertEquals(1, loaded.units().size());
+            assertEquals("b", loaded.units().iterator().next().resource());
+        }
+    }
+
+    @Test public void testDeleteUnindexedSegments() throws Exception {
+        final FileObject location = location("testDeleteUnindexedSegments");
+        final SingleFileScopeGraphContext context = context(location);
+        try(IClosableLock lock = context.write()) {
+            context.unit("a");
+        }
+        context.persist();
+        final FileObject stray = unitsDir(location).resolveFile("stray");
+        stray.createFile();
+
+        // An initialized context does not index the units of the persisted context.
+        final SingleFileScopeGraphContext initialized = context(location);
+        initialized.init();
+        try(IClosableLock lock = initialized.write()) {
+            initialized.unit("b");
+        }
+        initialized.persist();
+
+        final FileObject[] unitFiles = unitsDir(location).getChildren();
+        assertEquals(1, unitFiles.length);
+        assertFalse(stray.exists());
+        final SingleFileScopeGraphContext loaded = context(location);
+        try(IClosableLock lock = loaded.read()) {
+            assertEquals(1, loaded.units().size());
+            assertEquals("b", loaded.units().iterator().next().resource());
+        }
+    }
+
+
+    private static FileObject location(String name) throws FileSystemException {
+        final FileObject location = VFS.getManager().resolveFile("ram:///ScopeGraphContextTest/" + name);
+        location.delete(Selectors.SELECT_ALL);
+        return location;
+    }
+
+    private static SingleFileScopeGraphContext context(FileObject location) {
+        final ILanguageImpl language = (ILanguageImpl) Proxy.newProxyInstance(ILanguageImpl.class.getClassLoader(),
+            new Class<?>[] { ILanguageImpl.class }, new InvocationHandler() {
+                @Override public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch(method.getName()) {
+                        case "id":
+                            return languageId;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return languageId.toString();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                }
+            });
+        return new SingleFileScopeGraphContext(null, new ContextIdentifier(location, null, language));
+    }
+
+    private static FileObject segmentsDir(FileObject location) throws FileSystemException {
+        final FileObject analysisDir = new CommonPaths(location).targetDir().resolveFile("analysis");
+        final FileObject[] languageDirs = analysisDir.getChildren();
+        assertEquals(1, languageDirs.length);
+        return languageDirs[0].resolveFile("scopegraph-segments");
+    }
+
+    private static FileObject unitsDir(FileObject location) throws FileSystemException {
+        return segmentsDir(location).resolveFile("units");
+    }
+}
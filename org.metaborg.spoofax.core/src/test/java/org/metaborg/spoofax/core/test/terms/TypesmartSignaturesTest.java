@@ -0,0 +1,99 @@
+package org.metaborg.spoofax.core.test.terms;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.metaborg.spoofax.core.terms.TypesmartSignatures;
+import org.metaborg.spoofax.core.terms.TypesmartSignatures.Type;
+
+public class TypesmartSignaturesTest {
+    @Test public void testRoundTrip() throws IOException {
+        final TypesmartSignatures signatures = new TypesmartSignatures();
+        signatures.addConstructor("Add", Arrays.asList(Type.sort("Exp"), Type.sort("Exp")));
+        signatures.addConstructor("Add", Arrays.asList(Type.sort("Exp"), Type.sort("Exp"), Type.sort("Exp")));
+        signatures.addConstructor("Block", Arrays.asList(Type.list(Type.sort("Stm")), Type.option(Type.lexical())));
+        signatures.addConstructor("Pair", Arrays.asList(Type.tuple(Type.sort("Exp"), Type.any())));
+        signatures.addConstructor("Nil", Arrays.<Type>asList());
+        signatures.addLexical(Type.sort("ID"));
+        signatures.addInjection(Type.sort("ID"), Type.sort("Exp"));
+
+        final TypesmartSignatures read = TypesmartSignatures.read(ByteBuffer.wrap(write(signatures)));
+        assertNotNull(read);
+        assertEquals(signatures, read);
+    }
+
+    @Test public void testRoundTripEmpty() throws IOException {
+        final TypesmartSignatures read = TypesmartSignatures.read(ByteBuffer.wrap(write(new TypesmartSignatures())));
+        assertNotNull(read);
+        assertTrue(read.isEmpty());
+    }
+
+    @Test public void testReadLegacyFormat() throws IOException {
+        // Older language builds export a Java-serialized typesmart context, which has no signature format header.
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject("context");
+        }
+        assertNull(TypesmartSignatures.read(ByteBuffer.wrap(bytes.toByteArray())));
+        assertNull(TypesmartSignatures.read(ByteBuffer.wrap(new byte[0])));
+    }
+
+    @Test(expected = IOException.class) public void testReadTruncated() throws IOException {
+        final TypesmartSignatures signatures = new TypesmartSignatures();
+        signatures.addConstructor("Add", Arrays.asList(Type.sort("Exp"), Type.sort("Exp")));
+        final byte[] bytes = write(signatures);
+        TypesmartSignatures.read(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    @Test(expected = IOException.class) public void testReadHugeLength() throws IOException {
+        // A corrupt string count must not allocate a huge array.
+        TypesmartSignatures.read(ByteBuffer.wrap(header(Integer.MAX_VALUE)));
+    }
+
+    @Test(expected = IOException.class) public void testReadNegativeLength() throws IOException {
+        TypesmartSignatures.read(ByteBuffer.wrap(header(-1)));
+    }
+
+    @Test(expected = IOException.class) public void testReadDeepNesting() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.write(header(0));
+        // No constructors, one lexical sort that is a list nested far too deep.
+        output.writeInt(0);
+        output.writeInt(1);
+        for(int i = 0; i < 100000; ++i) {
+            output.writeByte(3);
+        }
+        output.writeByte(0);
+        output.writeInt(0);
+        TypesmartSignatures.read(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+
+    private static byte[] write(TypesmartSignatures signatures) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        signatures.write(bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return Signature format header, followed by given string count.
+     */
+    private static byte[] header(int stringCount) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        // Header of a valid empty file, which starts with the magic number and version.
+        final byte[] empty = write(new TypesmartSignatures());
+        output.write(empty, 0, 8);
+        output.writeInt(stringCount);
+        output.flush();
+        return bytes.toByteArray();
+    }
+}
@@ -300,6 +300,7 @@ public class LanguageSpecBuilder {
 
     private <Out extends Output> Out plutoBuild(BuildRequest<?, Out, ?, ?> buildRequest, String path) throws Throwable {
         final SpoofaxReporting reporting = new SpoofaxReporting();
+        SpoofaxContext.startSession();
         try(final BuildManager buildManager = new BuildManager(reporting, XodusDatabase.createFileDatabase(path))) {
             return buildManager.requireInitially(buildRequest).getBuildResult();
         }
@@ -50,8 +50,8 @@ public class SpoofaxLanguageSpecConfigBuilder extends LanguageSpecConfigBuilder
         }
 
         final SpoofaxLanguageSpecConfig config = new SpoofaxLanguageSpecConfig(configuration, identifier, name,
-            compileDeps, sourceDeps, javaDeps, typesmart, langContribs, generates, exports, metaborgVersion,
-            pardonedLanguages, useBuildSystemSpec, sdfVersion, sdfEnabled, sdfMainFile, parseTable,
+            compileDeps, sourceDeps, javaDeps, typesmart, termSharing, langContribs, generates, exports,
+            metaborgVersion, pardonedLanguages, useBuildSystemSpec, sdfVersion, sdfEnabled, sdfMainFile, parseTable,
             completionsParseTable, sdf2tableVersion, placeholderCharacters, prettyPrint, sdfExternalDef, sdfArgs,
             strFormat, strExternalJar, strExternalJarFlags, strArgs, buildSteps);
         return config;
@@ -28,6 +28,7 @@ import org.metaborg.spoofax.core.terms.ITermFactoryService;
 import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxUnitService;
+import org.metaborg.spoofax.meta.core.pluto.util.ParseCache;
 import org.metaborg.spoofax.meta.core.pluto.util.ResourceAgentTracker;
 import org.metaborg.util.file.FileUtils;
 import org.spoofax.interpreter.terms.IStrategoTerm;
@@ -55,6 +56,7 @@ public class SpoofaxContext implements Serializable {
     private static ISpoofaxUnitService unitService;
     private static ISpoofaxSyntaxService syntaxService;
     private static ITermFactoryService termFactoryService;
+    private static final ParseCache parseCache = new ParseCache();
 
     public final File baseDir;
     public final URI baseURI;
@@ -84,6 +86,14 @@ public class SpoofaxContext implements Serializable {
     }
 
 
+    /**
+     * Starts a new build session, discarding parse results kept in memory by previous build sessions.
+     */
+    public static void startSession() {
+        parseCache.startSession();
+    }
+
+
     public SpoofaxContext(FileObject baseDir, FileObject depDir) {
         if(injector == null) {
             throw new MetaborgRuntimeException("Creating context while injector has not been set");
@@ -142,19 +152,42 @@ public class SpoofaxContext implements Serializable {
     }
 
     public @Nullable IStrategoTerm parse(File file) throws IOException, ParseException {
+        final ParseCache.Result result = parseCached(file);
+        if(result == null || !result.success) {
+            return null;
+        }
+        return result.ast;
+    }
+
+    /**
+     * Parses given file, or gets its parse result from the parse cache shared between builders if the file was parsed
+     * before with the same content.
+     * 
+     * @return Parse result, or null if the language of the file cannot be identified, or if parsing failed without a
+     *         (recovered) AST.
+     */
+    public @Nullable ParseCache.Result parseCached(File file) throws IOException, ParseException {
         final FileObject resource = resourceService.resolve(file);
         final ILanguageImpl language = languageIdentifierService.identify(resource);
         if(language == null) {
             return null;
         }
         final String text = sourceTextService.text(resource);
+        final String key = ParseCache.key(text, language);
+        final File diskDir = depPath("parse-cache");
+        final ParseCache.Result cached = parseCache.get(key, diskDir, termFactory());
+        if(cached != null) {
+            return cached;
+        }
+
         final ISpoofaxInputUnit inputUnit = unitService.inputUnit(resource, text, language, null);
         final ISpoofaxParseUnit result = syntaxService.parse(inputUnit);
-        if(!result.valid() || !result.success()) {
+        if(!result.valid()) {
             return null;
         }
-        final IStrategoTerm term = result.ast();
-        return term;
+        final ParseCache.Result parsed = new ParseCache.Result(result.ast(), result.success());
+        parseCache.put(key, parsed, diskDir);
+        return parsed;
     }
 
     public ILanguageService languageService() {
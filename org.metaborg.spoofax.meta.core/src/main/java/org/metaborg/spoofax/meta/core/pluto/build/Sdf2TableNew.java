@@ -2,14 +2,33 @@ package org.metaborg.spoofax.meta.core.pluto.build;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.Arrays;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.comparator.LastModifiedFileComparator;
+import org.apache.commons.io.filefilter.FileFilterUtils;
+import org.apache.commons.io.filefilter.IOFileFilter;
 import org.metaborg.sdf2table.parsetable.ParseTable;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilder;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactory;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactoryFactory;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxContext;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxInput;
+import org.metaborg.spoofax.meta.core.pluto.stamp.DirectoryHashStamper;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 
 import build.pluto.BuildUnit.State;
 import build.pluto.builder.BuildRequest;
@@ -17,6 +36,17 @@ import build.pluto.dependency.Origin;
 import build.pluto.output.OutputPersisted;
 
 public class Sdf2TableNew extends SpoofaxBuilder<Sdf2TableNew.Input, OutputPersisted<File>> {
+    private static final ILogger logger = LoggerUtils.logger(Sdf2TableNew.class);
+
+    private static final int maxCachedTables = 8;
+    private static final IOFileFilter atermFilter = FileFilterUtils.suffixFileFilter(".aterm");
+    // Computed once, the table generator does not change while running.
+    private static final Supplier<String> generatorVersion = Suppliers.memoize(new Supplier<String>() {
+        @Override public @Nullable String get() {
+            return computeGeneratorVersion();
+        }
+    });
+
     public static class Input extends SpoofaxInput {
         private static final long serialVersionUID = -2379365089609792204L;
 
@@ -67,18 +97,99 @@ public class Sdf2TableNew extends SpoofaxBuilder<Sdf2TableNew.Input, OutputPersi
 
     @Override public OutputPersisted<File> build(Input input) throws IOException {
         require(input.inputFile);
-        boolean status = true;
 
-        try {
-            ParseTable.fromFile(input.inputFile, input.outputFile, input.paths, input.parenthesize);
-        } catch(Exception e) {
-            System.out.println("Failed to generate parse table");
-            e.printStackTrace();
-            status = false;
+        // Normalized modules imported by the main module are read from the paths, require them.
+        final DirectoryHashStamper stamper = new DirectoryHashStamper(atermFilter);
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        boolean cacheable = input.inputFile.isFile();
+        if(cacheable) {
+            hasher.putBytes(Files.asByteSource(input.inputFile).hash(Hashing.murmur3_128()).asBytes());
+        }
+        // Cached tables from a different table generator may differ, include its version in the key.
+        final String version = generatorVersion.get();
+        if(version == null) {
+            cacheable = false;
+        } else {
+            hasher.putString(version, Charsets.UTF_8);
+        }
+        hasher.putBoolean(input.parenthesize);
+        for(String path : input.paths) {
+            final File dir = new File(path);
+            hasher.putString(path, Charsets.UTF_8);
+            if(!dir.isDirectory()) {
+                continue;
+            }
+            require(dir, stamper);
+            final String hash = stamper.hashOf(dir);
+            if(hash == null) {
+                cacheable = false;
+            } else {
+                hasher.putString(hash, Charsets.UTF_8);
+            }
+        }
+
+        // Parse tables are cached by the hash of all normalized modules, such that reverting a grammar change, or a
+        // change that does not change the normalized grammar, does not generate the parse table again.
+        final File cacheDir = context.depPath("sdf2table-java-cache");
+        final File cachedFile = new File(cacheDir, hasher.hash().toString() + ".tbl");
+        boolean status = true;
+        if(cacheable && cachedFile.isFile()) {
+            logger.debug("Using cached parse table {} for {}", cachedFile, input.inputFile);
+            FileUtils.copyFile(cachedFile, input.outputFile);
+        } else {
+            try {
+                ParseTable.fromFile(input.inputFile, input.outputFile, input.paths, input.parenthesize);
+                if(cacheable) {
+                    cache(input.outputFile, cachedFile);
+                }
+            } catch(Exception e) {
+                logger.error("Failed to generate parse table", e);
+                status = false;
+            }
         }
         provide(input.outputFile);
 
         setState(State.finished(status));
         return OutputPersisted.of(input.outputFile);
     }
+
+    /**
+     * Returns the version of the table generator: the hash of the jar that contains it, since snapshot builds share
+     * their implementation version, or its implementation version when it is not loaded from a jar. Returns null if
+     * neither is available.
+     */
+    private static @Nullable String computeGeneratorVersion() {
+        try {
+            final CodeSource source = ParseTable.class.getProtectionDomain().getCodeSource();
+            if(source != null && source.getLocation() != null) {
+                final File jar = new File(source.getLocation().toURI());
+                if(jar.isFile()) {
+                    return "jar:" + Files.asByteSource(jar).hash(Hashing.murmur3_128()).toString();
+                }
+            }
+        } catch(URISyntaxException | IOException | SecurityException | IllegalArgumentException e) {
+            logger.debug("Cannot hash table generator jar, using its implementation version instead", e);
+        }
+        final Package generatorPackage = ParseTable.class.getPackage();
+        final String version = generatorPackage != null ? generatorPackage.getImplementationVersion() : null;
+        if(version == null) {
+            logger.debug("Table generator has no implementation version, not caching parse tables");
+            return null;
+        }
+        return "version:" + version;
+    }
+
+    private static void cache(File tableFile, File cachedFile) throws IOException {
+        final File cacheDir = cachedFile.getParentFile();
+        FileUtils.copyFile(tableFile, cachedFile);
+        final File[] cachedFiles = cacheDir.listFiles();
+        if(cachedFiles == null || cachedFiles.length <= maxCachedTables) {
+            return;
+        }
+        // Evict least recently generated parse tables.
+        Arrays.sort(cachedFiles, LastModifiedFileComparator.LASTMODIFIED_REVERSE);
+        for(int i = maxCachedTables; i < cachedFiles.length; ++i) {
+            FileUtils.deleteQuietly(cachedFiles[i]);
+        }
+    }
 }
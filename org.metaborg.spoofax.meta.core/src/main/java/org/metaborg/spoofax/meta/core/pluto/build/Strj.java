@@ -3,7 +3,11 @@ package org.metaborg.spoofax.meta.core.pluto.build;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
@@ -12,16 +16,26 @@ import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactory;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactoryFactory;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxContext;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxInput;
+import org.metaborg.spoofax.meta.core.pluto.build.misc.ParseFile;
+import org.metaborg.spoofax.meta.core.pluto.stamp.StrategoModuleStamper;
 import org.metaborg.spoofax.meta.core.pluto.util.ResourceAgentTracker;
 import org.metaborg.spoofax.meta.core.pluto.util.StrategoExecutor;
 import org.metaborg.spoofax.meta.core.pluto.util.StrategoExecutor.ExecutionResult;
 import org.metaborg.util.cmd.Arguments;
+import org.spoofax.interpreter.terms.IStrategoAppl;
+import org.spoofax.interpreter.terms.IStrategoString;
+import org.spoofax.interpreter.terms.IStrategoTerm;
 import org.sugarj.common.FileCommands;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Queues;
+import com.google.common.collect.Sets;
+
 import build.pluto.BuildUnit.State;
 import build.pluto.builder.BuildRequest;
 import build.pluto.dependency.Origin;
 import build.pluto.output.None;
+import build.pluto.output.Out;
 
 public class Strj extends SpoofaxBuilder<Strj.Input, None> {
     public static class Input extends SpoofaxInput {
@@ -90,7 +104,7 @@ public class Strj extends SpoofaxBuilder<Strj.Input, None> {
     @Override public None build(Input input) throws IOException {
         requireBuild(input.origin);
 
-        require(input.inputFile);
+        requireModule(input.inputFile);
 
         final File rtree = FileCommands.replaceExtension(input.outputPath, "rtree");
         final File strdep = FileCommands.addExtension(input.outputPath, "dep");
@@ -155,18 +169,56 @@ public class Strj extends SpoofaxBuilder<Strj.Input, None> {
                 registerUsedPaths(strdep);
             }
         } else {
-            // If Stratego compilation fails, the resulting .dep file is incomplete, so require all Stratego files.
-            for(File sourceFile : FileUtils.listFiles(context.baseDir, new String[] { "str" }, true)) {
-                require(sourceFile);
-            }
+            // If Stratego compilation fails, the resulting .dep file is incomplete, so require all imported modules.
+            requireImportedModules(input);
         }
 
         setState(State.finished(result.success));
         return None.val;
     }
 
+    /**
+     * Returns if Stratego compilation of given main module into given output is likely to run in the next build: when
+     * it has not produced a dependency file yet, or when the main module or a module listed in its dependency file was
+     * modified after the dependency file was written. Generated modules that earlier build steps are about to change
+     * are not detected.
+     */
+    public static boolean outdated(File inputFile, File outputPath) {
+        final File strdep = FileCommands.addExtension(outputPath, "dep");
+        final long depModified = strdep.lastModified();
+        if(depModified == 0 || !outputPath.exists() || inputFile.lastModified() > depModified) {
+            return true;
+        }
+        final List<File> modules;
+        try {
+            modules = usedModules(strdep);
+        } catch(IOException e) {
+            return true;
+        }
+        for(File module : modules) {
+            final long modified = module.lastModified();
+            if(modified == 0 || modified > depModified) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
     private void registerUsedPaths(File strdep) throws IOException {
+        for(File file : usedModules(strdep)) {
+            // TODO: non-local dependencies, such as those on .spoofax-language files, are copied to a temporary
+            // directory. That will cause unnecessary rebuilds because of absolute path dependencies.
+            requireModule(file);
+        }
+    }
+
+    /**
+     * Reads the modules listed in a dependency file written by strj.
+     */
+    private static List<File> usedModules(File strdep) throws IOException {
         final List<String> lines = org.apache.commons.io.FileUtils.readLines(strdep);
+        final List<File> modules = Lists.newArrayListWithCapacity(lines.size());
 
         // Skip first line (start at 1 instead of 0), which lists the generated CTree file.
         for(int i = 1; i < lines.size(); i++) {
@@ -179,11 +231,101 @@ public class Strj extends SpoofaxBuilder<Strj.Input, None> {
             }
             // Remove the trailing ' /'.
             final String line = trimmedLine.substring(0, length - 2);
+            modules.add(new File(line));
+        }
+        return modules;
+    }
 
-            // TODO: non-local dependencies, such as those on .spoofax-language files, are copied to a temporary
-            // directory. That will cause unnecessary rebuilds because of absolute path dependencies.
-            final File file = new File(line);
+    /**
+     * Requires a file the compilation depends on. Stratego modules of the language specification are stamped by their
+     * abstract syntax tree, such that changing only layout or comments of a module does not trigger a recompilation.
+     * All requirements of a file must go through this method, such that a file is always required with the same
+     * stamper.
+     */
+    private void requireModule(File file) {
+        final Path baseDir = context.baseDir.toPath().toAbsolutePath().normalize();
+        if(file.getName().endsWith(".str") && file.toPath().toAbsolutePath().normalize().startsWith(baseDir)) {
+            require(file, new StrategoModuleStamper(context));
+        } else {
             require(file);
         }
     }
+
+    /**
+     * Requires all modules transitively imported by the main module, by parsing modules with the {@link ParseFile}
+     * builder. Falls back to requiring all Stratego files of the language specification when a module cannot be
+     * parsed, since its imports are unknown.
+     */
+    private void requireImportedModules(Input input) throws IOException {
+        final Set<File> seenFiles = Sets.newHashSet();
+        final Set<String> seenImports = Sets.newHashSet();
+        final Deque<File> worklist = Queues.newArrayDeque();
+        worklist.add(input.inputFile);
+        seenFiles.add(input.inputFile);
+        while(!worklist.isEmpty()) {
+            final File file = worklist.pop();
+            requireModule(file);
+            final Out<IStrategoTerm> out =
+                requireBuild(ParseFile.factory, new ParseFile.Input(context, file, false, true, input.origin));
+            final IStrategoTerm module = out == null ? null : out.val();
+            if(module == null) {
+                for(File sourceFile : FileUtils.listFiles(context.baseDir, new String[] { "str" }, true)) {
+                    requireModule(sourceFile);
+                }
+                return;
+            }
+            for(String imp : imports(module)) {
+                if(!seenImports.add(imp)) {
+                    continue;
+                }
+                for(File importedFile : resolveImport(imp, input.includeDirs)) {
+                    if(seenFiles.add(importedFile)) {
+                        worklist.add(importedFile);
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<String> imports(IStrategoTerm module) {
+        final List<String> imports = Lists.newArrayList();
+        if(!(module instanceof IStrategoAppl) || !((IStrategoAppl) module).getName().equals("Module")) {
+            return imports;
+        }
+        for(IStrategoTerm decl : module.getSubterm(1)) {
+            if(!((IStrategoAppl) decl).getName().equals("Imports")) {
+                continue;
+            }
+            for(IStrategoTerm importDecl : decl.getSubterm(0)) {
+                final String importName = ((IStrategoString) importDecl.getSubterm(0)).stringValue();
+                if(((IStrategoAppl) importDecl).getName().equals("Import")) {
+                    imports.add(importName);
+                } else {
+                    // Wildcard import.
+                    imports.add(importName + "/-");
+                }
+            }
+        }
+        return imports;
+    }
+
+    private static Collection<File> resolveImport(String imp, List<File> includeDirs) {
+        if(imp.endsWith("/-")) {
+            final String path = imp.substring(0, imp.length() - 2);
+            for(File include : includeDirs) {
+                final File dir = new File(include, path);
+                if(dir.isDirectory()) {
+                    return FileUtils.listFiles(dir, new String[] { "str" }, false);
+                }
+            }
+        } else {
+            for(File include : includeDirs) {
+                final File file = new File(include, imp + ".str");
+                if(file.exists()) {
+                    return Collections.singletonList(file);
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
 }
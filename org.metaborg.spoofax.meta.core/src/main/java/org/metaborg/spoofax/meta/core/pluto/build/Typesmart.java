@@ -1,24 +1,23 @@
 package org.metaborg.spoofax.meta.core.pluto.build;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
-import java.util.AbstractMap.SimpleEntry;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
 import org.apache.commons.io.FileUtils;
+import org.metaborg.spoofax.core.terms.TypesmartSignatures;
+import org.metaborg.spoofax.core.terms.TypesmartSignatures.Type;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilder;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactory;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactoryFactory;
@@ -31,14 +30,7 @@ import org.spoofax.interpreter.terms.IStrategoAppl;
 import org.spoofax.interpreter.terms.IStrategoList;
 import org.spoofax.interpreter.terms.IStrategoString;
 import org.spoofax.interpreter.terms.IStrategoTerm;
-import org.spoofax.terms.typesmart.TypesmartContext;
 import org.spoofax.terms.typesmart.types.SortType;
-import org.spoofax.terms.typesmart.types.TAny;
-import org.spoofax.terms.typesmart.types.TLexical;
-import org.spoofax.terms.typesmart.types.TList;
-import org.spoofax.terms.typesmart.types.TOption;
-import org.spoofax.terms.typesmart.types.TSort;
-import org.spoofax.terms.typesmart.types.TTuple;
 
 import build.pluto.builder.BuildRequest;
 import build.pluto.dependency.Origin;
@@ -92,20 +84,14 @@ public class Typesmart extends SpoofaxBuilder<Typesmart.Input, None> {
         return context.depPath("typesmart.syntax.dep");
     }
 
-    private Map<String, Set<List<SortType>>> constructorSignatures = new HashMap<>();
-    private Set<SortType> lexicals = new HashSet<>();
-    private Set<Entry<SortType, SortType>> injections = new HashSet<>();
+    private final TypesmartSignatures signatures = new TypesmartSignatures();
 
     @Override public None build(Input input) throws IOException {
 
         processMainStrategoFile(input.strFile, input.strjIncludeDirs);
 
-        constructorSignatures = Collections.unmodifiableMap(constructorSignatures);
-        lexicals = Collections.unmodifiableSet(lexicals);
-        injections = Collections.unmodifiableSet(injections);
-        TypesmartContext typesmartContext = new TypesmartContext(constructorSignatures, lexicals, injections);
-        try(ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(input.typesmartExportedFile))) {
-            oos.writeObject(typesmartContext);
+        try(OutputStream stream = new BufferedOutputStream(new FileOutputStream(input.typesmartExportedFile))) {
+            signatures.write(stream);
         }
         provide(input.typesmartExportedFile);
 
@@ -147,7 +133,7 @@ public class Typesmart extends SpoofaxBuilder<Typesmart.Input, None> {
 
     private IStrategoTerm parseStratego(File file) throws IOException {
         Out<IStrategoTerm> out =
-            requireBuild(ParseFile.factory, new ParseFile.Input(context, file, true, true, getInput().origin));
+            requireBuild(ParseFile.factory, new ParseFile.Input(context, file, false, true, getInput().origin));
         return out == null ? null : out.val();
     }
 
@@ -226,11 +212,11 @@ public class Typesmart extends SpoofaxBuilder<Typesmart.Input, None> {
                     typeTerm = (IStrategoAppl) constr.getSubterm(1);
                 }
 
-                List<SortType> sortTypes;
+                List<Type> sortTypes;
                 if(typeTerm.getName().equals("ConstType")) {
                     // no constructor arguments
                     sortTypes = new ArrayList<>(1);
-                    SortType t = extractSortType(typeTerm.getSubterm(0));
+                    Type t = extractSortType(typeTerm.getSubterm(0));
                     if(t == null) {
                         continue next_constr;
                     }
@@ -240,13 +226,13 @@ public class Typesmart extends SpoofaxBuilder<Typesmart.Input, None> {
                     sortTypes = new ArrayList<>(argTypes.length + 1);
 
                     for(IStrategoTerm argType : argTypes) {
-                        SortType t = extractSortType(argType.getSubterm(0));
+                        Type t = extractSortType(argType.getSubterm(0));
                         if(t == null) {
                             continue next_constr;
                         }
                         sortTypes.add(t);
                     }
-                    SortType t = extractSortType(typeTerm.getSubterm(1).getSubterm(0));
+                    Type t = extractSortType(typeTerm.getSubterm(1).getSubterm(0));
                     if(t == null) {
                         continue next_constr;
                     }
@@ -260,43 +246,38 @@ public class Typesmart extends SpoofaxBuilder<Typesmart.Input, None> {
         }
     }
 
-    private void addConstructorSignature(String cname, List<SortType> sortTypes) {
+    private void addConstructorSignature(String cname, List<Type> sortTypes) {
         if(cname.equals("") && sortTypes.size() == 2) {
             // injection
             assert sortTypes.size() == 2;
 
-            if(sortTypes.get(0).equals(TLexical.instance)) {
+            if(sortTypes.get(0).isLexical()) {
                 // lexical
-                lexicals.add(sortTypes.get(1));
+                signatures.addLexical(sortTypes.get(1));
             } else {
                 // non-lexical
-                injections.add(new SimpleEntry<>(sortTypes.get(0), sortTypes.get(1)));
+                signatures.addInjection(sortTypes.get(0), sortTypes.get(1));
             }
         } else if(!cname.equals("")) {
             // constructor signature
             // logger.debug(" " + cname + ": " + sortTypes);
-            Set<List<SortType>> csigs = constructorSignatures.get(cname);
-            if(csigs == null) {
-                csigs = new HashSet<>();
-                constructorSignatures.put(cname, csigs);
-            }
-            csigs.add(Collections.unmodifiableList(sortTypes));
+            signatures.addConstructor(cname, sortTypes);
         }
     }
 
-    private SortType extractSortType(IStrategoTerm sort) {
+    private Type extractSortType(IStrategoTerm sort) {
         String kind = ((IStrategoAppl) sort).getName();
 
         if(kind.equals("SortList") || kind.equals("SortListTl") || kind.equals("SortVar")) {
             logger.error("Unsupported Stratego signature: " + sort);
-            return TAny.instance;
+            return Type.any();
         } else if(kind.equals("SortTuple")) {
             IStrategoTerm[] kids = sort.getSubterm(0).getAllSubterms();
-            SortType[] sorts = new SortType[kids.length];
+            Type[] sorts = new Type[kids.length];
             for(int i = 0; i < kids.length; i++) {
                 sorts[i] = extractSortType(kids[i]);
             }
-            return new TTuple(sorts);
+            return Type.tuple(sorts);
         }
         
         if(sort.getSubterm(0).getTermType() != IStrategoTerm.STRING) {
@@ -305,17 +286,17 @@ public class Typesmart extends SpoofaxBuilder<Typesmart.Input, None> {
         
         String sortName = ((IStrategoString) sort.getSubterm(0)).stringValue();
         if(kind.equals("SortNoArgs") && sortName.equals(SortType.LEXICAL_SORT)) {
-            return TLexical.instance;
+            return Type.lexical();
         } else if(kind.equals("SortNoArgs") && sortName.equals(SortType.ANY_SORT)) {
-            return TAny.instance;
+            return Type.any();
         } else if(kind.equals("SortNoArgs")) {
-            return new TSort(sortName);
+            return Type.sort(sortName);
         } else if(kind.equals("Sort") && sortName.equals("List")) {
-            SortType t = extractSortType(sort.getSubterm(1).getSubterm(0));
-            return t == null ? null : new TList(t);
+            Type t = extractSortType(sort.getSubterm(1).getSubterm(0));
+            return t == null ? null : Type.list(t);
         } else if(kind.equals("Sort") && sortName.equals("Option")) {
-            SortType t = extractSortType(sort.getSubterm(1).getSubterm(0));
-            return t == null ? null : new TOption(t);
+            Type t = extractSortType(sort.getSubterm(1).getSubterm(0));
+            return t == null ? null : Type.option(t);
         } else if(kind.equals("SortVar")) {
             return null;
         } else {
@@ -3,6 +3,7 @@ package org.metaborg.spoofax.meta.core.pluto.build.main;
 import java.io.File;
 import java.io.IOException;
 
+import org.apache.commons.io.filefilter.FileFilterUtils;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSelector;
 import org.metaborg.core.config.IExportConfig;
@@ -16,7 +17,7 @@ import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactory;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactoryFactory;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxContext;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxInput;
-import org.metaborg.spoofax.meta.core.pluto.stamp.DirectoryModifiedStamper;
+import org.metaborg.spoofax.meta.core.pluto.stamp.DirectoryHashStamper;
 import org.metaborg.util.resource.FileSelectorUtils;
 import org.metaborg.util.resource.ZipArchiver;
 
@@ -79,10 +80,11 @@ public class ArchiveBuilder extends SpoofaxBuilder<ArchiveBuilder.Input, OutputT
         final ZipArchiver zipArchiver = new ZipArchiver();
         final FileObject root = paths.root();
 
-        require(toFile(paths.iconsDir()), new DirectoryModifiedStamper());
+        require(toFile(paths.iconsDir()), new DirectoryHashStamper());
         zipArchiver.addFilesTo(root.getName(), paths.iconsDir(), FileSelectorUtils.all());
 
-        require(toFile(paths.targetMetaborgDir()), new DirectoryModifiedStamper());
+        require(toFile(paths.targetMetaborgDir()),
+            new DirectoryHashStamper(FileFilterUtils.notFileFilter(FileFilterUtils.suffixFileFilter(".dep"))));
         zipArchiver.addFilesTo(root.getName(), paths.targetMetaborgDir(),
             FileSelectorUtils.not(FileSelectorUtils.ant("*.dep")));
         zipArchiver.addFileTo(root.getName(), paths.mbComponentConfigFile());
@@ -4,6 +4,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.annotation.Nullable;
 
@@ -36,10 +38,14 @@ import org.metaborg.spoofax.meta.core.pluto.build.Sdf2Table;
 import org.metaborg.spoofax.meta.core.pluto.build.Sdf2TableNew;
 import org.metaborg.spoofax.meta.core.pluto.build.Strj;
 import org.metaborg.spoofax.meta.core.pluto.build.Typesmart;
+import org.metaborg.spoofax.meta.core.pluto.util.StrategoContextPool;
 import org.metaborg.spoofax.nativebundle.NativeBundle;
 import org.metaborg.util.cmd.Arguments;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import build.pluto.builder.BuildRequest;
 import build.pluto.dependency.Origin;
@@ -47,6 +53,8 @@ import build.pluto.output.None;
 import build.pluto.stamp.FileExistsStamper;
 
 public class GenerateSourcesBuilder extends SpoofaxBuilder<GenerateSourcesBuilder.Input, None> {
+    private static final ILogger logger = LoggerUtils.logger(GenerateSourcesBuilder.class);
+
     public static class Input extends SpoofaxInput {
         private static final long serialVersionUID = -2379365089609792204L;
 
@@ -118,6 +126,14 @@ public class GenerateSourcesBuilder extends SpoofaxBuilder<GenerateSourcesBuilde
     public static SpoofaxBuilderFactory<Input, None, GenerateSourcesBuilder> factory =
         SpoofaxBuilderFactoryFactory.of(GenerateSourcesBuilder.class, Input.class);
 
+    /**
+     * Worker pool for preparing Stratego tools. Pluto build requests must be issued from the builder thread, so build
+     * steps are required one after another, but the tools they execute are loaded concurrently.
+     */
+    private static final ExecutorService preparePool = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("spoofax-meta-prepare-%d").build());
+
 
     public GenerateSourcesBuilder(Input input) {
         super(input);
@@ -144,6 +160,8 @@ public class GenerateSourcesBuilder extends SpoofaxBuilder<GenerateSourcesBuilde
     }
 
     @Override public None build(GenerateSourcesBuilder.Input input) throws IOException {
+        prepareContexts(input);
+
         final File srcGenSigDir = toFile(paths.syntaxSrcGenSignatureDir());
         final File srcGenSyntaxDir = toFile(paths.syntaxSrcGenDir());
         final File srcGenSyntaxCompletionDir = toFile(paths.syntaxCompletionSrcGenDir());
@@ -417,15 +435,13 @@ public class GenerateSourcesBuilder extends SpoofaxBuilder<GenerateSourcesBuilde
             final Arguments extraArgs = new Arguments();
             extraArgs.addAll(input.strjArgs);
 
-            final File outputFile;
+            final File outputFile = strjOutputFile(input);
             final File depPath;
             if(input.strFormat == StrategoFormat.ctree) {
-                outputFile = FileUtils.getFile(targetMetaborgDir, "stratego.ctree");
                 depPath = outputFile;
                 extraArgs.add("-F");
             } else {
                 depPath = toFile(paths.strSrcGenJavaTransDir(input.languageId));
-                outputFile = FileUtils.getFile(depPath, "Main.java");
                 extraArgs.add("-la", "java-front");
                 if(buildStrJavaStrat) {
                     extraArgs.add("-la", input.strJavaStratPackage);
@@ -475,4 +491,66 @@ public class GenerateSourcesBuilder extends SpoofaxBuilder<GenerateSourcesBuilde
 
         return None.val;
     }
+
+
+    /**
+     * Initializes the Stratego contexts required by the build steps of given input on the worker pool, such that
+     * classes of later build steps are loaded while earlier build steps execute. Prepared contexts are handed over to
+     * the thread that executes the build step that requires them. Contexts that the current thread, which executes the
+     * build steps, already holds are not prepared. A strj context is only prepared when Stratego compilation is likely
+     * to run.
+     */
+    private void prepareContexts(Input input) {
+        final boolean sdf = input.sdfEnabled != null && input.sdfEnabled
+            && (input.sdfModule != null || input.sdfCompletionFile != null);
+        if(sdf || input.sdfMetaFile != null) {
+            if(!StrategoContextPool.holdsTools()) {
+                submit(new Runnable() {
+                    @Override public void run() {
+                        StrategoContextPool.prepareTools();
+                    }
+                });
+            }
+            if((input.sdf2tableVersion != Sdf2tableVersion.java || input.sdfMetaFile != null)
+                && !StrategoContextPool.holdsPermissiveGrammars()) {
+                submit(new Runnable() {
+                    @Override public void run() {
+                        StrategoContextPool.preparePermissiveGrammars();
+                    }
+                });
+            }
+        }
+        final File strFile = input.strFile;
+        if(strFile != null) {
+            final File outputFile = strjOutputFile(input);
+            submit(new Runnable() {
+                @Override public void run() {
+                    // Checking modification times of all used modules is done on the worker pool as well.
+                    if(Strj.outdated(strFile, outputFile)) {
+                        StrategoContextPool.prepareStrj();
+                    }
+                }
+            });
+        }
+    }
+
+    private File strjOutputFile(Input input) {
+        if(input.strFormat == StrategoFormat.ctree) {
+            return FileUtils.getFile(toFile(paths.targetMetaborgDir()), "stratego.ctree");
+        }
+        return FileUtils.getFile(toFile(paths.strSrcGenJavaTransDir(input.languageId)), "Main.java");
+    }
+
+    private static void submit(final Runnable runnable) {
+        preparePool.submit(new Runnable() {
+            @Override public void run() {
+                try {
+                    runnable.run();
+                } catch(RuntimeException e) {
+                    // Not fatal, the build step that requires the context initializes it again and reports errors.
+                    logger.debug("Preparing Stratego context failed", e);
+                }
+            }
+        });
+    }
 }
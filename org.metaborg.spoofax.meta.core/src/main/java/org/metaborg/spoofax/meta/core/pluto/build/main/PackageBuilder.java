@@ -17,7 +17,7 @@ import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactoryFactory;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxContext;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxInput;
 import org.metaborg.spoofax.meta.core.pluto.build.misc.CopyPattern;
-import org.metaborg.spoofax.meta.core.pluto.stamp.DirectoryModifiedStamper;
+import org.metaborg.spoofax.meta.core.pluto.stamp.DirectoryHashStamper;
 
 import com.google.common.collect.Lists;
 
@@ -130,7 +130,7 @@ public class PackageBuilder extends SpoofaxBuilder<PackageBuilder.Input, None> {
         final Collection<JarBuilder.Entry> fileEntries = Lists.newLinkedList();
 
         for(File path : paths) {
-            require(path, new DirectoryModifiedStamper());
+            require(path, new DirectoryHashStamper());
             final Collection<File> files = findFiles(path);
             for(final File classFile : files) {
                 final String relative = relativize(classFile, baseDir);
@@ -2,15 +2,12 @@ package org.metaborg.spoofax.meta.core.pluto.build.misc;
 
 import java.io.File;
 
-import org.apache.commons.vfs2.FileObject;
-import org.metaborg.core.language.ILanguageImpl;
-import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
-import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilder;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactory;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxBuilderFactoryFactory;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxContext;
 import org.metaborg.spoofax.meta.core.pluto.SpoofaxInput;
+import org.metaborg.spoofax.meta.core.pluto.util.ParseCache;
 import org.spoofax.interpreter.terms.IStrategoTerm;
 import org.sugarj.common.FileCommands;
 
@@ -91,18 +88,12 @@ public class ParseFile extends SpoofaxBuilder<ParseFile.Input, Out<IStrategoTerm
             return null;
         }
 
-        final FileObject resource = context.resourceService().resolve(input.file);
-        final ILanguageImpl language = context.languageIdentifierService().identify(resource);
-        if(language == null) {
-            return null;
-        }
-        final String text = context.sourceTextService().text(resource);
-        final ISpoofaxInputUnit inputUnit = context.unitService().inputUnit(resource, text, language, null);
-        final ISpoofaxParseUnit result = context.syntaxService().parse(inputUnit);
-        if(!result.valid()) {
+        // Parse results are shared with other builders through the parse cache, such that each file is parsed once.
+        final ParseCache.Result result = context.parseCached(input.file);
+        if(result == null) {
             return null;
         }
 
-        return input.persistResult ? OutputPersisted.of(result.ast()) : OutputTransient.of(result.ast());
+        return input.persistResult ? OutputPersisted.of(result.ast) : OutputTransient.of(result.ast);
     }
 }
@@ -0,0 +1,187 @@
+package org.metaborg.spoofax.meta.core.pluto.stamp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.filefilter.IOFileFilter;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import build.pluto.stamp.Stamp;
+import build.pluto.stamp.Stamper;
+import build.pluto.stamp.ValueStamp;
+
+/**
+ * Stamps directories recursively by a Merkle-style hash: the hash of a directory combines the names and hashes of its
+ * files and subdirectories, and the hash of a file is the hash of its content. Changes to nested files are detected
+ * regardless of the modification time resolution of the file system. Files are hashed in parallel, and file hashes are
+ * cached by path, size, and modification time, such that unchanged files are not hashed again. Like git's racy-clean
+ * check, a file hash is only cached when the file was modified well before it was hashed, since a change within the
+ * same modification time tick would otherwise go unnoticed.
+ */
+public class DirectoryHashStamper implements Stamper {
+    private static final long serialVersionUID = -3262154373412549735L;
+
+    private static final HashFunction hashFunction = Hashing.murmur3_128();
+    /**
+     * Modification time granularity of the coarsest supported file system (FAT). Files modified less than this many
+     * milliseconds before they were hashed are hashed again on the next stamp.
+     */
+    private static final long racyMillis = 2000;
+    private static final Cache<File, FileHash> fileHashes = CacheBuilder.newBuilder().maximumSize(65536).build();
+    private static final ExecutorService hashPool =
+        Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("spoofax-meta-hash-%d").build());
+
+    private final @Nullable IOFileFilter filter;
+
+
+    /**
+     * @param filter
+     *            Filter for files to include in the hash, or null to include all files. Directories are always
+     *            traversed.
+     */
+    public DirectoryHashStamper(@Nullable IOFileFilter filter) {
+        this.filter = filter;
+    }
+
+    public DirectoryHashStamper() {
+        this(null);
+    }
+
+
+    @Override public Stamp stampOf(File directory) {
+        if(!directory.exists()) {
+            return new ValueStamp<>(this, null);
+        } else if(!directory.isDirectory()) {
+            throw new RuntimeException("Directory stamper cannot stamp " + directory + ", it is not a directory");
+        }
+
+        final String hash = hashOf(directory);
+        if(hash == null) {
+            // File could not be read, for example because it was removed while stamping. Return a unique stamp such
+            // that the directory is considered changed.
+            return new ValueStamp<>(this, "unreadable:" + System.nanoTime());
+        }
+        return new ValueStamp<>(this, hash);
+    }
+
+    /**
+     * Computes the hash of given directory.
+     *
+     * @param directory
+     *            Directory to hash.
+     * @return Hash of the directory, as a hexadecimal string, or null if a file in the directory could not be read.
+     */
+    public @Nullable String hashOf(File directory) {
+        // Schedule hashing of all files first, such that files in all subdirectories are hashed in parallel.
+        final Map<File, Future<HashCode>> hashes = Maps.newHashMap();
+        final Node root = list(directory, hashes);
+        try {
+            return combine(root, hashes).toString();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Hashing directory " + directory + " was interrupted", e);
+        } catch(ExecutionException e) {
+            return null;
+        }
+    }
+
+
+    private Node list(File directory, Map<File, Future<HashCode>> hashes) {
+        final File[] children = directory.listFiles();
+        final Node node = new Node(directory);
+        if(children == null) {
+            return node;
+        }
+        Arrays.sort(children);
+        for(File child : children) {
+            if(child.isDirectory()) {
+                node.directories.add(list(child, hashes));
+            } else if(filter == null || filter.accept(child)) {
+                node.files.add(child);
+                hashes.put(child, hash(child));
+            }
+        }
+        return node;
+    }
+
+    private static HashCode combine(Node node, Map<File, Future<HashCode>> hashes)
+        throws InterruptedException, ExecutionException {
+        final Hasher hasher = hashFunction.newHasher();
+        for(File file : node.files) {
+            hasher.putString(file.getName(), Charsets.UTF_8);
+            hasher.putBytes(hashes.get(file).get().asBytes());
+        }
+        for(Node directory : node.directories) {
+            hasher.putString(directory.directory.getName() + "/", Charsets.UTF_8);
+            hasher.putBytes(combine(directory, hashes).asBytes());
+        }
+        return hasher.hash();
+    }
+
+    private static Future<HashCode> hash(final File file) {
+        final long size = file.length();
+        final long modified = file.lastModified();
+        final FileHash cached = fileHashes.getIfPresent(file);
+        if(cached != null && cached.size == size && cached.modified == modified) {
+            return Futures.immediateFuture(cached.hash);
+        }
+        return hashPool.submit(new Callable<HashCode>() {
+            @Override public HashCode call() throws IOException {
+                final long hashed = System.currentTimeMillis();
+                final HashCode hash = Files.asByteSource(file).hash(hashFunction);
+                if(modified < hashed - racyMillis) {
+                    fileHashes.put(file, new FileHash(size, modified, hash));
+                }
+                return hash;
+            }
+        });
+    }
+
+
+    private static class Node {
+        public final File directory;
+        public final List<File> files = Lists.newArrayList();
+        public final List<Node> directories = Lists.newArrayList();
+
+
+        public Node(File directory) {
+            this.directory = directory;
+        }
+    }
+
+    private static class FileHash {
+        public final long size;
+        public final long modified;
+        public final HashCode hash;
+
+
+        public FileHash(long size, long modified, HashCode hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.metaborg.spoofax.meta.core.pluto.stamp;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.metaborg.core.syntax.ParseException;
+import org.metaborg.spoofax.meta.core.pluto.SpoofaxContext;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.sugarj.common.FileCommands;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+import build.pluto.stamp.FileHashStamper;
+import build.pluto.stamp.Stamp;
+import build.pluto.stamp.Stamper;
+import build.pluto.stamp.ValueStamp;
+
+/**
+ * Stamps Stratego modules by a hash of their abstract syntax tree, such that changes to layout and comments do not
+ * change the stamp. Falls back to the hash of the file when the module cannot be parsed.
+ */
+public class StrategoModuleStamper implements Stamper {
+    private static final long serialVersionUID = 3925286571262036437L;
+
+    private final SpoofaxContext context;
+
+
+    public StrategoModuleStamper(SpoofaxContext context) {
+        this.context = context;
+    }
+
+
+    @Override public Stamp stampOf(File file) {
+        if(!FileCommands.exists(file)) {
+            return new ValueStamp<>(this, null);
+        }
+
+        final IStrategoTerm term;
+        try {
+            term = context.parse(file);
+        } catch(ParseException | IOException e) {
+            return FileHashStamper.instance.stampOf(file);
+        }
+        if(term == null) {
+            return FileHashStamper.instance.stampOf(file);
+        }
+
+        // Term strings do not include attachments such as source locations, only the structure of the module.
+        final String hash = Hashing.murmur3_128().hashString(term.toString(), Charsets.UTF_8).toString();
+        return new ValueStamp<>(this, hash);
+    }
+}
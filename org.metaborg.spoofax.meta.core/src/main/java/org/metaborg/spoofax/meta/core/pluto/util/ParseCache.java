@@ -0,0 +1,193 @@
+package org.metaborg.spoofax.meta.core.pluto.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileSystemException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.spoofax.core.syntax.SyntaxFacet;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.io.binary.SAFWriter;
+import org.spoofax.terms.io.binary.TermReader;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Parse results shared between pluto builders, keyed by the hash of the parsed text and the parse table of the language
+ * it was parsed with. Results are kept in memory for the build session, and in a disk tier in the streamable ATerm
+ * format, such that a file is parsed at most once as long as its content and the parse table do not change. The disk
+ * tier keeps at most {@link #maxDiskEntries} results per directory, the least recently used results are removed once
+ * per build session. Terms read from the disk tier do not have source location attachments.
+ */
+public class ParseCache {
+    private static final ILogger logger = LoggerUtils.logger(ParseCache.class);
+
+    private static final String extension = ".saf";
+
+    /**
+     * Maximum number of parse results kept in a disk cache directory.
+     */
+    public static final int maxDiskEntries = 4096;
+
+    private final Cache<String, Result> results = CacheBuilder.newBuilder().softValues().build();
+    private final Set<File> trimmedDiskDirs = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+
+    /**
+     * Result of parsing a file.
+     */
+    public static class Result {
+        public final IStrategoTerm ast;
+        public final boolean success;
+
+
+        public Result(IStrategoTerm ast, boolean success) {
+            this.ast = ast;
+            this.success = success;
+        }
+    }
+
+
+    /**
+     * Computes the cache key for given text parsed with given language. The key includes the modification time and
+     * size of the parse table of the language, such that results are not reused after the language is rebuilt.
+     */
+    public static String key(String text, ILanguageImpl language) {
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putString(text, Charsets.UTF_8);
+        final SyntaxFacet facet = language.facet(SyntaxFacet.class);
+        if(facet != null && facet.parseTable != null) {
+            try {
+                final FileContent content = facet.parseTable.getContent();
+                hasher.putLong(content.getLastModifiedTime());
+                hasher.putLong(content.getSize());
+            } catch(FileSystemException e) {
+                logger.debug("Cannot stamp parse table {}, parse results may be stale", e, facet.parseTable);
+            }
+        }
+        return language.id().toString() + '-' + hasher.hash().toString();
+    }
+
+
+    /**
+     * Gets a cached parse result from memory, or from given disk cache directory.
+     *
+     * @return Cached parse result, or null if it is not cached.
+     */
+    public @Nullable Result get(String key, @Nullable File diskDir, ITermFactory termFactory) {
+        final Result result = results.getIfPresent(key);
+        if(result != null || diskDir == null) {
+            return result;
+        }
+
+        trimOnce(diskDir);
+        final File file = new File(diskDir, fileName(key));
+        if(!file.isFile()) {
+            return null;
+        }
+        try(final InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            final boolean success = stream.read() == 1;
+            final IStrategoTerm ast = new TermReader(termFactory).parseFromStream(stream);
+            final Result diskResult = new Result(ast, success);
+            results.put(key, diskResult);
+            // Mark as recently used, such that trimming keeps it.
+            if(!file.setLastModified(System.currentTimeMillis())) {
+                logger.trace("Cannot update modification time of cached parse result {}", file);
+            }
+            return diskResult;
+        } catch(IOException | RuntimeException e) {
+            logger.debug("Cannot read cached parse result {}, ignoring", e, file);
+            FileUtils.deleteQuietly(file);
+            return null;
+        }
+    }
+
+    /**
+     * Adds a parse result to memory, and to given disk cache directory.
+     */
+    public void put(String key, Result result, @Nullable File diskDir) {
+        results.put(key, result);
+        if(diskDir == null) {
+            return;
+        }
+
+        trimOnce(diskDir);
+        final File file = new File(diskDir, fileName(key));
+        final File tempFile = new File(diskDir, fileName(key) + ".tmp");
+        try {
+            FileUtils.forceMkdir(diskDir);
+            try(final OutputStream stream = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                stream.write(result.success ? 1 : 0);
+                SAFWriter.writeTermToSAFStream(result.ast, stream);
+            }
+            if(!tempFile.renameTo(file)) {
+                FileUtils.deleteQuietly(tempFile);
+            }
+        } catch(IOException | RuntimeException e) {
+            logger.debug("Cannot write cached parse result {}, ignoring", e, file);
+            FileUtils.deleteQuietly(tempFile);
+        }
+    }
+
+    /**
+     * Starts a new build session: removes all parse results from memory, and trims each disk cache directory again the
+     * next time it is used.
+     */
+    public void startSession() {
+        results.invalidateAll();
+        trimmedDiskDirs.clear();
+    }
+
+    /**
+     * Removes all parse results from memory.
+     */
+    public void clear() {
+        results.invalidateAll();
+    }
+
+
+    private void trimOnce(File diskDir) {
+        if(!trimmedDiskDirs.add(diskDir)) {
+            return;
+        }
+        final File[] files = diskDir.listFiles();
+        if(files == null || files.length <= maxDiskEntries) {
+            return;
+        }
+        // Remove least recently used results first.
+        Arrays.sort(files, new Comparator<File>() {
+            @Override public int compare(File file1, File file2) {
+                return Long.compare(file1.lastModified(), file2.lastModified());
+            }
+        });
+        for(int i = 0; i < files.length - maxDiskEntries; ++i) {
+            FileUtils.deleteQuietly(files[i]);
+        }
+    }
+
+    private static String fileName(String key) {
+        return key.replaceAll("[^a-zA-Z0-9_.-]", "_") + extension;
+    }
+}
@@ -0,0 +1,181 @@
+package org.metaborg.spoofax.meta.core.pluto.util;
+
+import javax.annotation.Nullable;
+
+import org.strategoxt.lang.Context;
+import org.strategoxt.stratego_sdf.stratego_sdf;
+
+/**
+ * Thread-confined pool of initialized Stratego contexts for the Stratego tools used in language specification builds.
+ * Each thread gets its own SDF, permissive grammars, and tools context, such that builds on different threads never
+ * share a context. Contexts can be prepared on another thread, in which case they are handed over to the first thread
+ * that requires a context of that kind and does not hold one yet. strj contexts are not pooled. strj keeps the options
+ * of a compilation in global tables of its context, so every compilation gets a fresh strj context.
+ */
+public class StrategoContextPool {
+    private static final PreparedContext preparedSdfContext = new PreparedContext() {
+        @Override protected Context init() {
+            return stratego_sdf.init();
+        }
+    };
+    private static final PreparedContext preparedPermissiveGrammarsContext = new PreparedContext() {
+        @Override protected Context init() {
+            return org.strategoxt.permissivegrammars.permissivegrammars.init();
+        }
+    };
+    private static final PreparedContext preparedToolsContext = new PreparedContext() {
+        @Override protected Context init() {
+            return org.strategoxt.tools.tools.init();
+        }
+    };
+    private static final PreparedContext preparedStrjContext = new PreparedContext() {
+        @Override protected Context init() {
+            return org.strategoxt.strj.strj.init();
+        }
+    };
+
+    private static final ThreadLocal<Context> sdfContexts = new ThreadLocal<>();
+    private static final ThreadLocal<Context> permissiveGrammarsContexts = new ThreadLocal<>();
+    private static final ThreadLocal<Context> toolsContexts = new ThreadLocal<>();
+
+
+    public static Context sdf() {
+        return get(sdfContexts, preparedSdfContext);
+    }
+
+    public static Context permissiveGrammars() {
+        return get(permissiveGrammarsContexts, preparedPermissiveGrammarsContext);
+    }
+
+    public static Context tools() {
+        return get(toolsContexts, preparedToolsContext);
+    }
+
+    /**
+     * @return True if the current thread holds an SDF context, such that preparing one for it is not needed.
+     */
+    public static boolean holdsSdf() {
+        return sdfContexts.get() != null;
+    }
+
+    /**
+     * @return True if the current thread holds a permissive grammars context, see {@link #holdsSdf()}.
+     */
+    public static boolean holdsPermissiveGrammars() {
+        return permissiveGrammarsContexts.get() != null;
+    }
+
+    /**
+     * @return True if the current thread holds a tools context, see {@link #holdsSdf()}.
+     */
+    public static boolean holdsTools() {
+        return toolsContexts.get() != null;
+    }
+
+    /**
+     * @return Fresh strj context for a single compilation.
+     */
+    public static Context strj() {
+        return preparedStrjContext.take();
+    }
+
+
+    /**
+     * Initializes an SDF context to be used by the next thread that requires an SDF context without having one, if no
+     * prepared context is available yet. Initializing a context loads the classes of the SDF tools, which can be done
+     * while other build steps run.
+     */
+    public static void prepareSdf() {
+        preparedSdfContext.prepare();
+    }
+
+    /**
+     * Initializes a permissive grammars context to be used by the next thread that requires one, see
+     * {@link #prepareSdf()}.
+     */
+    public static void preparePermissiveGrammars() {
+        preparedPermissiveGrammarsContext.prepare();
+    }
+
+    /**
+     * Initializes a tools context to be used by the next thread that requires one, see {@link #prepareSdf()}.
+     */
+    public static void prepareTools() {
+        preparedToolsContext.prepare();
+    }
+
+    /**
+     * Initializes a fresh strj context to be used by the next compilation, if no prepared context is available yet.
+     * Initializing a strj context loads the strj compiler classes, which takes several seconds, and can be done while
+     * other build steps run.
+     */
+    public static void prepareStrj() {
+        preparedStrjContext.prepare();
+    }
+
+
+    private static Context get(ThreadLocal<Context> contexts, PreparedContext prepared) {
+        Context context = contexts.get();
+        if(context == null) {
+            context = prepared.take();
+            contexts.set(context);
+        }
+        return context;
+    }
+
+
+    /**
+     * Context that is initialized ahead of time on one thread, and handed over to the thread that takes it. At most
+     * one context is initialized ahead of time. Taking a context while it is being prepared waits for the preparation
+     * to finish, instead of initializing another context.
+     */
+    private static abstract class PreparedContext {
+        private final Object lock = new Object();
+
+        // Guarded by lock.
+        private @Nullable Context prepared;
+        private boolean preparing;
+
+
+        protected abstract Context init();
+
+
+        public void prepare() {
+            synchronized(lock) {
+                if(prepared != null || preparing) {
+                    return;
+                }
+                preparing = true;
+            }
+            Context context = null;
+            try {
+                context = init();
+            } finally {
+                synchronized(lock) {
+                    preparing = false;
+                    prepared = context;
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        public Context take() {
+            synchronized(lock) {
+                try {
+                    while(preparing) {
+                        lock.wait();
+                    }
+                } catch(InterruptedException e) {
+                    // Initialize a context on this thread instead.
+                    Thread.currentThread().interrupt();
+                }
+                final Context context = prepared;
+                if(context != null) {
+                    prepared = null;
+                    return context;
+                }
+            }
+            return init();
+        }
+    }
+}
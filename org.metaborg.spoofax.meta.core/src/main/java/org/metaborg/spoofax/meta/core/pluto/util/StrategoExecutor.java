@@ -11,7 +11,6 @@ import org.strategoxt.lang.StrategoExit;
 import org.strategoxt.lang.Strategy;
 import org.strategoxt.stratego_lib.dr_scope_all_end_0_0;
 import org.strategoxt.stratego_lib.dr_scope_all_start_0_0;
-import org.strategoxt.stratego_sdf.stratego_sdf;
 
 public class StrategoExecutor {
     public static class ExecutionResult {
@@ -39,10 +38,6 @@ public class StrategoExecutor {
 
     private static final ILogger log = LoggerUtils.logger("Build log");
 
-    private static Context strategoSdfContext;
-    private static Context permissiveGrammarsContext;
-    private static Context toolsContext;
-
     private Context context;
     private Strategy strategy;
     private String strategyName;
@@ -57,32 +52,23 @@ public class StrategoExecutor {
     }
 
     public StrategoExecutor withSdfContext() {
-        if(strategoSdfContext == null) {
-            strategoSdfContext = stratego_sdf.init();
-        }
-        withContext(strategoSdfContext);
+        withContext(StrategoContextPool.sdf());
         return this;
     }
 
     public StrategoExecutor withPermissiveGrammarsContext() {
-        if(permissiveGrammarsContext == null) {
-            permissiveGrammarsContext = org.strategoxt.permissivegrammars.permissivegrammars.init();
-        }
-        withContext(permissiveGrammarsContext);
+        withContext(StrategoContextPool.permissiveGrammars());
         return this;
     }
 
     public StrategoExecutor withToolsContext() {
-        if(toolsContext == null) {
-            toolsContext = org.strategoxt.tools.tools.init();
-        }
-        withContext(toolsContext);
+        withContext(StrategoContextPool.tools());
         return this;
     }
 
     public StrategoExecutor withStrjContext() {
         // strj requires a fresh context each time.
-        withContext(org.strategoxt.strj.strj.init());
+        withContext(StrategoContextPool.strj());
         return this;
     }
 